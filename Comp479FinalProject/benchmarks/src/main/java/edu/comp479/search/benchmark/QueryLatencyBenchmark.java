@@ -0,0 +1,162 @@
+package edu.comp479.search.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import edu.comp479.ranking.RankEngine;
+import edu.comp479.search.index.FilteredInvertedIndex;
+import edu.comp479.search.index.IInvertedIndex;
+import edu.comp479.search.index.IndexFactory;
+import edu.comp479.search.indexer.Indexer;
+import edu.comp479.search.indexer.file.IndexReaderMemoryMapped;
+import edu.comp479.search.tokenizer.TokenizerNormalize;
+import edu.comp479.search.util.SentimentDictionaryBuilder;
+
+/**
+ * Latency of the ranking of a query, on a {@link SyntheticIndex} built with the
+ * {@link Indexer} once per trial.
+ *
+ * <p>
+ * The query holds {@code queryTermCount} consecutive terms from the rank
+ * {@code firstTermRank}: rank 1 is the most frequent term, the larger the rank
+ * the shorter the postings lists. {@code rankDocuments} ranks the query terms
+ * with the {@link RankEngine}, {@code search} also analyzes the raw query and
+ * looks up its sentiment like the search application, without printing the
+ * results.
+ *
+ * <p>
+ * Run with {@code -prof gc} for the allocation rate, or with {@link #main} which
+ * adds the GC profiler.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryLatencyBenchmark {
+    private static final String INDEX_NAME = "bench";
+
+    @Param({ "1", "2", "5" })
+    public int queryTermCount;
+
+    @Param({ "1", "10", "100" })
+    public int firstTermRank;
+
+    @Param({ "1000" })
+    public int termCount;
+
+    /**
+     * Length of the longest postings list. The rank engine reads a postings list
+     * again for each pair of its documents, a query costs about the cube of the
+     * lengths of its lists.
+     */
+    @Param({ "100", "300" })
+    public int maxPostings;
+
+    private Path dir;
+    private IndexReaderMemoryMapped reader;
+    private IInvertedIndex index;
+    private TokenizerNormalize tokenizer;
+    private Map<String, Integer> sentimentDict;
+    private List<String> queryTerms;
+    private HashMap<String, Integer> querySentiment;
+    private String rawQuery;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticIndex syntheticIndex = SyntheticIndex.generate(termCount, maxPostings, 1.0);
+        dir = Files.createTempDirectory("query-latency");
+        Path constructionDir = Files.createDirectories(dir.resolve("construction"));
+        Path indexDir = Files.createDirectories(dir.resolve("index"));
+        new Indexer(INDEX_NAME, syntheticIndex.documentStream(), constructionDir, indexDir, 64, 8, 4096, 4096)
+                .execute();
+
+        reader = new IndexReaderMemoryMapped(INDEX_NAME, indexDir);
+        reader.open();
+        index = new FilteredInvertedIndex(new IndexFactory().getIndex(reader), INDEX_NAME, indexDir);
+        tokenizer = new TokenizerNormalize();
+        sentimentDict = new SentimentDictionaryBuilder().loadSentimentDictionary();
+
+        queryTerms = new ArrayList<>();
+        querySentiment = new HashMap<>();
+        for (int rank = firstTermRank; rank < firstTermRank + queryTermCount; rank++) {
+            String term = SyntheticIndex.term(Math.min(rank, termCount));
+            queryTerms.add(term);
+            querySentiment.put(term, sentimentDict.getOrDefault(term, 0));
+        }
+        rawQuery = String.join(" ", queryTerms).toUpperCase();
+
+        // The rank engine prints the sentiment of each query
+        stdout = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(stdout);
+        reader.close();
+        SyntheticIndex.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public Map<Integer, HashMap<Integer, Double>> rankDocuments() throws IOException {
+        return new RankEngine(index).rankDocuments(queryTerms, querySentiment);
+    }
+
+    /**
+     * Ranks a raw query the way the search application does.
+     */
+    @Benchmark
+    public Map<Integer, HashMap<Integer, Double>> search() throws IOException {
+        List<String> queryTokens = tokenizer.analyze(rawQuery);
+        HashMap<String, Integer> sentimentMap = new HashMap<>();
+        for (String term : queryTokens) {
+            sentimentMap.put(term, sentimentDict.getOrDefault(term, 0));
+        }
+        return new RankEngine(index).rankDocuments(queryTokens, sentimentMap);
+    }
+
+    /**
+     * Runs the benchmark with the GC profiler.
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(QueryLatencyBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,237 @@
+package edu.comp479.search.benchmark;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.comp479.search.index.structure.DictionaryEntry;
+import edu.comp479.search.index.structure.Posting;
+import edu.comp479.search.indexer.file.IndexWriter;
+import edu.comp479.search.indexer.file.NormFileEntry;
+import edu.comp479.search.tokenizer.DocumentTerms;
+import edu.comp479.search.tokenizer.IDocumentTermStream;
+
+/**
+ * Generated inverted index with Zipf-distributed postings list lengths.
+ *
+ * <p>
+ * The term of rank {@code r} (from 1) has a postings list of about
+ * {@code maxPostings / r^zipfExponent} documents, at least 1. The documents of
+ * a list are spread at random over the whole collection and their term
+ * frequency follows a geometric distribution, most terms appearing once in a
+ * document. The terms are named so their alphabetical order is their rank.
+ *
+ * <p>
+ * The same parameters and seed always generate the same index.
+ */
+public final class SyntheticIndex {
+    public static final long DEFAULT_SEED = 479;
+
+    private final long docCount;
+    private final ImmutableList<String> terms;
+    private final ImmutableList<ImmutableList<Posting>> postingsLists;
+
+    private SyntheticIndex(long docCount, ImmutableList<String> terms,
+            ImmutableList<ImmutableList<Posting>> postingsLists) {
+        this.docCount = docCount;
+        this.terms = terms;
+        this.postingsLists = postingsLists;
+    }
+
+    /**
+     * @see SyntheticIndex#generate(int, int, double, long)
+     */
+    public static SyntheticIndex generate(int termCount, int maxPostings, double zipfExponent) {
+        return generate(termCount, maxPostings, zipfExponent, DEFAULT_SEED);
+    }
+
+    /**
+     * @param termCount    Number of terms.
+     * @param maxPostings  Length of the longest postings list, the collection
+     *                     holds twice as many documents.
+     * @param zipfExponent Exponent of the Zipf distribution of the list lengths.
+     * @param seed         Seed of the generator.
+     * @return The generated index.
+     */
+    public static SyntheticIndex generate(int termCount, int maxPostings, double zipfExponent, long seed) {
+        checkArgument(termCount > 0, "At least one term is required. Given: %s", termCount);
+        checkArgument(maxPostings > 0, "At least one posting is required. Given: %s", maxPostings);
+        checkArgument(zipfExponent >= 0, "The exponent must be positive. Given: %s", zipfExponent);
+
+        Random random = new Random(seed);
+        long docCount = 2l * maxPostings;
+        ImmutableList.Builder<String> terms = ImmutableList.builder();
+        ImmutableList.Builder<ImmutableList<Posting>> postingsLists = ImmutableList.builder();
+        for (int rank = 1; rank <= termCount; rank++) {
+            int docFreq = (int) Math.max(1, Math.round(maxPostings / Math.pow(rank, zipfExponent)));
+            terms.add(term(rank));
+            postingsLists.add(generatePostings(random, docFreq, docCount));
+        }
+        return new SyntheticIndex(docCount, terms.build(), postingsLists.build());
+    }
+
+    /**
+     * @param rank Rank of a term, from 1.
+     * @return The term of the rank.
+     */
+    public static String term(int rank) {
+        return String.format("t%07d", rank);
+    }
+
+    /**
+     * Writes the index, with a length norm for every document.
+     *
+     * @param indexName Name of the index.
+     * @param dir       Directory of the index.
+     * @throws IOException
+     */
+    public void write(String indexName, Path dir) throws IOException {
+        Files.createDirectories(dir);
+        try (IndexWriter writer = new IndexWriter(indexName, dir)) {
+            writePostings(writer);
+            List<NormFileEntry> norms = new ArrayList<>();
+            for (long docId = 0; docId < docCount; docId++) {
+                norms.add(new NormFileEntry(docId, 1, 0));
+            }
+            writer.writeFinalizeIndexWithNorm(docCount, norms);
+        }
+    }
+
+    /**
+     * Writes the dictionary entries and postings lists of the index, the writer
+     * is not finalized.
+     *
+     * @param writer Writer of the index.
+     */
+    public void writePostings(IndexWriter writer) {
+        for (int i = 0; i < terms.size(); i++) {
+            writer.write(new DictionaryEntry(terms.get(i), postingsLists.get(i).size(), 0), postingsLists.get(i));
+        }
+    }
+
+    /**
+     * Streams the documents of the index, to build it with an indexer. A document
+     * holds each of its terms as many times as its term frequency, documents
+     * without terms are skipped.
+     *
+     * @return A new stream over the documents, by docId.
+     */
+    public IDocumentTermStream documentStream() {
+        // Transpose the postings lists, the terms of document d are
+        // docTerms[docStarts[d]..docStarts[d + 1][
+        checkState(docCount <= Integer.MAX_VALUE, "Too many documents to stream: %s", docCount);
+        int[] docStarts = new int[(int) docCount + 1];
+        for (ImmutableList<Posting> postings : postingsLists) {
+            for (Posting posting : postings) {
+                docStarts[(int) posting.getDocId() + 1]++;
+            }
+        }
+        for (int docId = 0; docId < docCount; docId++) {
+            docStarts[docId + 1] += docStarts[docId];
+        }
+        int[] docTerms = new int[docStarts[(int) docCount]];
+        int[] docTermFreqs = new int[docTerms.length];
+        int[] docEnds = Arrays.copyOf(docStarts, (int) docCount);
+        for (int termIndex = 0; termIndex < postingsLists.size(); termIndex++) {
+            for (Posting posting : postingsLists.get(termIndex)) {
+                int position = docEnds[(int) posting.getDocId()]++;
+                docTerms[position] = termIndex;
+                docTermFreqs[position] = posting.getTermFreq();
+            }
+        }
+
+        return new IDocumentTermStream() {
+            private int nextDocId = skipEmptyDocuments(0);
+
+            @Override
+            public boolean hasNextDocument() {
+                return nextDocId < docCount;
+            }
+
+            @Override
+            public DocumentTerms nextDocument() {
+                checkState(hasNextDocument(), "No more documents.");
+                DocumentTerms.Builder builder = DocumentTerms.builder(nextDocId);
+                for (int i = docStarts[nextDocId]; i < docStarts[nextDocId + 1]; i++) {
+                    String term = terms.get(docTerms[i]);
+                    for (int occurrence = 0; occurrence < docTermFreqs[i]; occurrence++) {
+                        builder.add(term);
+                    }
+                }
+                nextDocId = skipEmptyDocuments(nextDocId + 1);
+                return builder.build();
+            }
+
+            private int skipEmptyDocuments(int docId) {
+                while (docId < docCount && docStarts[docId] == docStarts[docId + 1]) {
+                    docId++;
+                }
+                return docId;
+            }
+        };
+    }
+
+    public long getDocCount() {
+        return docCount;
+    }
+
+    public ImmutableList<String> getTerms() {
+        return terms;
+    }
+
+    /**
+     * @param termIndex Index of the term in {@link #getTerms()}.
+     * @return The postings list of the term.
+     */
+    public ImmutableList<Posting> getPostings(int termIndex) {
+        return postingsLists.get(termIndex);
+    }
+
+    /**
+     * @return The total number of postings.
+     */
+    public long getPostingsCount() {
+        return postingsLists.stream().mapToLong(List::size).sum();
+    }
+
+    /**
+     * Deletes a directory created for a benchmark and its files.
+     *
+     * @param dir Directory to delete.
+     * @throws IOException
+     */
+    public static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Spreads the postings with random gaps averaging {@code docCount / docFreq}.
+     */
+    private static ImmutableList<Posting> generatePostings(Random random, int docFreq, long docCount) {
+        ImmutableList.Builder<Posting> postings = ImmutableList.builderWithExpectedSize(docFreq);
+        long slotSize = docCount / docFreq;
+        for (int i = 0; i < docFreq; i++) {
+            long docId = i * slotSize + (long) (random.nextDouble() * slotSize);
+            int termFreq = 1 + (int) (-Math.log(1 - random.nextDouble()) / 1.5);
+            postings.add(new Posting(docId, termFreq, (float) random.nextDouble()));
+        }
+        return postings.build();
+    }
+}
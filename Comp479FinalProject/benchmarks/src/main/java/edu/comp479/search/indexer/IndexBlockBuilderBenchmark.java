@@ -0,0 +1,132 @@
+package edu.comp479.search.indexer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.comp479.search.benchmark.SyntheticIndex;
+import edu.comp479.search.indexer.file.IndexWriter;
+import edu.comp479.search.tokenizer.DocumentTerms;
+import edu.comp479.search.tokenizer.IDocumentTermStream;
+import edu.comp479.search.util.SentimentDictionaryBuilder;
+
+/**
+ * Cost of building one SPIMI block from the documents of a
+ * {@link SyntheticIndex}.
+ *
+ * <p>
+ * {@code addPosting} adds the block one token at a time, like the inversion of a
+ * token stream, {@code addDocument} adds it one document at a time with the term
+ * frequencies already counted. {@code writeToDisk} writes a block built once
+ * per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndexBlockBuilderBenchmark {
+    private static final String BLOCK_NAME = "block";
+
+    /**
+     * Length of the longest postings list, the block holds twice as many
+     * documents.
+     */
+    @Param({ "5000", "50000" })
+    public int maxPostings;
+
+    @Param({ "10000" })
+    public int termCount;
+
+    @Param({ "4096", "65536" })
+    public int bufferSize;
+
+    private Map<String, Integer> sentimentDict;
+    private List<DocumentTerms> documents;
+    private String[] tokenTerms;
+    private long[] tokenDocIds;
+    private IndexBlockBuilder block;
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        sentimentDict = new SentimentDictionaryBuilder().loadSentimentDictionary();
+
+        documents = new ArrayList<>();
+        IDocumentTermStream documentStream = SyntheticIndex.generate(termCount, maxPostings, 1.0)
+                .documentStream();
+        int tokenCount = 0;
+        while (documentStream.hasNextDocument()) {
+            DocumentTerms document = documentStream.nextDocument();
+            documents.add(document);
+            for (int i = 0; i < document.size(); i++) {
+                tokenCount += document.getTermFreq(i);
+            }
+        }
+
+        tokenTerms = new String[tokenCount];
+        tokenDocIds = new long[tokenCount];
+        int token = 0;
+        for (DocumentTerms document : documents) {
+            for (int i = 0; i < document.size(); i++) {
+                for (int occurrence = 0; occurrence < document.getTermFreq(i); occurrence++) {
+                    tokenTerms[token] = document.getTerm(i);
+                    tokenDocIds[token] = document.getDocId();
+                    token++;
+                }
+            }
+        }
+
+        block = addDocument();
+        dir = Files.createTempDirectory("block-builder");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticIndex.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public IndexBlockBuilder addPosting() {
+        IndexBlockBuilder builder = new IndexBlockBuilder(sentimentDict, new TermDictionary());
+        for (int i = 0; i < tokenTerms.length; i++) {
+            builder.addPosting(tokenTerms[i], tokenDocIds[i]);
+        }
+        return builder;
+    }
+
+    @Benchmark
+    public IndexBlockBuilder addDocument() {
+        IndexBlockBuilder builder = new IndexBlockBuilder(sentimentDict, new TermDictionary());
+        for (DocumentTerms document : documents) {
+            builder.addDocument(document);
+        }
+        return builder;
+    }
+
+    @Benchmark
+    public void writeToDisk() throws IOException {
+        try (IndexWriter writer = new IndexWriter(BLOCK_NAME, dir, bufferSize)) {
+            block.writeToDisk(writer);
+        }
+    }
+}
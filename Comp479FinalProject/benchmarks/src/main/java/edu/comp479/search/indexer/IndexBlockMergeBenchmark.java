@@ -0,0 +1,148 @@
+package edu.comp479.search.indexer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.comp479.search.benchmark.SyntheticIndex;
+import edu.comp479.search.indexer.file.IndexDataMapperFactory;
+import edu.comp479.search.indexer.file.IndexReaderStreamed;
+import edu.comp479.search.indexer.file.IndexWriter;
+import edu.comp479.search.tokenizer.DocumentTerms;
+import edu.comp479.search.tokenizer.IDocumentTermStream;
+import edu.comp479.search.util.SentimentDictionaryBuilder;
+
+/**
+ * Cost of merging the SPIMI blocks of a {@link SyntheticIndex}.
+ *
+ * <p>
+ * The documents are split by docId into {@code blockCount} blocks written once
+ * per trial, sharing their term dictionary like the blocks of the indexer.
+ * {@code externalMultiwayMerge} merges them {@code inputBufferCount} at a time,
+ * the number of passes grows with the number of blocks over the number of
+ * inputs. {@code getNextEntriesWithSameTerm} drains all the blocks in a single
+ * pass without writing the merged entries, the cost of the k-way selection and
+ * of the decoding alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndexBlockMergeBenchmark {
+    private static final String INDEX_NAME = "merged";
+
+    @Param({ "4", "16", "64" })
+    public int blockCount;
+
+    @Param({ "2", "4", "16" })
+    public int inputBufferCount;
+
+    @Param({ "4096", "65536" })
+    public int bufferSize;
+
+    @Param({ "20000" })
+    public int maxPostings;
+
+    @Param({ "10000" })
+    public int termCount;
+
+    private Path dir;
+    private Path outputDir;
+    private TermDictionary termDictionary;
+    private List<String> blockNames;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("block-merge");
+        outputDir = dir.resolve("output");
+
+        Map<String, Integer> sentimentDict = new SentimentDictionaryBuilder().loadSentimentDictionary();
+        SyntheticIndex index = SyntheticIndex.generate(termCount, maxPostings, 1.0);
+        IDocumentTermStream documentStream = index.documentStream();
+        termDictionary = new TermDictionary();
+        blockNames = new ArrayList<>();
+
+        // Consecutive docIds per block, like the blocks filled by the inverter
+        long docsPerBlock = (index.getDocCount() + blockCount - 1) / blockCount;
+        DocumentTerms document = documentStream.nextDocument();
+        for (int i = 0; i < blockCount && document != null; i++) {
+            IndexBlockBuilder block = new IndexBlockBuilder(sentimentDict, termDictionary);
+            while (document != null && document.getDocId() < (i + 1) * docsPerBlock) {
+                block.addDocument(document);
+                document = documentStream.hasNextDocument() ? documentStream.nextDocument() : null;
+            }
+            String blockName = String.format("%s.block%d", INDEX_NAME, i);
+            try (IndexWriter writer = new IndexWriter(blockName, dir, bufferSize)) {
+                block.writeToDisk(writer);
+            }
+            blockNames.add(blockName);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticIndex.deleteDirectory(dir);
+    }
+
+    /**
+     * Merges the blocks into one, writing the partial merges of each pass.
+     */
+    @Benchmark
+    public String externalMultiwayMerge() throws IOException {
+        return new IndexBlockMerger(INDEX_NAME, blockNames, dir, outputDir, new IndexDataMapperFactory(),
+                termDictionary, inputBufferCount, bufferSize, bufferSize).externalMultiwayMerge();
+    }
+
+    @Benchmark
+    public void getNextEntriesWithSameTerm(OpenBlocks blocks, Blackhole blackhole) throws IOException {
+        MergeHelper mergeHelper = new MergeHelper(blocks.readers, termDictionary);
+        while (mergeHelper.hasNextEntry()) {
+            blackhole.consume(mergeHelper.getNextEntriesWithSameTerm());
+        }
+    }
+
+    /**
+     * Streams over all the blocks, opened again before each drain.
+     */
+    @State(Scope.Thread)
+    public static class OpenBlocks {
+        private IndexReaderStreamed[] readers;
+
+        @Setup(Level.Invocation)
+        public void open(IndexBlockMergeBenchmark benchmark) throws IOException {
+            readers = new IndexReaderStreamed[benchmark.blockNames.size()];
+            for (int i = 0; i < readers.length; i++) {
+                readers[i] = new IndexReaderStreamed(benchmark.blockNames.get(i), benchmark.dir);
+                readers[i].open(benchmark.bufferSize);
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() throws IOException {
+            for (IndexReaderStreamed reader : readers) {
+                reader.close();
+            }
+        }
+    }
+}
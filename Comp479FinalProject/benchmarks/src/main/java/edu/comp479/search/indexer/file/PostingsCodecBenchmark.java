@@ -0,0 +1,132 @@
+package edu.comp479.search.indexer.file;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.google.common.collect.ImmutableList;
+
+import edu.comp479.search.benchmark.SyntheticIndex;
+import edu.comp479.search.index.structure.DictionaryEntryLinked;
+import edu.comp479.search.index.structure.Posting;
+
+/**
+ * Throughput of the postings codec and of the memory mapped reads, on a
+ * {@link SyntheticIndex}.
+ *
+ * <p>
+ * {@code decodePostingsList} decodes a list from a heap copy of the postings
+ * file, {@code readPostings} decodes the same list from the mapped file. The
+ * difference between the two is the cost of the mapping. The benchmark is in the
+ * package of the readers to call their protected decoding methods.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PostingsCodecBenchmark {
+    private static final String INDEX_NAME = "bench";
+    private static final int NORM_READS = 1024;
+
+    /**
+     * Length of the longest postings list.
+     */
+    @Param({ "1000", "100000" })
+    public int maxPostings;
+
+    /**
+     * Rank of the term of the decoded postings list, 1 is the longest list.
+     */
+    @Param({ "1", "100" })
+    public int termRank;
+
+    @Param({ "1000" })
+    public int termCount;
+
+    @Param({ "1.0" })
+    public double zipfExponent;
+
+    private SyntheticIndex index;
+    private Path dir;
+    private IndexReaderMemoryMapped reader;
+    private DictionaryEntryLinked entry;
+    private byte[] postingsBytes;
+    private long[] normDocIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        index = SyntheticIndex.generate(termCount, maxPostings, zipfExponent);
+        dir = Files.createTempDirectory("postings-codec");
+        index.write(INDEX_NAME, dir);
+
+        reader = new IndexReaderMemoryMapped(INDEX_NAME, dir);
+        reader.open();
+        entry = (DictionaryEntryLinked) reader.readCompleteDictionary().get(SyntheticIndex.term(termRank));
+        postingsBytes = Files.readAllBytes(reader.postingsPath);
+
+        Random random = new Random(SyntheticIndex.DEFAULT_SEED);
+        normDocIds = new long[NORM_READS];
+        for (int i = 0; i < NORM_READS; i++) {
+            normDocIds[i] = (long) (random.nextDouble() * index.getDocCount());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reader.close();
+        SyntheticIndex.deleteDirectory(dir);
+    }
+
+    /**
+     * Writes the whole index: the dictionary, the postings lists and the norms.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void writeIndex() throws IOException {
+        index.write(INDEX_NAME + "_write", dir);
+    }
+
+    @Benchmark
+    public ImmutableList<Posting> decodePostingsList() {
+        Input input = new Input(postingsBytes);
+        input.setPosition((int) entry.getPostingsOffset());
+        return reader.decodePostingsList(input, entry.getDocFreq());
+    }
+
+    @Benchmark
+    public ImmutableList<Posting> readPostings() {
+        return reader.readPostings(entry);
+    }
+
+    /**
+     * Reads the norms of documents spread over the whole norm file.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NORM_READS)
+    public void readNormEntry(Blackhole blackhole) {
+        for (long docId : normDocIds) {
+            blackhole.consume(reader.readNormEntry(docId));
+        }
+    }
+}
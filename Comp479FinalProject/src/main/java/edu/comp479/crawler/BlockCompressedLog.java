@@ -0,0 +1,255 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.google.common.base.Verify;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Log of records compressed together in blocks.
+ *
+ * <p>
+ * Records are gathered in a pending block until it reaches
+ * {@code blockBytes}, the block is then deflated and appended to a
+ * {@link SegmentLog} keyed by block number. The offset index of the records
+ * locates a record by its block and its offset in the uncompressed block. The
+ * last decompressed blocks are cached since consecutive docIds are read
+ * together.
+ *
+ * <p>
+ * The records of the pending block are only indexed once the block is written,
+ * they are lost if the log is not closed.
+ */
+class BlockCompressedLog implements RecordLog {
+    static final String INDEX_EXTENSION = ".idx";
+    static final String BLOCKS_SUFFIX = ".blocks";
+
+    static final int FILE_VERSION = 0xD511;
+
+    private static final int BLOCK_HEADER_SIZE = 4;
+    private static final int DEFLATE_BUFFER_SIZE = 8192;
+
+    private final String name;
+    private final int blockBytes;
+    private final boolean writable;
+
+    private final OffsetIndex index;
+    private final SegmentLog blocks;
+    private final LoadingCache<Integer, byte[]> blockCache;
+
+    // Pending block, guarded by this
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final Map<Long, PendingRecord> pendingRecords = new HashMap<>();
+    private byte[] pendingBlock;
+    private int pendingSize;
+    private int pendingBlockNumber;
+
+    /**
+     * Opens the log in the given directory, creating it if it is writable and
+     * absent. Appends to an existing log start a new block.
+     *
+     * @param directory       Directory of the log files.
+     * @param name            Name of the log, prefix of its files.
+     * @param maxSegmentBytes Size from which a new segment of blocks is started.
+     * @param blockBytes      Uncompressed size from which a block is written.
+     * @param cachedBlocks    Number of decompressed blocks kept in memory.
+     * @param writable        {@code false} to open the log read-only and
+     *                        memory-mapped.
+     * @throws IOException
+     */
+    BlockCompressedLog(Path directory, String name, long maxSegmentBytes, int blockBytes, int cachedBlocks,
+            boolean writable) throws IOException {
+        this.name = checkNotNull(name);
+        checkArgument(blockBytes > 0, "The block size must be greater than 0. Given: %s", blockBytes);
+        checkArgument(cachedBlocks > 0, "The cached block count must be greater than 0. Given: %s", cachedBlocks);
+        this.blockBytes = blockBytes;
+        this.writable = writable;
+
+        this.index = new OffsetIndex(indexPath(directory, name), FILE_VERSION, writable);
+        try {
+            this.blocks = new SegmentLog(directory, name + BLOCKS_SUFFIX, maxSegmentBytes, writable);
+            this.pendingBlockNumber = (int) blocks.capacity();
+        } catch (IOException | RuntimeException e) {
+            index.close();
+            throw e;
+        }
+        this.pendingBlock = new byte[writable ? blockBytes : 0];
+        this.blockCache = CacheBuilder.newBuilder().maximumSize(cachedBlocks)
+                .build(new CacheLoader<Integer, byte[]>() {
+                    @Override
+                    public byte[] load(Integer blockNumber) throws IOException {
+                        return readBlock(blockNumber);
+                    }
+                });
+    }
+
+    @Override
+    public synchronized String append(long docId, byte[] record) throws IOException {
+        checkState(writable, "The log is opened read-only.");
+        checkArgument(docId >= 0, "The docId must be non-negative. Given: %s", docId);
+        checkArgument(record.length > 0, "Empty records cannot be stored.");
+
+        if (pendingSize > 0 && pendingSize + record.length > blockBytes) {
+            flushBlock();
+        }
+        if (pendingSize + record.length > pendingBlock.length) {
+            pendingBlock = Arrays.copyOf(pendingBlock, pendingSize + record.length);
+        }
+        System.arraycopy(record, 0, pendingBlock, pendingSize, record.length);
+        pendingRecords.put(docId, new PendingRecord(pendingSize, record.length));
+        pendingSize += record.length;
+
+        return name + BLOCKS_SUFFIX;
+    }
+
+    @Override
+    public byte[] read(long docId) throws IOException {
+        if (writable) {
+            synchronized (this) {
+                PendingRecord pending = pendingRecords.get(docId);
+                if (pending != null) {
+                    return Arrays.copyOfRange(pendingBlock, pending.offset, pending.offset + pending.length);
+                }
+            }
+        }
+
+        OffsetIndex.Entry entry = index.read(docId);
+        if (entry == null) {
+            return null;
+        }
+
+        byte[] block;
+        try {
+            block = blockCache.get(entry.number);
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to read block " + entry.number + " of " + name, e.getCause());
+        }
+        Verify.verify(entry.offset + entry.length <= block.length,
+                "Corrupted offset index, record of docId %s outside of block %s", docId, entry.number);
+        return Arrays.copyOfRange(block, (int) entry.offset, (int) entry.offset + entry.length);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (writable && pendingSize > 0) {
+                flushBlock();
+            }
+        } finally {
+            deflater.end();
+            try {
+                blocks.close();
+            } finally {
+                index.close();
+            }
+        }
+    }
+
+    /**
+     * Deletes the files of a log.
+     *
+     * @param directory Directory of the log files.
+     * @param name      Name of the log.
+     * @throws IOException
+     */
+    static void delete(Path directory, String name) throws IOException {
+        Files.deleteIfExists(indexPath(directory, name));
+        SegmentLog.delete(directory, name + BLOCKS_SUFFIX);
+    }
+
+    /**
+     * @return {@code true} if a log with this name exists in the directory.
+     */
+    static boolean exists(Path directory, String name) {
+        return Files.isRegularFile(indexPath(directory, name));
+    }
+
+    private void flushBlock() throws IOException {
+        byte[] rawBlock = Arrays.copyOf(pendingBlock, pendingSize);
+        blocks.append(pendingBlockNumber, compress(rawBlock));
+        for (Map.Entry<Long, PendingRecord> record : pendingRecords.entrySet()) {
+            PendingRecord pending = record.getValue();
+            index.write(record.getKey(), pendingBlockNumber, pending.length, pending.offset);
+        }
+        // The block just written is likely to be read next
+        blockCache.put(pendingBlockNumber, rawBlock);
+
+        pendingBlockNumber++;
+        pendingRecords.clear();
+        pendingSize = 0;
+    }
+
+    private byte[] compress(byte[] rawBlock) {
+        deflater.reset();
+        deflater.setInput(rawBlock);
+        deflater.finish();
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(rawBlock.length / 2 + BLOCK_HEADER_SIZE);
+        compressed.write(ByteBuffer.allocate(BLOCK_HEADER_SIZE).putInt(rawBlock.length).array(), 0,
+                BLOCK_HEADER_SIZE);
+        byte[] buffer = new byte[DEFLATE_BUFFER_SIZE];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            compressed.write(buffer, 0, length);
+        }
+        return compressed.toByteArray();
+    }
+
+    private byte[] readBlock(int blockNumber) throws IOException {
+        byte[] compressed = blocks.read(blockNumber);
+        if (compressed == null) {
+            throw new IOException("Missing block " + blockNumber + " of " + name);
+        }
+        int rawLength = ByteBuffer.wrap(compressed).getInt();
+        byte[] rawBlock = new byte[rawLength];
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed, BLOCK_HEADER_SIZE, compressed.length - BLOCK_HEADER_SIZE);
+            int inflated = 0;
+            while (inflated < rawLength && !inflater.finished()) {
+                int length = inflater.inflate(rawBlock, inflated, rawLength - inflated);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += length;
+            }
+            Verify.verify(inflated == rawLength, "Truncated block %s of %s, inflated %s of %s bytes", blockNumber,
+                    name, inflated, rawLength);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted block " + blockNumber + " of " + name, e);
+        } finally {
+            inflater.end();
+        }
+        return rawBlock;
+    }
+
+    private static Path indexPath(Path directory, String name) {
+        return directory.resolve(name + INDEX_EXTENSION);
+    }
+
+    private static final class PendingRecord {
+        private final int offset;
+        private final int length;
+
+        PendingRecord(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
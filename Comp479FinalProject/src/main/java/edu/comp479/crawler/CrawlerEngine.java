@@ -0,0 +1,245 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Parallel crawler with a shared frontier and a bounded number of fetchers.
+ *
+ * <p>
+ * Every url is fetched a single time by the {@link PageFetcher}, the parsed
+ * page gives the title, text and links at once. Requests to a same host are
+ * spaced by the {@link HostPoliteness} policy.
+ *
+ * <p>
+ * Urls are normalized with the {@link UrlNormalizer} and marked as seen when
+ * they enter the frontier, the frontier never holds the same url twice.
+ *
+ * <p>
+ * The pages crawled before are fetched again for their links, they only
+ * produce a document if their content changed. An unchanged page gets no docId
+ * and does not count in the {@code maxPages} documents.
+ *
+ * <p>
+ * The crawl stops once {@code maxPages} documents were produced or the frontier
+ * is exhausted.
+ */
+public class CrawlerEngine {
+    private static final Logger LOGGER = Logger.getLogger(CrawlerEngine.class.getName());
+
+    private static final long FRONTIER_POLL_MS = 50;
+
+    private final PageFetcher fetcher;
+    private final int fetcherCount;
+    private final HostPoliteness politeness;
+    private final Predicate<String> urlFilter;
+
+    private BlockingQueue<String> frontier;
+    private SeenUrlSet seenUrls;
+    private AtomicInteger pendingUrls;
+    private AtomicInteger reservedPages;
+    private AtomicInteger producedPages;
+    private volatile boolean stopped;
+
+    /**
+     * Creates a new {@link CrawlerEngine}.
+     *
+     * @param fetcher           Fetcher used to download the pages.
+     * @param fetcherCount      Number of concurrent fetches.
+     * @param politenessDelayMs Minimum delay between two requests to a same host.
+     * @param urlFilter         Decides if a discovered url should be crawled. It
+     *                          is called at most once per normalized url from the
+     *                          fetcher threads.
+     */
+    public CrawlerEngine(PageFetcher fetcher, int fetcherCount, long politenessDelayMs,
+            Predicate<String> urlFilter) {
+        this.fetcher = checkNotNull(fetcher);
+        checkArgument(fetcherCount > 0, "The number of fetchers must be greater than 0. Given: %s", fetcherCount);
+        this.fetcherCount = fetcherCount;
+        this.politeness = new HostPoliteness(politenessDelayMs);
+        this.urlFilter = checkNotNull(urlFilter);
+    }
+
+    /**
+     * Crawls from the given seeds and hands every fetched document to the
+     * {@code sink}.
+     *
+     * <p>
+     * <b>Note:</b> The sink is called concurrently from the fetcher threads and
+     * must be thread-safe.
+     *
+     * @param seeds    Urls to start from, they are not checked by the filter.
+     *                 Invalid urls are ignored.
+     * @param maxPages Maximum number of documents to produce.
+     * @param sink     Consumer of the crawled documents.
+     * @return The number of documents produced.
+     * @throws InterruptedException If interrupted while waiting on the fetchers.
+     */
+    public int crawl(List<String> seeds, int maxPages, Consumer<Document> sink) throws InterruptedException {
+        return crawl(seeds, maxPages, (url) -> null, sink);
+    }
+
+    /**
+     * Crawls from the given seeds and hands every new or changed document to the
+     * {@code sink}.
+     *
+     * @param seeds              Urls to start from, they are not checked by the
+     *                           filter. Invalid urls are ignored.
+     * @param maxPages           Maximum number of documents to produce.
+     * @param knownContentHashes Content hash of a page crawled before by url,
+     *                           {@code null} for a new page. A page without a known
+     *                           hash, 0, is produced again. Called from the fetcher
+     *                           threads.
+     * @param sink               Consumer of the crawled documents.
+     * @return The number of documents produced.
+     * @throws InterruptedException If interrupted while waiting on the fetchers.
+     * @see #crawl(List, int, Consumer)
+     * @see Document#getContentHash()
+     */
+    public int crawl(List<String> seeds, int maxPages, Function<String, Long> knownContentHashes,
+            Consumer<Document> sink) throws InterruptedException {
+        checkNotNull(seeds);
+        checkArgument(maxPages >= 0, "The maximum page count must be non-negative. Given: %s", maxPages);
+        checkNotNull(knownContentHashes);
+        checkNotNull(sink);
+
+        frontier = new LinkedBlockingQueue<>();
+        seenUrls = new SeenUrlSet();
+        pendingUrls = new AtomicInteger();
+        reservedPages = new AtomicInteger();
+        producedPages = new AtomicInteger();
+        stopped = maxPages == 0;
+
+        for (String seed : seeds) {
+            seed = UrlNormalizer.normalize(seed);
+            if (seed != null && seenUrls.add(seed)) {
+                pendingUrls.incrementAndGet();
+                frontier.add(seed);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(fetcherCount,
+                new ThreadFactoryBuilder().setNameFormat("crawler-fetcher-%d").setDaemon(true).build());
+        List<Future<?>> fetchers = new ArrayList<>();
+        try {
+            for (int i = 0; i < fetcherCount; i++) {
+                fetchers.add(executor.submit(() -> runFetcher(maxPages, knownContentHashes, sink)));
+            }
+            for (Future<?> fetcherResult : fetchers) {
+                fetcherResult.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A crawler fetcher failed.", e.getCause());
+        } finally {
+            stopped = true;
+            executor.shutdownNow();
+        }
+
+        return producedPages.get();
+    }
+
+    private Void runFetcher(int maxPages, Function<String, Long> knownContentHashes, Consumer<Document> sink)
+            throws InterruptedException {
+        while (!stopped) {
+            String url = frontier.poll(FRONTIER_POLL_MS, TimeUnit.MILLISECONDS);
+            if (url == null) {
+                if (pendingUrls.get() == 0) {
+                    break;
+                }
+                continue;
+            }
+
+            if (!tryReservePage(maxPages)) {
+                if (producedPages.get() >= maxPages) {
+                    stopped = true;
+                    break;
+                }
+                // The remaining budget is held by fetches in flight, retry once they are done
+                frontier.add(url);
+                Thread.sleep(FRONTIER_POLL_MS);
+                continue;
+            }
+
+            try {
+                if (fetchPage(url, knownContentHashes, sink)) {
+                    producedPages.incrementAndGet();
+                } else {
+                    reservedPages.decrementAndGet();
+                }
+            } finally {
+                pendingUrls.decrementAndGet();
+            }
+        }
+        return null;
+    }
+
+    private boolean tryReservePage(int maxPages) {
+        while (true) {
+            int reserved = reservedPages.get();
+            if (reserved >= maxPages) {
+                return false;
+            }
+            if (reservedPages.compareAndSet(reserved, reserved + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the page produced a document.
+     */
+    private boolean fetchPage(String url, Function<String, Long> knownContentHashes, Consumer<Document> sink)
+            throws InterruptedException {
+        FetchedPage page;
+        try {
+            politeness.acquire(new URL(url).getHost());
+            page = fetcher.fetch(url);
+        } catch (MalformedURLException e) {
+            LOGGER.log(Level.FINE, "Skipping malformed url: " + url, e);
+            return false;
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Cannot fetch " + url + ": " + e.getMessage());
+            return false;
+        }
+
+        // The docId is only taken by a new or changed page
+        Long knownContentHash = knownContentHashes.apply(page.getUrl());
+        boolean produced = knownContentHash == null
+                || knownContentHash != Document.contentHash(page.getTitle(), page.getBody());
+        if (produced) {
+            sink.accept(new Document(page.getTitle(), page.getBody(), page.getUrl()));
+        }
+
+        for (String link : page.getLinks()) {
+            if (stopped) {
+                break;
+            }
+            link = UrlNormalizer.normalize(link);
+            if (link != null && seenUrls.add(link) && urlFilter.test(link)) {
+                pendingUrls.incrementAndGet();
+                frontier.add(link);
+            }
+        }
+        return produced;
+    }
+}
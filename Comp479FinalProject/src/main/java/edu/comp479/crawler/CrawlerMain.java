@@ -1,192 +1,122 @@
 package edu.comp479.crawler;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.net.URL;
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+
+import com.google.common.collect.ImmutableList;
 
 public class CrawlerMain {
     private static Logger LOGGER = Logger.getLogger(CrawlerMain.class.getName());
 
+    public static final int DEFAULT_FETCHER_COUNT = 8;
+    public static final long DEFAULT_POLITENESS_DELAY_MS = 100;
+
+    // you can change this path to a URL path
+    private static final String SITE_URL = "https://www.concordia.ca";
+    private static final String FIRST_URL = "https://www.concordia.ca/about.html";
+
+    private static final List<String> SOCIAL_MEDIA = ImmutableList.of("facebook", "twitter", "linkedin", "instagram",
+            "flickr", "pinterest", "youtube", "https://stores.concordia.ca/");
+
     private List<Document> documents;
+    private RobotsTxtCache robotsTxtCache;
 
     public List<Document> getDocuments() {
         return documents;
     }
-    
+
     // Help with garbage collection when over
     public void clearDocuments() {
         documents = null;
     }
 
+    /**
+     * @see #execute(int, int, long)
+     */
     public void execute(int interation) throws IOException {
-
-        TextExtractionEngine te = new TextExtractionEngine();
-        Webcrawler crawler = new Webcrawler();
-
-        // you can change this path to a URL path
-        String url = "https://www.concordia.ca";
-        String firstUrl = "https://www.concordia.ca/about.html";
-
-        String source = crawler.getUrlContents(firstUrl);
-        List<String> firstPageLinks = new ArrayList<>();
-        List<String> visitedLinks = new ArrayList<>();
-
-        visitedLinks.add(firstUrl);
-
-        HashMap<Integer, String> links = te.extractLinksFromHtml(source);
-
-        String title = te.getTitle(source);
-        String body = te.getHtmlBody(source);
-
-        Document document = new Document(title, body, firstUrl);
-
-        documents = new ArrayList<>();
-        documents.add(document);
-
-        // print all the links in the document
-        for (Map.Entry<Integer, String> entry : links.entrySet()) {
-
-            firstPageLinks.add(entry.getValue());
-
-        }
-
-        int counter = 0;
-        List<String> socialMedia = new ArrayList<>();
-        socialMedia.add("facebook");
-        socialMedia.add("twitter");
-        socialMedia.add("linkedin");
-        socialMedia.add("instagram");
-        socialMedia.add("flickr");
-        socialMedia.add("pinterest");
-        socialMedia.add("youtube");
-        socialMedia.add("https://stores.concordia.ca/");
-
-        /**
-         *
-         * Basically what this do while does, it goes through the links, see if we
-         * already visited the link and if we did not visit them, we add the currently
-         * link to the visited links list, extract the links from the current page,
-         * extract the title and all the html data from the page and put in the title
-         * list and bodies list. We add the current page links to visit into the main
-         * list of links.
-         *
-         *
-         */
-        do {
-            HashMap<Integer, String> addedLinks = new HashMap<>();
-
-            if (firstPageLinks.get(counter).startsWith("/") && (!visitedLinks.contains(firstPageLinks.get(counter)))) {
-                String urlNew = url + firstPageLinks.get(counter);
-                String source1 = crawler.getUrlContents(urlNew);
-
-                visitedLinks.add(firstPageLinks.get(counter));
-                addedLinks = te.extractLinksFromHtml(source1);
-
-
-                String title1 = te.getTitle(source1);
-                String body1 = te.getHtmlBody(source1);
-
-                Document doc = new Document(title1, body1, urlNew);
-                documents.add(doc);
-
-                for (Map.Entry<Integer, String> entry : addedLinks.entrySet()) {
-
-                    firstPageLinks.add(entry.getValue());
-                }
-
-            }else if((!visitedLinks.contains(firstPageLinks.get(counter)) && (!socialMedia.contains(firstPageLinks.get(counter))))){
-
-                String urlNew = firstPageLinks.get(counter);
-
-                try {
-
-                    //If true than the url allows us to crawl the information on the site
-                    if(canCrawl(urlNew)) {
-
-
-                        String source1 = crawler.getUrlContents(urlNew);
-
-                        visitedLinks.add(firstPageLinks.get(counter));
-                        addedLinks = te.extractLinksFromHtml(source1);
-
-
-                        String title1 = te.getTitleUrl(urlNew);
-                        String body1 = te.getBodyUrl(urlNew);
-
-                        Document doc = new Document(title1, body1, urlNew);
-                        documents.add(doc);
-
-                        for (Map.Entry<Integer, String> entry : addedLinks.entrySet()) {
-
-                            firstPageLinks.add(entry.getValue());
-
-                        }
-                    }
-                }catch (Exception e){
-                    System.out.println(urlNew);
-                    System.out.println("Cannot Connect to Website");
-                }
-            }
-
-            counter++;
-
-        } while (counter < interation);
+        execute(interation, DEFAULT_FETCHER_COUNT, DEFAULT_POLITENESS_DELAY_MS);
     }
 
-
     /**
-     * Static method that will determine if a site other than concordia.ca has a robot.txt file and see if we
-     * are allowed to crawl the site for its information
+     * Crawls the site and keeps every retrieved document in memory.
      *
-     * @param urlPath url to connect to
-     * @return boolean to see if the website has a robot.txt
+     * @param maxDocCount       Maximum number of documents to retrieve.
+     * @param fetcherCount      Number of concurrent fetchers.
+     * @param politenessDelayMs Minimum delay between two requests to a same host.
+     * @throws IOException If the crawl was interrupted.
      */
-    public static boolean canCrawl(String urlPath) throws IOException {
-
-        //Pattern to match the beginning of a website
-        Pattern p = Pattern.compile("^(http(s?)://([^/]+))");
-        Matcher m = p.matcher(urlPath);
-        boolean canCrawl = true;
-
-        //if there is a match then add the robots to the end of the site
-        if (m.find()) {
-            try (BufferedReader in = new BufferedReader(
-                    new InputStreamReader(new URL(m.group(1) + "/robots.txt").openStream()))) {
-
-                String line = null;
-                while ((line = in.readLine()) != null) {
-
-                    //Regex to see if the robots.txt has a disallow section
-                    Pattern pattern = Pattern.compile("User-agent: (.*)|Disallow: (.*)");
-                    Matcher matcher = pattern.matcher(line);
-
-                    if (matcher.find()) {
-                        canCrawl = false;
+    public void execute(int maxDocCount, int fetcherCount, long politenessDelayMs) throws IOException {
+        documents = Collections.synchronizedList(new ArrayList<>());
+        crawl(maxDocCount, fetcherCount, politenessDelayMs, documents::add);
+    }
 
-                    }
-                }
-                in.close();
+    /**
+     * Crawls the site starting from the first page and hands every document to
+     * the {@code sink} as soon as it is retrieved.
+     *
+     * <p>
+     * Pages are crawled when the robots.txt of their host allows it, external
+     * social media pages are skipped.
+     *
+     * @param maxDocCount       Maximum number of documents to retrieve.
+     * @param fetcherCount      Number of concurrent fetchers.
+     * @param politenessDelayMs Minimum delay between two requests to a same host.
+     * @param sink              Thread-safe consumer of the crawled documents.
+     * @return The number of documents retrieved.
+     * @throws IOException If the crawl was interrupted.
+     */
+    public int crawl(int maxDocCount, int fetcherCount, long politenessDelayMs, Consumer<Document> sink)
+            throws IOException {
+        return crawl(maxDocCount, fetcherCount, politenessDelayMs, (url) -> null, sink);
+    }
 
-            } catch (Exception e) {
-                System.out.println(urlPath);
-                System.out.println("No Robots.txt File!");
-            }
+    /**
+     * Crawls the site starting from the first page and hands every new or
+     * changed document to the {@code sink} as soon as it is retrieved, for a
+     * crawl adding to the documents of a previous one.
+     *
+     * @param maxDocCount        Maximum number of new or changed documents to
+     *                           retrieve.
+     * @param fetcherCount       Number of concurrent fetchers.
+     * @param politenessDelayMs  Minimum delay between two requests to a same
+     *                           host.
+     * @param knownContentHashes Content hash of a page crawled before by url,
+     *                           {@code null} for a new page.
+     * @param sink               Thread-safe consumer of the crawled documents.
+     * @return The number of documents retrieved.
+     * @throws IOException If the crawl was interrupted.
+     * @see CrawlerEngine#crawl(List, int, Function, Consumer)
+     */
+    public int crawl(int maxDocCount, int fetcherCount, long politenessDelayMs,
+            Function<String, Long> knownContentHashes, Consumer<Document> sink) throws IOException {
+        PageFetcher fetcher = new PageFetcher();
+        robotsTxtCache = new RobotsTxtCache(fetcher.getUserAgent());
+        CrawlerEngine engine = new CrawlerEngine(fetcher, fetcherCount, politenessDelayMs, this::shouldCrawl);
+        try {
+            return engine.crawl(ImmutableList.of(FIRST_URL), maxDocCount, knownContentHashes, sink);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The crawl was interrupted.");
         }
+    }
 
-        return canCrawl;
+    private boolean shouldCrawl(String url) {
+        if (!url.startsWith(SITE_URL) && SOCIAL_MEDIA.stream().anyMatch(url::contains)) {
+            return false;
+        }
+        return robotsTxtCache.isAllowed(url);
     }
 
-    public List<Long> dumpToDisk(DocDiskManager docDiskManager) {
+    public List<Long> dumpToDisk(IDocumentStore documentStore) {
         LOGGER.info("Creating document cache on disk.");
-        return documents.stream().peek(docDiskManager::writeToDisk).map(Document::getDocumentId)
-                .collect(Collectors.toList());
+        // The fetchers complete out of order, keep the cache in docId order for the indexer
+        return documents.stream().sorted(Comparator.comparingLong(Document::getDocumentId))
+                .peek(documentStore::writeToDisk).map(Document::getDocumentId).collect(Collectors.toList());
     }
 
     public static void main(String[] args) throws IOException {
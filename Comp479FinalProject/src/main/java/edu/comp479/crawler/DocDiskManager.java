@@ -10,13 +10,22 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 
-public class DocDiskManager {
+/**
+ * Document store keeping each document in its own file.
+ *
+ * <p>
+ * Kept to read the caches built before {@link SegmentedDocumentStore}, new
+ * caches should use the segmented store. The manager is safe to use from
+ * several threads.
+ */
+public class DocDiskManager implements IDocumentStore {
     private static Logger LOGGER = Logger.getLogger(DocDiskManager.class.getName());
 
     public static final String FILE_PREFIX = "doc";
     public static final String FILE_SUFFIX = ".dmp";
 
-    private final Kryo kryo;
+    // Kryo instances are not thread-safe
+    private final ThreadLocal<Kryo> kryo = ThreadLocal.withInitial(DocDiskManager::createKryo);
     private final Path directory;
     private final Path lightDirectory;
 
@@ -27,9 +36,6 @@ public class DocDiskManager {
      * @throws IOException
      */
     public DocDiskManager(Path directory) throws IOException {
-        kryo = new Kryo();
-        kryo.register(Document.class);
-        kryo.register(DocumentLight.class);
         Files.createDirectories(directory);
         this.directory = directory;
         this.lightDirectory = directory.resolve("light");
@@ -43,11 +49,12 @@ public class DocDiskManager {
      * @return Name of the file on disk or {@code null} on error.
      * @throws IOException
      */
+    @Override
     public String writeToDisk(Document doc) {
         String fileName = getFileName(doc.getDocumentId());
         Path pathToFile = directory.resolve(fileName);
         try (Output output = new Output(Files.newOutputStream(pathToFile))) {
-            kryo.writeObject(output, doc);
+            kryo.get().writeObject(output, doc);
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Unable to dump document to disk", e);
             return null;
@@ -63,13 +70,14 @@ public class DocDiskManager {
      * @return The {@link Document} object or {@code null} on io error
      * @throws IOException
      */
+    @Override
     public Document readFromDisk(long docId) {
         String fileName = getFileName(docId);
         Path pathToFile = directory.resolve(fileName);
 
         Document retrievedDoc = null;
         try (Input input = new Input(Files.newInputStream(pathToFile))) {
-            retrievedDoc = kryo.readObject(input, Document.class);
+            retrievedDoc = kryo.get().readObject(input, Document.class);
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Unable to read document from disk", e);
             return null;
@@ -85,11 +93,12 @@ public class DocDiskManager {
      * @return Name of the file on disk or {@code null} on error.
      * @throws IOException
      */
+    @Override
     public String writeToDisk(DocumentLight doc) {
         String fileName = getFileName(doc.getDocumentId());
         Path pathToFile = lightDirectory.resolve(fileName);
         try (Output output = new Output(Files.newOutputStream(pathToFile))) {
-            kryo.writeObject(output, doc);
+            kryo.get().writeObject(output, doc);
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Unable to dump document to disk", e);
             return null;
@@ -105,13 +114,14 @@ public class DocDiskManager {
      * @return The {@link DocumentLight} object or {@code null} on io error
      * @throws IOException
      */
+    @Override
     public DocumentLight readLightFromDisk(long docId) {
         String fileName = getFileName(docId);
         Path pathToFile = lightDirectory.resolve(fileName);
 
         DocumentLight retrievedDoc = null;
         try (Input input = new Input(Files.newInputStream(pathToFile))) {
-            retrievedDoc = kryo.readObject(input, DocumentLight.class);
+            retrievedDoc = kryo.get().readObject(input, DocumentLight.class);
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Unable to read document from disk", e);
             return null;
@@ -120,6 +130,11 @@ public class DocDiskManager {
         return retrievedDoc;
     }
 
+    @Override
+    public void close() {
+        // Every file is closed after each access
+    }
+
     /**
      * Get the filename for this docId.
      * 
@@ -130,4 +145,11 @@ public class DocDiskManager {
         return FILE_PREFIX + docId + FILE_SUFFIX;
     }
 
+    private static Kryo createKryo() {
+        Kryo kryo = new Kryo();
+        kryo.register(Document.class);
+        kryo.register(DocumentLight.class);
+        return kryo;
+    }
+
 }
@@ -1,7 +1,17 @@
 package edu.comp479.crawler;
 
+import static com.google.common.base.Preconditions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
 public class Document {
-    private static long count = 0;
+    // Documents are created concurrently by the crawler fetchers
+    private static final AtomicLong count = new AtomicLong();
+    private static final HashFunction CONTENT_HASH = Hashing.farmHashFingerprint64();
 
     private long documentId = 0;
     private String title;
@@ -12,9 +22,18 @@ public class Document {
         this.title = title;
         this.body = body;
         this.url = url;
-        this.documentId = count;
+        this.documentId = count.getAndIncrement();
+    }
 
-        count++;
+    /**
+     * Sets the docId of the next document created, so documents crawled into an
+     * existing cache follow the ones already in it.
+     *
+     * @param nextDocumentId DocId of the next document.
+     */
+    public static void setNextDocumentId(long nextDocumentId) {
+        checkArgument(nextDocumentId >= 0, "The docId must be non-negative. Given: %s", nextDocumentId);
+        count.set(nextDocumentId);
     }
 
     /**
@@ -39,4 +58,25 @@ public class Document {
     public long getDocumentId() {
         return this.documentId;
     }
+
+    /**
+     * @return The fingerprint of the title and text of the document, never 0, to
+     *         find the pages changed since they were crawled.
+     */
+    public long getContentHash() {
+        return contentHash(title, body);
+    }
+
+    /**
+     * @param title Title of a page.
+     * @param body  Text of the page.
+     * @return The content hash of the page, without creating its document.
+     * @see #getContentHash()
+     */
+    public static long contentHash(String title, String body) {
+        long hash = CONTENT_HASH.newHasher().putString(title != null ? title : "", StandardCharsets.UTF_8)
+                .putChar('\0').putString(body != null ? body : "", StandardCharsets.UTF_8).hash().asLong();
+        // 0 marks a document without a known hash
+        return hash != 0 ? hash : 1;
+    }
 }
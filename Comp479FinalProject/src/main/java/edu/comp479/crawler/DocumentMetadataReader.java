@@ -0,0 +1,153 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.google.common.base.Verify;
+
+/**
+ * Memory-mapped view of the columnar metadata file written by
+ * {@link DocumentMetadataWriter}. The files written before the content hashes
+ * were kept are read without them.
+ *
+ * <p>
+ * The url or title of a docId is two offset reads and a copy of its bytes from
+ * the mapped file, no file is opened per lookup. The reader is thread-safe.
+ */
+public class DocumentMetadataReader {
+    private static final int VERSION_WITHOUT_CONTENT_HASHES = 0xC001;
+
+    private final Path path;
+
+    private ByteBuffer buffer;
+    private long documentCount;
+    private int urlOffsetsStart;
+    private int titleOffsetsStart;
+    private int contentHashesStart;
+    private int urlDataStart;
+    private int titleDataStart;
+
+    /**
+     * Creates a new {@link DocumentMetadataReader}, the file is mapped by
+     * {@link #open()}.
+     *
+     * @param directory Directory of the metadata file.
+     */
+    public DocumentMetadataReader(Path directory) {
+        this.path = directory.resolve(DocumentMetadataWriter.FILE_NAME);
+    }
+
+    /**
+     * @param directory Directory to look into.
+     * @return {@code true} if the directory holds a metadata file.
+     */
+    public static boolean exists(Path directory) {
+        return Files.isRegularFile(directory.resolve(DocumentMetadataWriter.FILE_NAME));
+    }
+
+    /**
+     * Maps the metadata file.
+     *
+     * @return {@code true} if successful.
+     * @throws IOException
+     */
+    public boolean open() throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            checkState(channel.size() <= Integer.MAX_VALUE, "The metadata file is too large to be mapped.");
+            MappedByteBuffer map = channel.map(MapMode.READ_ONLY, 0, channel.size());
+
+            int version = map.getInt();
+            int columnCount = map.getInt();
+            boolean hasContentHashes = version == DocumentMetadataWriter.FILE_VERSION
+                    && columnCount == DocumentMetadataWriter.COLUMN_COUNT;
+            Verify.verify(hasContentHashes || (version == VERSION_WITHOUT_CONTENT_HASHES && columnCount == 2),
+                    "Unsupported metadata file %s, version: %s, columns: %s", path, version, columnCount);
+            long documentCount = map.getLong();
+
+            long offsetsSize = (documentCount + 1) * Long.BYTES;
+            this.urlOffsetsStart = DocumentMetadataWriter.HEADER_SIZE;
+            this.titleOffsetsStart = (int) (urlOffsetsStart + offsetsSize);
+            this.contentHashesStart = hasContentHashes ? (int) (titleOffsetsStart + offsetsSize) : -1;
+            this.urlDataStart = (int) (titleOffsetsStart + offsetsSize
+                    + (hasContentHashes ? documentCount * Long.BYTES : 0));
+            this.titleDataStart = (int) (urlDataStart + map.getLong(titleOffsetsStart - Long.BYTES));
+            this.documentCount = documentCount;
+            this.buffer = map;
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of docIds covered by the file.
+     */
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * @param docId DocId of the document.
+     * @return The url of the document or {@code null} if it is absent.
+     */
+    public String getUrl(long docId) {
+        return readValue(urlOffsetsStart, urlDataStart, docId);
+    }
+
+    /**
+     * @param docId DocId of the document.
+     * @return The title of the document or {@code null} if it is absent.
+     */
+    public String getTitle(long docId) {
+        return readValue(titleOffsetsStart, titleDataStart, docId);
+    }
+
+    /**
+     * @param docId DocId of the document.
+     * @return The content hash of the document, 0 if it is absent or unknown.
+     * @see Document#getContentHash()
+     */
+    public long getContentHash(long docId) {
+        checkState(buffer != null, "The metadata file is not opened.");
+        if (contentHashesStart < 0 || docId < 0 || docId >= documentCount) {
+            return 0;
+        }
+        return buffer.getLong((int) (contentHashesStart + docId * Long.BYTES));
+    }
+
+    /**
+     * @param docId DocId of the document.
+     * @return The light descriptor of the document or {@code null} if it is
+     *         absent.
+     */
+    public DocumentLight getDocumentLight(long docId) {
+        String url = getUrl(docId);
+        return url == null ? null : new DocumentLight(docId, getTitle(docId), url);
+    }
+
+    private String readValue(int offsetsStart, int dataStart, long docId) {
+        checkState(buffer != null, "The metadata file is not opened.");
+        if (docId < 0 || docId >= documentCount) {
+            return null;
+        }
+        int entry = (int) (offsetsStart + docId * Long.BYTES);
+        long start = buffer.getLong(entry);
+        int length = (int) (buffer.getLong(entry + Long.BYTES) - start);
+        if (length == 0 && offsetsStart == urlOffsetsStart) {
+            // Every document has an url, an empty one marks a docId never written
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) (dataStart + start));
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
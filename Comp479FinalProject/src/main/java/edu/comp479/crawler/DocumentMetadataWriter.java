@@ -0,0 +1,229 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Writes the url, title and content hash of the documents in a columnar file
+ * read by {@link DocumentMetadataReader}.
+ *
+ * <p>
+ * Layout of the file:
+ *
+ * <pre>
+ * header:         version (int), column count (int), document count n (long)
+ * url offsets:    n + 1 longs, the url of docId d is [offset(d), offset(d + 1))
+ * title offsets:  n + 1 longs
+ * content hashes: n longs, 0 if unknown
+ * url data:       concatenated UTF-8 bytes of the urls in docId order
+ * title data:     concatenated UTF-8 bytes of the titles in docId order
+ * </pre>
+ *
+ * <p>
+ * The documents can be added in any order, their bytes are spooled to a
+ * temporary file and laid out in docId order when the writer is closed. A docId
+ * never added has an empty url.
+ */
+public class DocumentMetadataWriter implements Closeable {
+    public static final String FILE_NAME = "metadata.col";
+    public static final int FILE_VERSION = 0xC002;
+    public static final int COLUMN_COUNT = 3;
+    public static final int HEADER_SIZE = 16;
+
+    private static final String SPOOL_SUFFIX = ".spool";
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final Path spoolPath;
+    private final OutputStream spool;
+    private long spoolSize;
+
+    // Position in the spool of each docId (-1 if absent) and lengths of its values
+    private long[] spoolOffsets = newSpoolOffsets(INITIAL_CAPACITY);
+    private int[] urlLengths = new int[INITIAL_CAPACITY];
+    private int[] titleLengths = new int[INITIAL_CAPACITY];
+    private long[] contentHashes = new long[INITIAL_CAPACITY];
+    private long documentCount;
+    private boolean closed;
+
+    /**
+     * Creates a new {@link DocumentMetadataWriter}, the file is written when the
+     * writer is closed.
+     *
+     * @param directory Directory of the metadata file.
+     * @throws IOException
+     */
+    public DocumentMetadataWriter(Path directory) throws IOException {
+        this(directory, false);
+    }
+
+    /**
+     * Creates a new {@link DocumentMetadataWriter}, the file is written when the
+     * writer is closed.
+     *
+     * @param directory Directory of the metadata file.
+     * @param append    {@code true} to keep the documents of the existing file,
+     *                  {@code false} to replace them.
+     * @throws IOException
+     */
+    public DocumentMetadataWriter(Path directory, boolean append) throws IOException {
+        Files.createDirectories(directory);
+        this.path = directory.resolve(FILE_NAME);
+        this.spoolPath = directory.resolve(FILE_NAME + SPOOL_SUFFIX);
+        this.spool = new BufferedOutputStream(Files.newOutputStream(spoolPath), BUFFER_SIZE);
+        if (append && DocumentMetadataReader.exists(directory)) {
+            addExisting(directory);
+        }
+    }
+
+    /**
+     * Adds the metadata of a document without a known content hash, replacing the
+     * previous one of its docId.
+     *
+     * @param doc Light descriptor of the document.
+     * @throws IOException
+     * @see #add(DocumentLight, long)
+     */
+    public void add(DocumentLight doc) throws IOException {
+        add(doc, 0);
+    }
+
+    /**
+     * Adds the metadata of a document, replacing the previous one of its docId.
+     *
+     * @param doc         Light descriptor of the document.
+     * @param contentHash Content hash of the document, 0 if unknown.
+     * @throws IOException
+     * @see Document#getContentHash()
+     */
+    public synchronized void add(DocumentLight doc, long contentHash) throws IOException {
+        checkState(!closed, "The writer is closed.");
+        long docId = doc.getDocumentId();
+        checkArgument(docId >= 0 && docId < Integer.MAX_VALUE, "Unsupported docId: %s", docId);
+
+        byte[] url = encode(doc.getUrl());
+        byte[] title = encode(doc.getTitle());
+        ensureCapacity((int) docId + 1);
+
+        spoolOffsets[(int) docId] = spoolSize;
+        urlLengths[(int) docId] = url.length;
+        titleLengths[(int) docId] = title.length;
+        contentHashes[(int) docId] = contentHash;
+        spool.write(url);
+        spool.write(title);
+        spoolSize += url.length + title.length;
+        documentCount = Math.max(documentCount, docId + 1);
+    }
+
+    /**
+     * Lays out the documents in docId order and writes the metadata file.
+     *
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        spool.close();
+
+        Path tmpPath = path.resolveSibling(FILE_NAME + ".tmp");
+        try (FileChannel spoolChannel = FileChannel.open(spoolPath);
+                DataOutputStream output = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(tmpPath), BUFFER_SIZE))) {
+            checkState(spoolChannel.size() <= Integer.MAX_VALUE, "The metadata is too large to be mapped.");
+            MappedByteBuffer spoolMap = spoolChannel.map(MapMode.READ_ONLY, 0, spoolChannel.size());
+
+            output.writeInt(FILE_VERSION);
+            output.writeInt(COLUMN_COUNT);
+            output.writeLong(documentCount);
+            writeOffsets(output, urlLengths);
+            writeOffsets(output, titleLengths);
+            for (int docId = 0; docId < documentCount; docId++) {
+                output.writeLong(contentHashes[docId]);
+            }
+            writeColumn(output, spoolMap, 0, urlLengths);
+            writeColumn(output, spoolMap, 1, titleLengths);
+        } finally {
+            Files.deleteIfExists(spoolPath);
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void addExisting(Path directory) throws IOException {
+        DocumentMetadataReader reader = new DocumentMetadataReader(directory);
+        reader.open();
+        for (long docId = 0; docId < reader.getDocumentCount(); docId++) {
+            DocumentLight doc = reader.getDocumentLight(docId);
+            if (doc != null) {
+                add(doc, reader.getContentHash(docId));
+            }
+        }
+    }
+
+    private void writeOffsets(DataOutputStream output, int[] lengths) throws IOException {
+        long offset = 0;
+        output.writeLong(offset);
+        for (int docId = 0; docId < documentCount; docId++) {
+            offset += lengths[docId];
+            output.writeLong(offset);
+        }
+    }
+
+    private void writeColumn(DataOutputStream output, MappedByteBuffer spoolMap, int column, int[] lengths)
+            throws IOException {
+        byte[] buffer = new byte[0];
+        for (int docId = 0; docId < documentCount; docId++) {
+            if (spoolOffsets[docId] < 0) {
+                continue;
+            }
+            // The title of a document is spooled right after its url
+            long position = spoolOffsets[docId] + (column == 0 ? 0 : urlLengths[docId]);
+            int length = lengths[docId];
+            if (buffer.length < length) {
+                buffer = new byte[length];
+            }
+            spoolMap.position((int) position);
+            spoolMap.get(buffer, 0, length);
+            output.write(buffer, 0, length);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= spoolOffsets.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, spoolOffsets.length * 2);
+        int oldCapacity = spoolOffsets.length;
+        spoolOffsets = Arrays.copyOf(spoolOffsets, newCapacity);
+        Arrays.fill(spoolOffsets, oldCapacity, newCapacity, -1);
+        urlLengths = Arrays.copyOf(urlLengths, newCapacity);
+        titleLengths = Arrays.copyOf(titleLengths, newCapacity);
+        contentHashes = Arrays.copyOf(contentHashes, newCapacity);
+    }
+
+    private static long[] newSpoolOffsets(int capacity) {
+        long[] offsets = new long[capacity];
+        Arrays.fill(offsets, -1);
+        return offsets;
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,113 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Bounded hand-off of crawled documents from the crawler fetchers to a single
+ * consumer.
+ *
+ * <p>
+ * Producers block when the pipe is full, so at most {@code capacity} documents
+ * are held in memory whatever the size of the crawl. The producer side calls
+ * {@link #close()} once the crawl is over, the consumer side calls
+ * {@link #abort()} if it stops consuming so that blocked producers are
+ * released.
+ */
+public class DocumentPipe implements Consumer<Document> {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private static final long OFFER_POLL_MS = 100;
+    // Marks the end of the stream, never handed to the consumer
+    private static final Document END_OF_STREAM = new Document();
+
+    private final BlockingQueue<Document> queue;
+    private volatile boolean aborted = false;
+    private boolean finished = false;
+
+    /**
+     * @see DocumentPipe#DocumentPipe(int)
+     */
+    public DocumentPipe() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new {@link DocumentPipe}.
+     *
+     * @param capacity Maximum number of documents waiting to be consumed.
+     */
+    public DocumentPipe(int capacity) {
+        checkArgument(capacity > 0, "The capacity must be greater than 0. Given: %s", capacity);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Puts a document in the pipe, waiting for space if it is full.
+     *
+     * @param document Document to hand to the consumer.
+     * @throws CancellationException If the consumer aborted or the thread was
+     *                               interrupted.
+     */
+    @Override
+    public void accept(Document document) {
+        checkNotNull(document);
+        put(document);
+    }
+
+    /**
+     * Signals the end of the stream to the consumer. Must be called once by the
+     * producer side, including when the crawl fails.
+     */
+    public void close() {
+        try {
+            put(END_OF_STREAM);
+        } catch (CancellationException e) {
+            // Nobody is consuming anymore
+        }
+    }
+
+    /**
+     * Stops the pipe from the consumer side and releases the blocked producers.
+     */
+    public void abort() {
+        aborted = true;
+        queue.clear();
+    }
+
+    /**
+     * Takes the next document, waiting for one to be produced.
+     *
+     * @return The next document or {@code null} once the stream is closed.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public Document take() throws InterruptedException {
+        if (finished) {
+            return null;
+        }
+        Document document = queue.take();
+        if (document == END_OF_STREAM) {
+            finished = true;
+            return null;
+        }
+        return document;
+    }
+
+    private void put(Document document) {
+        try {
+            while (!aborted) {
+                if (queue.offer(document, OFFER_POLL_MS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new CancellationException("The document pipe is no longer consumed.");
+    }
+}
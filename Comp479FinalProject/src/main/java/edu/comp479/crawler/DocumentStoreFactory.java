@@ -0,0 +1,53 @@
+package edu.comp479.crawler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Creates the document stores, detecting the format of an existing cache.
+ */
+public class DocumentStoreFactory {
+
+    public DocumentStoreFactory() {
+    }
+
+    /**
+     * Creates an empty writable store, replacing the segmented store already in
+     * the directory if any.
+     *
+     * @param directory Directory of the store.
+     * @return The new store.
+     * @throws IOException
+     */
+    public IDocumentStore createStore(Path directory) throws IOException {
+        SegmentedDocumentStore.delete(directory);
+        return new SegmentedDocumentStore(directory, true);
+    }
+
+    /**
+     * Opens the segmented store of the directory for appending new documents,
+     * creating it if absent.
+     *
+     * @param directory Directory of the store.
+     * @return The writable store.
+     * @throws IOException
+     */
+    public IDocumentStore appendStore(Path directory) throws IOException {
+        return new SegmentedDocumentStore(directory, true);
+    }
+
+    /**
+     * Opens an existing store for reading. Caches written one file per document
+     * are opened with a {@link DocDiskManager}.
+     *
+     * @param directory Directory of the store.
+     * @return The opened store.
+     * @throws IOException
+     */
+    public IDocumentStore openStore(Path directory) throws IOException {
+        if (SegmentedDocumentStore.exists(directory)) {
+            return new SegmentedDocumentStore(directory, false);
+        }
+        return new DocDiskManager(directory);
+    }
+}
@@ -0,0 +1,40 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Result of a single fetch by the {@link PageFetcher}. The page is parsed once
+ * and holds everything the crawler needs: the title, the text of the body and
+ * the absolute outgoing links.
+ */
+public class FetchedPage {
+    private final String url;
+    private final String title;
+    private final String body;
+    private final ImmutableList<String> links;
+
+    public FetchedPage(String url, String title, String body, ImmutableList<String> links) {
+        this.url = checkNotNull(url);
+        this.title = checkNotNull(title);
+        this.body = checkNotNull(body);
+        this.links = checkNotNull(links);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public ImmutableList<String> getLinks() {
+        return links;
+    }
+}
@@ -0,0 +1,80 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces the requests sent to the same host by a minimum delay.
+ *
+ * <p>
+ * Each call to {@link #acquire(String)} reserves the next free time slot for
+ * the host and sleeps until it is reached. Requests to different hosts do not
+ * wait on each other.
+ *
+ * <p>
+ * A host whose next slot is past is free like a host never requested. The
+ * hosts are dropped once past, whenever the number of hosts kept doubles, so
+ * the hosts kept are the ones requested within the last delay.
+ */
+public class HostPoliteness {
+    private static final int MIN_PRUNE_HOST_COUNT = 1024;
+
+    private final long delayNanos;
+    // Guarded by itself
+    private final Map<String, Long> nextSlotByHost;
+    private int pruneHostCount = MIN_PRUNE_HOST_COUNT;
+
+    /**
+     * Creates a new {@link HostPoliteness} policy.
+     *
+     * @param delayMs Minimum delay in milliseconds between two requests to the
+     *                same host, 0 to disable.
+     */
+    public HostPoliteness(long delayMs) {
+        checkArgument(delayMs >= 0, "The delay must be non-negative. Given: %s", delayMs);
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMs);
+        this.nextSlotByHost = new HashMap<>();
+    }
+
+    /**
+     * Blocks until a request can be sent to the given host.
+     *
+     * @param host Host name of the request.
+     * @throws InterruptedException If interrupted while waiting for the slot.
+     */
+    public void acquire(String host) throws InterruptedException {
+        checkNotNull(host);
+        if (delayNanos == 0) {
+            return;
+        }
+
+        long waitNanos;
+        synchronized (nextSlotByHost) {
+            long now = System.nanoTime();
+            Long nextSlot = nextSlotByHost.get(host);
+            long slot = nextSlot == null ? now : Math.max(now, nextSlot);
+            nextSlotByHost.put(host, slot + delayNanos);
+            waitNanos = slot - now;
+            if (nextSlotByHost.size() >= pruneHostCount) {
+                nextSlotByHost.values().removeIf((hostSlot) -> hostSlot - now <= 0);
+                pruneHostCount = Math.max(MIN_PRUNE_HOST_COUNT, nextSlotByHost.size() * 2);
+            }
+        }
+
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * @return The number of hosts whose next slot is kept.
+     */
+    int getHostCount() {
+        synchronized (nextSlotByHost) {
+            return nextSlotByHost.size();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package edu.comp479.crawler;
+
+import java.io.Closeable;
+
+/**
+ * Disk cache of the crawled documents and of their light descriptors, keyed by
+ * docId.
+ */
+public interface IDocumentStore extends Closeable {
+    /**
+     * Write a document to the store.
+     *
+     * @param doc Document to write
+     * @return Name of the file holding the document or {@code null} on error.
+     */
+    public String writeToDisk(Document doc);
+
+    /**
+     * Fetch a document from the store.
+     *
+     * @param docId Document Id of the document to retrieve.
+     * @return The {@link Document} object or {@code null} if absent or on io
+     *         error.
+     */
+    public Document readFromDisk(long docId);
+
+    /**
+     * Write a light document descriptor to the store.
+     *
+     * @param doc {@link DocumentLight} to write
+     * @return Name of the file holding the descriptor or {@code null} on error.
+     */
+    public String writeToDisk(DocumentLight doc);
+
+    /**
+     * Fetch a light document descriptor from the store.
+     *
+     * @param docId Document Id of the document to retrieve.
+     * @return The {@link DocumentLight} object or {@code null} if absent or on io
+     *         error.
+     */
+    public DocumentLight readLightFromDisk(long docId);
+}
@@ -0,0 +1,171 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.google.common.base.Verify;
+
+/**
+ * File of fixed-width entries (number, length, offset) addressed by a
+ * non-negative key, used to locate the records of the document store.
+ *
+ * <p>
+ * The entry of a key is at {@code HEADER_SIZE + key * ENTRY_SIZE}, the entries
+ * of keys never written are left zeroed and read as absent. A writable index
+ * is accessed with positional reads and writes, a read-only index is
+ * memory-mapped.
+ */
+final class OffsetIndex implements Closeable {
+    static final int HEADER_SIZE = 8;
+    static final int ENTRY_SIZE = 16;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+
+    /**
+     * Opens the index file, creating it if it is writable and absent.
+     *
+     * @param path     Path of the index file.
+     * @param version  Version written in the header and verified when opening.
+     * @param writable {@code false} to open the index read-only and
+     *                 memory-mapped.
+     * @throws IOException
+     */
+    OffsetIndex(Path path, int version, boolean writable) throws IOException {
+        this.path = checkNotNull(path);
+        if (writable) {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.map = null;
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(version).putInt(ENTRY_SIZE).flip();
+                writeFully(channel, header, 0);
+            }
+        } else {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            checkState(channel.size() <= Integer.MAX_VALUE, "The offset index is too large to be mapped: %s", path);
+            this.map = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            verifyHeader(version);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the entry of a key, replacing the previous one.
+     *
+     * @throws IOException
+     */
+    void write(long key, int number, int length, long offset) throws IOException {
+        checkState(map == null, "The offset index is opened read-only.");
+        checkArgument(key >= 0, "The key must be non-negative. Given: %s", key);
+        checkArgument(length > 0, "The length must be greater than 0. Given: %s", length);
+
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+        entry.putInt(number).putInt(length).putLong(offset).flip();
+        writeFully(channel, entry, entryPosition(key));
+    }
+
+    /**
+     * Reads the entry of a key.
+     *
+     * @return The entry or {@code null} if the key has none.
+     * @throws IOException
+     */
+    Entry read(long key) throws IOException {
+        checkArgument(key >= 0, "The key must be non-negative. Given: %s", key);
+        long position = entryPosition(key);
+
+        ByteBuffer entry;
+        if (map != null) {
+            if (position + ENTRY_SIZE > map.limit()) {
+                return null;
+            }
+            entry = map.duplicate();
+            entry.position((int) position);
+        } else {
+            entry = ByteBuffer.allocate(ENTRY_SIZE);
+            while (entry.hasRemaining()) {
+                if (channel.read(entry, position + entry.position()) < 0) {
+                    return null;
+                }
+            }
+            entry.flip();
+        }
+
+        int number = entry.getInt();
+        int length = entry.getInt();
+        long offset = entry.getLong();
+        return length == 0 ? null : new Entry(number, length, offset);
+    }
+
+    /**
+     * @return The number of entry slots in the file, written or not.
+     * @throws IOException
+     */
+    long capacity() throws IOException {
+        long size = map != null ? map.limit() : channel.size();
+        return (size - HEADER_SIZE) / ENTRY_SIZE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void verifyHeader(int version) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        int fileVersion = header.getInt();
+        int entrySize = header.getInt();
+        Verify.verify(fileVersion == version && entrySize == ENTRY_SIZE,
+                "Unsupported offset index %s, version: %s, entry size: %s", path, fileVersion, entrySize);
+    }
+
+    private static long entryPosition(long key) {
+        return HEADER_SIZE + key * ENTRY_SIZE;
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file in " + channel);
+            }
+            position += read;
+        }
+    }
+
+    static final class Entry {
+        final int number;
+        final int length;
+        final long offset;
+
+        Entry(int number, int length, long offset) {
+            this.number = number;
+            this.length = length;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Downloads a web page a single time and extracts the title, body text and
+ * links from the same parsed tree.
+ *
+ * <p>
+ * This class is stateless and can be shared by all the fetchers of the
+ * {@link CrawlerEngine}.
+ */
+public class PageFetcher {
+    public static final int DEFAULT_TIMEOUT_MS = 50000;
+    public static final String DEFAULT_USER_AGENT = "EmoSearch";
+
+    private final int timeoutMs;
+    private final String userAgent;
+
+    /**
+     * @see PageFetcher#PageFetcher(int, String)
+     */
+    public PageFetcher() {
+        this(DEFAULT_TIMEOUT_MS, DEFAULT_USER_AGENT);
+    }
+
+    /**
+     * Creates a new {@link PageFetcher}.
+     *
+     * @param timeoutMs Connect and read timeout in milliseconds.
+     * @param userAgent User-Agent header sent with each request.
+     */
+    public PageFetcher(int timeoutMs, String userAgent) {
+        checkArgument(timeoutMs > 0, "The timeout must be greater than 0. Given: %s", timeoutMs);
+        this.timeoutMs = timeoutMs;
+        this.userAgent = checkNotNull(userAgent);
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    /**
+     * Fetches and parses the page at the given url.
+     *
+     * @param url Absolute http(s) url of the page.
+     * @return The parsed page.
+     * @throws IOException If the page cannot be downloaded or is not html.
+     */
+    public FetchedPage fetch(String url) throws IOException {
+        checkNotNull(url);
+        Document doc = Jsoup.connect(url).userAgent(userAgent).timeout(timeoutMs).get();
+        return extract(url, doc);
+    }
+
+    /**
+     * Extracts the title, the text and the absolute links of an already parsed
+     * page.
+     *
+     * @param url Url the page was retrieved from.
+     * @param doc Parsed html document, with its base uri set.
+     * @return The extracted page.
+     */
+    public FetchedPage extract(String url, Document doc) {
+        ImmutableList.Builder<String> links = ImmutableList.builder();
+        for (Element link : doc.select("a[href]")) {
+            String href = link.attr("href");
+            if (href.isEmpty() || href.startsWith("#")) {
+                continue;
+            }
+            String absoluteUrl = link.absUrl("href");
+            if (absoluteUrl.startsWith("http://") || absoluteUrl.startsWith("https://")) {
+                links.add(absoluteUrl);
+            }
+        }
+        return new FetchedPage(url, doc.title(), doc.text(), links.build());
+    }
+}
@@ -0,0 +1,29 @@
+package edu.comp479.crawler;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Log of serialized records keyed by docId backing the document store.
+ */
+interface RecordLog extends Closeable {
+    /**
+     * Appends a record for a docId, replacing the previous record of the docId if
+     * any.
+     *
+     * @param docId  DocId of the record.
+     * @param record Serialized record.
+     * @return Name of the file holding the record.
+     * @throws IOException
+     */
+    String append(long docId, byte[] record) throws IOException;
+
+    /**
+     * Reads the record of a docId.
+     *
+     * @param docId DocId of the record.
+     * @return The record or {@code null} if the docId has none.
+     * @throws IOException
+     */
+    byte[] read(long docId) throws IOException;
+}
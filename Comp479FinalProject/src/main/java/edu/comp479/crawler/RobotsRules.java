@@ -0,0 +1,255 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Parsed rules of a robots.txt file.
+ *
+ * <p>
+ * Each user-agent group is compiled into a {@link PathRuleTrie}. A path is
+ * decided by the longest matching rule of the group selected for the crawler,
+ * an allow rule wins when an allow and a disallow rule have the same length
+ * (RFC 9309). The group selected is the one with the longest user-agent token
+ * contained in the crawler's user-agent, or the {@code *} group.
+ */
+public class RobotsRules {
+    private static final String WILDCARD_AGENT = "*";
+
+    private static final RobotsRules ALLOW_ALL = new RobotsRules(new HashMap<>());
+    private static final RobotsRules DISALLOW_ALL;
+
+    static {
+        Map<String, PathRuleTrie> groups = new HashMap<>();
+        PathRuleTrie disallowAll = new PathRuleTrie();
+        disallowAll.add("/", false);
+        groups.put(WILDCARD_AGENT, disallowAll);
+        DISALLOW_ALL = new RobotsRules(groups);
+    }
+
+    private final Map<String, PathRuleTrie> groups;
+
+    private RobotsRules(Map<String, PathRuleTrie> groups) {
+        this.groups = groups;
+    }
+
+    /**
+     * @return Rules allowing every path, used when a site has no robots.txt.
+     */
+    public static RobotsRules allowAll() {
+        return ALLOW_ALL;
+    }
+
+    /**
+     * @return Rules disallowing every path, used when the robots.txt of a site
+     *         cannot be retrieved.
+     */
+    public static RobotsRules disallowAll() {
+        return DISALLOW_ALL;
+    }
+
+    /**
+     * Parses the content of a robots.txt file.
+     *
+     * <p>
+     * Unknown directives (Sitemap, Crawl-delay...) and malformed lines are
+     * ignored.
+     *
+     * @param content Content of the robots.txt file.
+     * @return The parsed rules.
+     */
+    public static RobotsRules parse(String content) {
+        checkNotNull(content);
+
+        Map<String, PathRuleTrie> groups = new HashMap<>();
+        List<PathRuleTrie> currentGroup = new ArrayList<>();
+        boolean lastLineWasAgent = false;
+
+        for (String line : content.split("\r\n|\r|\n")) {
+            int commentStart = line.indexOf('#');
+            if (commentStart >= 0) {
+                line = line.substring(0, commentStart);
+            }
+            int separator = line.indexOf(':');
+            if (separator < 0) {
+                continue;
+            }
+            String directive = line.substring(0, separator).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(separator + 1).trim();
+
+            if (directive.equals("user-agent")) {
+                if (!lastLineWasAgent) {
+                    currentGroup = new ArrayList<>();
+                }
+                String agent = value.toLowerCase(Locale.ROOT);
+                PathRuleTrie trie = groups.get(agent);
+                if (trie == null) {
+                    trie = new PathRuleTrie();
+                    groups.put(agent, trie);
+                }
+                currentGroup.add(trie);
+                lastLineWasAgent = true;
+            } else if (directive.equals("allow") || directive.equals("disallow")) {
+                lastLineWasAgent = false;
+                // An empty disallow allows everything, same as no rule
+                if (!value.isEmpty()) {
+                    for (PathRuleTrie trie : currentGroup) {
+                        trie.add(value, directive.equals("allow"));
+                    }
+                }
+            } else {
+                lastLineWasAgent = false;
+            }
+        }
+
+        return new RobotsRules(groups);
+    }
+
+    /**
+     * Decides if the given path can be crawled by the given user-agent.
+     *
+     * @param userAgent User-agent of the crawler.
+     * @param path      Path of the url, with the query string if any.
+     * @return {@code true} if the path is allowed.
+     */
+    public boolean isAllowed(String userAgent, String path) {
+        checkNotNull(userAgent);
+        checkNotNull(path);
+
+        PathRuleTrie trie = selectGroup(userAgent.toLowerCase(Locale.ROOT));
+        if (trie == null) {
+            return true;
+        }
+        return trie.isAllowed(path.isEmpty() ? "/" : path);
+    }
+
+    private PathRuleTrie selectGroup(String userAgent) {
+        PathRuleTrie selected = null;
+        int selectedLength = -1;
+        for (Map.Entry<String, PathRuleTrie> group : groups.entrySet()) {
+            String agent = group.getKey();
+            if (!agent.isEmpty() && !agent.equals(WILDCARD_AGENT) && agent.length() > selectedLength
+                    && userAgent.contains(agent)) {
+                selected = group.getValue();
+                selectedLength = agent.length();
+            }
+        }
+        return selected != null ? selected : groups.get(WILDCARD_AGENT);
+    }
+
+    /**
+     * Prefix trie of the allow/disallow rules of a group.
+     *
+     * <p>
+     * Plain rules are matched by walking the trie once along the path, the
+     * deepest rule found is the longest match. Rules using the {@code *} or
+     * {@code $} operators are rare and are kept apart as patterns.
+     */
+    static final class PathRuleTrie {
+        private static final int NO_RULE = 0;
+        private static final int DISALLOW = 1;
+        private static final int ALLOW = 2;
+
+        private final Node root = new Node();
+        private final List<PatternRule> patternRules = new ArrayList<>();
+
+        void add(String rulePath, boolean allow) {
+            if (rulePath.indexOf('*') >= 0 || rulePath.endsWith("$")) {
+                patternRules.add(new PatternRule(rulePath, allow));
+                return;
+            }
+            Node node = root;
+            for (int i = 0; i < rulePath.length(); i++) {
+                node = node.childOrCreate(rulePath.charAt(i));
+            }
+            // An allow rule wins over a disallow rule of the same length
+            node.rule = Math.max(node.rule, allow ? ALLOW : DISALLOW);
+        }
+
+        boolean isAllowed(String path) {
+            int matchLength = -1;
+            int matchRule = NO_RULE;
+
+            Node node = root;
+            for (int i = 0; i < path.length() && node != null; i++) {
+                node = node.child(path.charAt(i));
+                if (node != null && node.rule != NO_RULE) {
+                    matchLength = i + 1;
+                    matchRule = node.rule;
+                }
+            }
+
+            for (PatternRule patternRule : patternRules) {
+                int length = patternRule.length;
+                if (length >= matchLength && patternRule.pattern.matcher(path).lookingAt()) {
+                    if (length > matchLength || patternRule.allow) {
+                        matchLength = length;
+                        matchRule = patternRule.allow ? ALLOW : DISALLOW;
+                    }
+                }
+            }
+
+            return matchRule != DISALLOW;
+        }
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int rule = PathRuleTrie.NO_RULE;
+
+        Node child(char key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node childOrCreate(char key) {
+            Node child = child(key);
+            if (child == null) {
+                child = new Node();
+                int size = keys.length;
+                keys = Arrays.copyOf(keys, size + 1);
+                children = Arrays.copyOf(children, size + 1);
+                keys[size] = key;
+                children[size] = child;
+            }
+            return child;
+        }
+    }
+
+    private static final class PatternRule {
+        private final Pattern pattern;
+        private final int length;
+        private final boolean allow;
+
+        PatternRule(String rulePath, boolean allow) {
+            StringBuilder regex = new StringBuilder();
+            boolean anchored = rulePath.endsWith("$");
+            String body = anchored ? rulePath.substring(0, rulePath.length() - 1) : rulePath;
+            String[] literals = body.split("\\*", -1);
+            for (int i = 0; i < literals.length; i++) {
+                if (i > 0) {
+                    regex.append(".*");
+                }
+                regex.append(Pattern.quote(literals[i]));
+            }
+            if (anchored) {
+                regex.append("$");
+            }
+            this.pattern = Pattern.compile(regex.toString());
+            this.length = rulePath.length();
+            this.allow = allow;
+        }
+    }
+}
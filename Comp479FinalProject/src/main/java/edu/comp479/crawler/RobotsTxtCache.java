@@ -0,0 +1,115 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Answers if an url can be crawled according to the robots.txt of its host.
+ *
+ * <p>
+ * The robots.txt of a host is fetched and parsed once, then cached for
+ * {@code ttlMs}. Concurrent lookups for a host being loaded wait for the single
+ * fetch in progress.
+ *
+ * <p>
+ * Following RFC 9309, a missing robots.txt (4xx) allows everything while an
+ * unreachable one (5xx, network error) disallows the whole host until the entry
+ * expires.
+ */
+public class RobotsTxtCache {
+    private static final Logger LOGGER = Logger.getLogger(RobotsTxtCache.class.getName());
+
+    public static final long DEFAULT_TTL_MS = TimeUnit.HOURS.toMillis(24);
+    public static final int DEFAULT_MAX_HOSTS = 10000;
+
+    private static final int ROBOTS_TIMEOUT_MS = 10000;
+
+    private final String userAgent;
+    private final LoadingCache<String, RobotsRules> rulesByOrigin;
+
+    /**
+     * @see RobotsTxtCache#RobotsTxtCache(String, long, int, Ticker)
+     */
+    public RobotsTxtCache(String userAgent) {
+        this(userAgent, DEFAULT_TTL_MS, DEFAULT_MAX_HOSTS, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new {@link RobotsTxtCache}.
+     *
+     * @param userAgent User-agent of the crawler, used to fetch the files and to
+     *                  select the rules.
+     * @param ttlMs     Time to keep the rules of a host before fetching them
+     *                  again.
+     * @param maxHosts  Maximum number of hosts kept in the cache.
+     * @param ticker    Time source of the cache expiry.
+     */
+    public RobotsTxtCache(String userAgent, long ttlMs, int maxHosts, Ticker ticker) {
+        this.userAgent = checkNotNull(userAgent);
+        checkArgument(ttlMs > 0, "The time to live must be greater than 0. Given: %s", ttlMs);
+        checkArgument(maxHosts > 0, "The maximum host count must be greater than 0. Given: %s", maxHosts);
+        checkNotNull(ticker);
+
+        this.rulesByOrigin = CacheBuilder.newBuilder().expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .maximumSize(maxHosts).ticker(ticker).build(new CacheLoader<String, RobotsRules>() {
+                    @Override
+                    public RobotsRules load(String origin) {
+                        return fetchRules(origin);
+                    }
+                });
+    }
+
+    /**
+     * Decides if the given url can be crawled.
+     *
+     * @param url Absolute http(s) url.
+     * @return {@code true} if the robots.txt of the host allows the url.
+     */
+    public boolean isAllowed(String url) {
+        checkNotNull(url);
+
+        URL parsedUrl;
+        try {
+            parsedUrl = new URL(url);
+        } catch (MalformedURLException e) {
+            return false;
+        }
+
+        String origin = parsedUrl.getProtocol() + "://" + parsedUrl.getAuthority();
+        String path = parsedUrl.getFile();
+        return rulesByOrigin.getUnchecked(origin).isAllowed(userAgent, path);
+    }
+
+    private RobotsRules fetchRules(String origin) {
+        String robotsUrl = origin + "/robots.txt";
+        try {
+            Connection.Response response = Jsoup.connect(robotsUrl).userAgent(userAgent).timeout(ROBOTS_TIMEOUT_MS)
+                    .ignoreContentType(true).ignoreHttpErrors(true).execute();
+            int status = response.statusCode();
+            if (status >= 200 && status < 300) {
+                return RobotsRules.parse(response.body());
+            } else if (status >= 400 && status < 500) {
+                return RobotsRules.allowAll();
+            }
+            LOGGER.info("Robots.txt unavailable, disallowing host: " + robotsUrl + " status: " + status);
+            return RobotsRules.disallowAll();
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Robots.txt unreachable, disallowing host: " + robotsUrl + " " + e.getMessage());
+            return RobotsRules.disallowAll();
+        }
+    }
+}
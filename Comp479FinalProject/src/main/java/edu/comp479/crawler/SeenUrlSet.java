@@ -0,0 +1,156 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Thread-safe set of the urls already seen by the crawler.
+ *
+ * <p>
+ * Urls are stored as 64-bit fingerprints in open addressing hash tables of
+ * primitive longs, so membership is O(1) and costs 8 bytes per url instead of
+ * a {@link String}. The table is split in stripes locked independently to
+ * limit the contention between the fetchers.
+ */
+public class SeenUrlSet {
+    private static final HashFunction FINGERPRINT = Hashing.farmHashFingerprint64();
+
+    private static final int STRIPE_COUNT = 16;
+    private static final int INITIAL_STRIPE_CAPACITY = 1024;
+
+    private final Stripe[] stripes;
+
+    public SeenUrlSet() {
+        this.stripes = new Stripe[STRIPE_COUNT];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(INITIAL_STRIPE_CAPACITY);
+        }
+    }
+
+    /**
+     * Adds an url to the set.
+     *
+     * @param url Normalized url.
+     * @return {@code true} if the url was not seen before.
+     */
+    public boolean add(String url) {
+        return addFingerprint(fingerprint(url));
+    }
+
+    /**
+     * @param url Normalized url.
+     * @return {@code true} if the url was seen.
+     */
+    public boolean contains(String url) {
+        long fingerprint = fingerprint(url);
+        Stripe stripe = stripeFor(fingerprint);
+        synchronized (stripe) {
+            return stripe.contains(fingerprint);
+        }
+    }
+
+    /**
+     * @return The number of urls in the set.
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    private boolean addFingerprint(long fingerprint) {
+        Stripe stripe = stripeFor(fingerprint);
+        synchronized (stripe) {
+            if (stripe.contains(fingerprint)) {
+                return false;
+            }
+            stripe.insertAbsent(fingerprint);
+            return true;
+        }
+    }
+
+    private Stripe stripeFor(long fingerprint) {
+        return stripes[(int) (fingerprint >>> 60) & (STRIPE_COUNT - 1)];
+    }
+
+    private static long fingerprint(String url) {
+        checkNotNull(url);
+        return FINGERPRINT.hashString(url, StandardCharsets.UTF_8).asLong();
+    }
+
+    /**
+     * Open addressing hash set of longs with linear probing. The value 0 marks an
+     * empty slot and is tracked apart.
+     */
+    private static final class Stripe {
+        private static final double MAX_LOAD = 0.6;
+
+        private long[] table;
+        private int mask;
+        private int size;
+        private boolean hasZero;
+
+        Stripe(int capacity) {
+            this.table = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        boolean contains(long key) {
+            if (key == 0) {
+                return hasZero;
+            }
+            for (int slot = slot(key);; slot = (slot + 1) & mask) {
+                long current = table[slot];
+                if (current == 0) {
+                    return false;
+                } else if (current == key) {
+                    return true;
+                }
+            }
+        }
+
+        void insertAbsent(long key) {
+            size++;
+            if (key == 0) {
+                hasZero = true;
+                return;
+            }
+            if (size > table.length * MAX_LOAD) {
+                rehash(table.length * 2);
+            }
+            insertInto(table, mask, key);
+        }
+
+        private void rehash(int newCapacity) {
+            long[] newTable = new long[newCapacity];
+            int newMask = newCapacity - 1;
+            for (long key : table) {
+                if (key != 0) {
+                    insertInto(newTable, newMask, key);
+                }
+            }
+            table = newTable;
+            mask = newMask;
+        }
+
+        private int slot(long key) {
+            return (int) (key ^ (key >>> 32)) & mask;
+        }
+
+        private static void insertInto(long[] table, int mask, long key) {
+            int slot = (int) (key ^ (key >>> 32)) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = key;
+        }
+    }
+}
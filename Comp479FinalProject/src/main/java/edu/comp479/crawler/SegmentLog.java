@@ -0,0 +1,211 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.google.common.base.Verify;
+
+/**
+ * Append-only log of records keyed by docId, stored in large segment files.
+ *
+ * <p>
+ * Records are appended to the active segment until it reaches
+ * {@code maxSegmentBytes}, then a new segment is started. The offset index
+ * ({@link OffsetIndex}) holds a fixed-width entry per docId (segment, length,
+ * offset) so a lookup is a single positional read. Sealed segments are
+ * memory-mapped, and in read-only mode the index and every segment are mapped.
+ *
+ * <p>
+ * Appends are serialized, reads are thread-safe and can run concurrently with
+ * the appends.
+ */
+class SegmentLog implements RecordLog {
+    static final String INDEX_EXTENSION = ".idx";
+    static final String SEGMENT_EXTENSION = ".seg";
+
+    static final int FILE_VERSION = 0xD501;
+
+    private final Path directory;
+    private final String name;
+    private final long maxSegmentBytes;
+    private final boolean writable;
+
+    private final OffsetIndex index;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private long activeSize;
+
+    /**
+     * Opens the log in the given directory, creating it if it is writable and
+     * absent. Appends to an existing log continue in its last segment.
+     *
+     * @param directory       Directory of the log files.
+     * @param name            Name of the log, prefix of its files.
+     * @param maxSegmentBytes Size from which a new segment is started.
+     * @param writable        {@code false} to open the log read-only and
+     *                        memory-mapped.
+     * @throws IOException
+     */
+    SegmentLog(Path directory, String name, long maxSegmentBytes, boolean writable) throws IOException {
+        this.directory = checkNotNull(directory);
+        this.name = checkNotNull(name);
+        checkArgument(maxSegmentBytes > 0 && maxSegmentBytes <= Integer.MAX_VALUE,
+                "The segment size must be in ]0, 2^31[. Given: %s", maxSegmentBytes);
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.writable = writable;
+
+        this.index = new OffsetIndex(indexPath(directory, name), FILE_VERSION, writable);
+        try {
+            openSegments();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized String append(long docId, byte[] record) throws IOException {
+        checkState(writable, "The log is opened read-only.");
+        checkArgument(docId >= 0, "The docId must be non-negative. Given: %s", docId);
+        checkArgument(record.length > 0, "Empty records cannot be stored.");
+
+        if (segments.isEmpty() || (activeSize > 0 && activeSize + record.length > maxSegmentBytes)) {
+            rollSegment();
+        }
+        int segmentNumber = segments.size() - 1;
+        Segment active = segments.get(segmentNumber);
+        long offset = activeSize;
+        OffsetIndex.writeFully(active.channel, ByteBuffer.wrap(record), offset);
+        activeSize += record.length;
+
+        index.write(docId, segmentNumber, record.length, offset);
+        return active.path.getFileName().toString();
+    }
+
+    @Override
+    public byte[] read(long docId) throws IOException {
+        OffsetIndex.Entry entry = index.read(docId);
+        if (entry == null) {
+            return null;
+        }
+        Verify.verify(entry.number < segments.size(), "Corrupted offset index, unknown segment %s for docId %s",
+                entry.number, docId);
+
+        byte[] record = new byte[entry.length];
+        Segment segment = segments.get(entry.number);
+        if (segment.map != null) {
+            ByteBuffer view = segment.map.duplicate();
+            view.position((int) entry.offset);
+            view.get(record);
+        } else {
+            OffsetIndex.readFully(segment.channel, ByteBuffer.wrap(record), entry.offset);
+        }
+        return record;
+    }
+
+    /**
+     * @return The number of docIds the offset index has room for, written or
+     *         not.
+     * @throws IOException
+     */
+    long capacity() throws IOException {
+        return index.capacity();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            for (Segment segment : segments) {
+                segment.channel.close();
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Deletes the files of a log.
+     *
+     * @param directory Directory of the log files.
+     * @param name      Name of the log.
+     * @throws IOException
+     */
+    static void delete(Path directory, String name) throws IOException {
+        Files.deleteIfExists(indexPath(directory, name));
+        int segmentNumber = 0;
+        while (Files.deleteIfExists(segmentPath(directory, name, segmentNumber))) {
+            segmentNumber++;
+        }
+    }
+
+    /**
+     * @return {@code true} if a log with this name exists in the directory.
+     */
+    static boolean exists(Path directory, String name) {
+        return Files.isRegularFile(indexPath(directory, name));
+    }
+
+    private void openSegments() throws IOException {
+        for (int i = 0;; i++) {
+            Path segmentPath = segmentPath(directory, name, i);
+            if (!Files.exists(segmentPath)) {
+                break;
+            }
+            FileChannel channel = writable
+                    ? FileChannel.open(segmentPath, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(segmentPath, StandardOpenOption.READ);
+            segments.add(new Segment(segmentPath, channel, channel.map(MapMode.READ_ONLY, 0, channel.size())));
+        }
+
+        if (writable && !segments.isEmpty()) {
+            // The last segment stays active and is read through its channel
+            Segment last = segments.get(segments.size() - 1);
+            segments.set(segments.size() - 1, new Segment(last.path, last.channel, null));
+            activeSize = last.channel.size();
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        if (!segments.isEmpty()) {
+            int lastIndex = segments.size() - 1;
+            Segment sealed = segments.get(lastIndex);
+            segments.set(lastIndex,
+                    new Segment(sealed.path, sealed.channel, sealed.channel.map(MapMode.READ_ONLY, 0, activeSize)));
+        }
+        Path segmentPath = segmentPath(directory, name, segments.size());
+        FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segments.add(new Segment(segmentPath, channel, null));
+        activeSize = 0;
+    }
+
+    private static Path indexPath(Path directory, String name) {
+        return directory.resolve(name + INDEX_EXTENSION);
+    }
+
+    private static Path segmentPath(Path directory, String name, int segmentNumber) {
+        return directory.resolve(String.format("%s_%05d%s", name, segmentNumber, SEGMENT_EXTENSION));
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        // null while the segment is still appended to
+        private final MappedByteBuffer map;
+
+        Segment(Path path, FileChannel channel, MappedByteBuffer map) {
+            this.path = path;
+            this.channel = channel;
+            this.map = map;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Document store appending the documents to large segment files.
+ *
+ * <p>
+ * The documents and their light descriptors are kept in segment files with an
+ * offset index each, so the store is a handful of files whatever the number of
+ * documents and a lookup is a few mapped reads instead of a file open.
+ *
+ * <p>
+ * The documents are compressed by blocks of consecutive documents
+ * ({@link BlockCompressedLog}) as their body is most of the store. The light
+ * descriptors are small and read one by one to display the results, they are
+ * stored uncompressed ({@link SegmentLog}).
+ *
+ * <p>
+ * The store is safe to use from several threads.
+ */
+public class SegmentedDocumentStore implements IDocumentStore {
+    private static final Logger LOGGER = Logger.getLogger(SegmentedDocumentStore.class.getName());
+
+    public static final String DOCUMENTS_LOG_NAME = "docs";
+    public static final String LIGHT_LOG_NAME = "light";
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 256L * 1024 * 1024;
+    public static final int DEFAULT_BLOCK_BYTES = 64 * 1024;
+    public static final int DEFAULT_CACHED_BLOCKS = 16;
+
+    private static final int OUTPUT_BUFFER_SIZE = 4096;
+
+    // Kryo instances are not thread-safe
+    private final ThreadLocal<Kryo> kryo = ThreadLocal.withInitial(SegmentedDocumentStore::createKryo);
+
+    private final RecordLog documents;
+    private final RecordLog lightDocuments;
+
+    /**
+     * @see SegmentedDocumentStore#SegmentedDocumentStore(Path, boolean, long)
+     */
+    public SegmentedDocumentStore(Path directory, boolean writable) throws IOException {
+        this(directory, writable, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+
+    /**
+     * @see SegmentedDocumentStore#SegmentedDocumentStore(Path, boolean, long, int)
+     */
+    public SegmentedDocumentStore(Path directory, boolean writable, long maxSegmentBytes) throws IOException {
+        this(directory, writable, maxSegmentBytes, DEFAULT_BLOCK_BYTES);
+    }
+
+    /**
+     * Opens the store in a directory. A writable store is created if absent and
+     * new documents are appended after the existing ones.
+     *
+     * @param directory       Directory of the store.
+     * @param writable        {@code false} to open an existing store read-only.
+     * @param maxSegmentBytes Size from which a new segment file is started.
+     * @param blockBytes      Uncompressed size of the blocks of documents.
+     * @throws IOException
+     */
+    public SegmentedDocumentStore(Path directory, boolean writable, long maxSegmentBytes, int blockBytes)
+            throws IOException {
+        checkNotNull(directory);
+        if (writable) {
+            Files.createDirectories(directory);
+        }
+        this.documents = new BlockCompressedLog(directory, DOCUMENTS_LOG_NAME, maxSegmentBytes, blockBytes,
+                DEFAULT_CACHED_BLOCKS, writable);
+        try {
+            this.lightDocuments = new SegmentLog(directory, LIGHT_LOG_NAME, maxSegmentBytes, writable);
+        } catch (IOException | RuntimeException e) {
+            documents.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param directory Directory to look into.
+     * @return {@code true} if the directory holds a segmented store.
+     */
+    public static boolean exists(Path directory) {
+        return BlockCompressedLog.exists(directory, DOCUMENTS_LOG_NAME)
+                || SegmentLog.exists(directory, LIGHT_LOG_NAME);
+    }
+
+    /**
+     * Deletes the files of the store in a directory.
+     *
+     * @param directory Directory of the store.
+     * @throws IOException
+     */
+    public static void delete(Path directory) throws IOException {
+        BlockCompressedLog.delete(directory, DOCUMENTS_LOG_NAME);
+        SegmentLog.delete(directory, LIGHT_LOG_NAME);
+    }
+
+    @Override
+    public String writeToDisk(Document doc) {
+        return append(documents, doc.getDocumentId(), doc);
+    }
+
+    @Override
+    public Document readFromDisk(long docId) {
+        return read(documents, docId, Document.class);
+    }
+
+    @Override
+    public String writeToDisk(DocumentLight doc) {
+        return append(lightDocuments, doc.getDocumentId(), doc);
+    }
+
+    @Override
+    public DocumentLight readLightFromDisk(long docId) {
+        return read(lightDocuments, docId, DocumentLight.class);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            documents.close();
+        } finally {
+            lightDocuments.close();
+        }
+    }
+
+    private String append(RecordLog log, long docId, Object doc) {
+        Output output = new Output(OUTPUT_BUFFER_SIZE, -1);
+        kryo.get().writeObject(output, doc);
+        try {
+            return log.append(docId, output.toBytes());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to append document to the store", e);
+            return null;
+        }
+    }
+
+    private <T> T read(RecordLog log, long docId, Class<T> type) {
+        try {
+            byte[] record = log.read(docId);
+            if (record == null) {
+                LOGGER.info("Document not found in the store. DocId: " + docId);
+                return null;
+            }
+            return kryo.get().readObject(new Input(record), type);
+        } catch (IOException | KryoException e) {
+            LOGGER.log(Level.WARNING, "Unable to read document from the store", e);
+            return null;
+        }
+    }
+
+    private static Kryo createKryo() {
+        Kryo kryo = new Kryo();
+        kryo.register(Document.class);
+        kryo.register(DocumentLight.class);
+        return kryo;
+    }
+}
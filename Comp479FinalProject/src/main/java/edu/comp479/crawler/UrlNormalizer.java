@@ -0,0 +1,79 @@
+package edu.comp479.crawler;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+
+/**
+ * Rewrites urls to a canonical form so that equivalent urls are crawled once.
+ *
+ * <p>
+ * Normalizations applied:<br>
+ * <ul>
+ * <li>Lower case scheme and host
+ * <li>Default port removed (80 for http, 443 for https)
+ * <li>Dot segments resolved and empty path replaced by {@code /}
+ * <li>Fragment removed
+ * </ul>
+ */
+public final class UrlNormalizer {
+
+    // Static Utility class
+    private UrlNormalizer() {
+    }
+
+    /**
+     * Normalizes the given absolute http(s) url.
+     *
+     * @param url Absolute url to normalize.
+     * @return The normalized url or {@code null} if the url is invalid or not
+     *         http(s).
+     */
+    public static String normalize(String url) {
+        checkNotNull(url);
+
+        URI uri;
+        try {
+            uri = new URI(url.trim()).normalize();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+
+        String scheme = uri.getScheme();
+        String host = uri.getHost();
+        if (scheme == null || host == null) {
+            return null;
+        }
+        scheme = scheme.toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            return null;
+        }
+
+        int port = uri.getPort();
+        if ((port == 80 && scheme.equals("http")) || (port == 443 && scheme.equals("https"))) {
+            port = -1;
+        }
+
+        String path = uri.getRawPath();
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        }
+
+        StringBuilder builder = new StringBuilder(url.length());
+        builder.append(scheme).append("://");
+        if (uri.getRawUserInfo() != null) {
+            builder.append(uri.getRawUserInfo()).append('@');
+        }
+        builder.append(host.toLowerCase(Locale.ROOT));
+        if (port != -1) {
+            builder.append(':').append(port);
+        }
+        builder.append(path);
+        if (uri.getRawQuery() != null) {
+            builder.append('?').append(uri.getRawQuery());
+        }
+        return builder.toString();
+    }
+}
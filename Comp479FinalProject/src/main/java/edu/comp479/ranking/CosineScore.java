@@ -3,6 +3,7 @@ package edu.comp479.ranking;
 import edu.comp479.search.index.IInvertedIndex;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -16,24 +17,50 @@ public class CosineScore {
 
     Frequency fr = null;
 
-    public CosineScore(IInvertedIndex index) throws IOException {        
+    public CosineScore(IInvertedIndex index) {        
         fr = new Frequency(index);
     }
 
     public Map<Integer, Double> calculateCosineScore(HashMap<String, List<Integer>> dictionary, Map<String, Integer> sentimentMap) throws IOException {
 
-        Map<Integer, Double> scores = new TreeMap();
-        Map<Integer, Float> length = new TreeMap();
         HashMap<String, Double> queryMap = createQueryMap(dictionary);
 
+        // The weight of a term does not depend on the document scored
+        Map<String, Double> termWeights = new LinkedHashMap();
         for (Map.Entry<String, Double> entry : queryMap.entrySet()) {
             String term = entry.getKey();
             Double tfidf = entry.getValue();
 
+            termWeights.put(term, getScore(term, tfidf, dictionary.get(term)));
+        }
+
+        return calculateCosineScore(dictionary, termWeights, sentimentMap);
+    }
+
+    /**
+     * Scores the documents with the weights of the query terms computed
+     * beforehand, e.g. over the whole collection for a shard of it.
+     *
+     * @param dictionary the docIds of the postings of each query term
+     * @param termWeights the weight of each query term, in the order the terms
+     * are scored: a document gets the score of the last of its terms
+     * @param sentimentMap the sentiment value of each query term
+     * @return the score of each document
+     */
+    public Map<Integer, Double> calculateCosineScore(Map<String, List<Integer>> dictionary, Map<String, Double> termWeights, Map<String, Integer> sentimentMap) {
+
+        Map<Integer, Double> scores = new TreeMap();
+        Map<Integer, Float> length = new TreeMap();
+
+        for (Map.Entry<String, Double> entry : termWeights.entrySet()) {
+            String term = entry.getKey();
+            double weight = entry.getValue();
+
             List<Integer> postingList = dictionary.get(term);
+            if (postingList == null) {
+                continue;
+            }
             for (Integer docId : postingList) {
-                double weight = getScore(term, tfidf, postingList);
-
                 int sentimentValue = 0;
                 if (sentimentMap.containsKey(term)) {
                     sentimentValue = sentimentMap.get(term);
@@ -59,6 +86,27 @@ public class CosineScore {
         return scores;
     }
 
+    /**
+     * Computes the weight of a query term from its statistics in the
+     * collection, the same as the one summed over its postings: the tf-idf of
+     * the term in its last document times the tf-idf summed over its
+     * documents.
+     *
+     * @param collectionSize the number of documents in the collection
+     * @param documentFrequency the number of documents containing the term
+     * @param lastTermFreq the frequency of the term in its last document
+     * @param termFreqSum the frequency of the term summed over its documents
+     * @return the weight of the term
+     */
+    public static double getTermWeight(long collectionSize, long documentFrequency, int lastTermFreq, long termFreqSum) {
+        double idf = 0;
+        if (documentFrequency != 0) {
+            idf = Math.log10((double) collectionSize / documentFrequency);
+        }
+        double wq = lastTermFreq * idf;
+        return termFreqSum * idf * wq;
+    }
+
     public double getAverageSentimentValue(List<String> queryList, Map<String, Integer> sentimentMap) {
         double sum = 0.0;
 
@@ -3,6 +3,7 @@ package edu.comp479.ranking;
 import edu.comp479.search.index.IInvertedIndex;
 import edu.comp479.search.index.structure.IIndexEntry;
 import edu.comp479.search.index.structure.Posting;
+import edu.comp479.search.metrics.QueryMetrics;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -32,14 +33,20 @@ public class RankEngine {
 
         HashMap<String, List<Integer>> dictionaryMap = createDictionary(queryList);
 
-        CosineScore cs = new CosineScore(this.index);
+        // The postings read while scoring are timed by their own stages
+        long start = System.nanoTime();
+        PostingsReadTimer timedIndex = new PostingsReadTimer(this.index);
+        CosineScore cs = new CosineScore(timedIndex);
         Map<Integer, Double> scoresMap = cs.calculateCosineScore(dictionaryMap, sentiment);
+        QueryMetrics.SCORE.record(Math.max(0, System.nanoTime() - start - timedIndex.getReadNanos()));
 
         double totalSentiment = cs.getAverageSentimentValue(queryList, sentiment);
         System.out.println("Total Sentiment Value: " + totalSentiment);
 
+        start = System.nanoTime();
         SortScores sco = new SortScores();
         Map<Integer, HashMap<Integer, Double>> sortedMap = sco.printMap(scoresMap, totalSentiment);
+        QueryMetrics.SORT.stop(start);
 
         return sortedMap;
     }
@@ -68,4 +75,50 @@ public class RankEngine {
         return docIdList;
     }
 
+    /**
+     * Measures the time spent reading postings through an index.
+     */
+    private static class PostingsReadTimer implements IInvertedIndex {
+        private final IInvertedIndex index;
+        private long readNanos;
+
+        PostingsReadTimer(IInvertedIndex index) {
+            this.index = index;
+        }
+
+        long getReadNanos() {
+            return readNanos;
+        }
+
+        @Override
+        public IIndexEntry getPostings(String term) {
+            long start = System.nanoTime();
+            try {
+                return index.getPostings(term);
+            } finally {
+                readNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public long getDocumentFrequency(String term) {
+            return index.getDocumentFrequency(term);
+        }
+
+        @Override
+        public int getSentiment(String term) {
+            return index.getSentiment(term);
+        }
+
+        @Override
+        public float getDocumentLengthNorm(long docId) {
+            return index.getDocumentLengthNorm(docId);
+        }
+
+        @Override
+        public long getDocumentCount() {
+            return index.getDocumentCount();
+        }
+    }
+
 }
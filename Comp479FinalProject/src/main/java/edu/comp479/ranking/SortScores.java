@@ -14,7 +14,7 @@ import java.util.TreeMap;
  */
 public class SortScores {
 
-    final int ROUND_PLACES = 4;
+    public static final int ROUND_PLACES = 4;
     public Map<Integer, HashMap<Integer, Double>> printMap(Map<Integer, Double> input, double order) {
         Map<Integer, Double> baseMap = MapUtil.sortByValue(input);
         if (order >= 0) {
@@ -0,0 +1,39 @@
+package edu.comp479.search.index;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+
+import edu.comp479.search.index.structure.DictionaryEntry;
+
+/**
+ * Dictionary decoded from the dictionary file of an index, with the sentiment
+ * dictionary loaded separately.
+ */
+class DecodedDictionary implements IDictionary {
+    private final ImmutableMap<String, DictionaryEntry> dictionary;
+    private final Map<String, Integer> sentimentDictionary;
+
+    DecodedDictionary(ImmutableMap<String, DictionaryEntry> dictionary, Map<String, Integer> sentimentDictionary) {
+        this.dictionary = checkNotNull(dictionary);
+        this.sentimentDictionary = checkNotNull(sentimentDictionary);
+    }
+
+    @Override
+    public DictionaryEntry get(String term) {
+        return dictionary.get(term);
+    }
+
+    @Override
+    public int getSentiment(String term) {
+        DictionaryEntry entry = dictionary.get(term);
+        return entry != null ? entry.getSentiment() : sentimentDictionary.getOrDefault(term, 0);
+    }
+
+    @Override
+    public Iterable<DictionaryEntry> entries() {
+        return dictionary.values();
+    }
+}
@@ -0,0 +1,140 @@
+package edu.comp479.search.index;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.comp479.search.index.structure.DictionaryEntry;
+import edu.comp479.search.index.structure.IIndexEntry;
+import edu.comp479.search.index.structure.IndexEntry;
+import edu.comp479.search.index.structure.Posting;
+import edu.comp479.search.indexer.file.DeletedDocuments;
+
+/**
+ * Index hiding the documents deleted from another index, listed in its
+ * {@link DeletedDocuments} file.
+ *
+ * <p>
+ * The postings of the deleted documents are removed from the postings lists
+ * once, when a list is read, the scoring iterates the remaining postings only.
+ * The index returns the lists unchanged while no document is deleted.
+ *
+ * <p>
+ * The document frequency of a postings list counts the remaining postings. The
+ * document frequency read from the dictionary and the number of documents still
+ * count the deleted documents until they are merged away, like the weights
+ * stored in the postings.
+ *
+ * <p>
+ * {@link #refresh()} opens the deletions made since the last refresh.
+ */
+public class FilteredInvertedIndex implements IInvertedIndex {
+    private final IInvertedIndex index;
+    private final String indexName;
+    private final Path directory;
+
+    private volatile DeletedDocuments deletedDocuments;
+
+    /**
+     * @param index     Index to filter.
+     * @param indexName Name of the index, naming its deleted documents file.
+     * @param directory Directory of the index.
+     * @throws IOException If the deleted documents file cannot be read.
+     */
+    public FilteredInvertedIndex(IInvertedIndex index, String indexName, Path directory) throws IOException {
+        this.index = checkNotNull(index);
+        this.indexName = checkNotNull(indexName);
+        this.directory = checkNotNull(directory);
+        this.deletedDocuments = DeletedDocuments.open(indexName, directory);
+    }
+
+    /**
+     * Opens the deleted documents file again if documents were deleted since the
+     * last refresh.
+     *
+     * @return {@code true} if new documents are deleted.
+     * @throws IOException If the file cannot be read, the previous deletions are
+     *                     kept.
+     */
+    public boolean refresh() throws IOException {
+        if (DeletedDocuments.readGeneration(indexName, directory) == deletedDocuments.getGeneration()) {
+            return false;
+        }
+        deletedDocuments = DeletedDocuments.open(indexName, directory);
+        return true;
+    }
+
+    @Override
+    public IIndexEntry getPostings(String term) {
+        return withoutDeletedDocuments(index.getPostings(term));
+    }
+
+    @Override
+    public boolean hasPositions() {
+        return index.hasPositions();
+    }
+
+    @Override
+    public IIndexEntry getPositionalPostings(String term) {
+        return withoutDeletedDocuments(index.getPositionalPostings(term));
+    }
+
+    private IIndexEntry withoutDeletedDocuments(IIndexEntry entry) {
+        DeletedDocuments deletedDocuments = this.deletedDocuments;
+        if (deletedDocuments.getDeletedCount() == 0 || entry.getDocumentFrequency() == 0) {
+            return entry;
+        }
+
+        List<Posting> postings = entry.getPostingsList();
+        ImmutableList.Builder<Posting> livePostings = ImmutableList.builderWithExpectedSize(postings.size());
+        int liveCount = 0;
+        for (Posting posting : postings) {
+            if (!deletedDocuments.isDeleted(posting.getDocId())) {
+                livePostings.add(posting);
+                liveCount++;
+            }
+        }
+        if (liveCount == postings.size()) {
+            return entry;
+        }
+        return new IndexEntry(new DictionaryEntry(entry.getTerm(), liveCount, entry.getSentimentValue()),
+                livePostings.build());
+    }
+
+    @Override
+    public long getDocumentFrequency(String term) {
+        return index.getDocumentFrequency(term);
+    }
+
+    @Override
+    public int getSentiment(String term) {
+        return index.getSentiment(term);
+    }
+
+    @Override
+    public float getDocumentLengthNorm(long docId) {
+        return index.getDocumentLengthNorm(docId);
+    }
+
+    @Override
+    public long getDocumentCount() {
+        return index.getDocumentCount();
+    }
+
+    @Override
+    public long warmUp(int topTermCount, Collection<String> terms) {
+        return index.warmUp(topTermCount, terms);
+    }
+
+    /**
+     * @return The deleted documents hidden by the index.
+     */
+    public DeletedDocuments getDeletedDocuments() {
+        return deletedDocuments;
+    }
+}
@@ -0,0 +1,27 @@
+package edu.comp479.search.index;
+
+import edu.comp479.search.index.structure.DictionaryEntry;
+
+/**
+ * Dictionary of an index opened for the searches: the entries of its terms,
+ * linked to their postings, and the sentiment value of the terms.
+ */
+public interface IDictionary {
+    /**
+     * @param term Term to find.
+     * @return The entry of the term, linked to its postings, {@code null} if the
+     *         term has no postings in the index.
+     */
+    public DictionaryEntry get(String term);
+
+    /**
+     * @param term Term to find, indexed or not.
+     * @return The sentiment value of the term, 0 if it has none.
+     */
+    public int getSentiment(String term);
+
+    /**
+     * @return The entries of the terms with postings, in no particular order.
+     */
+    public Iterable<DictionaryEntry> entries();
+}
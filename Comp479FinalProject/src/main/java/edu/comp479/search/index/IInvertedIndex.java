@@ -1,5 +1,7 @@
 package edu.comp479.search.index;
 
+import java.util.Collection;
+
 import edu.comp479.search.index.structure.IIndexEntry;
 
 public interface IInvertedIndex {
@@ -14,6 +16,28 @@ public interface IInvertedIndex {
 	 */
 	public IIndexEntry getPostings(String term);
 
+	/**
+	 * Reads the document frequency of a term, from the dictionary if the index
+	 * has one, without decoding its postings.
+	 * 
+	 * @param term Search Term
+	 * @return The document frequency of the term, 0 if not in the index.
+	 */
+	public default long getDocumentFrequency(String term) {
+		return getPostings(term).getDocumentFrequency();
+	}
+
+	/**
+	 * Reads the sentiment value of a term, from the dictionary if the index has
+	 * one, without decoding its postings.
+	 * 
+	 * @param term Search Term
+	 * @return The sentiment value of the term, 0 if it has none.
+	 */
+	public default int getSentiment(String term) {
+		return getPostings(term).getSentimentValue();
+	}
+
 	/**
 	 * Retrieves a document's length norm for normalizing the tf-idf cosine
 	 * similarity score.
@@ -29,4 +53,38 @@ public interface IInvertedIndex {
 	 * @return the number of documents.
 	 */
 	public long getDocumentCount();
+
+	/**
+	 * Reads ahead the index files mapped in memory, so that the first queries do
+	 * not wait for their pages: the norms, the postings of the
+	 * {@code topTermCount} most frequent terms and the postings of the given
+	 * terms. Can be called while the index is searched.
+	 * 
+	 * @param topTermCount Number of most frequent terms to read.
+	 * @param terms        Terms to read, such as the terms of past queries.
+	 * @return The number of bytes read.
+	 */
+	public default long warmUp(int topTermCount, Collection<String> terms) {
+		return 0;
+	}
+
+	/**
+	 * @return {@code true} if the postings of the index hold the positions of
+	 *         their term.
+	 */
+	public default boolean hasPositions() {
+		return false;
+	}
+
+	/**
+	 * Retrieves the postings of a term with the positions of the term in each
+	 * document, read from the positions file of the index.
+	 * 
+	 * @param term Search Term
+	 * @return Entry details and postings with positions for the term.
+	 * @throws UnsupportedOperationException if the index has no positions.
+	 */
+	public default IIndexEntry getPositionalPostings(String term) {
+		throw new UnsupportedOperationException("The index has no positions.");
+	}
 }
@@ -1,14 +1,31 @@
 package edu.comp479.search.index;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import static com.google.common.base.Preconditions.*;
 
+import com.google.common.base.VerifyException;
+
+import edu.comp479.search.indexer.file.DictionaryImage;
 import edu.comp479.search.indexer.file.IndexReaderMemoryMapped;
 import edu.comp479.search.util.SentimentDictionaryBuilder;
 
 public class IndexFactory {
+    private static final Logger LOGGER = Logger.getLogger(IndexFactory.class.getName());
+
+    /**
+     * Loads the sentiment dictionary, only when the dictionary of an index has
+     * to be decoded.
+     */
+    @FunctionalInterface
+    interface SentimentLoader {
+        Map<String, Integer> load() throws IOException;
+    }
 
     public IndexFactory() {
     }
@@ -18,6 +35,10 @@ public class IndexFactory {
      * {@link IndexReaderMemoryMapped}.
      * 
      * <p>
+     * The dictionary is mapped from the {@link DictionaryImage} of the index if
+     * it is current, it is decoded from the dictionary file otherwise.
+     * 
+     * <p>
      * <b>Note:</B> The {@link IndexReaderMemoryMapped} must have been completely
      * initialized by the user by {@link IndexReaderMemoryMapped#open()}.
      * 
@@ -28,8 +49,9 @@ public class IndexFactory {
      */
     public IInvertedIndex getIndex(IndexReaderMemoryMapped indexReader) throws IOException {
         checkNotNull(indexReader);
-        Map<String, Integer> sentimentDict = new SentimentDictionaryBuilder().loadSentimentDictionary();
-        return getIndex(indexReader, sentimentDict);
+        return new InvertedIndex(
+                openDictionary(indexReader, () -> new SentimentDictionaryBuilder().loadSentimentDictionary()),
+                indexReader);
     }
 
     public IInvertedIndex getIndex(IndexReaderMemoryMapped indexReader, Map<String, Integer> sentimentDict)
@@ -40,4 +62,60 @@ public class IndexFactory {
         InvertedIndex index = new InvertedIndex(indexReader.readCompleteDictionary(), indexReader, sentimentDict);
         return index;
     }
+
+    /**
+     * Opens the dictionary of an index from its startup image if it is current,
+     * by decoding the dictionary file otherwise.
+     * 
+     * @param indexReader   Reader of the index.
+     * @param sentimentDict Loads the sentiment dictionary, only used without a
+     *                      current image.
+     * @return The dictionary of the index.
+     * @throws IOException
+     */
+    static IDictionary openDictionary(IndexReaderMemoryMapped indexReader,
+            SentimentLoader sentimentDict) throws IOException {
+        String indexName = indexReader.getIndexName();
+        Path dir = indexReader.getDirectory();
+        if (DictionaryImage.exists(indexName, dir)) {
+            try {
+                DictionaryImage image = DictionaryImage.open(indexName, dir);
+                if (image.isCurrent(indexName, dir, indexReader.getTermCount())) {
+                    return image;
+                }
+                LOGGER.warning("The dictionary image of " + indexName + " is outdated, decoding the dictionary.");
+            } catch (IOException | VerifyException e) {
+                LOGGER.log(Level.WARNING, "Unable to map the dictionary image of " + indexName
+                        + ", decoding the dictionary.", e);
+            }
+        }
+        return new DecodedDictionary(indexReader.readCompleteDictionary(), sentimentDict.load());
+    }
+
+    /**
+     * Opens the segments of a segmented index, listed in its
+     * {@link edu.comp479.search.indexer.file.SegmentManifest}. The sentiment
+     * dictionary is only loaded for the segments without a current
+     * {@link DictionaryImage}.
+     * 
+     * @param indexName Name of the segmented index.
+     * @param dir       Directory of the index.
+     * @return The opened index, to close once done.
+     * @throws IOException
+     */
+    public MultiSegmentInvertedIndex getSegmentedIndex(String indexName, Path dir) throws IOException {
+        checkNotNull(indexName);
+        checkNotNull(dir);
+
+        MultiSegmentInvertedIndex index = new MultiSegmentInvertedIndex(indexName, dir,
+                () -> new SentimentDictionaryBuilder().loadSentimentDictionary());
+        index.refresh();
+        // Not yet serving queries, the norms with the idf of the whole index are awaited
+        try {
+            index.awaitLengthNorms(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return index;
+    }
 }
@@ -0,0 +1,95 @@
+package edu.comp479.search.index;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.comp479.search.tokenizer.TokenizerNormalize;
+
+/**
+ * Warms up an index just opened in the background, while it is already
+ * searched: the pages of its norms, of the postings of its most frequent terms
+ * and of the terms of a sample of past queries are read ahead, so that the
+ * first queries after a restart do not wait for the disk.
+ */
+public class IndexWarmer {
+    private static final Logger LOGGER = Logger.getLogger(IndexWarmer.class.getName());
+
+    public static final int DEFAULT_TOP_TERM_COUNT = 1000;
+
+    private final IInvertedIndex index;
+    private final int topTermCount;
+    private final Path queryLog;
+
+    /**
+     * @param index        Index to warm up.
+     * @param topTermCount Number of most frequent terms to read the postings of.
+     * @param queryLog     File of past queries, one per line, {@code null} for
+     *                     none.
+     */
+    public IndexWarmer(IInvertedIndex index, int topTermCount, Path queryLog) {
+        this.index = checkNotNull(index);
+        checkArgument(topTermCount >= 0, "The number of terms cannot be negative. Given: %s", topTermCount);
+        this.topTermCount = topTermCount;
+        this.queryLog = queryLog;
+    }
+
+    /**
+     * Starts the warm-up on a background thread, which does not keep the process
+     * alive.
+     *
+     * @return The warm-up thread.
+     */
+    public Thread start() {
+        Thread thread = new Thread(this::run, "index-warm-up");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Warms up the index on the calling thread.
+     *
+     * @return The number of bytes read.
+     */
+    public long run() {
+        long start = System.nanoTime();
+        try {
+            Set<String> queryTerms = queryLog != null ? readQueryTerms(queryLog) : new TreeSet<>();
+            long bytes = index.warmUp(topTermCount, queryTerms);
+            LOGGER.info(String.format("Index warmed up in %d ms. Bytes read: %d, Query terms: %d",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), bytes, queryTerms.size()));
+            return bytes;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Unable to warm up the index, the first queries read it from the disk.", e);
+            return 0;
+        }
+    }
+
+    /**
+     * @param queryLog File of queries, one per line.
+     * @return The distinct terms of the queries, analyzed as the searches do.
+     * @throws IOException
+     */
+    public static Set<String> readQueryTerms(Path queryLog) throws IOException {
+        TokenizerNormalize tokenizer = new TokenizerNormalize();
+        Set<String> terms = new TreeSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(queryLog, StandardCharsets.UTF_8)) {
+            String query;
+            while ((query = reader.readLine()) != null) {
+                terms.addAll(tokenizer.analyze(query));
+            }
+        }
+        return terms;
+    }
+}
@@ -2,46 +2,97 @@ package edu.comp479.search.index;
 
 import static com.google.common.base.Preconditions.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 import com.google.common.base.Verify;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 import edu.comp479.search.index.structure.DictionaryEntry;
+import edu.comp479.search.index.structure.DictionaryEntryLinked;
 import edu.comp479.search.index.structure.IIndexEntry;
 import edu.comp479.search.index.structure.IndexEntry;
 import edu.comp479.search.index.structure.Posting;
 import edu.comp479.search.indexer.file.IndexReaderMemoryMapped;
 import edu.comp479.search.indexer.file.NormFileEntry;
+import edu.comp479.search.metrics.QueryMetrics;
 
 public class InvertedIndex implements IInvertedIndex {
 	private final IndexReaderMemoryMapped indexReader;
-	private final ImmutableMap<String, DictionaryEntry> dictionary;
-	private final Map<String, Integer> sentimentDictionary;
+	private final IDictionary dictionary;
 
+	/**
+	 * @see #InvertedIndex(IDictionary, IndexReaderMemoryMapped)
+	 */
 	public InvertedIndex(ImmutableMap<String, DictionaryEntry> dictionary, IndexReaderMemoryMapped indexReader,
 			Map<String, Integer> sentimentDictionary) {
+		this(new DecodedDictionary(dictionary, sentimentDictionary), indexReader);
+	}
+
+	/**
+	 * @param dictionary  Dictionary of the index, decoded or mapped from its
+	 *                    startup image.
+	 * @param indexReader Opened reader of the postings and norms of the index.
+	 */
+	public InvertedIndex(IDictionary dictionary, IndexReaderMemoryMapped indexReader) {
 		this.indexReader = checkNotNull(indexReader);
-		this.sentimentDictionary = checkNotNull(sentimentDictionary);
 		this.dictionary = checkNotNull(dictionary);
 	}
 
 	@Override
 	public IIndexEntry getPostings(String term) {
+		return getPostings(term, false);
+	}
+
+	@Override
+	public boolean hasPositions() {
+		return indexReader.hasPositions();
+	}
+
+	@Override
+	public IIndexEntry getPositionalPostings(String term) {
+		if (!hasPositions()) {
+			throw new UnsupportedOperationException("The index " + indexReader.getIndexName() + " has no positions.");
+		}
+		return getPostings(term, true);
+	}
+
+	private IIndexEntry getPostings(String term, boolean positions) {
 		checkNotNull(term);
 		checkArgument(!term.isEmpty(), "The term must not be empty.");
 
+		long start = System.nanoTime();
 		DictionaryEntry dictEntry = dictionary.get(term);
+		QueryMetrics.DICTIONARY_LOOKUP.stop(start);
 		if (dictEntry == null) {
-			return new IndexEntry(new DictionaryEntry(term, 0, sentimentDictionary.getOrDefault(term, 0)),
-					ImmutableList.of());
+			return new IndexEntry(new DictionaryEntry(term, 0, dictionary.getSentiment(term)), ImmutableList.of());
 		} else {
-			ImmutableList<Posting> postings = indexReader.readPostings(dictEntry);
+			start = System.nanoTime();
+			ImmutableList<Posting> postings = positions ? indexReader.readPostingsWithPositions(dictEntry)
+					: indexReader.readPostings(dictEntry);
+			QueryMetrics.POSTINGS_DECODE.stop(start);
 			return new IndexEntry(dictEntry, postings);
 		}
 	}
 
+	@Override
+	public long getDocumentFrequency(String term) {
+		DictionaryEntry dictEntry = dictionary.get(checkNotNull(term));
+		return dictEntry == null ? 0 : dictEntry.getDocFreq();
+	}
+
+	@Override
+	public int getSentiment(String term) {
+		return dictionary.getSentiment(checkNotNull(term));
+	}
+
 	@Override
 	public float getDocumentLengthNorm(long docId) {
 		NormFileEntry normEntry = indexReader.readNormEntry(docId);
@@ -56,4 +107,37 @@ public class InvertedIndex implements IInvertedIndex {
 		return indexReader.getDocCount();
 	}
 
+	@Override
+	public long warmUp(int topTermCount, Collection<String> terms) {
+		checkArgument(topTermCount >= 0, "The number of terms cannot be negative. Given: %s", topTermCount);
+		checkNotNull(terms);
+
+		PriorityQueue<DictionaryEntry> topEntries = new PriorityQueue<>(topTermCount + 1,
+				Comparator.comparingLong(DictionaryEntry::getDocFreq));
+		if (topTermCount > 0) {
+			for (DictionaryEntry dictEntry : dictionary.entries()) {
+				topEntries.add(dictEntry);
+				if (topEntries.size() > topTermCount) {
+					topEntries.poll();
+				}
+			}
+		}
+		Set<DictionaryEntry> entries = new HashSet<>(topEntries);
+		for (String term : terms) {
+			DictionaryEntry dictEntry = dictionary.get(term);
+			if (dictEntry != null) {
+				entries.add(dictEntry);
+			}
+		}
+
+		// In file order, the pages are read ahead sequentially
+		List<DictionaryEntryLinked> linkedEntries = new ArrayList<>();
+		for (DictionaryEntry dictEntry : entries) {
+			linkedEntries.add((DictionaryEntryLinked) dictEntry);
+		}
+		linkedEntries.sort(Comparator.comparingLong(DictionaryEntryLinked::getPostingsOffset));
+
+		return indexReader.loadNorms() + indexReader.touchPostings(linkedEntries);
+	}
+
 }
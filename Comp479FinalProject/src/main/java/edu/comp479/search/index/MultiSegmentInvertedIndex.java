@@ -0,0 +1,471 @@
+package edu.comp479.search.index;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import edu.comp479.search.index.structure.DictionaryEntry;
+import edu.comp479.search.index.structure.IIndexEntry;
+import edu.comp479.search.index.structure.IndexEntry;
+import edu.comp479.search.index.structure.Posting;
+import edu.comp479.search.indexer.file.IndexReaderMemoryMapped;
+import edu.comp479.search.indexer.file.LengthNorms;
+import edu.comp479.search.indexer.file.SegmentInfo;
+import edu.comp479.search.indexer.file.SegmentManifest;
+
+import static edu.comp479.search.util.Weights.idf;
+import static edu.comp479.search.util.Weights.tfIdf;
+
+/**
+ * Inverted index made of the segments listed by a {@link SegmentManifest},
+ * searched as a single index.
+ *
+ * <p>
+ * The segments hold consecutive ranges of docIds, the postings list of a term
+ * is the concatenation of its postings in each segment, in docId order. The
+ * statistics of a term are those of the whole index: its document frequency
+ * is summed over the segments and the weights of its postings are computed
+ * again with the idf of the whole index. The postings of a long list are read
+ * from the segments in parallel.
+ *
+ * <p>
+ * The length norm of a document is computed with the same idf of the whole
+ * index, on a background thread once the segments are opened: the postings of
+ * all the segments are read, which must not delay the search of the new
+ * segments. Until the norms are computed, the norms of each segment are read,
+ * computed with the idf of the segment when it was built. An index of a single
+ * segment always reads the norms of the segment.
+ *
+ * <p>
+ * {@link #refresh()} opens the segments added or merged since the last
+ * refresh, the segments kept are not reopened. The index must not be searched
+ * while it is refreshed.
+ */
+public class MultiSegmentInvertedIndex implements IInvertedIndex, Closeable {
+    private static final Logger LOGGER = Logger.getLogger(MultiSegmentInvertedIndex.class.getName());
+
+    /**
+     * Number of postings from which the segments of a postings list are read in
+     * parallel.
+     */
+    public static final long PARALLEL_READ_MIN_POSTINGS = 16384;
+
+    private final String indexName;
+    private final Path directory;
+    private final IndexFactory.SentimentLoader sentimentLoader;
+    private final ExecutorService readExecutor;
+    private final ExecutorService normsExecutor;
+
+    private Map<String, Integer> sentimentDictionary;
+
+    private long generation = -1;
+    private List<Segment> segments = ImmutableList.of();
+    private long[] firstDocIds = new long[0];
+    private long documentCount;
+
+    // The norms with the idf of the whole index, of the segments they were computed for
+    private volatile SegmentNorms lengthNorms;
+    private volatile Future<?> lengthNormsTask;
+
+    /**
+     * Creates the index of a segmented index, the segments are opened by
+     * {@link #refresh()}.
+     *
+     * @param indexName           Name of the segmented index.
+     * @param directory           Directory of the index.
+     * @param sentimentDictionary Sentiment value of the terms.
+     * @see #MultiSegmentInvertedIndex(String, Path, IndexFactory.SentimentLoader)
+     */
+    public MultiSegmentInvertedIndex(String indexName, Path directory, Map<String, Integer> sentimentDictionary) {
+        this(indexName, directory, loadedSentimentDictionary(sentimentDictionary));
+    }
+
+    /**
+     * Creates the index of a segmented index, the segments are opened by
+     * {@link #refresh()}.
+     *
+     * @param indexName       Name of the segmented index.
+     * @param directory       Directory of the index.
+     * @param sentimentLoader Loads the sentiment value of the terms, only when a
+     *                        segment has no current dictionary image.
+     */
+    MultiSegmentInvertedIndex(String indexName, Path directory, IndexFactory.SentimentLoader sentimentLoader) {
+        this.indexName = checkNotNull(indexName);
+        this.directory = checkNotNull(directory);
+        this.sentimentLoader = checkNotNull(sentimentLoader);
+        this.readExecutor = Executors.newFixedThreadPool(Math.min(4, Runtime.getRuntime().availableProcessors()),
+                new ThreadFactoryBuilder().setNameFormat("segment-read-%d").setDaemon(true).build());
+        this.normsExecutor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("segment-norms-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Reads the manifest and opens the segments it lists if it changed since the
+     * last refresh. The length norms of the segments are computed in the
+     * background.
+     *
+     * @return {@code true} if the segments changed.
+     * @throws IOException If the manifest or a new segment cannot be read, the
+     *                     current segments are kept.
+     */
+    public boolean refresh() throws IOException {
+        SegmentManifest manifest = SegmentManifest.read(indexName, directory);
+        if (manifest.getGeneration() == generation) {
+            return false;
+        }
+
+        Map<String, Segment> openSegments = new HashMap<>();
+        segments.forEach((segment) -> openSegments.put(segment.info.getName(), segment));
+
+        List<Segment> newSegments = new ArrayList<>();
+        List<Segment> openedSegments = new ArrayList<>();
+        try {
+            for (SegmentInfo info : manifest.getSegments()) {
+                Segment segment = openSegments.remove(info.getName());
+                if (segment == null) {
+                    segment = openSegment(info);
+                    openedSegments.add(segment);
+                }
+                newSegments.add(segment);
+            }
+        } catch (IOException | RuntimeException e) {
+            openedSegments.forEach(MultiSegmentInvertedIndex::closeSegment);
+            throw e;
+        }
+
+        long[] newFirstDocIds = new long[newSegments.size()];
+        long newDocumentCount = 0;
+        for (int i = 0; i < newSegments.size(); i++) {
+            newFirstDocIds[i] = newSegments.get(i).info.getFirstDocId();
+            newDocumentCount += newSegments.get(i).reader.getDocCount();
+        }
+        List<Segment> refreshedSegments = ImmutableList.copyOf(newSegments);
+        this.segments = refreshedSegments;
+        this.firstDocIds = newFirstDocIds;
+        this.documentCount = newDocumentCount;
+        this.generation = manifest.getGeneration();
+        if (refreshedSegments.size() > 1) {
+            long refreshedDocumentCount = newDocumentCount;
+            lengthNormsTask = normsExecutor.submit(() -> updateLengthNorms(refreshedSegments, refreshedDocumentCount));
+        }
+
+        // The segments merged into a new one
+        openSegments.values().forEach(MultiSegmentInvertedIndex::closeSegment);
+        LOGGER.info(String.format("Index segments opened. Generation: %d, Segments: %d, Documents: %d", generation,
+                segments.size(), documentCount));
+        return true;
+    }
+
+    @Override
+    public IIndexEntry getPostings(String term) {
+        return getPostings(term, false);
+    }
+
+    /**
+     * @return {@code true} if all the segments opened have positions.
+     */
+    @Override
+    public boolean hasPositions() {
+        List<Segment> segments = this.segments;
+        return !segments.isEmpty() && segments.stream().allMatch(segment -> segment.index.hasPositions());
+    }
+
+    @Override
+    public IIndexEntry getPositionalPostings(String term) {
+        if (!hasPositions()) {
+            throw new UnsupportedOperationException("The segments of " + indexName + " do not all have positions.");
+        }
+        return getPostings(term, true);
+    }
+
+    private IIndexEntry getPostings(String term, boolean positions) {
+        checkNotNull(term);
+        checkArgument(!term.isEmpty(), "The term must not be empty.");
+
+        List<Segment> segments = this.segments;
+        if (segments.size() == 1) {
+            return read(segments.get(0), term, positions);
+        }
+
+        long docFreq = 0;
+        long[] segmentDocFreqs = new long[segments.size()];
+        for (int i = 0; i < segments.size(); i++) {
+            segmentDocFreqs[i] = segments.get(i).index.getDocumentFrequency(term);
+            docFreq += segmentDocFreqs[i];
+        }
+        DictionaryEntry dictionaryEntry = new DictionaryEntry(term, docFreq, getSentiment(segments, term));
+        if (docFreq == 0) {
+            return new IndexEntry(dictionaryEntry, ImmutableList.of());
+        }
+
+        List<IIndexEntry> segmentEntries = docFreq >= PARALLEL_READ_MIN_POSTINGS
+                ? readPostingsParallel(segments, segmentDocFreqs, term, positions)
+                : readPostings(segments, segmentDocFreqs, term, positions);
+
+        float termIdf = idf(documentCount, docFreq);
+        ImmutableList.Builder<Posting> postings = ImmutableList.builderWithExpectedSize((int) docFreq);
+        for (IIndexEntry entry : segmentEntries) {
+            for (Posting posting : entry.getPostingsList()) {
+                postings.add(posting.withWeight(tfIdf(termIdf)));
+            }
+        }
+        return new IndexEntry(dictionaryEntry, postings.build());
+    }
+
+    @Override
+    public long getDocumentFrequency(String term) {
+        checkNotNull(term);
+        return getDocumentFrequency(segments, term);
+    }
+
+    private static long getDocumentFrequency(List<Segment> segments, String term) {
+        long docFreq = 0;
+        for (Segment segment : segments) {
+            docFreq += segment.index.getDocumentFrequency(term);
+        }
+        return docFreq;
+    }
+
+    @Override
+    public int getSentiment(String term) {
+        checkNotNull(term);
+        return getSentiment(segments, term);
+    }
+
+    /**
+     * The dictionary of every segment holds the sentiment value of all the terms.
+     */
+    private static int getSentiment(List<Segment> segments, String term) {
+        return segments.isEmpty() ? 0 : segments.get(0).index.getSentiment(term);
+    }
+
+    @Override
+    public float getDocumentLengthNorm(long docId) {
+        int position = Arrays.binarySearch(firstDocIds, docId);
+        // Not a first docId, the segment is the one before the insertion point
+        int segmentIndex = position >= 0 ? position : -position - 2;
+        checkArgument(segmentIndex >= 0, "The docId %s is not in the index.", docId);
+        List<Segment> segments = this.segments;
+        SegmentNorms lengthNorms = this.lengthNorms;
+        if (segments.size() == 1 || lengthNorms == null || lengthNorms.segments != segments) {
+            return segments.get(segmentIndex).index.getDocumentLengthNorm(docId);
+        }
+        float[] segmentNorms = lengthNorms.norms[segmentIndex];
+        long offset = docId - firstDocIds[segmentIndex];
+        return offset < segmentNorms.length ? segmentNorms[(int) offset] : 0;
+    }
+
+    @Override
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Warms up the segments opened, the segments opened by a later refresh are
+     * not.
+     */
+    @Override
+    public long warmUp(int topTermCount, Collection<String> terms) {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.index.warmUp(topTermCount, terms);
+        }
+        return bytes;
+    }
+
+    /**
+     * Waits for the length norms of the segments opened by the last refresh to be
+     * computed with the idf of the whole index.
+     *
+     * @param timeout Maximum time to wait.
+     * @param unit    Unit of the timeout.
+     * @return {@code true} if the norms of the segments opened are computed.
+     * @throws InterruptedException
+     */
+    public boolean awaitLengthNorms(long timeout, TimeUnit unit) throws InterruptedException {
+        Future<?> task = lengthNormsTask;
+        if (task != null) {
+            try {
+                task.get(timeout, unit);
+            } catch (ExecutionException | TimeoutException e) {
+                return false;
+            }
+        }
+        SegmentNorms lengthNorms = this.lengthNorms;
+        return segments.size() <= 1 || (lengthNorms != null && lengthNorms.segments == segments);
+    }
+
+    /**
+     * @return The number of segments opened.
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        readExecutor.shutdownNow();
+        normsExecutor.shutdownNow();
+        segments.forEach(MultiSegmentInvertedIndex::closeSegment);
+        segments = ImmutableList.of();
+        firstDocIds = new long[0];
+        lengthNorms = null;
+        documentCount = 0;
+        generation = -1;
+    }
+
+    private static List<IIndexEntry> readPostings(List<Segment> segments, long[] segmentDocFreqs, String term,
+            boolean positions) {
+        List<IIndexEntry> entries = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            if (segmentDocFreqs[i] > 0) {
+                entries.add(read(segments.get(i), term, positions));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Reads the postings of the segments on the read threads, except the first
+     * segment read by the calling thread.
+     */
+    private List<IIndexEntry> readPostingsParallel(List<Segment> segments, long[] segmentDocFreqs, String term,
+            boolean positions) {
+        List<Future<IIndexEntry>> futures = new ArrayList<>();
+        Segment firstSegment = null;
+        for (int i = 0; i < segments.size(); i++) {
+            if (segmentDocFreqs[i] == 0) {
+                continue;
+            }
+            Segment segment = segments.get(i);
+            if (firstSegment == null) {
+                firstSegment = segment;
+            } else {
+                futures.add(readExecutor.submit(() -> read(segment, term, positions)));
+            }
+        }
+
+        List<IIndexEntry> entries = new ArrayList<>();
+        entries.add(read(firstSegment, term, positions));
+        for (Future<IIndexEntry> future : futures) {
+            entries.add(Futures.getUnchecked(future));
+        }
+        return entries;
+    }
+
+    private static IIndexEntry read(Segment segment, String term, boolean positions) {
+        return positions ? segment.index.getPositionalPostings(term) : segment.index.getPostings(term);
+    }
+
+    /**
+     * Computes the length norms of the segments, unless a later refresh replaced
+     * them. A segment merged away while its postings are read leaves the norms of
+     * each segment, until the next refresh.
+     */
+    private void updateLengthNorms(List<Segment> refreshedSegments, long refreshedDocumentCount) {
+        if (segments != refreshedSegments) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            float[][] norms = computeLengthNorms(refreshedSegments, refreshedDocumentCount);
+            lengthNorms = new SegmentNorms(refreshedSegments, norms);
+            LOGGER.info(String.format("Length norms of %d segments computed in %d ms", refreshedSegments.size(),
+                    (System.nanoTime() - start) / 1000000));
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Unable to compute the length norms of the segments, reading their own.", e);
+        }
+    }
+
+    /**
+     * Computes the length norm of the documents of each segment with the idf of
+     * the whole index, like the weights of the postings read.
+     *
+     * @return The norms of each segment, by docId from its first docId.
+     */
+    private float[][] computeLengthNorms(List<Segment> segments, long documentCount) throws IOException {
+        float[][] lengthNorms = new float[segments.size()][];
+        for (int i = 0; i < segments.size(); i++) {
+            SegmentInfo info = segments.get(i).info;
+            // The docIds of a segment without its expunged documents have gaps
+            lengthNorms[i] = LengthNorms.compute(info.getName(), directory, info.getFirstDocId(),
+                    (int) info.getDocCount(), documentCount, (term) -> getDocumentFrequency(segments, term));
+        }
+        return lengthNorms;
+    }
+
+    private Segment openSegment(SegmentInfo info) throws IOException {
+        IndexReaderMemoryMapped reader = new IndexReaderMemoryMapped(info.getName(), directory);
+        reader.open();
+        try {
+            return new Segment(info, reader,
+                    new InvertedIndex(IndexFactory.openDictionary(reader, this::loadSentimentDictionary), reader));
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    private synchronized Map<String, Integer> loadSentimentDictionary() throws IOException {
+        if (sentimentDictionary == null) {
+            sentimentDictionary = sentimentLoader.load();
+        }
+        return sentimentDictionary;
+    }
+
+    private static IndexFactory.SentimentLoader loadedSentimentDictionary(Map<String, Integer> sentimentDictionary) {
+        checkNotNull(sentimentDictionary);
+        return () -> sentimentDictionary;
+    }
+
+    private static void closeSegment(Segment segment) {
+        try {
+            segment.reader.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error when closing the index segment " + segment.info.getName(), e);
+        }
+    }
+
+    private static final class SegmentNorms {
+        private final List<Segment> segments;
+        // The norms of each segment, by docId from its first docId
+        private final float[][] norms;
+
+        SegmentNorms(List<Segment> segments, float[][] norms) {
+            this.segments = segments;
+            this.norms = norms;
+        }
+    }
+
+    private static final class Segment {
+        private final SegmentInfo info;
+        private final IndexReaderMemoryMapped reader;
+        private final InvertedIndex index;
+
+        Segment(SegmentInfo info, IndexReaderMemoryMapped reader, InvertedIndex index) {
+            this.info = info;
+            this.reader = reader;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package edu.comp479.search.index;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.comp479.search.index.structure.DictionaryEntry;
+import edu.comp479.search.index.structure.IIndexEntry;
+import edu.comp479.search.index.structure.IndexEntry;
+import edu.comp479.search.index.structure.Posting;
+
+/**
+ * Index restricted to the documents matched by a query, so that the ranking
+ * only scores the documents matching all its clauses.
+ *
+ * <p>
+ * The postings of the other documents are removed when a list is read. The
+ * weights of the postings are kept, computed over the whole index.
+ */
+public class RestrictedInvertedIndex implements IInvertedIndex {
+    private final IInvertedIndex index;
+    private final long[] docIds;
+
+    /**
+     * @param index  Index to restrict.
+     * @param docIds Documents kept, ascending.
+     */
+    public RestrictedInvertedIndex(IInvertedIndex index, long[] docIds) {
+        this.index = checkNotNull(index);
+        this.docIds = checkNotNull(docIds);
+    }
+
+    @Override
+    public IIndexEntry getPostings(String term) {
+        return restrict(index.getPostings(term));
+    }
+
+    @Override
+    public boolean hasPositions() {
+        return index.hasPositions();
+    }
+
+    @Override
+    public IIndexEntry getPositionalPostings(String term) {
+        return restrict(index.getPositionalPostings(term));
+    }
+
+    private IIndexEntry restrict(IIndexEntry entry) {
+        List<Posting> postings = entry.getPostingsList();
+        ImmutableList.Builder<Posting> keptPostings = ImmutableList.builder();
+        int keptCount = 0;
+        for (Posting posting : postings) {
+            if (Arrays.binarySearch(docIds, posting.getDocId()) >= 0) {
+                keptPostings.add(posting);
+                keptCount++;
+            }
+        }
+        if (keptCount == postings.size()) {
+            return entry;
+        }
+        return new IndexEntry(new DictionaryEntry(entry.getTerm(), keptCount, entry.getSentimentValue()),
+                keptPostings.build());
+    }
+
+    /**
+     * Reads the document frequency of the term over the whole index.
+     */
+    @Override
+    public long getDocumentFrequency(String term) {
+        return index.getDocumentFrequency(term);
+    }
+
+    @Override
+    public int getSentiment(String term) {
+        return index.getSentiment(term);
+    }
+
+    @Override
+    public float getDocumentLengthNorm(long docId) {
+        return index.getDocumentLengthNorm(docId);
+    }
+
+    @Override
+    public long getDocumentCount() {
+        return index.getDocumentCount();
+    }
+
+    @Override
+    public long warmUp(int topTermCount, Collection<String> terms) {
+        return index.warmUp(topTermCount, terms);
+    }
+}
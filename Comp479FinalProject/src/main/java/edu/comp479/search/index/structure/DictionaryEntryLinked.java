@@ -4,14 +4,39 @@ import static com.google.common.base.Preconditions.*;
 
 public class DictionaryEntryLinked extends DictionaryEntry {
     private final long postingsOffset;
+    private final long positionsOffset;
 
+    /**
+     * @see DictionaryEntryLinked#DictionaryEntryLinked(String, long, int, long,
+     *      long)
+     */
     public DictionaryEntryLinked(String term, long docFreq, int sentiment, long postingsOffset) {
+        this(term, docFreq, sentiment, postingsOffset, -1);
+    }
+
+    /**
+     * @param positionsOffset Offset to the positions of the postings list, -1 if
+     *                        the index has no positions.
+     */
+    public DictionaryEntryLinked(String term, long docFreq, int sentiment, long postingsOffset,
+            long positionsOffset) {
         super(term, docFreq, sentiment);
         checkArgument(postingsOffset >= 0, "Offset to the postings list cannot be null. Value: %s", postingsOffset);
+        checkArgument(positionsOffset >= -1, "Offset to the positions cannot be negative. Value: %s",
+                positionsOffset);
         this.postingsOffset = postingsOffset;
+        this.positionsOffset = positionsOffset;
     }
 
     public long getPostingsOffset() {
         return postingsOffset;
     }
+
+    /**
+     * @return The offset to the positions of the postings list, -1 if the index
+     *         has no positions.
+     */
+    public long getPositionsOffset() {
+        return positionsOffset;
+    }
 }
@@ -8,15 +8,31 @@ public class Posting {
 	private final long docId;
 	private final int termFreq;
 	private final float tfIdf;
+	private final int[] positions;
 
+	/**
+	 * @see Posting#Posting(long, int, float, int[])
+	 */
 	public Posting(long docId, int termFreq, float tfIdf) {
+		this(docId, termFreq, tfIdf, null);
+	}
+
+	/**
+	 * @param positions Positions of the term in the document, ascending, one per
+	 *                  occurrence, or {@code null} if not recorded.
+	 */
+	public Posting(long docId, int termFreq, float tfIdf, int[] positions) {
 		checkArgument(docId >= 0, "The document Id should be a non-negative value. Given: %s", docId);
 		checkArgument(termFreq >= 1, "The term Frequency should be greater than 0. Given: %s", termFreq);
 		checkArgument(tfIdf >= 0, "The tf-idf for a posting should be a non-negative value. Given: %s", tfIdf);
+		checkArgument(positions == null || positions.length == termFreq,
+				"A position is needed per occurrence. Term frequency: %s, Positions: %s", termFreq,
+				positions == null ? 0 : positions.length);
 
 		this.docId = docId;
 		this.tfIdf = tfIdf;
 		this.termFreq = termFreq;
+		this.positions = positions;
 	}
 
 	@Override
@@ -44,8 +60,20 @@ public class Posting {
 		return termFreq;
 	}
 
+	/**
+	 * @return The positions of the term in the document, ascending, or
+	 *         {@code null} if not recorded. The array must not be modified.
+	 */
+	public int[] getPositions() {
+		return positions;
+	}
+
+	public boolean hasPositions() {
+		return positions != null;
+	}
+
 	public Posting withWeight(Function<Posting, Float> weightComputer) {
 		Float newWeight = weightComputer.apply(this);
-		return new Posting(docId, termFreq, newWeight);
+		return new Posting(docId, termFreq, newWeight, positions);
 	}
 }
@@ -1,6 +1,7 @@
 package edu.comp479.search.indexer;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -10,7 +11,6 @@ import java.util.Set;
 import static java.util.Comparator.comparing;
 
 import com.google.common.collect.HashMultiset;
-import com.google.common.collect.ImmutableList;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.base.Preconditions.*;
@@ -18,16 +18,56 @@ import static com.google.common.base.Preconditions.*;
 import edu.comp479.search.index.structure.DictionaryEntry;
 import edu.comp479.search.index.structure.Posting;
 import edu.comp479.search.indexer.file.IndexWriter;
+import edu.comp479.search.tokenizer.DocumentTerms;
 
 public class IndexBlockBuilder {
     private final Map<String, Integer> sentimentDictionary;
-    private final Map<String, HashMultiset<Long>> block;
+    private final TermDictionary termDictionary;
+    private final Map<Integer, HashMultiset<Long>> block;
     private final Set<Long> docIds;
+    // Positions of each posting by term id, null if the block has no positions
+    private final Map<Integer, Map<Long, int[]>> positions;
 
+    /**
+     * Creates a block builder with its own term dictionary.
+     * 
+     * @see IndexBlockBuilder#IndexBlockBuilder(Map, TermDictionary)
+     */
     public IndexBlockBuilder(Map<String, Integer> sentimentDictionary) {
+        this(sentimentDictionary, new TermDictionary());
+    }
+
+    /**
+     * @see IndexBlockBuilder#IndexBlockBuilder(Map, TermDictionary, boolean)
+     */
+    public IndexBlockBuilder(Map<String, Integer> sentimentDictionary, TermDictionary termDictionary) {
+        this(sentimentDictionary, termDictionary, false);
+    }
+
+    /**
+     * Creates a block builder storing its terms by id.
+     * 
+     * @param sentimentDictionary Sentiment value of the terms.
+     * @param termDictionary      Dictionary assigning the term ids, shared by the
+     *                            blocks of an index.
+     * @param positions           If {@code true}, the positions of the terms are
+     *                            kept and written with the postings. Only whole
+     *                            documents can be added.
+     */
+    public IndexBlockBuilder(Map<String, Integer> sentimentDictionary, TermDictionary termDictionary,
+            boolean positions) {
         this.sentimentDictionary = checkNotNull(sentimentDictionary);
+        this.termDictionary = checkNotNull(termDictionary);
         this.block = new HashMap<>();
         this.docIds = new HashSet<>();
+        this.positions = positions ? new HashMap<>() : null;
+    }
+
+    /**
+     * @return {@code true} if the block keeps the positions of its terms.
+     */
+    public boolean hasPositions() {
+        return positions != null;
     }
 
     /**
@@ -39,42 +79,80 @@ public class IndexBlockBuilder {
      * @param docId Document Id associated for which the term appears in.
      * 
      * @return True
+     * @throws IllegalStateException if the block keeps positions.
      */
     public boolean addPosting(String term, long docId) {
+        checkState(positions == null, "A single posting has no position, add the whole document.");
         checkNotNull(term);
         checkArgument(!term.isEmpty(), "Term should not be empty.");
         checkArgument(docId >= 0, "DocId should not be less than 0. Given: %s", docId);
 
         docIds.add(docId);
-        HashMultiset<Long> postings = block.get(term);
-        if (postings == null) {
-            postings = HashMultiset.create();
-            block.put(term, postings);
+        return getPostings(term).add(docId);
+    }
+
+    /**
+     * Adds the postings of a whole document to the underlying block
+     * representation.
+     * 
+     * Each distinct term of the document is looked up once and its posting is
+     * added with the term frequency of the document.
+     * 
+     * @param document Terms of the document with their frequency.
+     * 
+     * @return The number of distinct terms added.
+     */
+    public int addDocument(DocumentTerms document) {
+        checkNotNull(document);
+        long docId = document.getDocId();
+        checkArgument(docId >= 0, "DocId should not be less than 0. Given: %s", docId);
+
+        Long boxedDocId = docId;
+        boolean added = docIds.add(boxedDocId);
+        checkArgument(added || positions == null, "The document %s is already in the block.", docId);
+        for (int i = 0; i < document.size(); i++) {
+            String term = document.getTerm(i);
+            checkArgument(!term.isEmpty(), "Term should not be empty.");
+            Integer termId = termDictionary.getTermId(term);
+            getPostings(termId).add(boxedDocId, document.getTermFreq(i));
+            if (positions != null) {
+                positions.computeIfAbsent(termId, id -> new HashMap<>()).put(boxedDocId, document.getPositions(i));
+            }
         }
-        return postings.add(docId);
+        return document.size();
     }
 
+    /**
+     * Returns a copy of the block keyed by term.
+     * 
+     * @return The postings of each term of the block.
+     */
     public Map<String, HashMultiset<Long>> getBlock() {
-        return block;
+        Map<String, HashMultiset<Long>> termBlock = new HashMap<>();
+        block.forEach((termId, postings) -> termBlock.put(termDictionary.getTerm(termId), postings));
+        return termBlock;
     }
 
     /**
      * Write the block to disk with the given {@code indexWriter}.
      * 
+     * <p>
+     * The terms are written in alphabetical order, sorted on their rank in the
+     * term dictionary.
+     * 
      * @param indexWriter Writer to use to write to disk.
      * @return The index Name.
      * @throws IOException
      */
     public void writeToDisk(IndexWriter indexWriter) throws IOException {
-        ImmutableList<Map.Entry<String, HashMultiset<Long>>> sortedEntries = ImmutableList
-                .sortedCopyOf(Map.Entry.comparingByKey(), block.entrySet());
-
-        for (Map.Entry<String, HashMultiset<Long>> blockEntry : sortedEntries) {
-            List<Posting> postingsList = blockEntry.getValue().entrySet().stream()
-                    .map((entry) -> new Posting(entry.getElement(), entry.getCount(), 0))
+        for (int termId : sortedTermIds()) {
+            Map<Long, int[]> termPositions = positions == null ? null : positions.get(termId);
+            List<Posting> postingsList = block.get(termId).entrySet().stream()
+                    .map((entry) -> new Posting(entry.getElement(), entry.getCount(), 0,
+                            termPositions == null ? null : termPositions.get(entry.getElement())))
                     .sorted(comparing(Posting::getDocId)).collect(toImmutableList());
 
-            String term = blockEntry.getKey();
+            String term = termDictionary.getTerm(termId);
             indexWriter.write(new DictionaryEntry(term, postingsList.size(), getSentimentValue(term)), postingsList);
         }
         indexWriter.writeFinalizeIndex(docIds.size());
@@ -89,6 +167,40 @@ public class IndexBlockBuilder {
         return block.size();
     }
 
+    private HashMultiset<Long> getPostings(String term) {
+        return getPostings(termDictionary.getTermId(term));
+    }
+
+    private HashMultiset<Long> getPostings(Integer termId) {
+        HashMultiset<Long> postings = block.get(termId);
+        if (postings == null) {
+            postings = HashMultiset.create();
+            block.put(termId, postings);
+        }
+        return postings;
+    }
+
+    /**
+     * @return The term ids of the block in alphabetical order of the terms.
+     */
+    private int[] sortedTermIds() {
+        int[] ranks = termDictionary.getRanks();
+
+        // Rank in the high bits, the ids are sorted as primitives
+        long[] rankedIds = new long[block.size()];
+        int index = 0;
+        for (int termId : block.keySet()) {
+            rankedIds[index++] = ((long) ranks[termId] << 32) | termId;
+        }
+        Arrays.sort(rankedIds);
+
+        int[] termIds = new int[rankedIds.length];
+        for (int i = 0; i < rankedIds.length; i++) {
+            termIds[i] = (int) rankedIds[i];
+        }
+        return termIds;
+    }
+
     private int getSentimentValue(String term) {
         return sentimentDictionary.getOrDefault(term, 0);
     }
@@ -6,13 +6,36 @@ import static com.google.common.base.Preconditions.*;
 
 public class IndexBlockBuilderFactory {
     private final Map<String, Integer> sentimentDictionary;
+    private final TermDictionary termDictionary;
+    private final boolean positions;
 
     public IndexBlockBuilderFactory(Map<String, Integer> sentimentDictionary) {
+        this(sentimentDictionary, new TermDictionary());
+    }
+
+    public IndexBlockBuilderFactory(Map<String, Integer> sentimentDictionary, TermDictionary termDictionary) {
+        this(sentimentDictionary, termDictionary, false);
+    }
+
+    /**
+     * @param sentimentDictionary Sentiment value of the terms.
+     * @param termDictionary      Dictionary shared by all the created blocks.
+     * @param positions           If {@code true}, the created blocks keep the
+     *                            positions of their terms.
+     */
+    public IndexBlockBuilderFactory(Map<String, Integer> sentimentDictionary, TermDictionary termDictionary,
+            boolean positions) {
         this.sentimentDictionary = checkNotNull(sentimentDictionary);
+        this.termDictionary = checkNotNull(termDictionary);
+        this.positions = positions;
     }
 
     public IndexBlockBuilder createIndexBlockBuilder() {
-        return new IndexBlockBuilder(sentimentDictionary);
+        return new IndexBlockBuilder(sentimentDictionary, termDictionary, positions);
+    }
+
+    public TermDictionary getTermDictionary() {
+        return termDictionary;
     }
 
 }
@@ -4,10 +4,12 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.logging.Logger;
 
 import static java.util.stream.Collectors.*;
 
@@ -20,13 +22,17 @@ import edu.comp479.search.index.structure.DictionaryEntry;
 import edu.comp479.search.index.structure.IndexEntry;
 import edu.comp479.search.index.structure.Posting;
 import edu.comp479.search.indexer.file.IndexDataMapperFactory;
+import edu.comp479.search.indexer.file.IndexFileUtility;
 import edu.comp479.search.indexer.file.IndexReaderStreamed;
 import edu.comp479.search.indexer.file.IndexWriter;
+import edu.comp479.search.metrics.MetricsRegistry;
 
 import static com.google.common.base.Preconditions.*;
 import static com.google.common.base.Verify.*;
 
 public class IndexBlockMerger {
+    private static final Logger LOGGER = Logger.getLogger(IndexBlockMerger.class.getName());
+
     public static final int DEFAULT_INPUT_BUFFER_COUNT = 4;
     public static final int DEFAULT_BUFFER_SIZE = 4096;
 
@@ -40,6 +46,8 @@ public class IndexBlockMerger {
     private final int outputBufferSize;
     private final List<String> initialBlockNames;
     private final IndexDataMapperFactory indexDataMapperFactory;
+    private final TermDictionary termDictionary;
+    private final MetricsRegistry metrics;
 
     private int currentIteration;
 
@@ -87,6 +95,40 @@ public class IndexBlockMerger {
     public IndexBlockMerger(String indexName, List<String> blockNames, Path dir, Path outputDir,
             IndexDataMapperFactory indexDataMapperFactory, int inputBufferCount, int inputBufferSize,
             int outputBufferSize) throws IOException {
+        this(indexName, blockNames, dir, outputDir, indexDataMapperFactory, null, inputBufferCount, inputBufferSize,
+                outputBufferSize);
+    }
+
+    /**
+     * Creates a new {@link IndexBlockMerger} comparing the terms of the blocks by
+     * their rank in the term dictionary they were built with.
+     * 
+     * @param termDictionary Dictionary of all the terms of the blocks, or
+     *                       {@code null} to compare the terms themselves.
+     * 
+     * @see IndexBlockMerger#IndexBlockMerger(String, List, Path, Path,
+     *      IndexDataMapperFactory, int, int, int)
+     */
+    public IndexBlockMerger(String indexName, List<String> blockNames, Path dir, Path outputDir,
+            IndexDataMapperFactory indexDataMapperFactory, TermDictionary termDictionary, int inputBufferCount,
+            int inputBufferSize, int outputBufferSize) throws IOException {
+        this(indexName, blockNames, dir, outputDir, indexDataMapperFactory, termDictionary, inputBufferCount,
+                inputBufferSize, outputBufferSize, new MetricsRegistry());
+    }
+
+    /**
+     * Creates a new {@link IndexBlockMerger} recording the duration and the bytes
+     * read and written of each pass in {@code metrics}, as
+     * {@code merge.pass<i>.*}.
+     * 
+     * @param metrics Registry of the metrics of the build.
+     * 
+     * @see IndexBlockMerger#IndexBlockMerger(String, List, Path, Path,
+     *      IndexDataMapperFactory, TermDictionary, int, int, int)
+     */
+    public IndexBlockMerger(String indexName, List<String> blockNames, Path dir, Path outputDir,
+            IndexDataMapperFactory indexDataMapperFactory, TermDictionary termDictionary, int inputBufferCount,
+            int inputBufferSize, int outputBufferSize, MetricsRegistry metrics) throws IOException {
         this.indexOutputName = checkNotNull(indexName);
         this.initialBlockNames = checkNotNull(blockNames);
 
@@ -106,6 +148,8 @@ public class IndexBlockMerger {
         this.outputDir = checkNotNull(outputDir);
 
         this.indexDataMapperFactory = indexDataMapperFactory;
+        this.termDictionary = termDictionary;
+        this.metrics = checkNotNull(metrics);
 
         Files.createDirectories(outputDir);
     }
@@ -145,11 +189,13 @@ public class IndexBlockMerger {
 
         List<String> outputBlocks = new ArrayList<>();
 
+        long passStart = System.nanoTime();
         for (int i = 0; i < partitionedBlockForEachMerge.size(); i++) {
             String nextBlockName = String.format("%s.partial%d_pass%d", indexOutputName, i, currentIteration);
 
             outputBlocks.add(merge(partitionedBlockForEachMerge.get(i), nextBlockName));
         }
+        recordPass(blockNames, outputBlocks, System.nanoTime() - passStart);
 
         return outputBlocks;
     }
@@ -158,7 +204,8 @@ public class IndexBlockMerger {
      * Merge the given list of input blocks into the given output block.
      * 
      * Merge will output the intermediary blocks to {@code dir} given during
-     * construction.
+     * construction. The output block keeps the positions of the postings only if
+     * all the input blocks have them.
      * 
      * @param inputNames Names of the input blocks to merge.
      * @param outputName Name of the output block.
@@ -166,18 +213,26 @@ public class IndexBlockMerger {
      * @throws IOException
      */
     private String merge(List<String> inputNames, String outputName) throws IOException {
-        IndexWriter outputWriter = indexDataMapperFactory.createIndexWriter(outputName, dir, outputBufferSize);
         IndexReaderStreamed[] indexReaders = createInputs(inputNames);
+        long positionalCount = Arrays.stream(indexReaders).filter(IndexReaderStreamed::hasPositions).count();
+        boolean positions = positionalCount == indexReaders.length;
+        if (positionalCount > 0 && !positions) {
+            LOGGER.warning("Only " + positionalCount + " of the " + indexReaders.length
+                    + " blocks merged into " + outputName + " have positions, the positions are dropped.");
+        }
+        IndexWriter outputWriter = positions
+                ? indexDataMapperFactory.createIndexWriter(outputName, dir, outputBufferSize, true)
+                : indexDataMapperFactory.createIndexWriter(outputName, dir, outputBufferSize);
 
         Set<Long> docIds = new HashSet<>();
 
-        MergeHelper mergeHelper = new MergeHelper(indexReaders);
+        MergeHelper mergeHelper = new MergeHelper(indexReaders, termDictionary);
         while (mergeHelper.hasNextEntry()) {
             List<IndexEntry> indexEntries = mergeHelper.getNextEntriesWithSameTerm();
             verify(indexEntries != null && !indexEntries.isEmpty(),
                     "Error during merge, null/empty list of entries. Received: %s", indexEntries);
 
-            IndexEntry mergedIndexEntry = mergeEntries(indexEntries);
+            IndexEntry mergedIndexEntry = mergeEntries(indexEntries, positions);
             mergedIndexEntry.getPostingsList().forEach((posting) -> docIds.add(posting.getDocId()));
             outputWriter.write(mergedIndexEntry.getDictionaryEntry(), mergedIndexEntry.getPostingsList());
         }
@@ -188,7 +243,29 @@ public class IndexBlockMerger {
         return outputName;
     }
 
-    private IndexEntry mergeEntries(List<IndexEntry> indexEntries) {
+    private void recordPass(List<String> inputNames, List<String> outputNames, long durationNanos)
+            throws IOException {
+        long bytesRead = 0;
+        for (String inputName : inputNames) {
+            bytesRead += IndexFileUtility.size(inputName, dir);
+        }
+        long bytesWritten = 0;
+        for (String outputName : outputNames) {
+            bytesWritten += IndexFileUtility.size(outputName, dir);
+        }
+
+        String pass = "merge.pass" + currentIteration;
+        metrics.timer(pass + ".duration").record(durationNanos);
+        metrics.counter(pass + ".blocks").add(inputNames.size());
+        metrics.counter(pass + ".bytesRead").add(bytesRead);
+        metrics.counter(pass + ".bytesWritten").add(bytesWritten);
+        metrics.timer("merge.passes").record(durationNanos);
+        metrics.counter("merge.bytesRead").add(bytesRead);
+        metrics.counter("merge.bytesWritten").add(bytesWritten);
+        metrics.highWaterMark("jvm.heap.usedHighWaterBytes").update(MetricsRegistry.usedHeapBytes());
+    }
+
+    private IndexEntry mergeEntries(List<IndexEntry> indexEntries, boolean positions) {
         checkNotNull(indexEntries);
         checkArgument(!indexEntries.isEmpty(), "Given entries to merge are empty.");
 
@@ -200,8 +277,10 @@ public class IndexBlockMerger {
         checkArgument(indexEntries.stream().allMatch((entry) -> firstTermInList.equals(entry.getTerm())),
                 "Can only merge index entries for the same term. Given entries: %s", indexEntries);
 
-        if (indexEntries.size() == 1) {
+        if (indexEntries.size() == 1 && (positions || !hasPositions(indexEntries.get(0)))) {
             return indexEntries.get(0);
+        } else if (positions) {
+            return mergeEntriesWithPositions(indexEntries);
         } else {
 
             TreeMap<Long, Integer> groupedOrderedPostings = indexEntries.stream()
@@ -216,6 +295,36 @@ public class IndexBlockMerger {
         }
     }
 
+    /**
+     * Merges the entries of a term, the positions of the postings of a same
+     * document being merged in order.
+     */
+    private IndexEntry mergeEntriesWithPositions(List<IndexEntry> indexEntries) {
+        IndexEntry indexEntryTemplate = indexEntries.get(0);
+        TreeMap<Long, int[]> groupedOrderedPositions = new TreeMap<>();
+        for (IndexEntry entry : indexEntries) {
+            for (Posting posting : entry.getPostingsList()) {
+                groupedOrderedPositions.merge(posting.getDocId(), posting.getPositions(), (first, second) -> {
+                    int[] merged = Arrays.copyOf(first, first.length + second.length);
+                    System.arraycopy(second, 0, merged, first.length, second.length);
+                    Arrays.sort(merged);
+                    return merged;
+                });
+            }
+        }
+
+        ImmutableList<Posting> postingsList = groupedOrderedPositions.entrySet().stream()
+                .map((entry) -> new Posting(entry.getKey(), entry.getValue().length, 0, entry.getValue()))
+                .collect(toImmutableList());
+
+        return new IndexEntry(new DictionaryEntry(indexEntryTemplate.getTerm(), (long) postingsList.size(),
+                indexEntryTemplate.getSentimentValue()), postingsList);
+    }
+
+    private static boolean hasPositions(IndexEntry indexEntry) {
+        return indexEntry.getPostingsList().stream().anyMatch(Posting::hasPositions);
+    }
+
     private IndexReaderStreamed[] createInputs(List<String> inputNames) throws IOException {
         IndexReaderStreamed[] inputReaders = new IndexReaderStreamed[inputNames.size()];
         for (int i = 0; i < inputReaders.length; i++) {
@@ -4,22 +4,35 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
 
 import static java.util.Map.Entry.comparingByKey;
 
+import com.google.common.collect.ImmutableList;
+
+import edu.comp479.search.index.structure.DictionaryEntry;
 import edu.comp479.search.index.structure.IndexEntry;
 import edu.comp479.search.index.structure.Posting;
+import edu.comp479.search.indexer.file.DeletedDocuments;
+import edu.comp479.search.indexer.file.DictionaryImage;
 import edu.comp479.search.indexer.file.IndexDataMapperFactory;
+import edu.comp479.search.indexer.file.IndexFileUtility;
 import edu.comp479.search.indexer.file.IndexReaderStreamed;
 import edu.comp479.search.indexer.file.IndexWriter;
 import edu.comp479.search.indexer.file.NormFileEntry;
+import edu.comp479.search.metrics.MetricsRegistry;
+import edu.comp479.search.metrics.Timer;
+import edu.comp479.search.tokenizer.IDocumentTermStream;
 import edu.comp479.search.tokenizer.ITokenStream;
+import edu.comp479.search.util.SentimentDictionaryBuilder;
 
+import static edu.comp479.search.util.Weights.idf;
 import static edu.comp479.search.util.Weights.tfIdf;
 
 import static com.google.common.base.Preconditions.*;
@@ -29,40 +42,121 @@ public class Indexer implements IIndexer {
 
     private final String indexName;
     private final ITokenStream tokenStream;
+    private final IDocumentTermStream documentStream;
     private final Path constructionDir;
     private final Path outputDir;
     private final int maxMemoryUsageMb;
     private final int inputBufferCount;
     private final int inputBufferSize;
     private final int outputBufferSize;
+    private final boolean positions;
+    private final MetricsRegistry metrics = new MetricsRegistry();
 
     public Indexer(String indexName, ITokenStream tokenStream, Path constructionDir, Path outputDir,
             int maxMemoryUsageMb, int inputBufferCount, int inputBufferSize, int outputBufferSize) {
+        this(indexName, checkNotNull(tokenStream), null, constructionDir, outputDir, maxMemoryUsageMb,
+                inputBufferCount, inputBufferSize, outputBufferSize, false);
+    }
+
+    /**
+     * Creates an indexer inverting documents given as term frequencies.
+     */
+    public Indexer(String indexName, IDocumentTermStream documentStream, Path constructionDir, Path outputDir,
+            int maxMemoryUsageMb, int inputBufferCount, int inputBufferSize, int outputBufferSize) {
+        this(indexName, documentStream, constructionDir, outputDir, maxMemoryUsageMb, inputBufferCount,
+                inputBufferSize, outputBufferSize, false);
+    }
+
+    /**
+     * Creates an indexer inverting documents given as term frequencies, writing
+     * the positions of the terms in a separate file if {@code positions} is set.
+     */
+    public Indexer(String indexName, IDocumentTermStream documentStream, Path constructionDir, Path outputDir,
+            int maxMemoryUsageMb, int inputBufferCount, int inputBufferSize, int outputBufferSize,
+            boolean positions) {
+        this(indexName, null, checkNotNull(documentStream), constructionDir, outputDir, maxMemoryUsageMb,
+                inputBufferCount, inputBufferSize, outputBufferSize, positions);
+    }
+
+    private Indexer(String indexName, ITokenStream tokenStream, IDocumentTermStream documentStream,
+            Path constructionDir, Path outputDir, int maxMemoryUsageMb, int inputBufferCount, int inputBufferSize,
+            int outputBufferSize, boolean positions) {
         this.indexName = checkNotNull(indexName);
-        this.tokenStream = checkNotNull(tokenStream);
+        this.tokenStream = tokenStream;
+        this.documentStream = documentStream;
         this.constructionDir = checkNotNull(constructionDir);
         this.outputDir = checkNotNull(outputDir);
         this.maxMemoryUsageMb = maxMemoryUsageMb;
         this.inputBufferCount = inputBufferCount;
         this.inputBufferSize = inputBufferSize;
         this.outputBufferSize = outputBufferSize;
+        this.positions = positions;
     }
 
     @Override
     public void execute() throws IOException {
-        SPIMIInverter spimi = new SPIMIInverter(indexName, tokenStream, constructionDir, maxMemoryUsageMb);
+        long buildStart = System.nanoTime();
+        registerBuildGauges();
+
+        // The blocks share their terms, the merge compares the term ranks
+        TermDictionary termDictionary = new TermDictionary();
+        Map<String, Integer> sentimentDictionary = new SentimentDictionaryBuilder().loadSentimentDictionary();
+        IndexBlockBuilderFactory blockBuilderFactory = new IndexBlockBuilderFactory(sentimentDictionary,
+                termDictionary, positions);
+        SPIMIInverter spimi = documentStream != null
+                ? new SPIMIInverter(indexName, documentStream, constructionDir, maxMemoryUsageMb,
+                        blockBuilderFactory, new IndexDataMapperFactory(), Runtime.getRuntime(), metrics)
+                : new SPIMIInverter(indexName, tokenStream, constructionDir, maxMemoryUsageMb, blockBuilderFactory,
+                        new IndexDataMapperFactory(), Runtime.getRuntime(), metrics);
 
         LOGGER.info("Building the initial blocks for the index...");
+        long phaseStart = System.nanoTime();
         List<String> blocksNames = buildBlocks(spimi);
+        metrics.timer("indexer.phase.invert").stop(phaseStart);
+        if (blocksNames.isEmpty()) {
+            LOGGER.warning("No documents to index, the index was not written.");
+            metrics.timer("indexer.total").stop(buildStart);
+            return;
+        }
 
-        LOGGER.info("Merging blocks...");
+        LOGGER.info("Merging blocks... Distinct terms: " + termDictionary.size());
+        metrics.counter("indexer.distinctTerms").add(termDictionary.size());
+        phaseStart = System.nanoTime();
         IndexBlockMerger merger = new IndexBlockMerger(indexName, blocksNames, constructionDir, constructionDir,
-                new IndexDataMapperFactory(), inputBufferCount, inputBufferSize, outputBufferSize);
+                new IndexDataMapperFactory(), termDictionary, inputBufferCount, inputBufferSize, outputBufferSize,
+                metrics);
 
         String finalBlockName = merger.externalMultiwayMerge();
+        metrics.timer("indexer.phase.merge").stop(phaseStart);
 
         LOGGER.info("Precomputing weights and building the final index...");
-        computeWeightsAndCreateFinalIndex(finalBlockName, indexName, constructionDir, outputDir);
+        phaseStart = System.nanoTime();
+        computeWeightsAndCreateFinalIndex(finalBlockName, indexName, constructionDir, outputDir,
+                sentimentDictionary);
+        metrics.timer("indexer.phase.weights").stop(phaseStart);
+        metrics.counter("indexer.bytesWritten").add(IndexFileUtility.size(indexName, outputDir));
+        metrics.timer("indexer.total").stop(buildStart);
+    }
+
+    /**
+     * @return The metrics of the builds of this indexer: the throughput of the
+     *         stream, the blocks, the merge passes and the heap usage.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Registers the heap gauges and the throughput of the stream over the
+     * inversion phase, in which the stream is read.
+     */
+    private void registerBuildGauges() {
+        metrics.registerHeapGauges(true);
+        Timer invertTimer = metrics.timer("indexer.phase.invert");
+        metrics.gauge("tokenstream.tokensPerSecond",
+                () -> metrics.counter("tokenstream.tokens").getCount() / invertTimer.getTotalSeconds());
+        metrics.gauge("tokenstream.documentsPerSecond",
+                () -> metrics.counter("tokenstream.documents").getCount() / invertTimer.getTotalSeconds());
     }
 
     /**
@@ -92,21 +186,55 @@ public class Indexer implements IIndexer {
      * Compute the weights (tf-idf) for the postings and the length norm for each
      * document and create the final index.
      * 
-     * @param indexName Name of the index to write
-     * @param inDir     Directory where to read the last block
-     * @param outDir    Directory where to write the final index
+     * @param indexName           Name of the index to write
+     * @param inDir               Directory where to read the last block
+     * @param outDir              Directory where to write the final index
+     * @param sentimentDictionary Sentiment value of the terms, written in the
+     *                            dictionary image
      * @throws IOException
      */
-    private void computeWeightsAndCreateFinalIndex(String lastBlockName, String indexName, Path inDir, Path outDir)
-            throws IOException {
+    static void computeWeightsAndCreateFinalIndex(String lastBlockName, String indexName, Path inDir, Path outDir,
+            Map<String, Integer> sentimentDictionary) throws IOException {
+        computeWeightsAndCreateFinalIndex(lastBlockName, indexName, inDir, outDir, DeletedDocuments.none(),
+                sentimentDictionary);
+    }
+
+    /**
+     * Compute the weights (tf-idf) for the postings of the documents not deleted
+     * and the length norm for each of them and create the final index. The
+     * postings and norms of the deleted documents are dropped. The final index
+     * keeps the positions of the postings if the block has them.
+     * 
+     * @param indexName           Name of the index to write
+     * @param inDir               Directory where to read the last block
+     * @param outDir              Directory where to write the final index
+     * @param deletedDocuments    Documents to drop from the index
+     * @param sentimentDictionary Sentiment value of the terms, written in the
+     *                            dictionary image
+     * @throws IOException
+     */
+    static void computeWeightsAndCreateFinalIndex(String lastBlockName, String indexName, Path inDir, Path outDir,
+            DeletedDocuments deletedDocuments, Map<String, Integer> sentimentDictionary) throws IOException {
+        checkNotNull(sentimentDictionary);
+        boolean hasDeletions = deletedDocuments.getDeletedCount() > 0;
         IndexReaderStreamed indexReader = new IndexReaderStreamed(lastBlockName, inDir);
-        IndexWriter indexWriter = new IndexWriter(indexName, outDir);
+        IndexWriter indexWriter = new IndexWriter(indexName, outDir, IndexWriter.DEFAULT_BUFFER_SIZE,
+                indexReader.hasPositions());
 
         Map<Long, NormFileEntry> normAccumulator = new HashMap<>();
         long docCountN = indexReader.getDocCount();
+        if (hasDeletions) {
+            docCountN -= countDeletedDocuments(lastBlockName, inDir, deletedDocuments);
+        }
         indexReader.open();
         while (indexReader.hasNextEntry()) {
             IndexEntry nextIndexEntry = indexReader.readNextEntry();
+            if (hasDeletions) {
+                nextIndexEntry = withoutDeletedDocuments(nextIndexEntry, deletedDocuments);
+                if (nextIndexEntry == null) {
+                    continue;
+                }
+            }
             List<Posting> postingsListWithWeight = computePostingWeight(docCountN, nextIndexEntry);
 
             accumulateWeightsPerDocId(normAccumulator, postingsListWithWeight);
@@ -117,10 +245,52 @@ public class Indexer implements IIndexer {
         indexReader.close();
 
         List<NormFileEntry> norms = normAccumulator.entrySet().stream().sorted(comparingByKey())
-                .map((entry) -> entry.getValue()).peek(this::finalizeNormEntryLength).collect(toImmutableList());
+                .map((entry) -> entry.getValue()).peek(Indexer::finalizeNormEntryLength).collect(toImmutableList());
 
         indexWriter.writeFinalizeIndexWithNorm(docCountN, norms);
         indexWriter.close();
+
+        DictionaryImage.write(indexName, outDir, sentimentDictionary);
+    }
+
+    /**
+     * Counts the deleted documents having postings in a block.
+     */
+    private static long countDeletedDocuments(String blockName, Path dir, DeletedDocuments deletedDocuments)
+            throws IOException {
+        Set<Long> deletedDocIds = new HashSet<>();
+        IndexReaderStreamed indexReader = new IndexReaderStreamed(blockName, dir);
+        indexReader.open();
+        try {
+            while (indexReader.hasNextEntry()) {
+                for (Posting posting : indexReader.readNextEntry().getPostingsList()) {
+                    if (deletedDocuments.isDeleted(posting.getDocId())) {
+                        deletedDocIds.add(posting.getDocId());
+                    }
+                }
+            }
+        } finally {
+            indexReader.close();
+        }
+        return deletedDocIds.size();
+    }
+
+    /**
+     * @return The entry without the postings of the deleted documents, or
+     *         {@code null} if all its documents are deleted.
+     */
+    private static IndexEntry withoutDeletedDocuments(IndexEntry entry, DeletedDocuments deletedDocuments) {
+        ImmutableList<Posting> livePostings = entry.getPostingsList().stream()
+                .filter((posting) -> !deletedDocuments.isDeleted(posting.getDocId())).collect(toImmutableList());
+        if (livePostings.isEmpty()) {
+            return null;
+        }
+        if (livePostings.size() == entry.getPostingsList().size()) {
+            return entry;
+        }
+        DictionaryEntry dictionaryEntry = entry.getDictionaryEntry();
+        return new IndexEntry(new DictionaryEntry(dictionaryEntry.getTerm(), livePostings.size(),
+                dictionaryEntry.getSentiment()), livePostings);
     }
 
     /**
@@ -138,7 +308,7 @@ public class Indexer implements IIndexer {
      * @param normAccumulators
      * @param postingsListWithWeight
      */
-    private void accumulateWeightsPerDocId(Map<Long, NormFileEntry> normAccumulators,
+    private static void accumulateWeightsPerDocId(Map<Long, NormFileEntry> normAccumulators,
             List<Posting> postingsListWithWeight) {
         for (Posting posting : postingsListWithWeight) {
             NormFileEntry normEntry = normAccumulators.get(posting.getDocId());
@@ -158,7 +328,7 @@ public class Indexer implements IIndexer {
      * 
      * @param entry
      */
-    private void finalizeNormEntryLength(NormFileEntry entry) {
+    private static void finalizeNormEntryLength(NormFileEntry entry) {
         float norm = entry.getNorm();
         norm = (float) Math.sqrt(norm);
         entry.setNorm(norm);
@@ -171,9 +341,9 @@ public class Indexer implements IIndexer {
      * @param nextIndexEntry
      * @return The new list of Posting with weight
      */
-    private List<Posting> computePostingWeight(long docCountN, IndexEntry nextIndexEntry) {
+    private static List<Posting> computePostingWeight(long docCountN, IndexEntry nextIndexEntry) {
         long termDocFreq = nextIndexEntry.getDocumentFrequency();
-        float termIdf = (float) Math.log10((float) docCountN / (float) termDocFreq);
+        float termIdf = idf(docCountN, termDocFreq);
 
         List<Posting> postingsListWithWeight = nextIndexEntry.getPostingsList().stream()
                 .map((posting) -> posting.withWeight(tfIdf(termIdf))).collect(toImmutableList());
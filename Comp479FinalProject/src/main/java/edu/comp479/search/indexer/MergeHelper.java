@@ -1,7 +1,9 @@
 package edu.comp479.search.indexer;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingInt;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -10,11 +12,12 @@ import java.util.PriorityQueue;
 
 import edu.comp479.search.index.structure.IndexEntry;
 import edu.comp479.search.indexer.file.IndexReaderStreamed;
-import edu.comp479.search.util.Pair;
 
 public class MergeHelper {
-	private PriorityQueue<Pair<IndexEntry, Integer>> pq;
+	private PriorityQueue<QueuedEntry> pq;
 	private IndexReaderStreamed[] indexReaders;
+	private TermDictionary termDictionary;
+	private int[] termRanks;
 
 	/**
 	 * Helper class for {@link IndexBlockMerger} to manage retrieving the inverted
@@ -25,8 +28,30 @@ public class MergeHelper {
 	 * @throws IOException
 	 */
 	public MergeHelper(IndexReaderStreamed[] indexReaders) throws IOException {
+		this(indexReaders, null);
+	}
+
+	/**
+	 * Helper class for {@link IndexBlockMerger} comparing the terms by their rank
+	 * in the given term dictionary instead of by their characters.
+	 * 
+	 * <p>
+	 * <b>Precondition:</b> All the terms of the blocks must be in the dictionary.
+	 * 
+	 * @param indexReaders   Opened index reader streams.
+	 * @param termDictionary Dictionary of the terms of the blocks, {@code null} to
+	 *                       compare the terms themselves.
+	 * @throws IOException
+	 */
+	public MergeHelper(IndexReaderStreamed[] indexReaders, TermDictionary termDictionary) throws IOException {
 		checkNotNull(indexReaders);
-		this.pq = new PriorityQueue<>(comparing((pair) -> pair.x.getTerm()));
+		this.termDictionary = termDictionary;
+		if (termDictionary != null) {
+			this.termRanks = termDictionary.getRanks();
+			this.pq = new PriorityQueue<>(comparingInt((queued) -> queued.termRank));
+		} else {
+			this.pq = new PriorityQueue<>(comparing((queued) -> queued.entry.getTerm()));
+		}
 		this.indexReaders = indexReaders;
 
 		// Fill the priority queue with the next entries from each readers
@@ -48,12 +73,11 @@ public class MergeHelper {
 	public List<IndexEntry> getNextEntriesWithSameTerm() throws IOException {
 		List<IndexEntry> entries = new ArrayList<>();
 		if (hasNextEntry()) {
-			IndexEntry nextEntry = getNextEntryAndAdvance();
-			entries.add(nextEntry);
-			String nextTerm = nextEntry.getTerm();
+			QueuedEntry nextEntry = getNextEntryAndAdvance();
+			entries.add(nextEntry.entry);
 
-			while (nextEntryHasTerm(nextTerm)) {
-				entries.add(getNextEntryAndAdvance());
+			while (nextEntryHasTerm(nextEntry)) {
+				entries.add(getNextEntryAndAdvance().entry);
 			}
 		}
 		return entries;
@@ -69,19 +93,48 @@ public class MergeHelper {
 		return !pq.isEmpty();
 	}
 
-	private boolean nextEntryHasTerm(String term) {
-		return !pq.isEmpty() && term.equals(pq.peek().x.getTerm());
+	private boolean nextEntryHasTerm(QueuedEntry entry) {
+		if (pq.isEmpty()) {
+			return false;
+		}
+		if (termDictionary != null) {
+			return entry.termRank == pq.peek().termRank;
+		}
+		return entry.entry.getTerm().equals(pq.peek().entry.getTerm());
 	}
 
-	private IndexEntry getNextEntryAndAdvance() throws IOException {
-		Pair<IndexEntry, Integer> nextEntryPair = pq.remove();
-		prepareNext(nextEntryPair.y);
-		return nextEntryPair.x;
+	private QueuedEntry getNextEntryAndAdvance() throws IOException {
+		QueuedEntry nextEntry = pq.remove();
+		prepareNext(nextEntry.bufferIndex);
+		return nextEntry;
 	}
 
 	private void prepareNext(int bufferIndex) throws IOException {
 		if (indexReaders[bufferIndex].hasNextEntry()) {
-			pq.add(new Pair<IndexEntry, Integer>(indexReaders[bufferIndex].readNextEntry(), bufferIndex));
+			IndexEntry entry = indexReaders[bufferIndex].readNextEntry();
+			pq.add(new QueuedEntry(entry, getTermRank(entry), bufferIndex));
+		}
+	}
+
+	private int getTermRank(IndexEntry entry) {
+		if (termDictionary == null) {
+			return -1;
+		}
+		int termId = termDictionary.findTermId(entry.getTerm());
+		checkState(termId >= 0 && termId < termRanks.length, "Term missing from the dictionary: %s",
+				entry.getTerm());
+		return termRanks[termId];
+	}
+
+	private static final class QueuedEntry {
+		private final IndexEntry entry;
+		private final int termRank;
+		private final int bufferIndex;
+
+		QueuedEntry(IndexEntry entry, int termRank, int bufferIndex) {
+			this.entry = entry;
+			this.termRank = termRank;
+			this.bufferIndex = bufferIndex;
 		}
 	}
 }
\ No newline at end of file
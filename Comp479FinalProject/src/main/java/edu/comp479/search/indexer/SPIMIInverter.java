@@ -9,6 +9,12 @@ import java.util.logging.Logger;
 
 import edu.comp479.search.indexer.file.IndexWriter;
 import edu.comp479.search.indexer.file.IndexDataMapperFactory;
+import edu.comp479.search.indexer.file.IndexFileUtility;
+import edu.comp479.search.metrics.Counter;
+import edu.comp479.search.metrics.MetricsRegistry;
+import edu.comp479.search.metrics.Timer;
+import edu.comp479.search.tokenizer.DocumentTerms;
+import edu.comp479.search.tokenizer.IDocumentTermStream;
 import edu.comp479.search.tokenizer.IToken;
 import edu.comp479.search.tokenizer.ITokenStream;
 import edu.comp479.search.util.SentimentDictionaryBuilder;
@@ -27,14 +33,20 @@ public class SPIMIInverter {
 
     private final String indexName;
     private final ITokenStream tokenStream;
+    private final IDocumentTermStream documentStream;
     private final long maxMemoryUsageByte;
     private final Path directory;
 
     private final IndexBlockBuilderFactory blockBuilderFactory;
     private final IndexDataMapperFactory indexWriterFactory;
     private final Runtime runtime;
+    private final MetricsRegistry metrics;
+    private final Counter tokenCount;
+    private final Counter documentCount;
+    private final Timer documentReadTimer;
 
     private int blockCount = 0;
+    private long lastDocId = -1;
     private int memExceededCount = 0;
     private boolean indexingIsDone = false;
     private boolean useBlockSize = false;
@@ -69,6 +81,18 @@ public class SPIMIInverter {
                 new SentimentDictionaryBuilder().loadSentimentDictionary());
     }
 
+    /**
+     * @throws IOException If the sentiment dictionary cannot be loaded.
+     * @see SPIMIInverter#SPIMIInverter(String, IDocumentTermStream, Path, long,
+     *      IndexBlockBuilderFactory, IndexDataMapperFactory, Runtime)
+     */
+    public SPIMIInverter(String indexName, IDocumentTermStream documentStream, Path directory,
+            long maxMemoryUsageMb) throws IOException {
+        this(indexName, documentStream, directory, maxMemoryUsageMb,
+                new IndexBlockBuilderFactory(new SentimentDictionaryBuilder().loadSentimentDictionary()),
+                new IndexDataMapperFactory(), Runtime.getRuntime());
+    }
+
     /**
      * @see SPIMIInverter#SPIMIInverter(String, ITokenStream, Path, long,
      *      IndexBlockBuilderFactory, IndexDataMapperFactory, Runtime)
@@ -97,13 +121,81 @@ public class SPIMIInverter {
     public SPIMIInverter(String indexName, ITokenStream tokenStream, Path directory, long maxMemoryUsageMb,
             IndexBlockBuilderFactory blockBuilderFactory, IndexDataMapperFactory indexDataMapperFactory,
             Runtime runtime) {
+        this(indexName, tokenStream, directory, maxMemoryUsageMb, blockBuilderFactory, indexDataMapperFactory,
+                runtime, new MetricsRegistry());
+    }
+
+    /**
+     * Create a new SPIMI Inverter to process a tokenStream, recording the tokens
+     * read and the blocks written in {@code metrics}.
+     * 
+     * @see SPIMIInverter#SPIMIInverter(String, ITokenStream, Path, long,
+     *      IndexBlockBuilderFactory, IndexDataMapperFactory, Runtime)
+     */
+    public SPIMIInverter(String indexName, ITokenStream tokenStream, Path directory, long maxMemoryUsageMb,
+            IndexBlockBuilderFactory blockBuilderFactory, IndexDataMapperFactory indexDataMapperFactory,
+            Runtime runtime, MetricsRegistry metrics) {
+        this(indexName, checkNotNull(tokenStream), null, directory, maxMemoryUsageMb, blockBuilderFactory,
+                indexDataMapperFactory, runtime, metrics);
+    }
+
+    /**
+     * Create a new SPIMI Inverter to process a stream of documents given as term
+     * frequencies.
+     * 
+     * <p>
+     * The postings of a document are added to the block all at once, the term
+     * occurrences having been counted by the stream.
+     * 
+     * @param indexName              Prefix name for this index, each block will be
+     *                               individually parameterized.
+     * @param documentStream         Stream of {@link IDocumentTermStream} to
+     *                               process.
+     * @param directory              Directory to write the blocks to.
+     * @param maxMemoryUsageMb       Maximum program memory usage before a new block
+     *                               is created. Must be at least
+     *                               {@value #MIN_MEMORY_USE}.
+     * @param blockBuilderFactory    Factory of Block Builder.
+     * @param indexDataMapperFactory Factory of Datamapper to write the blocks to
+     *                               disk.
+     * @param runtime                The java application runtime object.
+     */
+    public SPIMIInverter(String indexName, IDocumentTermStream documentStream, Path directory,
+            long maxMemoryUsageMb, IndexBlockBuilderFactory blockBuilderFactory,
+            IndexDataMapperFactory indexDataMapperFactory, Runtime runtime) {
+        this(indexName, documentStream, directory, maxMemoryUsageMb, blockBuilderFactory, indexDataMapperFactory,
+                runtime, new MetricsRegistry());
+    }
+
+    /**
+     * Create a new SPIMI Inverter to process a stream of documents, recording the
+     * documents read and the blocks written in {@code metrics}.
+     * 
+     * @see SPIMIInverter#SPIMIInverter(String, IDocumentTermStream, Path, long,
+     *      IndexBlockBuilderFactory, IndexDataMapperFactory, Runtime)
+     */
+    public SPIMIInverter(String indexName, IDocumentTermStream documentStream, Path directory,
+            long maxMemoryUsageMb, IndexBlockBuilderFactory blockBuilderFactory,
+            IndexDataMapperFactory indexDataMapperFactory, Runtime runtime, MetricsRegistry metrics) {
+        this(indexName, null, checkNotNull(documentStream), directory, maxMemoryUsageMb, blockBuilderFactory,
+                indexDataMapperFactory, runtime, metrics);
+    }
+
+    private SPIMIInverter(String indexName, ITokenStream tokenStream, IDocumentTermStream documentStream,
+            Path directory, long maxMemoryUsageMb, IndexBlockBuilderFactory blockBuilderFactory,
+            IndexDataMapperFactory indexDataMapperFactory, Runtime runtime, MetricsRegistry metrics) {
         this.indexName = checkNotNull(indexName);
         checkArgument(!indexName.isEmpty(), "Index Name cannot be empty.");
-        this.tokenStream = checkNotNull(tokenStream);
+        this.tokenStream = tokenStream;
+        this.documentStream = documentStream;
         this.directory = checkNotNull(directory);
         this.blockBuilderFactory = checkNotNull(blockBuilderFactory);
         this.indexWriterFactory = checkNotNull(indexDataMapperFactory);
         this.runtime = checkNotNull(runtime);
+        this.metrics = checkNotNull(metrics);
+        this.tokenCount = metrics.counter("tokenstream.tokens");
+        this.documentCount = metrics.counter("tokenstream.documents");
+        this.documentReadTimer = metrics.timer("tokenstream.documentRead");
 
         if (maxMemoryUsageMb < MIN_MEMORY_USE) {
             maxMemoryUsageMb = MIN_MEMORY_USE;
@@ -126,21 +218,19 @@ public class SPIMIInverter {
     public String invert() {
         String indexBlockName = String.format("%s_%s.blk", indexName, blockCount);
         IndexBlockBuilder builder = blockBuilderFactory.createIndexBlockBuilder();
-        while (true) {
-            if (!tokenStream.hasNext()) {
-                indexingIsDone = true;
-                break;
-            }
-            if (!validateMemoryUsage(builder.getSize())) {
-                System.gc();
-                break;
-            }
-            IToken nextToken = tokenStream.next();
-            builder.addPosting(nextToken.getTerm(), nextToken.getDocId());
+        long fillStart = System.nanoTime();
+        if (documentStream != null) {
+            fillWithDocuments(builder);
+        } else {
+            fillWithTokens(builder);
         }
+        metrics.timer("spimi.fill").stop(fillStart);
 
         if (builder.getSize() > 0) {
-            try (IndexWriter indexWriter = indexWriterFactory.createIndexWriter(indexBlockName, directory)) {
+            // The heap is the fullest right before the block is written and released
+            metrics.highWaterMark("jvm.heap.usedHighWaterBytes").update(MetricsRegistry.usedHeapBytes());
+            long flushStart = System.nanoTime();
+            try (IndexWriter indexWriter = createIndexWriter(indexBlockName, builder.hasPositions())) {
                 builder.writeToDisk(indexWriter);
                 builder = null;
                 blockCount++;
@@ -148,6 +238,13 @@ public class SPIMIInverter {
                 LOGGER.log(Level.SEVERE, "Unable to write the index Block.", e);
                 return null;
             }
+            metrics.timer("spimi.flush").stop(flushStart);
+            metrics.counter("spimi.blocks").increment();
+            try {
+                metrics.counter("spimi.bytesWritten").add(IndexFileUtility.size(indexBlockName, directory));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Unable to read the size of the index Block.", e);
+            }
             LOGGER.log(Level.INFO, "New block written to disk: " + indexBlockName);
             return indexBlockName;
         } else {
@@ -155,10 +252,65 @@ public class SPIMIInverter {
         }
     }
 
+    private IndexWriter createIndexWriter(String indexBlockName, boolean positions) throws IOException {
+        if (positions) {
+            return indexWriterFactory.createIndexWriter(indexBlockName, directory, IndexWriter.DEFAULT_BUFFER_SIZE,
+                    true);
+        }
+        return indexWriterFactory.createIndexWriter(indexBlockName, directory);
+    }
+
     public boolean indexingIsDone() {
         return indexingIsDone;
     }
 
+    private void fillWithTokens(IndexBlockBuilder builder) {
+        while (true) {
+            if (!tokenStream.hasNext()) {
+                indexingIsDone = true;
+                break;
+            }
+            if (!validateMemoryUsage(builder.getSize())) {
+                System.gc();
+                break;
+            }
+            IToken nextToken = tokenStream.next();
+            builder.addPosting(nextToken.getTerm(), nextToken.getDocId());
+            tokenCount.increment();
+            if (nextToken.getDocId() != lastDocId) {
+                lastDocId = nextToken.getDocId();
+                documentCount.increment();
+            }
+        }
+    }
+
+    private void fillWithDocuments(IndexBlockBuilder builder) {
+        while (true) {
+            // Waiting for the stream counts as reading, it tokenizes the documents
+            long readStart = System.nanoTime();
+            if (!documentStream.hasNextDocument()) {
+                indexingIsDone = true;
+                break;
+            }
+            long readNanos = System.nanoTime() - readStart;
+            if (!validateMemoryUsage(builder.getSize())) {
+                System.gc();
+                break;
+            }
+            readStart = System.nanoTime();
+            DocumentTerms document = documentStream.nextDocument();
+            documentReadTimer.record(readNanos + System.nanoTime() - readStart);
+            builder.addDocument(document);
+
+            int documentTokens = 0;
+            for (int i = 0; i < document.size(); i++) {
+                documentTokens += document.getTermFreq(i);
+            }
+            tokenCount.add(documentTokens);
+            documentCount.increment();
+        }
+    }
+
     /**
      * Validates the current memory usage of the program.
      * 
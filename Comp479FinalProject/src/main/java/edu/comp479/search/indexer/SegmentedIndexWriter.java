@@ -0,0 +1,318 @@
+package edu.comp479.search.indexer;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import edu.comp479.search.indexer.file.DeletedDocuments;
+import edu.comp479.search.indexer.file.IndexDataMapperFactory;
+import edu.comp479.search.indexer.file.IndexFileUtility;
+import edu.comp479.search.indexer.file.IndexReaderMemoryMapped;
+import edu.comp479.search.indexer.file.SegmentInfo;
+import edu.comp479.search.indexer.file.SegmentManifest;
+import edu.comp479.search.util.SentimentDictionaryBuilder;
+
+/**
+ * Maintains a segmented index: the segments added by the incremental builds
+ * and their merges.
+ *
+ * <p>
+ * A segment is a complete index, built by the {@link Indexer} from the
+ * documents crawled since the previous segment. It is searchable as soon as it
+ * is added to the {@link SegmentManifest}. The {@link TieredMergePolicy} then
+ * selects the segments to merge, merged on a background thread with the
+ * {@link IndexBlockMerger} while the index stays searchable. The merged segment
+ * replaces its sources in the manifest in a single atomic update.
+ *
+ * <p>
+ * The merges drop the postings and norms of the documents listed in the
+ * {@link DeletedDocuments} of the index when the merge starts.
+ *
+ * <p>
+ * An index built in full before the first incremental build becomes the first
+ * segment. A single writer must maintain an index at a time.
+ */
+public class SegmentedIndexWriter implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(SegmentedIndexWriter.class.getName());
+
+    private final String indexName;
+    private final Path indexDir;
+    private final TieredMergePolicy mergePolicy;
+    private final int inputBufferCount;
+    private final int bufferSize;
+    private final Map<String, Integer> sentimentDictionary;
+    private final ExecutorService mergeExecutor;
+
+    // Guarded by this
+    private SegmentManifest manifest;
+    private int nextSegmentNumber;
+    private final Set<String> merging = new HashSet<>();
+
+    /**
+     * Opens the segmented index, creating its manifest if absent.
+     *
+     * @param indexName        Name of the segmented index.
+     * @param indexDir         Directory of the index.
+     * @param mergePolicy      Selects the segments to merge.
+     * @param inputBufferCount Number of segments read at a time by a merge.
+     * @param bufferSize       Size of the merge buffers.
+     * @throws IOException
+     * @see #SegmentedIndexWriter(String, Path, TieredMergePolicy, int, int, Map)
+     */
+    public SegmentedIndexWriter(String indexName, Path indexDir, TieredMergePolicy mergePolicy,
+            int inputBufferCount, int bufferSize) throws IOException {
+        this(indexName, indexDir, mergePolicy, inputBufferCount, bufferSize,
+                new SentimentDictionaryBuilder().loadSentimentDictionary());
+    }
+
+    /**
+     * Opens the segmented index, creating its manifest if absent.
+     *
+     * @param indexName           Name of the segmented index.
+     * @param indexDir            Directory of the index.
+     * @param mergePolicy         Selects the segments to merge.
+     * @param inputBufferCount    Number of segments read at a time by a merge.
+     * @param bufferSize          Size of the merge buffers.
+     * @param sentimentDictionary Sentiment value of the terms, written in the
+     *                            dictionary image of the merged segments.
+     * @throws IOException
+     */
+    public SegmentedIndexWriter(String indexName, Path indexDir, TieredMergePolicy mergePolicy,
+            int inputBufferCount, int bufferSize, Map<String, Integer> sentimentDictionary) throws IOException {
+        this.indexName = checkNotNull(indexName);
+        this.indexDir = checkNotNull(indexDir);
+        this.mergePolicy = checkNotNull(mergePolicy);
+        checkArgument(inputBufferCount > 1, "A merge must read at least 2 segments. Given: %s", inputBufferCount);
+        checkArgument(bufferSize > 0, "The buffer size must be greater than 0. Given: %s", bufferSize);
+        this.inputBufferCount = inputBufferCount;
+        this.bufferSize = bufferSize;
+        this.sentimentDictionary = checkNotNull(sentimentDictionary);
+
+        Files.createDirectories(indexDir);
+        if (SegmentManifest.exists(indexName, indexDir)) {
+            this.manifest = SegmentManifest.read(indexName, indexDir);
+        } else {
+            this.manifest = SegmentManifest.empty();
+            if (IndexFileUtility.exists(indexName, indexDir)) {
+                LOGGER.info("Using the existing index as the first segment: " + indexName);
+                this.manifest = manifest.withSegments(
+                        ImmutableList.of(SegmentInfo.fromIndex(indexName, indexDir)), 0);
+            }
+            manifest.write(indexName, indexDir);
+        }
+        this.nextSegmentNumber = manifest.getNextSegmentNumber();
+
+        this.mergeExecutor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("segment-merge-%d").setDaemon(true).build());
+    }
+
+    /**
+     * @return A name for a new segment of the index.
+     */
+    public synchronized String newSegmentName() {
+        return String.format("%s_s%d", indexName, nextSegmentNumber++);
+    }
+
+    /**
+     * Adds a new segment to the index, searchable once this method returns, and
+     * starts the merges it enables in the background.
+     *
+     * @param segmentName Name of the index of the segment, in the index
+     *                    directory. Its documents must follow those of the
+     *                    existing segments.
+     * @throws IOException
+     */
+    public synchronized void addSegment(String segmentName) throws IOException {
+        SegmentInfo segment = SegmentInfo.fromIndex(segmentName, indexDir);
+        List<SegmentInfo> segments = new ArrayList<>(manifest.getSegments());
+        if (!segments.isEmpty()) {
+            SegmentInfo lastSegment = segments.get(segments.size() - 1);
+            checkArgument(lastSegment.getFirstDocId() < segment.getFirstDocId(),
+                    "The new segment %s must hold the documents after the segment %s", segment, lastSegment);
+        }
+        segments.add(segment);
+        commit(segments);
+        LOGGER.info("New segment added: " + segment + ", Segments: " + segments.size());
+        scheduleMerges();
+    }
+
+    /**
+     * Rewrites alone each segment holding deleted documents, not being merged
+     * already, to drop them from the index files. The rewrites run in the
+     * background.
+     *
+     * @return The number of segments to rewrite.
+     * @throws IOException
+     */
+    public synchronized int expungeDeletes() throws IOException {
+        DeletedDocuments deletedDocuments = DeletedDocuments.open(indexName, indexDir);
+        if (deletedDocuments.getDeletedCount() == 0) {
+            return 0;
+        }
+
+        int rewriteCount = 0;
+        for (SegmentInfo segment : manifest.getSegments()) {
+            if (!merging.contains(segment.getName()) && hasDeletedDocuments(segment, deletedDocuments)) {
+                List<SegmentInfo> segments = ImmutableList.of(segment);
+                merging.add(segment.getName());
+                String mergedName = newSegmentName();
+                mergeExecutor.execute(() -> merge(segments, mergedName));
+                rewriteCount++;
+            }
+        }
+        return rewriteCount;
+    }
+
+    /**
+     * @return The current manifest of the index.
+     */
+    public synchronized SegmentManifest getManifest() {
+        return manifest;
+    }
+
+    /**
+     * Waits for the merges in progress, and the merges they enable, to
+     * complete.
+     *
+     * @throws IOException If interrupted while waiting.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            synchronized (this) {
+                while (!merging.isEmpty()) {
+                    wait();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the segment merges.");
+        } finally {
+            mergeExecutor.shutdownNow();
+        }
+    }
+
+    private synchronized void scheduleMerges() {
+        while (true) {
+            List<SegmentInfo> segments = mergePolicy.findMerge(manifest.getSegments(), merging);
+            if (segments.isEmpty()) {
+                return;
+            }
+            segments.forEach((segment) -> merging.add(segment.getName()));
+            String mergedName = newSegmentName();
+            mergeExecutor.execute(() -> merge(segments, mergedName));
+        }
+    }
+
+    private void merge(List<SegmentInfo> segments, String mergedName) {
+        LOGGER.info("Merging segments " + segments + " into " + mergedName);
+        try {
+            List<String> segmentNames = new ArrayList<>();
+            segments.forEach((segment) -> segmentNames.add(segment.getName()));
+
+            // The segments are merged as the blocks of a build, then weighted again
+            IndexBlockMerger merger = new IndexBlockMerger(mergedName, segmentNames, indexDir, indexDir,
+                    new IndexDataMapperFactory(), inputBufferCount, bufferSize, bufferSize);
+            String mergedPostingsName = merger.externalMultiwayMerge();
+            Indexer.computeWeightsAndCreateFinalIndex(mergedPostingsName, mergedName, indexDir, indexDir,
+                    DeletedDocuments.open(indexName, indexDir), sentimentDictionary);
+            deletePartialMerges(mergedName);
+
+            SegmentInfo mergedSegment = SegmentInfo.fromIndex(mergedName, indexDir);
+            if (mergedSegment.getDocCount() == 0) {
+                // All the documents of the segments are deleted
+                IndexFileUtility.delete(mergedName, indexDir);
+                mergedSegment = null;
+            }
+            replaceSegments(segments, mergedSegment);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Unable to merge the segments " + segments, e);
+            synchronized (this) {
+                segments.forEach((segment) -> merging.remove(segment.getName()));
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Replaces the merged segments by their merged segment, or removes them if
+     * {@code mergedSegment} is {@code null}.
+     */
+    private synchronized void replaceSegments(List<SegmentInfo> sources, SegmentInfo mergedSegment)
+            throws IOException {
+        Set<String> sourceNames = new HashSet<>();
+        sources.forEach((segment) -> sourceNames.add(segment.getName()));
+
+        List<SegmentInfo> segments = new ArrayList<>();
+        for (SegmentInfo segment : manifest.getSegments()) {
+            if (segment.getName().equals(sources.get(0).getName())) {
+                if (mergedSegment != null) {
+                    segments.add(mergedSegment);
+                }
+            } else if (!sourceNames.contains(segment.getName())) {
+                segments.add(segment);
+            }
+        }
+        try {
+            commit(segments);
+        } finally {
+            merging.removeAll(sourceNames);
+            notifyAll();
+        }
+        LOGGER.info("Segments " + sources + " merged into " + mergedSegment + ", Segments: " + segments.size());
+
+        for (String sourceName : sourceNames) {
+            try {
+                IndexFileUtility.delete(sourceName, indexDir);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Unable to delete the merged segment " + sourceName, e);
+            }
+        }
+        scheduleMerges();
+    }
+
+    private synchronized void commit(List<SegmentInfo> segments) throws IOException {
+        SegmentManifest newManifest = manifest.withSegments(segments, nextSegmentNumber);
+        newManifest.write(indexName, indexDir);
+        manifest = newManifest;
+    }
+
+    private boolean hasDeletedDocuments(SegmentInfo segment, DeletedDocuments deletedDocuments) throws IOException {
+        try (IndexReaderMemoryMapped reader = new IndexReaderMemoryMapped(segment.getName(), indexDir)) {
+            reader.open();
+            long docId = deletedDocuments.nextDeletedDocId(segment.getFirstDocId());
+            while (docId >= 0) {
+                if (reader.containsDocument(docId)) {
+                    return true;
+                }
+                docId = deletedDocuments.nextDeletedDocId(docId + 1);
+            }
+            return false;
+        }
+    }
+
+    private void deletePartialMerges(String mergedName) throws IOException {
+        try (DirectoryStream<Path> partials = Files.newDirectoryStream(indexDir, mergedName + ".partial*")) {
+            for (Path partial : partials) {
+                Files.delete(partial);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package edu.comp479.search.indexer;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Dictionary of the terms met during the construction of an index, assigning
+ * an integer id to each distinct term.
+ *
+ * <p>
+ * A term is stored once for the whole construction and the blocks refer to it
+ * by its id. The ids are assigned in order of appearance, the alphabetical
+ * order of the terms is given by their rank.
+ *
+ * <p>
+ * This dictionary is safe to use from several threads.
+ */
+public class TermDictionary {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ConcurrentMap<String, Integer> termIds;
+
+    // Guarded by this for writes, a term is set before its id is published
+    private volatile String[] terms;
+    private int termCount;
+
+    // Ids of the terms ranked so far, in alphabetical order of the terms
+    private int[] sortedIds;
+    private int[] ranks;
+
+    public TermDictionary() {
+        this.termIds = new ConcurrentHashMap<>(INITIAL_CAPACITY);
+        this.terms = new String[INITIAL_CAPACITY];
+        this.sortedIds = new int[0];
+        this.ranks = new int[0];
+    }
+
+    /**
+     * Returns the id of the given term, assigning it a new id if it is not in the
+     * dictionary yet.
+     *
+     * @param term Term to find.
+     * @return The id of the term.
+     */
+    public int getTermId(String term) {
+        Integer termId = termIds.get(checkNotNull(term));
+        if (termId != null) {
+            return termId;
+        }
+        return addTerm(term);
+    }
+
+    /**
+     * Returns the id of the given term.
+     *
+     * @param term Term to find.
+     * @return The id of the term, or -1 if the term is not in the dictionary.
+     */
+    public int findTermId(String term) {
+        Integer termId = termIds.get(checkNotNull(term));
+        return termId != null ? termId : -1;
+    }
+
+    /**
+     * @param termId Id of a term, as returned by {@link #getTermId(String)}.
+     * @return The term.
+     */
+    public String getTerm(int termId) {
+        String[] terms = this.terms;
+        checkElementIndex(termId, terms.length);
+        return checkNotNull(terms[termId], "Unknown term id: %s", termId);
+    }
+
+    /**
+     * @return The number of terms in the dictionary.
+     */
+    public synchronized int size() {
+        return termCount;
+    }
+
+    /**
+     * Returns the rank of each term in alphabetical order, indexed by term id.
+     *
+     * <p>
+     * The ranks cover the terms added before this call, the terms added since the
+     * previous call are sorted and merged with the ones already ranked. Comparing
+     * the ranks of two terms is the same as comparing the terms.
+     *
+     * <p>
+     * <b>Note: </b>The ranks change when terms are added, ranks from different
+     * calls must not be compared.
+     *
+     * @return The rank of each term by term id. Must not be modified.
+     */
+    public synchronized int[] getRanks() {
+        if (sortedIds.length == termCount) {
+            return ranks;
+        }
+
+        String[] terms = this.terms;
+        Integer[] newIds = new Integer[termCount - sortedIds.length];
+        for (int i = 0; i < newIds.length; i++) {
+            newIds[i] = sortedIds.length + i;
+        }
+        Arrays.sort(newIds, (id1, id2) -> terms[id1].compareTo(terms[id2]));
+
+        int[] mergedIds = new int[termCount];
+        int oldIndex = 0;
+        int newIndex = 0;
+        for (int i = 0; i < mergedIds.length; i++) {
+            if (newIndex == newIds.length || (oldIndex < sortedIds.length
+                    && terms[sortedIds[oldIndex]].compareTo(terms[newIds[newIndex]]) < 0)) {
+                mergedIds[i] = sortedIds[oldIndex++];
+            } else {
+                mergedIds[i] = newIds[newIndex++];
+            }
+        }
+
+        int[] newRanks = new int[termCount];
+        for (int rank = 0; rank < mergedIds.length; rank++) {
+            newRanks[mergedIds[rank]] = rank;
+        }
+        this.sortedIds = mergedIds;
+        this.ranks = newRanks;
+        return newRanks;
+    }
+
+    private synchronized int addTerm(String term) {
+        Integer termId = termIds.get(term);
+        if (termId != null) {
+            return termId;
+        }
+
+        if (termCount == terms.length) {
+            terms = Arrays.copyOf(terms, terms.length * 2);
+        }
+        int newId = termCount++;
+        terms[newId] = term;
+        termIds.put(term, newId);
+        return newId;
+    }
+}
@@ -0,0 +1,96 @@
+package edu.comp479.search.indexer;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.comp479.search.indexer.file.SegmentInfo;
+
+/**
+ * Selects the segments of a segmented index to merge together.
+ *
+ * <p>
+ * The segments are grouped in tiers by size: a segment of the tier {@code t}
+ * holds about {@code minSegmentDocs * segmentsPerTier^t} documents. When
+ * {@code segmentsPerTier} consecutive segments are in the same tier, they are
+ * merged into a single segment of the next tier. A document is thus merged
+ * about once per tier, and the number of segments stays logarithmic in the
+ * number of documents.
+ *
+ * <p>
+ * Only consecutive segments are merged so each segment keeps holding a single
+ * range of docIds.
+ */
+public class TieredMergePolicy {
+    public static final int DEFAULT_SEGMENTS_PER_TIER = 4;
+    public static final long DEFAULT_MIN_SEGMENT_DOCS = 1000;
+
+    private final int segmentsPerTier;
+    private final long minSegmentDocs;
+
+    /**
+     * @see TieredMergePolicy#TieredMergePolicy(int, long)
+     */
+    public TieredMergePolicy() {
+        this(DEFAULT_SEGMENTS_PER_TIER, DEFAULT_MIN_SEGMENT_DOCS);
+    }
+
+    /**
+     * @param segmentsPerTier Number of segments of a tier merged together, at
+     *                        least 2.
+     * @param minSegmentDocs  Number of documents under which the segments are all
+     *                        in the first tier.
+     */
+    public TieredMergePolicy(int segmentsPerTier, long minSegmentDocs) {
+        checkArgument(segmentsPerTier >= 2, "At least 2 segments per tier are required. Given: %s", segmentsPerTier);
+        checkArgument(minSegmentDocs > 0, "The minimum segment size must be greater than 0. Given: %s",
+                minSegmentDocs);
+        this.segmentsPerTier = segmentsPerTier;
+        this.minSegmentDocs = minSegmentDocs;
+    }
+
+    /**
+     * Finds the next segments to merge.
+     *
+     * @param segments Segments of the index ordered by first docId.
+     * @param merging  Names of the segments already being merged.
+     * @return The consecutive segments to merge, empty if none should be merged.
+     */
+    public List<SegmentInfo> findMerge(List<SegmentInfo> segments, Set<String> merging) {
+        checkNotNull(segments);
+        checkNotNull(merging);
+
+        int runStart = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            SegmentInfo segment = segments.get(i);
+            if (merging.contains(segment.getName())) {
+                runStart = i + 1;
+                continue;
+            }
+            if (tier(segment) != tier(segments.get(runStart))) {
+                runStart = i;
+            }
+            if (i - runStart + 1 == segmentsPerTier) {
+                return ImmutableList.copyOf(segments.subList(runStart, i + 1));
+            }
+        }
+        return ImmutableList.of();
+    }
+
+    /**
+     * @param segment Segment to classify.
+     * @return The tier of the segment, 0 for the smallest segments.
+     */
+    int tier(SegmentInfo segment) {
+        int tier = 0;
+        long tierMaxDocs = minSegmentDocs;
+        while (segment.getDocCount() >= tierMaxDocs && tierMaxDocs <= Long.MAX_VALUE / segmentsPerTier) {
+            tierMaxDocs *= segmentsPerTier;
+            tier++;
+        }
+        return tier;
+    }
+}
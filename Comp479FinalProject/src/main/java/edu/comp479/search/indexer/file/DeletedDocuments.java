@@ -0,0 +1,275 @@
+package edu.comp479.search.indexer.file;
+
+import static com.google.common.base.Preconditions.*;
+import static com.google.common.base.Verify.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * Bitset of the documents deleted from an index, by docId.
+ *
+ * <p>
+ * The deleted documents stay in the index files until a merge rewrites them,
+ * the search skips them in the meantime. The file is memory mapped, testing a
+ * document is a single read of the mapped bitset.
+ *
+ * <p>
+ * The file is never modified in place: a deletion writes a copy of the bitset
+ * with the new bits set, which replaces the previous file atomically. A reader
+ * keeps the bitset it opened until it opens the file again. The deletions of
+ * the threads and processes are serialized by a lock on the
+ * {@code .del.lock} file of the index, so that none is lost.
+ *
+ * <p>
+ * DeletedFile → FileVersion, WordCount, Generation, DeletedCount,
+ * Word<sup>WordCount</sup> <br>
+ * FileVersion, WordCount → Int <br>
+ * Generation, DeletedCount, Word → Long
+ */
+public class DeletedDocuments {
+    public static final String EXTENSION = ".del";
+    public static final int FILE_VERSION = 0xAB61;
+    public static final String LOCK_EXTENSION = ".del.lock";
+
+    private static final int HEADER_SIZE = 24;
+    private static final DeletedDocuments NONE = new DeletedDocuments(0, 0, LongBuffer.allocate(0));
+
+    private final long generation;
+    private final long deletedCount;
+    private final LongBuffer words;
+
+    private DeletedDocuments(long generation, long deletedCount, LongBuffer words) {
+        this.generation = generation;
+        this.deletedCount = deletedCount;
+        this.words = words;
+    }
+
+    /**
+     * @return An empty bitset, for an index without deleted documents.
+     */
+    public static DeletedDocuments none() {
+        return NONE;
+    }
+
+    /**
+     * Maps the deleted documents file of an index.
+     *
+     * @param indexName Name of the index.
+     * @param dir       Directory of the index.
+     * @return The deleted documents, empty if the index has no deleted documents
+     *         file.
+     * @throws IOException
+     */
+    public static DeletedDocuments open(String indexName, Path dir) throws IOException {
+        Path path = path(indexName, dir);
+        if (!Files.isRegularFile(path)) {
+            return NONE;
+        }
+        try (FileChannel channel = FileChannel.open(path)) {
+            ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            int fileVersion = buffer.getInt();
+            verify(fileVersion == FILE_VERSION,
+                    "The version of the deleted documents file is not supported. Version found is %s.", fileVersion);
+            int wordCount = buffer.getInt();
+            long generation = buffer.getLong();
+            long deletedCount = buffer.getLong();
+            verify(buffer.remaining() == wordCount * Long.BYTES, "The deleted documents file is truncated.");
+
+            return new DeletedDocuments(generation, deletedCount, buffer.slice().asLongBuffer());
+        }
+    }
+
+    /**
+     * Reads the generation of the deleted documents file of an index without
+     * mapping it.
+     *
+     * @param indexName Name of the index.
+     * @param dir       Directory of the index.
+     * @return The generation of the file, 0 if the index has no deleted documents
+     *         file.
+     * @throws IOException
+     */
+    public static long readGeneration(String indexName, Path dir) throws IOException {
+        Path path = path(indexName, dir);
+        if (!Files.isRegularFile(path)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    break;
+                }
+            }
+            verify(!header.hasRemaining(), "The deleted documents file is truncated.");
+            return header.getLong(8);
+        }
+    }
+
+    /**
+     * Marks documents of an index as deleted, replacing its deleted documents
+     * file by a copy with the new bits set.
+     *
+     * @param indexName Name of the index.
+     * @param dir       Directory of the index.
+     * @param docIds    Documents to delete, deleting a document twice has no
+     *                  effect.
+     * @return The new deleted documents.
+     * @throws IOException
+     */
+    public static synchronized DeletedDocuments delete(String indexName, Path dir, Collection<Long> docIds)
+            throws IOException {
+        checkNotNull(docIds);
+        try (FileChannel lockChannel = lock(indexName, dir)) {
+            return deleteLocked(indexName, dir, docIds);
+        }
+    }
+
+    private static DeletedDocuments deleteLocked(String indexName, Path dir, Collection<Long> docIds)
+            throws IOException {
+        DeletedDocuments current = open(indexName, dir);
+        if (docIds.isEmpty()) {
+            return current;
+        }
+
+        long maxDocId = -1;
+        for (long docId : docIds) {
+            checkArgument(docId >= 0, "The docId must be positive. Given: %s", docId);
+            maxDocId = Math.max(maxDocId, docId);
+        }
+        int wordCount = Math.max(current.words.limit(), wordIndex(maxDocId) + 1);
+        long[] words = new long[wordCount];
+        current.words.duplicate().get(words, 0, current.words.limit());
+
+        long deletedCount = current.deletedCount;
+        for (long docId : docIds) {
+            long bit = 1L << docId;
+            if ((words[wordIndex(docId)] & bit) == 0) {
+                words[wordIndex(docId)] |= bit;
+                deletedCount++;
+            }
+        }
+        if (deletedCount == current.deletedCount) {
+            return current;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + wordCount * Long.BYTES);
+        buffer.putInt(FILE_VERSION);
+        buffer.putInt(wordCount);
+        buffer.putLong(current.generation + 1);
+        buffer.putLong(deletedCount);
+        buffer.asLongBuffer().put(words);
+        buffer.rewind();
+
+        Path path = path(indexName, dir);
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(indexName, dir);
+    }
+
+    /**
+     * Deletes the deleted documents file of an index, for an index rebuilt with
+     * new docIds.
+     *
+     * @param indexName Name of the index.
+     * @param dir       Directory of the index.
+     * @throws IOException
+     */
+    public static synchronized void clear(String indexName, Path dir) throws IOException {
+        if (!Files.isRegularFile(path(indexName, dir))) {
+            return;
+        }
+        try (FileChannel lockChannel = lock(indexName, dir)) {
+            Files.deleteIfExists(path(indexName, dir));
+        }
+    }
+
+    /**
+     * Takes the lock of the deleted documents file of an index, released when
+     * the returned channel is closed. The lock is held by a process and the
+     * methods taking it are synchronized for the threads of the process. The lock
+     * file is kept: deleting it would let a process lock a new file while another
+     * still holds the lock of the deleted one.
+     */
+    private static FileChannel lock(String indexName, Path dir) throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(indexName + LOCK_EXTENSION), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            channel.lock();
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param docId Document to test.
+     * @return {@code true} if the document is deleted.
+     */
+    public boolean isDeleted(long docId) {
+        int wordIndex = wordIndex(docId);
+        return wordIndex < words.limit() && (words.get(wordIndex) & (1L << docId)) != 0;
+    }
+
+    /**
+     * @param fromDocId First docId to test.
+     * @return The first deleted docId from {@code fromDocId}, or -1 if none is
+     *         deleted.
+     */
+    public long nextDeletedDocId(long fromDocId) {
+        checkArgument(fromDocId >= 0, "The docId must be positive. Given: %s", fromDocId);
+        int wordIndex = wordIndex(fromDocId);
+        if (wordIndex >= words.limit()) {
+            return -1;
+        }
+        long word = words.get(wordIndex) & (-1L << fromDocId);
+        while (word == 0) {
+            if (++wordIndex == words.limit()) {
+                return -1;
+            }
+            word = words.get(wordIndex);
+        }
+        return ((long) wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * @return The number of deleted documents.
+     */
+    public long getDeletedCount() {
+        return deletedCount;
+    }
+
+    /**
+     * @return The generation of the file, incremented on each deletion, 0 without
+     *         file.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    private static int wordIndex(long docId) {
+        long wordIndex = docId >>> 6;
+        return wordIndex > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) wordIndex;
+    }
+
+    private static Path path(String indexName, Path dir) {
+        return dir.resolve(indexName + EXTENSION);
+    }
+}
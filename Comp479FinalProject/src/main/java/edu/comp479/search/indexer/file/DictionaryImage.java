@@ -0,0 +1,316 @@
+package edu.comp479.search.indexer.file;
+
+import static com.google.common.base.Preconditions.*;
+import static com.google.common.base.Verify.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import edu.comp479.search.index.IDictionary;
+import edu.comp479.search.index.structure.DictionaryEntry;
+import edu.comp479.search.index.structure.DictionaryEntryLinked;
+
+/**
+ * Startup image of the dictionary of an index: a minimal perfect hash table of
+ * its terms and of the terms of the sentiment dictionary, mapped in memory as
+ * written.
+ *
+ * <p>
+ * Opening the image maps the file, whatever the size of the vocabulary, where
+ * the dictionary file is decoded term by term. A lookup hashes the term once
+ * to a 64 bits fingerprint, reads the seed of its bucket and the single slot
+ * the {@link MinimalPerfectHash} gives, which holds the fingerprint of its
+ * term: the term bytes are only read to list the entries. The terms of the
+ * sentiment dictionary without postings are held with a document frequency of
+ * 0, for their sentiment value. The image can be read by several threads.
+ *
+ * <p>
+ * The image is written once the index is complete, it records the size of the
+ * dictionary file it was built from and is ignored if the dictionary changed.
+ *
+ * <p>
+ * DictionaryImageFile → FileVersion, SlotCount, BucketCount, TermCount,
+ * DictionarySize, TermBytesSize, Seed<sup>BucketCount</sup>,
+ * Slot<sup>SlotCount</sup>, TermBytes <br>
+ * Slot → Fingerprint, DocFreq, PostingsOffset, Sentiment, TermOffset,
+ * TermLength, PositionsOffset <br>
+ * FileVersion, SlotCount, BucketCount, Seed, Sentiment, TermOffset,
+ * TermLength → Int <br>
+ * TermCount, DictionarySize, TermBytesSize, Fingerprint, DocFreq,
+ * PostingsOffset, PositionsOffset → Long, PositionsOffset is -1 without
+ * positions <br>
+ * TermBytes → UTF-8 bytes of the terms
+ */
+public class DictionaryImage implements IDictionary {
+    public static final int FILE_VERSION = 0xAB73;
+
+    private static final int HEADER_SIZE = 36;
+    private static final int SEED_SIZE = 4;
+    private static final int SLOT_SIZE = 44;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final ByteBuffer buffer;
+    private final int slotCount;
+    private final int bucketCount;
+    private final long termCount;
+    private final long dictionarySize;
+    private final int slotsStart;
+    private final int termBytesStart;
+
+    private DictionaryImage(ByteBuffer buffer) {
+        this.buffer = buffer;
+        int fileVersion = buffer.getInt(0);
+        verify(fileVersion == FILE_VERSION,
+                "The version of the dictionary image is not supported. Version found is %s.", fileVersion);
+        this.slotCount = buffer.getInt(4);
+        this.bucketCount = buffer.getInt(8);
+        this.termCount = buffer.getLong(12);
+        this.dictionarySize = buffer.getLong(20);
+        long termBytesSize = buffer.getLong(28);
+        this.slotsStart = HEADER_SIZE + bucketCount * SEED_SIZE;
+        this.termBytesStart = slotsStart + slotCount * SLOT_SIZE;
+        verify(bucketCount == MinimalPerfectHash.bucketCount(slotCount)
+                && buffer.limit() == termBytesStart + termBytesSize, "The dictionary image is truncated.");
+    }
+
+    /**
+     * @param indexName Name of the index.
+     * @param dir       Directory of the index.
+     * @return {@code true} if the index has a dictionary image.
+     */
+    public static boolean exists(String indexName, Path dir) {
+        return Files.isRegularFile(path(indexName, dir));
+    }
+
+    /**
+     * Maps the dictionary image of an index.
+     *
+     * @param indexName Name of the index.
+     * @param dir       Directory of the index.
+     * @return The mapped image.
+     * @throws IOException
+     */
+    public static DictionaryImage open(String indexName, Path dir) throws IOException {
+        try (FileChannel channel = FileChannel.open(path(indexName, dir))) {
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            return new DictionaryImage(buffer);
+        }
+    }
+
+    /**
+     * Writes the dictionary image of a complete index, replacing the previous
+     * one atomically.
+     *
+     * @param indexName           Name of the index.
+     * @param dir                 Directory of the index.
+     * @param sentimentDictionary Sentiment value of the terms, indexed or not.
+     * @throws IOException
+     */
+    public static void write(String indexName, Path dir, Map<String, Integer> sentimentDictionary)
+            throws IOException {
+        checkNotNull(sentimentDictionary);
+        ImmutableMap<String, DictionaryEntry> dictionary;
+        try (IndexReaderStreamed reader = new IndexReaderStreamed(indexName, dir)) {
+            dictionary = reader.readCompleteDictionary();
+        }
+
+        List<DictionaryEntryLinked> entries = new ArrayList<>(dictionary.size() + sentimentDictionary.size());
+        for (DictionaryEntry entry : dictionary.values()) {
+            entries.add((DictionaryEntryLinked) entry);
+        }
+        for (Map.Entry<String, Integer> sentiment : sentimentDictionary.entrySet()) {
+            if (!sentiment.getKey().isEmpty() && !dictionary.containsKey(sentiment.getKey())) {
+                entries.add(new DictionaryEntryLinked(sentiment.getKey(), 0, sentiment.getValue(), 0, -1));
+            }
+        }
+
+        long[] fingerprints = new long[entries.size()];
+        byte[][] termBytes = new byte[entries.size()][];
+        long termBytesSize = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            fingerprints[i] = fingerprint(entries.get(i).getTerm());
+            termBytes[i] = entries.get(i).getTerm().getBytes(StandardCharsets.UTF_8);
+            termBytesSize += termBytes[i].length;
+        }
+        int slotCount = entries.size();
+        int bucketCount = MinimalPerfectHash.bucketCount(slotCount);
+        checkArgument(HEADER_SIZE + (long) bucketCount * SEED_SIZE + (long) slotCount * SLOT_SIZE
+                + termBytesSize <= Integer.MAX_VALUE, "The dictionary of %s terms is too large for an image.",
+                slotCount);
+
+        int[] seeds = MinimalPerfectHash.build(fingerprints);
+        int[] slots = new int[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            int seed = seeds[MinimalPerfectHash.bucket(fingerprints[i], bucketCount)];
+            slots[MinimalPerfectHash.slot(fingerprints[i], seed, slotCount)] = i;
+        }
+
+        // The term bytes are written in the order of the entries
+        int[] termOffsets = new int[entries.size()];
+        int termOffset = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            termOffsets[i] = termOffset;
+            termOffset += termBytes[i].length;
+        }
+
+        Path path = path(indexName, dir);
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer output = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            output.putInt(FILE_VERSION);
+            output.putInt(slotCount);
+            output.putInt(bucketCount);
+            output.putLong(dictionary.size());
+            output.putLong(Files.size(dir.resolve(indexName + IndexFileUtility.DICTIONARY_EXTENSION)));
+            output.putLong(termBytesSize);
+
+            for (int seed : seeds) {
+                ensureRemaining(channel, output, SEED_SIZE);
+                output.putInt(seed);
+            }
+            for (int entryIndex : slots) {
+                ensureRemaining(channel, output, SLOT_SIZE);
+                DictionaryEntryLinked entry = entries.get(entryIndex);
+                output.putLong(fingerprints[entryIndex]);
+                output.putLong(entry.getDocFreq());
+                output.putLong(entry.getPostingsOffset());
+                output.putInt(entry.getSentiment());
+                output.putInt(termOffsets[entryIndex]);
+                output.putInt(termBytes[entryIndex].length);
+                output.putLong(entry.getPositionsOffset());
+            }
+            for (byte[] bytes : termBytes) {
+                ensureRemaining(channel, output, bytes.length);
+                if (bytes.length > output.capacity()) {
+                    channel.write(ByteBuffer.wrap(bytes));
+                } else {
+                    output.put(bytes);
+                }
+            }
+            flush(channel, output);
+            channel.force(false);
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param indexName Name of the index of the image.
+     * @param dir       Directory of the index.
+     * @param termCount Number of terms of the index.
+     * @return {@code true} if the image was built from the current dictionary
+     *         file of the index.
+     * @throws IOException
+     */
+    public boolean isCurrent(String indexName, Path dir, long termCount) throws IOException {
+        Path dictionaryPath = dir.resolve(indexName + IndexFileUtility.DICTIONARY_EXTENSION);
+        return this.termCount == termCount && Files.isRegularFile(dictionaryPath)
+                && Files.size(dictionaryPath) == dictionarySize;
+    }
+
+    /**
+     * @return The number of terms with postings.
+     */
+    public long getTermCount() {
+        return termCount;
+    }
+
+    @Override
+    public DictionaryEntry get(String term) {
+        int position = find(checkNotNull(term));
+        if (position < 0 || buffer.getLong(position + 8) == 0) {
+            return null;
+        }
+        return readEntry(position, term);
+    }
+
+    @Override
+    public int getSentiment(String term) {
+        int position = find(checkNotNull(term));
+        return position < 0 ? 0 : buffer.getInt(position + 24);
+    }
+
+    @Override
+    public Iterable<DictionaryEntry> entries() {
+        return () -> new AbstractIterator<DictionaryEntry>() {
+            private int slot = 0;
+
+            @Override
+            protected DictionaryEntry computeNext() {
+                while (slot < slotCount) {
+                    int position = slotsStart + slot++ * SLOT_SIZE;
+                    if (buffer.getLong(position + 8) > 0) {
+                        return readEntry(position, readTerm(position));
+                    }
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    /**
+     * @return The position of the slot of the term, -1 if not found.
+     */
+    private int find(String term) {
+        if (slotCount == 0) {
+            return -1;
+        }
+        long fingerprint = fingerprint(term);
+        int seed = buffer.getInt(HEADER_SIZE + MinimalPerfectHash.bucket(fingerprint, bucketCount) * SEED_SIZE);
+        int position = slotsStart + MinimalPerfectHash.slot(fingerprint, seed, slotCount) * SLOT_SIZE;
+        return buffer.getLong(position) == fingerprint ? position : -1;
+    }
+
+    private DictionaryEntryLinked readEntry(int position, String term) {
+        return new DictionaryEntryLinked(term, buffer.getLong(position + 8), buffer.getInt(position + 24),
+                buffer.getLong(position + 16), buffer.getLong(position + 36));
+    }
+
+    private String readTerm(int position) {
+        byte[] termBytes = new byte[buffer.getInt(position + 32)];
+        int start = termBytesStart + buffer.getInt(position + 28);
+        for (int i = 0; i < termBytes.length; i++) {
+            termBytes[i] = buffer.get(start + i);
+        }
+        return new String(termBytes, StandardCharsets.UTF_8);
+    }
+
+    private static long fingerprint(String term) {
+        return HASH_FUNCTION.hashString(term, StandardCharsets.UTF_8).asLong();
+    }
+
+    private static void ensureRemaining(FileChannel channel, ByteBuffer output, int size) throws IOException {
+        if (output.remaining() < size) {
+            flush(channel, output);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer output) throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            channel.write(output);
+        }
+        output.clear();
+    }
+
+    private static Path path(String indexName, Path dir) {
+        return dir.resolve(indexName + IndexFileUtility.DICTIONARY_IMAGE_EXTENSION);
+    }
+}
@@ -12,6 +12,11 @@ public class IndexDataMapperFactory {
 		return new IndexWriter(indexName, dir, bufferSize);
 	}
 
+	public IndexWriter createIndexWriter(String indexName, Path dir, int bufferSize, boolean positions)
+			throws IOException {
+		return new IndexWriter(indexName, dir, bufferSize, positions);
+	}
+
 	public IndexWriter createIndexWriter(String indexName, Path dir) throws IOException {
 		return new IndexWriter(indexName, dir);
 	}
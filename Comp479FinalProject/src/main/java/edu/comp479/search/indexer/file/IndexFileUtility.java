@@ -1,19 +1,73 @@
 package edu.comp479.search.indexer.file;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public final class IndexFileUtility {
     public static final String DICTIONARY_EXTENSION = ".dic";
     public static final String POSTINGS_EXTENSION = ".pst";
     public static final String DESCRIPTOR_EXTENSION = ".desc";
     public static final String NORMS_EXTENSION = ".nrm";
+    public static final String DICTIONARY_IMAGE_EXTENSION = ".dimg";
+    public static final String POSITIONS_EXTENSION = ".pos";
     
     public static final int FILE_VERSION = 0xAB01;
+    /**
+     * Version of the descriptor of an index with positions, its dictionary
+     * entries hold the offset to their positions.
+     */
+    public static final int POSITIONAL_FILE_VERSION = 0xAB02;
     public static final float TFIDF_VAR_FLOAT_PRECISION = 1000.0f;
     
     public static final int NORM_HEADER_SIZE = 8;
     public static final int NORM_ENTRY_SIZE = 16;
 
+    private static final String[] EXTENSIONS = { DICTIONARY_EXTENSION, POSTINGS_EXTENSION, DESCRIPTOR_EXTENSION,
+            NORMS_EXTENSION, DICTIONARY_IMAGE_EXTENSION, POSITIONS_EXTENSION };
+
     // Static Utility class
     private IndexFileUtility() {
     }
 
+    /**
+     * @param indexName Name of the index.
+     * @param dir       Directory of the index.
+     * @return {@code true} if the index descriptor exists in the directory.
+     */
+    public static boolean exists(String indexName, Path dir) {
+        return Files.isRegularFile(dir.resolve(indexName + DESCRIPTOR_EXTENSION));
+    }
+
+    /**
+     * Deletes the files of an index, the missing ones are ignored.
+     * 
+     * @param indexName Name of the index.
+     * @param dir       Directory of the index.
+     * @throws IOException
+     */
+    public static void delete(String indexName, Path dir) throws IOException {
+        for (String extension : EXTENSIONS) {
+            Files.deleteIfExists(dir.resolve(indexName + extension));
+        }
+    }
+
+    /**
+     * @param indexName Name of the index.
+     * @param dir       Directory of the index.
+     * @return The total size of the files of the index, in bytes, the missing
+     *         ones are ignored.
+     * @throws IOException
+     */
+    public static long size(String indexName, Path dir) throws IOException {
+        long size = 0;
+        for (String extension : EXTENSIONS) {
+            Path path = dir.resolve(indexName + extension);
+            if (Files.isRegularFile(path)) {
+                size += Files.size(path);
+            }
+        }
+        return size;
+    }
+
 }
@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.util.List;
 
 import com.esotericsoftware.kryo.io.Input;
 import com.google.common.collect.ImmutableList;
@@ -22,11 +23,14 @@ public abstract class IndexReader implements Closeable {
     protected final Path directory;
     protected final long termCount;
     protected final long docCount;
+    protected final long firstDocId;
+    protected final boolean positions;
 
     protected Path dictionaryPath;
     protected Path postingsPath;
     protected Path descriptorPath;
     protected Path normsPath;
+    protected Path positionsPath;
 
     /**
      * Creates a new IndexReader.
@@ -39,7 +43,9 @@ public abstract class IndexReader implements Closeable {
      * The following files will be read for this index:<br>
      * {@value #DICTIONARY_EXTENSION} - Dictionary of terms<br>
      * {@value #POSTINGS_EXTENSION} - The Postings for each dictionary term<br>
-     * {@value #DESCRIPTOR_EXTENSION} - The descriptor for the index
+     * {@value #DESCRIPTOR_EXTENSION} - The descriptor for the index<br>
+     * {@value #POSITIONS_EXTENSION} - The positions of the postings, if the index
+     * has them
      * 
      * 
      * @param indexName The name for this index, used for the files name.
@@ -57,6 +63,7 @@ public abstract class IndexReader implements Closeable {
             this.postingsPath = dir.resolve(indexName + IndexFileUtility.POSTINGS_EXTENSION);
             this.descriptorPath = dir.resolve(indexName + IndexFileUtility.DESCRIPTOR_EXTENSION);
             this.normsPath = dir.resolve(indexName + IndexFileUtility.NORMS_EXTENSION);
+            this.positionsPath = dir.resolve(indexName + IndexFileUtility.POSITIONS_EXTENSION);
         } catch (InvalidPathException e) {
             throw new IllegalArgumentException(
                     "The index files were not found: indexName: " + indexName + ", dir: " + directory, e);
@@ -64,10 +71,14 @@ public abstract class IndexReader implements Closeable {
 
         try (Input inputDescriptor = new Input(Files.readAllBytes(descriptorPath))) {
             int fileVersion = inputDescriptor.readInt();
-            verify(fileVersion == IndexFileUtility.FILE_VERSION,
+            verify(fileVersion == IndexFileUtility.FILE_VERSION
+                    || fileVersion == IndexFileUtility.POSITIONAL_FILE_VERSION,
                     "The version of the given index is not supported. Version found is %s.", fileVersion);
+            this.positions = fileVersion == IndexFileUtility.POSITIONAL_FILE_VERSION;
             this.termCount = inputDescriptor.readLong();
             this.docCount = inputDescriptor.readLong();
+            // Only the final indexes have a first docId, the blocks start at 0
+            this.firstDocId = inputDescriptor.canReadLong() ? inputDescriptor.readLong() : 0;
         }
     }
 
@@ -75,6 +86,17 @@ public abstract class IndexReader implements Closeable {
         return indexName;
     }
 
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return {@code true} if the index holds the positions of its postings.
+     */
+    public boolean hasPositions() {
+        return positions;
+    }
+
     public long getTermCount() {
         return termCount;
     }
@@ -83,16 +105,25 @@ public abstract class IndexReader implements Closeable {
         return docCount;
     }
 
+    /**
+     * @return The first docId of the norm file of the index.
+     */
+    public long getFirstDocId() {
+        return firstDocId;
+    }
+
     public ImmutableMap<String, DictionaryEntry> readCompleteDictionary() throws IOException {
         ImmutableMap.Builder<String, DictionaryEntry> builder = ImmutableMap.builder();
 
         try (Input input = new Input(Files.newInputStream(dictionaryPath))) {
 
             long lastOffSet = 0;
+            long lastPositionsOffset = 0;
             for (long i = 0; i < termCount; i++) {
-                DictionaryEntryLinked dictEntry = decodeDictionaryEntry(input, lastOffSet);
+                DictionaryEntryLinked dictEntry = decodeDictionaryEntry(input, lastOffSet, lastPositionsOffset);
                 builder.put(dictEntry.getTerm(), dictEntry);
                 lastOffSet = dictEntry.getPostingsOffset();
+                lastPositionsOffset = Math.max(0, dictEntry.getPositionsOffset());
             }
         }
         return builder.build();
@@ -110,6 +141,22 @@ public abstract class IndexReader implements Closeable {
      * @return A dictionary entry linked to a postings list offset
      */
     protected DictionaryEntryLinked decodeDictionaryEntry(Input input, long lastOffSet) {
+        return decodeDictionaryEntry(input, lastOffSet, 0);
+    }
+
+    /**
+     * Reads and decode the next dictionary entry from the dictionary file given by
+     * the {@link Input}, with the offset to its positions if the index has them.
+     * 
+     * @param input               Kryo Input to the dictionary file.
+     * @param lastOffSet          offset to the postings list of the last read
+     *                            dictionary entry, 0 for the first.
+     * @param lastPositionsOffset offset to the positions of the last read
+     *                            dictionary entry, 0 for the first.
+     * 
+     * @return A dictionary entry linked to a postings list offset
+     */
+    protected DictionaryEntryLinked decodeDictionaryEntry(Input input, long lastOffSet, long lastPositionsOffset) {
         checkNotNull(input);
         checkArgument(lastOffSet >= 0, "Offset cannot be a negative number. Given offset: %s", lastOffSet);
 
@@ -117,8 +164,9 @@ public abstract class IndexReader implements Closeable {
         long docFreq = input.readVarLong(true);
         long freqDelta = input.readVarLong(true);
         int sentiment = input.readVarInt(false);
+        long positionsOffset = positions ? input.readVarLong(true) + lastPositionsOffset : -1;
 
-        return new DictionaryEntryLinked(term, docFreq, sentiment, freqDelta + lastOffSet);
+        return new DictionaryEntryLinked(term, docFreq, sentiment, freqDelta + lastOffSet, positionsOffset);
     }
 
     /**
@@ -169,6 +217,32 @@ public abstract class IndexReader implements Closeable {
         return new Posting(lastDocId + docDelta, termFreq, tfIdf);
     }
 
+    /**
+     * Reads and decode the positions of the given postings list from the
+     * positions file given by the {@link Input}.
+     * 
+     * @param input        Kryo Input to the positions file, at the positions of
+     *                     the postings list.
+     * @param postingsList Postings list read from the postings file.
+     * @return A new immutable list of the postings with their positions.
+     */
+    protected ImmutableList<Posting> decodePositions(Input input, List<Posting> postingsList) {
+        checkNotNull(input);
+        checkNotNull(postingsList);
+
+        ImmutableList.Builder<Posting> builder = ImmutableList.builder();
+        for (Posting posting : postingsList) {
+            int[] postingPositions = new int[posting.getTermFreq()];
+            int lastPosition = 0;
+            for (int i = 0; i < postingPositions.length; i++) {
+                lastPosition += input.readVarInt(true);
+                postingPositions[i] = lastPosition;
+            }
+            builder.add(new Posting(posting.getDocId(), posting.getTermFreq(), posting.getTfIdf(), postingPositions));
+        }
+        return builder.build();
+    }
+
     protected NormFileEntry decodeNormEntry(Input input) {
         checkNotNull(input);
 
@@ -20,9 +20,11 @@ import static com.google.common.base.Preconditions.*;
 public class IndexReaderMemoryMapped extends IndexReader {
     private MappedByteBuffer postingsMappedByteBuffer;
     private MappedByteBuffer normsMappedByteBuffer;
+    private MappedByteBuffer positionsMappedByteBuffer;
 
     private ByteBufferInput postingsByteBufferInput;
     private ByteBufferInput normsByteBufferInput;
+    private ByteBufferInput positionsByteBufferInput;
 
     public IndexReaderMemoryMapped(String indexName, Path dir) throws IOException {
         super(indexName, dir);
@@ -38,6 +40,36 @@ public class IndexReaderMemoryMapped extends IndexReader {
         return decodePostingsList(postingsByteBufferInput, docFreq);
     }
 
+    /**
+     * Reads the postings of the entry with their positions, from the positions
+     * file which the other reads never touch.
+     * 
+     * @param dictionaryEntry Entry of an index with positions.
+     * @return The postings list with the positions of each posting.
+     * @throws IllegalStateException if the index has no positions.
+     */
+    public ImmutableList<Posting> readPostingsWithPositions(DictionaryEntryLinked dictionaryEntry) {
+        checkNotNull(dictionaryEntry);
+        checkState(positions && positionsByteBufferInput != null, "The index %s has no positions.", indexName);
+        checkArgument(dictionaryEntry.getPositionsOffset() >= 0, "The entry of %s has no positions.",
+                dictionaryEntry.getTerm());
+        ImmutableList<Posting> postingsList = readPostings(dictionaryEntry);
+
+        long offset = dictionaryEntry.getPositionsOffset();
+        assert offset <= Integer.MAX_VALUE : "The Current implementation does not support files addressable with 64bits offset";
+        positionsByteBufferInput.setPosition((int) offset);
+        return decodePositions(positionsByteBufferInput, postingsList);
+    }
+
+    /**
+     * @see #readPostingsWithPositions(DictionaryEntryLinked)
+     */
+    public ImmutableList<Posting> readPostingsWithPositions(DictionaryEntry dictionaryEntry) {
+        checkArgument(dictionaryEntry instanceof DictionaryEntryLinked,
+                "The entry needs to be linked to Posting on disk.");
+        return readPostingsWithPositions((DictionaryEntryLinked) dictionaryEntry);
+    }
+
     public ImmutableList<Posting> readPostings(DictionaryEntry dictionaryEntry) {
         checkArgument(dictionaryEntry instanceof DictionaryEntryLinked,
                 "The entry needs to be linked to Posting on disk.");
@@ -45,7 +77,9 @@ public class IndexReaderMemoryMapped extends IndexReader {
     }
 
     public NormFileEntry readNormEntry(long docId) {
-        long offset = IndexFileUtility.NORM_HEADER_SIZE + docId * IndexFileUtility.NORM_ENTRY_SIZE;
+        checkArgument(docId >= firstDocId, "The docId %s is before the first docId of the index %s", docId,
+                firstDocId);
+        long offset = IndexFileUtility.NORM_HEADER_SIZE + (docId - firstDocId) * IndexFileUtility.NORM_ENTRY_SIZE;
 
         normsByteBufferInput.setPosition((int) offset);
 
@@ -56,6 +90,71 @@ public class IndexReaderMemoryMapped extends IndexReader {
         return normEntry;
     }
 
+    /**
+     * @param docId Document to find.
+     * @return {@code true} if the index holds the norm of the document, i.e. the
+     *         document is indexed.
+     */
+    public boolean containsDocument(long docId) {
+        if (docId < firstDocId) {
+            return false;
+        }
+        long offset = IndexFileUtility.NORM_HEADER_SIZE + (docId - firstDocId) * IndexFileUtility.NORM_ENTRY_SIZE;
+        if (offset + IndexFileUtility.NORM_ENTRY_SIZE > normsByteBufferInput.limit()) {
+            return false;
+        }
+        normsByteBufferInput.setPosition((int) offset);
+        return decodeNormEntry(normsByteBufferInput).getDocId() == docId;
+    }
+
+    /**
+     * Reads the pages of the postings of the given entries, so that their first
+     * reads by a query do not fault. The postings are read from a view of the
+     * mapping of their own, while the index is searched.
+     *
+     * @param dictionaryEntries Entries of the postings to read, read in the order
+     *                          given.
+     * @return The number of bytes read, 0 if the index is not open.
+     */
+    public long touchPostings(Iterable<DictionaryEntryLinked> dictionaryEntries) {
+        checkNotNull(dictionaryEntries);
+        MappedByteBuffer postings = postingsMappedByteBuffer;
+        if (postings == null) {
+            return 0;
+        }
+
+        long bytes = 0;
+        try (ByteBufferInput input = new ByteBufferInput(postings.duplicate())) {
+            for (DictionaryEntryLinked dictionaryEntry : dictionaryEntries) {
+                long offset = dictionaryEntry.getPostingsOffset();
+                assert offset <= Integer.MAX_VALUE : "The Current implementation does not support files addressable with 64bits offset";
+
+                input.setPosition((int) offset);
+                for (long i = 0; i < dictionaryEntry.getDocFreq(); i++) {
+                    input.readVarLong(true);
+                    input.readVarInt(true);
+                    input.readVarFloat(IndexFileUtility.TFIDF_VAR_FLOAT_PRECISION, true);
+                }
+                bytes += input.position() - offset;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Loads the whole norm file in memory, read for each document scored.
+     *
+     * @return The size of the norm file, 0 if the index is not open.
+     */
+    public long loadNorms() {
+        MappedByteBuffer norms = normsMappedByteBuffer;
+        if (norms == null) {
+            return 0;
+        }
+        norms.load();
+        return norms.capacity();
+    }
+
     public boolean open() throws IOException {
         try (FileChannel postingsChannel = FileChannel.open(postingsPath);
                 FileChannel normsChannel = FileChannel.open(normsPath)) {
@@ -65,6 +164,12 @@ public class IndexReaderMemoryMapped extends IndexReader {
             normsMappedByteBuffer = normsChannel.map(MapMode.READ_ONLY, 0, normsChannel.size());
             normsByteBufferInput = new ByteBufferInput(normsMappedByteBuffer);
         }
+        if (positions) {
+            try (FileChannel positionsChannel = FileChannel.open(positionsPath)) {
+                positionsMappedByteBuffer = positionsChannel.map(MapMode.READ_ONLY, 0, positionsChannel.size());
+                positionsByteBufferInput = new ByteBufferInput(positionsMappedByteBuffer);
+            }
+        }
         return true;
     }
 
@@ -110,6 +215,13 @@ public class IndexReaderMemoryMapped extends IndexReader {
         normsByteBufferInput.setBuffer(ByteBuffer.allocate(1));
         normsByteBufferInput = null;
         normsMappedByteBuffer = null;
+
+        if (positionsByteBufferInput != null) {
+            positionsByteBufferInput.close();
+            positionsByteBufferInput.setBuffer(ByteBuffer.allocate(1));
+            positionsByteBufferInput = null;
+            positionsMappedByteBuffer = null;
+        }
     }
 
 }
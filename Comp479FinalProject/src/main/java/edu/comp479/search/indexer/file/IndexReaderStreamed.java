@@ -17,9 +17,11 @@ import edu.comp479.search.index.structure.Posting;
 public class IndexReaderStreamed extends IndexReader {
     private Input postingsInput;
     private Input dictionaryInput;
+    private Input positionsInput;
 
     private long currentPosition;
     private long lastPostingsListOffset;
+    private long lastPositionsOffset;
 
     public IndexReaderStreamed(String indexName, Path dir) throws IOException {
         super(indexName, dir);
@@ -44,6 +46,10 @@ public class IndexReaderStreamed extends IndexReader {
      * index file. While it should be ordered properly when written, this task is
      * not handled by the Data Mapper.
      * 
+     * <p>
+     * The postings hold their positions if the index has them and the positions
+     * file was opened.
+     * 
      * @return The next Index Entry
      * 
      * @throws IOException            If an error happens with the I/O.
@@ -58,13 +64,62 @@ public class IndexReaderStreamed extends IndexReader {
 
         currentPosition++;
 
-        DictionaryEntryLinked dictEntry = decodeDictionaryEntry(dictionaryInput, lastPostingsListOffset);
+        DictionaryEntryLinked dictEntry = decodeDictionaryEntry();
         ImmutableList<Posting> postingsList = decodePostingsList(postingsInput, dictEntry.getDocFreq());
-        lastPostingsListOffset = dictEntry.getPostingsOffset();
+        if (positionsInput != null) {
+            postingsList = decodePositions(positionsInput, postingsList);
+        }
 
         return new IndexEntry(dictEntry, postingsList);
     }
 
+    /**
+     * Reads the next entry of the index without keeping its postings, measuring
+     * their encoded size instead. The longest postings lists are read without
+     * being held in memory.
+     *
+     * @param size Encoded size of the postings read, the postings of the entry are
+     *             added to it.
+     * @return The dictionary entry of the next term.
+     * @throws NoSuchElementException if the stream is finished.
+     * @throws IllegalStateException  if the stream is closed or never opened.
+     */
+    public DictionaryEntryLinked skipNextEntry(PostingsSize size) {
+        checkNotNull(size);
+        checkInputsState();
+        if (currentPosition >= termCount) {
+            throw new NoSuchElementException("Reached the end of the disk file.");
+        }
+
+        currentPosition++;
+
+        DictionaryEntryLinked dictEntry = decodeDictionaryEntry();
+        for (long i = 0; i < dictEntry.getDocFreq(); i++) {
+            long start = postingsInput.total();
+            postingsInput.readVarLong(true);
+            long docDeltaEnd = postingsInput.total();
+            int termFreq = postingsInput.readVarInt(true);
+            long termFreqEnd = postingsInput.total();
+            postingsInput.readVarFloat(IndexFileUtility.TFIDF_VAR_FLOAT_PRECISION, true);
+            size.add(docDeltaEnd - start, termFreqEnd - docDeltaEnd, postingsInput.total() - termFreqEnd);
+            if (positionsInput != null) {
+                for (int j = 0; j < termFreq; j++) {
+                    positionsInput.readVarInt(true);
+                }
+            }
+        }
+
+        return dictEntry;
+    }
+
+    private DictionaryEntryLinked decodeDictionaryEntry() {
+        DictionaryEntryLinked dictEntry = decodeDictionaryEntry(dictionaryInput, lastPostingsListOffset,
+                lastPositionsOffset);
+        lastPostingsListOffset = dictEntry.getPostingsOffset();
+        lastPositionsOffset = Math.max(0, dictEntry.getPositionsOffset());
+        return dictEntry;
+    }
+
     private void checkInputsState() {
         if (postingsInput == null || dictionaryInput == null) {
             throw new IllegalStateException("The inputs are not ready.");
@@ -77,13 +132,18 @@ public class IndexReaderStreamed extends IndexReader {
     }
 
     /**
-     * Open the streams for the postings and dictionary files.
+     * Open the streams for the postings and dictionary files, and for the
+     * positions file if the index has one.
      * 
      * @return {@code true} if successful
      * @throws IOException
      */
     public boolean open() throws IOException {
-        return open(new Input(Files.newInputStream(postingsPath)), new Input(Files.newInputStream(dictionaryPath)));
+        open(new Input(Files.newInputStream(postingsPath)), new Input(Files.newInputStream(dictionaryPath)));
+        if (positions) {
+            this.positionsInput = new Input(Files.newInputStream(positionsPath));
+        }
+        return true;
     }
 
     /**
@@ -96,8 +156,12 @@ public class IndexReaderStreamed extends IndexReader {
      */
     public boolean open(int bufferSize) throws IOException {
         checkArgument(bufferSize > 0, "The bufferSize must be greate than 0. Given: %s", bufferSize);
-        return open(new Input(Files.newInputStream(postingsPath), bufferSize),
+        open(new Input(Files.newInputStream(postingsPath), bufferSize),
                 new Input(Files.newInputStream(dictionaryPath), bufferSize));
+        if (positions) {
+            this.positionsInput = new Input(Files.newInputStream(positionsPath), bufferSize);
+        }
+        return true;
     }
 
     /**
@@ -125,11 +189,16 @@ public class IndexReaderStreamed extends IndexReader {
         if (dictionaryInput != null) {
             dictionaryInput.close();
         }
+        if (positionsInput != null) {
+            positionsInput.close();
+            positionsInput = null;
+        }
         reset();
     }
 
     private void reset() {
         currentPosition = 0;
         lastPostingsListOffset = 0;
+        lastPositionsOffset = 0;
     }
 }
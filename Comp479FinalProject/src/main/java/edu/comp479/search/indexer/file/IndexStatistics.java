@@ -0,0 +1,245 @@
+package edu.comp479.search.indexer.file;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+import edu.comp479.search.index.structure.DictionaryEntryLinked;
+
+/**
+ * Statistics of the files of an index: where the bytes of the postings go, and
+ * how long the postings lists are.
+ *
+ * <p>
+ * The index is streamed once with an {@link IndexReaderStreamed}, the memory
+ * used does not depend on the size of the index.
+ */
+public class IndexStatistics {
+    public static final int DEFAULT_TOP_COUNT = 20;
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final Comparator<TermLength> BY_LENGTH = Comparator.comparingLong(TermLength::getDocFreq)
+            .thenComparing(TermLength::getTerm, Comparator.reverseOrder());
+
+    private final String indexName;
+    private final long docCount;
+    private final long dictionaryFileBytes;
+    private final long postingsFileBytes;
+    private final long normsFileBytes;
+
+    private final PostingsSize postingsSize = new PostingsSize();
+    // Terms and postings by the power of two of the length of the lists
+    private final long[] termsByLength = new long[Long.SIZE];
+    private final long[] postingsByLength = new long[Long.SIZE];
+    private final int topCount;
+    private final PriorityQueue<TermLength> longestLists;
+    private long termCount;
+
+    private IndexStatistics(String indexName, Path dir, long docCount, int topCount) throws IOException {
+        this.indexName = indexName;
+        this.docCount = docCount;
+        this.dictionaryFileBytes = fileSize(dir.resolve(indexName + IndexFileUtility.DICTIONARY_EXTENSION));
+        this.postingsFileBytes = fileSize(dir.resolve(indexName + IndexFileUtility.POSTINGS_EXTENSION));
+        this.normsFileBytes = fileSize(dir.resolve(indexName + IndexFileUtility.NORMS_EXTENSION));
+        this.topCount = topCount;
+        this.longestLists = new PriorityQueue<>(topCount + 1, BY_LENGTH);
+    }
+
+    /**
+     * @see #collect(String, Path, int, int)
+     */
+    public static IndexStatistics collect(String indexName, Path dir) throws IOException {
+        return collect(indexName, dir, DEFAULT_TOP_COUNT, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Streams an index to collect its statistics.
+     *
+     * @param indexName  Name of the index.
+     * @param dir        Directory of the index.
+     * @param topCount   Number of longest postings lists to keep.
+     * @param bufferSize Size of the buffers of the streams, in bytes.
+     * @return The statistics of the index.
+     * @throws IOException
+     */
+    public static IndexStatistics collect(String indexName, Path dir, int topCount, int bufferSize)
+            throws IOException {
+        checkArgument(topCount >= 0, "The number of lists to keep cannot be negative. Given: %s", topCount);
+
+        try (IndexReaderStreamed reader = new IndexReaderStreamed(indexName, dir)) {
+            reader.open(bufferSize);
+            IndexStatistics statistics = new IndexStatistics(indexName, dir, reader.getDocCount(), topCount);
+            while (reader.hasNextEntry()) {
+                long bytesBefore = statistics.postingsSize.getTotalBytes();
+                DictionaryEntryLinked dictEntry = reader.skipNextEntry(statistics.postingsSize);
+                statistics.addTerm(dictEntry.getTerm(), dictEntry.getDocFreq(),
+                        statistics.postingsSize.getTotalBytes() - bytesBefore);
+            }
+            return statistics;
+        }
+    }
+
+    private void addTerm(String term, long docFreq, long bytes) {
+        termCount++;
+        int lengthClass = lengthClass(docFreq);
+        termsByLength[lengthClass]++;
+        postingsByLength[lengthClass] += docFreq;
+
+        if (topCount > 0) {
+            longestLists.add(new TermLength(term, docFreq, bytes));
+            if (longestLists.size() > topCount) {
+                longestLists.poll();
+            }
+        }
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public long getTermCount() {
+        return termCount;
+    }
+
+    public long getDocCount() {
+        return docCount;
+    }
+
+    public PostingsSize getPostingsSize() {
+        return postingsSize;
+    }
+
+    public long getDictionaryFileBytes() {
+        return dictionaryFileBytes;
+    }
+
+    public long getPostingsFileBytes() {
+        return postingsFileBytes;
+    }
+
+    public long getNormsFileBytes() {
+        return normsFileBytes;
+    }
+
+    /**
+     * @param lengthClass Power of two of the lengths.
+     * @return The number of terms with a postings list of length in
+     *         {@code [2^lengthClass, 2^(lengthClass + 1))}.
+     */
+    public long getTermCountByLength(int lengthClass) {
+        return termsByLength[lengthClass];
+    }
+
+    /**
+     * @return The longest postings lists, from the longest.
+     */
+    public List<TermLength> getLongestLists() {
+        List<TermLength> lists = new ArrayList<>(longestLists);
+        lists.sort(BY_LENGTH.reversed());
+        return lists;
+    }
+
+    /**
+     * @return The statistics as a report of several lines.
+     */
+    public String toReport() {
+        long postingCount = postingsSize.getPostingCount();
+        StringBuilder report = new StringBuilder();
+        report.append(format("Index: %s\n", indexName));
+        report.append(format("Terms: %d\n", termCount));
+        report.append(format("Documents: %d\n", docCount));
+        report.append(format("Postings: %d, %.2f per term\n", postingCount, ratio(postingCount, termCount)));
+        report.append(format("Dictionary file: %d bytes, %.2f bytes per term\n", dictionaryFileBytes,
+                ratio(dictionaryFileBytes, termCount)));
+        report.append(format("Postings file: %d bytes\n", postingsFileBytes));
+        report.append(format("Norms file: %d bytes\n", normsFileBytes));
+
+        report.append(format("\nBytes per posting:\n"));
+        appendComponent(report, "docDelta", postingsSize.getDocDeltaBytes());
+        appendComponent(report, "tf", postingsSize.getTermFreqBytes());
+        appendComponent(report, "tfidf", postingsSize.getTfIdfBytes());
+        appendComponent(report, "total", postingsSize.getTotalBytes());
+
+        report.append(format("\nPostings list lengths:\n"));
+        report.append(format("  %-23s %12s %8s %14s %8s\n", "length", "terms", "%", "postings", "%"));
+        for (int i = 0; i < termsByLength.length; i++) {
+            if (termsByLength[i] > 0) {
+                long low = 1L << i;
+                String range = format("[%d, %d]", low, (low << 1) - 1);
+                report.append(format("  %-23s %12d %8.2f %14d %8.2f\n", range, termsByLength[i],
+                        100 * ratio(termsByLength[i], termCount), postingsByLength[i],
+                        100 * ratio(postingsByLength[i], postingCount)));
+            }
+        }
+
+        List<TermLength> lists = getLongestLists();
+        if (!lists.isEmpty()) {
+            report.append(format("\nLongest postings lists:\n"));
+            report.append(format("  %-24s %12s %14s %10s\n", "term", "docFreq", "bytes", "bytes/doc"));
+            for (TermLength list : lists) {
+                report.append(format("  %-24s %12d %14d %10.3f\n", list.getTerm(), list.getDocFreq(),
+                        list.getBytes(), ratio(list.getBytes(), list.getDocFreq())));
+            }
+        }
+        return report.toString();
+    }
+
+    private void appendComponent(StringBuilder report, String component, long bytes) {
+        report.append(format("  %-9s %8.3f  (%d bytes, %.1f%%)\n", component,
+                ratio(bytes, postingsSize.getPostingCount()), bytes,
+                100 * ratio(bytes, postingsSize.getTotalBytes())));
+    }
+
+    static int lengthClass(long docFreq) {
+        return Long.SIZE - 1 - Long.numberOfLeadingZeros(Math.max(1, docFreq));
+    }
+
+    private static double ratio(long value, long total) {
+        return total > 0 ? value / (double) total : 0;
+    }
+
+    private static long fileSize(Path path) throws IOException {
+        return Files.isRegularFile(path) ? Files.size(path) : 0;
+    }
+
+    private static String format(String format, Object... args) {
+        return String.format(Locale.ROOT, format, args);
+    }
+
+    /**
+     * Length of the postings list of a term.
+     */
+    public static class TermLength {
+        private final String term;
+        private final long docFreq;
+        private final long bytes;
+
+        public TermLength(String term, long docFreq, long bytes) {
+            this.term = checkNotNull(term);
+            this.docFreq = docFreq;
+            this.bytes = bytes;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public long getDocFreq() {
+            return docFreq;
+        }
+
+        /**
+         * @return The encoded size of the postings list, in bytes.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+    }
+}
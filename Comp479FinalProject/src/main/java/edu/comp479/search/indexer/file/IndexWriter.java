@@ -30,13 +30,16 @@ public class IndexWriter implements Closeable {
     private Output postingsOutput;
     private Output descriptorOutput;
     private Output normOutput;
+    private Output positionsOutput;
 
     private Path dictionaryPath;
     private Path postingsPath;
     private Path descriptorPath;
     private Path normPath;
+    private Path positionsPath;
 
     private long lastPostingListOffset = 0;
+    private long lastPositionsOffset = 0;
     private long termCount = 0;
 
     /**
@@ -53,6 +56,13 @@ public class IndexWriter implements Closeable {
         this(indexName, dir, DEFAULT_BUFFER_SIZE);
     }
 
+    /**
+     * @see IndexWriter#IndexWriter(String, Path, int, boolean)
+     */
+    public IndexWriter(String indexName, Path dir, int bufferSize) throws IOException {
+        this(indexName, dir, bufferSize, false);
+    }
+
     /**
      * Creates a new IndexWriter.
      * 
@@ -75,15 +85,22 @@ public class IndexWriter implements Closeable {
      * {@value IndexFileUtility#DICTIONARY_EXTENSION} - Dictionary of terms<br>
      * {@value IndexFileUtility#POSTINGS_EXTENSION} - The Postings for each
      * dictionary term<br>
-     * {@value IndexFileUtility#DESCRIPTOR_EXTENSION} - The descriptor for the index
+     * {@value IndexFileUtility#DESCRIPTOR_EXTENSION} - The descriptor for the index<br>
+     * {@value IndexFileUtility#POSITIONS_EXTENSION} - The positions of the
+     * postings, only if {@code positions} is set
      * 
+     * <p>
+     * The positions are kept in their own file so that the queries which do not
+     * need them never read them.
      * 
      * @param indexName  The name for this index, used for the files name.
      * @param dir        Directory to create the index in.
      * @param bufferSize Size of the output buffer
+     * @param positions  If {@code true}, every posting written must hold its
+     *                   positions.
      * @throws IOException
      */
-    public IndexWriter(String indexName, Path dir, int bufferSize) throws IOException {
+    public IndexWriter(String indexName, Path dir, int bufferSize, boolean positions) throws IOException {
         this.indexName = checkNotNull(indexName);
         this.directory = checkNotNull(dir);
         checkArgument(bufferSize >= 1, "Buffer Size must be positive. Given: %s", bufferSize);
@@ -99,6 +116,28 @@ public class IndexWriter implements Closeable {
         this.postingsOutput = new Output(Files.newOutputStream(postingsPath), bufferSize);
         this.descriptorOutput = new Output(Files.newOutputStream(descriptorPath), bufferSize);
         this.normOutput = new Output(Files.newOutputStream(normPath), bufferSize);
+        if (positions) {
+            this.positionsPath = dir.resolve(indexName + IndexFileUtility.POSITIONS_EXTENSION);
+            this.positionsOutput = new Output(Files.newOutputStream(positionsPath), bufferSize);
+        } else {
+            // A previous index of the same name must not leave its positions behind
+            Files.deleteIfExists(dir.resolve(indexName + IndexFileUtility.POSITIONS_EXTENSION));
+        }
+    }
+
+    /**
+     * @return {@code true} if the index is written with the positions of its
+     *         postings.
+     */
+    public boolean hasPositions() {
+        return positionsOutput != null;
+    }
+
+    /**
+     * @return The path of the positions file, {@code null} without positions.
+     */
+    public Path getPositionsPath() {
+        return positionsPath;
     }
 
     public Path getDictionaryPath() {
@@ -129,10 +168,14 @@ public class IndexWriter implements Closeable {
         checkArgument(!postingsList.isEmpty(), "The postings list cannot be empty.");
 
         long postingListOffset = writePostingsList(postingsList);
-        writeDictionary(dictEntry, postingListOffset);
+        long positionsOffset = hasPositions() ? writePositions(postingsList) : -1;
+        writeDictionary(dictEntry, postingListOffset, positionsOffset);
         termCount++;
 
         lastPostingListOffset = postingListOffset;
+        if (hasPositions()) {
+            lastPositionsOffset = positionsOffset;
+        }
     }
 
     /**
@@ -164,7 +207,7 @@ public class IndexWriter implements Closeable {
      * 
      */
     public void writeFinalizeIndex(long docCount) {
-        descriptorOutput.writeInt(IndexFileUtility.FILE_VERSION);
+        descriptorOutput.writeInt(fileVersion());
         descriptorOutput.writeLong(termCount);
         descriptorOutput.writeLong(docCount);
     }
@@ -175,21 +218,33 @@ public class IndexWriter implements Closeable {
      * 
      * This should be called right before {@link #close()}
      * 
+     * <p>
+     * The norm file holds an entry per docId from the first docId of the index,
+     * written at the end of the descriptor, to the last one. An index of recent
+     * documents does not hold entries for the docIds before its own.
+     * 
+     * <p>
+     * IndexDescriptorFile → FileVersion, TermCount, DocCount, FirstDocId <br>
+     * FirstDocId → Long
+     * 
      * @param normEntries List of {@link NormFileEntry} ordered by Document Id
      */
     public void writeFinalizeIndexWithNorm(Long docCount, List<NormFileEntry> normEntries) {
         checkNotNull(normEntries);
 
-        descriptorOutput.writeInt(IndexFileUtility.FILE_VERSION);
+        long firstDocId = normEntries.stream().min(comparingLong(NormFileEntry::getDocId))
+                .orElse(new NormFileEntry(0, 0, 0)).getDocId();
+        descriptorOutput.writeInt(fileVersion());
         descriptorOutput.writeLong(termCount);
         descriptorOutput.writeLong(docCount);
+        descriptorOutput.writeLong(firstDocId);
 
         long maxDocId = normEntries.stream().max(comparingLong(NormFileEntry::getDocId))
                 .orElse(new NormFileEntry(0, 0, 0)).getDocId();
         normOutput.writeLong(maxDocId);
 
         PeekingIterator<NormFileEntry> iter = Iterators.peekingIterator(normEntries.iterator());
-        for (long i = 0; i <= maxDocId; i++) {
+        for (long i = firstDocId; i <= maxDocId; i++) {
             if (iter.hasNext()) {
                 if (iter.peek().getDocId() == i) {
                     writeNormEntry(iter.next());
@@ -200,6 +255,10 @@ public class IndexWriter implements Closeable {
         }
     }
 
+    private int fileVersion() {
+        return hasPositions() ? IndexFileUtility.POSITIONAL_FILE_VERSION : IndexFileUtility.FILE_VERSION;
+    }
+
     private void writeNormEntry(NormFileEntry entry) {
         if (entry == null) {
             entry = EMPTY_NORM_ENTRY;
@@ -240,6 +299,35 @@ public class IndexWriter implements Closeable {
         return lastDocId;
     }
 
+    /**
+     * Encodes and writes the positions of the given {@code postingsList} to the
+     * positions file.
+     * 
+     * <p>
+     * PositionsFile → (Positions) <sup>TermCount</sup> <br>
+     * Positions → (PositionDelta <sup>TermFreq</sup>) <sup>DocFreq</sup> <br>
+     * PositionDelta → VarInt (unsigned), the first of each posting is the actual
+     * position
+     * 
+     * @param postingsList Non empty postingsList, with positions.
+     * @return The starting position in the file for these positions.
+     */
+    private long writePositions(List<Posting> postingsList) {
+        long startPosition = positionsOutput.total();
+        for (Posting posting : postingsList) {
+            checkArgument(posting.hasPositions(), "The posting of document %s has no positions.",
+                    posting.getDocId());
+            int lastPosition = 0;
+            for (int position : posting.getPositions()) {
+                checkArgument(position >= lastPosition, "The positions must be ascending. (last: %s, current: %s)",
+                        lastPosition, position);
+                positionsOutput.writeVarInt(position - lastPosition, true);
+                lastPosition = position;
+            }
+        }
+        return startPosition;
+    }
+
     /**
      * Encodes and writes the given {@code dictEntry} to the dictionary file with a
      * pointer to the associated postings list.
@@ -252,15 +340,23 @@ public class IndexWriter implements Closeable {
      * FreqDelta → VarLong <br>
      * Sentiment → VarInt (signed)
      * 
+     * <p>
+     * The TermInfo of an index with positions ends with PositionsDelta → VarLong,
+     * the delta to the positions of the previous term.
+     * 
      * @param dictEntry         Dictionary entry to write
      * @param postingListOffset
+     * @param positionsOffset   Offset to the positions, ignored without positions.
      */
-    private void writeDictionary(DictionaryEntry dictEntry, long postingListOffset) {
+    private void writeDictionary(DictionaryEntry dictEntry, long postingListOffset, long positionsOffset) {
         dictionaryOutput.writeString(dictEntry.getTerm());
         dictionaryOutput.writeVarLong(dictEntry.getDocFreq(), true);
         // No use for isFirst since the first will always initialize at 0
         writeDeltaVarLong(dictionaryOutput, lastPostingListOffset, postingListOffset, false, true);
         dictionaryOutput.writeVarInt(dictEntry.getSentiment(), false);
+        if (hasPositions()) {
+            writeDeltaVarLong(dictionaryOutput, lastPositionsOffset, positionsOffset, false, true);
+        }
     }
 
     /**
@@ -297,6 +393,9 @@ public class IndexWriter implements Closeable {
         postingsOutput.close();
         descriptorOutput.close();
         normOutput.close();
+        if (positionsOutput != null) {
+            positionsOutput.close();
+        }
     }
 
 }
@@ -0,0 +1,125 @@
+package edu.comp479.search.indexer.file;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import com.esotericsoftware.kryo.io.Output;
+
+import edu.comp479.search.index.structure.IndexEntry;
+import edu.comp479.search.index.structure.Posting;
+
+import static edu.comp479.search.util.Weights.idf;
+import static edu.comp479.search.util.Weights.tfIdf;
+
+/**
+ * Length norms of the documents of an index holding a part of a collection,
+ * computed with the idf of the whole collection: the segments of a segmented
+ * index, or the shards of a sharded one.
+ *
+ * <p>
+ * The postings of the index are streamed once with an
+ * {@link IndexReaderStreamed}.
+ */
+public final class LengthNorms {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private LengthNorms() {
+        throw new UnsupportedOperationException("Static class.");
+    }
+
+    /**
+     * Computes the length norm of the documents of an index.
+     *
+     * @param indexName         Name of the index.
+     * @param dir               Directory of the index.
+     * @param firstDocId        First docId of the index.
+     * @param docIdCount        Expected number of docIds from the first one.
+     * @param documentCount     Number of documents of the whole collection.
+     * @param documentFrequency Document frequency of a term in the whole
+     *                          collection.
+     * @return The norm of each docId from the first one, 0 for a docId without
+     *         document. The array is longer than {@code docIdCount} if the index
+     *         holds more docIds.
+     * @throws IOException
+     */
+    public static float[] compute(String indexName, Path dir, long firstDocId, int docIdCount, long documentCount,
+            ToLongFunction<String> documentFrequency) throws IOException {
+        checkNotNull(documentFrequency);
+        checkArgument(docIdCount >= 0, "The number of docIds cannot be negative. Given: %s", docIdCount);
+
+        float[] norms = new float[docIdCount];
+        try (IndexReaderStreamed reader = new IndexReaderStreamed(indexName, dir)) {
+            reader.open();
+            while (reader.hasNextEntry()) {
+                IndexEntry entry = reader.readNextEntry();
+                Function<Posting, Float> termWeight = tfIdf(
+                        idf(documentCount, documentFrequency.applyAsLong(entry.getTerm())));
+                for (Posting posting : entry.getPostingsList()) {
+                    int offset = (int) (posting.getDocId() - firstDocId);
+                    if (offset >= norms.length) {
+                        norms = Arrays.copyOf(norms, Math.max(offset + 1, norms.length * 2));
+                    }
+                    norms[offset] += Math.pow(termWeight.apply(posting), 2);
+                }
+            }
+        }
+        for (int offset = 0; offset < norms.length; offset++) {
+            norms[offset] = (float) Math.sqrt(norms[offset]);
+        }
+        return norms;
+    }
+
+    /**
+     * Replaces the norm file of an index by the norms computed with the idf of
+     * the whole collection. The emotion values of the documents are kept.
+     *
+     * @param indexName         Name of the index.
+     * @param dir               Directory of the index.
+     * @param documentCount     Number of documents of the whole collection.
+     * @param documentFrequency Document frequency of a term in the whole
+     *                          collection.
+     * @throws IOException
+     * @see IndexWriter#writeFinalizeIndexWithNorm(Long, java.util.List) for the
+     *      norm file.
+     */
+    public static void rewrite(String indexName, Path dir, long documentCount,
+            ToLongFunction<String> documentFrequency) throws IOException {
+        Path path = dir.resolve(indexName + IndexFileUtility.NORMS_EXTENSION);
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        int entryCount = (int) ((Files.size(path) - IndexFileUtility.NORM_HEADER_SIZE)
+                / IndexFileUtility.NORM_ENTRY_SIZE);
+        if (entryCount == 0) {
+            return;
+        }
+
+        try (IndexReaderMemoryMapped reader = new IndexReaderMemoryMapped(indexName, dir)) {
+            reader.open();
+            long firstDocId = reader.getFirstDocId();
+            float[] norms = compute(indexName, dir, firstDocId, entryCount, documentCount, documentFrequency);
+
+            try (Output output = new Output(Files.newOutputStream(tmpPath), BUFFER_SIZE)) {
+                output.writeLong(firstDocId + entryCount - 1);
+                for (int offset = 0; offset < entryCount; offset++) {
+                    long docId = firstDocId + offset;
+                    if (reader.containsDocument(docId)) {
+                        output.writeLong(docId);
+                        output.writeFloat(norms[offset]);
+                        output.writeFloat(reader.readNormEntry(docId).getEmoVal());
+                    } else {
+                        output.writeLong(-1);
+                        output.writeFloat(-1);
+                        output.writeFloat(-1);
+                    }
+                }
+            }
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
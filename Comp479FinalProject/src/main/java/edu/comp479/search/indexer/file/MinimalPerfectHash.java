@@ -0,0 +1,141 @@
+package edu.comp479.search.indexer.file;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Minimal perfect hash function over a set of 64 bits fingerprints, built by
+ * hash and displace: the fingerprints are split in small buckets and each
+ * bucket gets the seed which places all its fingerprints in free slots.
+ *
+ * <p>
+ * The largest buckets are placed first, while most slots are free. A bucket of
+ * a single fingerprint is not searched for a seed, its slot is given directly
+ * as a negative seed. The function maps the n fingerprints of the set to the
+ * slots 0 to n - 1 with about one byte of seed per fingerprint, any other
+ * fingerprint is mapped to one of these slots too.
+ */
+final class MinimalPerfectHash {
+    static final int AVERAGE_BUCKET_SIZE = 4;
+
+    private static final int MAX_SEED = 1 << 24;
+    private static final long SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    // Static Utility class
+    private MinimalPerfectHash() {
+    }
+
+    /**
+     * @param keyCount Number of fingerprints of the set.
+     * @return The number of buckets of the function.
+     */
+    static int bucketCount(int keyCount) {
+        return Math.max(1, (keyCount + AVERAGE_BUCKET_SIZE - 1) / AVERAGE_BUCKET_SIZE);
+    }
+
+    /**
+     * @return The bucket of the fingerprint, from 0 to bucketCount - 1.
+     */
+    static int bucket(long fingerprint, int bucketCount) {
+        return (int) (((fingerprint & 0xFFFFFFFFL) * bucketCount) >>> 32);
+    }
+
+    /**
+     * @param fingerprint Fingerprint to place.
+     * @param seed        Seed of the bucket of the fingerprint.
+     * @param slotCount   Number of fingerprints of the set.
+     * @return The slot of the fingerprint, from 0 to slotCount - 1.
+     */
+    static int slot(long fingerprint, int seed, int slotCount) {
+        if (seed < 0) {
+            return -seed - 1;
+        }
+        long hash = mix(fingerprint + seed * SEED_MULTIPLIER);
+        return (int) (((hash >>> 32) * slotCount) >>> 32);
+    }
+
+    /**
+     * Builds the function over distinct fingerprints.
+     *
+     * @param fingerprints Fingerprints of the set, all distinct.
+     * @return The seed of each bucket.
+     * @throws IllegalArgumentException if a fingerprint is repeated.
+     */
+    static int[] build(long[] fingerprints) {
+        checkNotNull(fingerprints);
+        long[] sorted = fingerprints.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < sorted.length; i++) {
+            checkArgument(sorted[i - 1] != sorted[i], "The fingerprint %s is repeated.", sorted[i]);
+        }
+
+        int slotCount = fingerprints.length;
+        int bucketCount = bucketCount(slotCount);
+        List<List<Long>> buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(new ArrayList<>(AVERAGE_BUCKET_SIZE));
+        }
+        for (long fingerprint : fingerprints) {
+            buckets.get(bucket(fingerprint, bucketCount)).add(fingerprint);
+        }
+        Integer[] order = new Integer[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer bucket) -> buckets.get(bucket).size()).reversed());
+
+        int[] seeds = new int[bucketCount];
+        BitSet used = new BitSet(slotCount);
+        int[] slots = new int[0];
+        int nextFreeSlot = 0;
+        for (int bucket : order) {
+            List<Long> keys = buckets.get(bucket);
+            if (keys.isEmpty()) {
+                break;
+            }
+            if (keys.size() == 1) {
+                nextFreeSlot = used.nextClearBit(nextFreeSlot);
+                used.set(nextFreeSlot);
+                seeds[bucket] = -nextFreeSlot - 1;
+                continue;
+            }
+            if (slots.length < keys.size()) {
+                slots = new int[keys.size()];
+            }
+            seeds[bucket] = findSeed(keys, used, slots, slotCount);
+        }
+        return seeds;
+    }
+
+    private static int findSeed(List<Long> keys, BitSet used, int[] slots, int slotCount) {
+        for (int seed = 0; seed < MAX_SEED; seed++) {
+            int placed = 0;
+            while (placed < keys.size()) {
+                int slot = slot(keys.get(placed), seed, slotCount);
+                if (used.get(slot)) {
+                    break;
+                }
+                used.set(slot);
+                slots[placed++] = slot;
+            }
+            if (placed == keys.size()) {
+                return seed;
+            }
+            for (int i = 0; i < placed; i++) {
+                used.clear(slots[i]);
+            }
+        }
+        throw new IllegalStateException("No seed places the bucket of " + keys.size() + " fingerprints.");
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
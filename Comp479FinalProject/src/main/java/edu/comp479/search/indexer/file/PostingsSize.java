@@ -0,0 +1,44 @@
+package edu.comp479.search.indexer.file;
+
+/**
+ * Encoded size of postings in the postings file, by component of the postings.
+ */
+public class PostingsSize {
+    private long postingCount;
+    private long docDeltaBytes;
+    private long termFreqBytes;
+    private long tfIdfBytes;
+
+    public PostingsSize() {
+    }
+
+    void add(long docDeltaBytes, long termFreqBytes, long tfIdfBytes) {
+        this.postingCount++;
+        this.docDeltaBytes += docDeltaBytes;
+        this.termFreqBytes += termFreqBytes;
+        this.tfIdfBytes += tfIdfBytes;
+    }
+
+    public long getPostingCount() {
+        return postingCount;
+    }
+
+    /**
+     * @return The bytes of the docId gaps.
+     */
+    public long getDocDeltaBytes() {
+        return docDeltaBytes;
+    }
+
+    public long getTermFreqBytes() {
+        return termFreqBytes;
+    }
+
+    public long getTfIdfBytes() {
+        return tfIdfBytes;
+    }
+
+    public long getTotalBytes() {
+        return docDeltaBytes + termFreqBytes + tfIdfBytes;
+    }
+}
@@ -0,0 +1,70 @@
+package edu.comp479.search.indexer.file;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Segment of a segmented index, a complete index holding the documents of a
+ * range of docIds.
+ */
+public class SegmentInfo {
+    private final String name;
+    private final long firstDocId;
+    private final long docCount;
+
+    /**
+     * @param name       Name of the index of the segment.
+     * @param firstDocId First docId of the segment, the segment holds the docIds
+     *                   up to the first docId of the next segment.
+     * @param docCount   Number of documents in the segment.
+     */
+    public SegmentInfo(String name, long firstDocId, long docCount) {
+        this.name = checkNotNull(name);
+        checkArgument(!name.isEmpty(), "The segment name cannot be empty.");
+        checkArgument(firstDocId >= 0, "The first docId must be non-negative. Given: %s", firstDocId);
+        checkArgument(docCount >= 0, "The document count must be non-negative. Given: %s", docCount);
+        this.firstDocId = firstDocId;
+        this.docCount = docCount;
+    }
+
+    /**
+     * Reads the segment information from the descriptor of a final index.
+     * 
+     * @param name Name of the index.
+     * @param dir  Directory of the index.
+     * @return The segment of the index.
+     * @throws IOException
+     */
+    public static SegmentInfo fromIndex(String name, Path dir) throws IOException {
+        try (IndexReaderStreamed reader = new IndexReaderStreamed(name, dir)) {
+            return new SegmentInfo(name, reader.getFirstDocId(), reader.getDocCount());
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getFirstDocId() {
+        return firstDocId;
+    }
+
+    public long getDocCount() {
+        return docCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("[");
+        builder.append(name);
+        builder.append(", firstDocId=");
+        builder.append(firstDocId);
+        builder.append(", docCount=");
+        builder.append(docCount);
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package edu.comp479.search.indexer.file;
+
+import static com.google.common.base.Preconditions.*;
+import static com.google.common.base.Verify.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * List of the segments of a segmented index, each a complete index of a range
+ * of docIds.
+ *
+ * <p>
+ * The segments are ordered by docId. A new manifest replaces the previous one
+ * atomically, so a reader sees either the old list of segments or the new one
+ * and the segments it lists are always complete.
+ *
+ * <p>
+ * SegmentsFile → FileVersion, Generation, NextSegmentNumber, SegmentCount,
+ * (Name, FirstDocId, DocCount)<sup>SegmentCount</sup> <br>
+ * Generation, FirstDocId, DocCount → Long <br>
+ * NextSegmentNumber, SegmentCount → Int <br>
+ * Name → String
+ */
+public class SegmentManifest {
+    public static final String EXTENSION = ".segments";
+    public static final int FILE_VERSION = 0xAB51;
+
+    private final long generation;
+    private final int nextSegmentNumber;
+    private final ImmutableList<SegmentInfo> segments;
+
+    private SegmentManifest(long generation, int nextSegmentNumber, ImmutableList<SegmentInfo> segments) {
+        this.generation = generation;
+        this.nextSegmentNumber = nextSegmentNumber;
+        this.segments = segments;
+    }
+
+    /**
+     * @return A manifest without segments.
+     */
+    public static SegmentManifest empty() {
+        return new SegmentManifest(0, 0, ImmutableList.of());
+    }
+
+    /**
+     * @param indexName Name of the segmented index.
+     * @param dir       Directory of the index.
+     * @return {@code true} if the directory holds a manifest for the index.
+     */
+    public static boolean exists(String indexName, Path dir) {
+        return Files.isRegularFile(path(indexName, dir));
+    }
+
+    /**
+     * Reads the manifest of a segmented index.
+     *
+     * @param indexName Name of the segmented index.
+     * @param dir       Directory of the index.
+     * @return The manifest.
+     * @throws IOException
+     */
+    public static SegmentManifest read(String indexName, Path dir) throws IOException {
+        try (Input input = new Input(Files.readAllBytes(path(indexName, dir)))) {
+            int fileVersion = input.readInt();
+            verify(fileVersion == FILE_VERSION,
+                    "The version of the segments file is not supported. Version found is %s.", fileVersion);
+            long generation = input.readLong();
+            int nextSegmentNumber = input.readInt();
+            int segmentCount = input.readInt();
+
+            ImmutableList.Builder<SegmentInfo> segments = ImmutableList.builder();
+            for (int i = 0; i < segmentCount; i++) {
+                segments.add(new SegmentInfo(input.readString(), input.readLong(), input.readLong()));
+            }
+            return new SegmentManifest(generation, nextSegmentNumber, segments.build());
+        }
+    }
+
+    /**
+     * Deletes the manifest of a segmented index and the segments it lists.
+     *
+     * @param indexName Name of the segmented index.
+     * @param dir       Directory of the index.
+     * @throws IOException
+     */
+    public static void delete(String indexName, Path dir) throws IOException {
+        if (!exists(indexName, dir)) {
+            return;
+        }
+        for (SegmentInfo segment : read(indexName, dir).getSegments()) {
+            IndexFileUtility.delete(segment.getName(), dir);
+        }
+        Files.deleteIfExists(path(indexName, dir));
+    }
+
+    /**
+     * Writes the manifest, replacing the previous one.
+     *
+     * @param indexName Name of the segmented index.
+     * @param dir       Directory of the index.
+     * @throws IOException
+     */
+    public void write(String indexName, Path dir) throws IOException {
+        Path path = path(indexName, dir);
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Output output = new Output(Files.newOutputStream(tmpPath))) {
+            output.writeInt(FILE_VERSION);
+            output.writeLong(generation);
+            output.writeInt(nextSegmentNumber);
+            output.writeInt(segments.size());
+            for (SegmentInfo segment : segments) {
+                output.writeString(segment.getName());
+                output.writeLong(segment.getFirstDocId());
+                output.writeLong(segment.getDocCount());
+            }
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the next generation of the manifest with the given segments.
+     *
+     * @param segments          Segments ordered by first docId.
+     * @param nextSegmentNumber Number of the next segment to create.
+     * @return The new manifest.
+     */
+    public SegmentManifest withSegments(List<SegmentInfo> segments, int nextSegmentNumber) {
+        checkNotNull(segments);
+        for (int i = 1; i < segments.size(); i++) {
+            checkArgument(segments.get(i - 1).getFirstDocId() < segments.get(i).getFirstDocId(),
+                    "The segments must be ordered by first docId. Given: %s", segments);
+        }
+        checkArgument(nextSegmentNumber >= this.nextSegmentNumber, "The segment numbers cannot be reused.");
+        return new SegmentManifest(generation + 1, nextSegmentNumber, ImmutableList.copyOf(segments));
+    }
+
+    /**
+     * @return The generation of the manifest, incremented on each change.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    public int getNextSegmentNumber() {
+        return nextSegmentNumber;
+    }
+
+    /**
+     * @return The segments ordered by first docId.
+     */
+    public ImmutableList<SegmentInfo> getSegments() {
+        return segments;
+    }
+
+    private static Path path(String indexName, Path dir) {
+        return dir.resolve(indexName + EXTENSION);
+    }
+}
@@ -0,0 +1,32 @@
+package edu.comp479.search.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count of events, incremented concurrently without contention.
+ */
+public final class Counter implements IMetric {
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long value) {
+        count.add(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public String toJson() {
+        return Long.toString(getCount());
+    }
+
+    @Override
+    public void appendText(String name, StringBuilder text) {
+        text.append(name).append("_total ").append(getCount()).append('\n');
+    }
+}
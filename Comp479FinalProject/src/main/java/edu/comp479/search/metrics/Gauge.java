@@ -0,0 +1,63 @@
+package edu.comp479.search.metrics;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Value computed when the metrics are read, such as a rate derived from other
+ * metrics.
+ */
+public final class Gauge implements IMetric {
+    private final Supplier<? extends Number> value;
+
+    public Gauge(Supplier<? extends Number> value) {
+        this.value = checkNotNull(value);
+    }
+
+    public Number getValue() {
+        return value.get();
+    }
+
+    @Override
+    public String toJson() {
+        Number number = getValue();
+        if (number instanceof Double || number instanceof Float) {
+            return toJsonNumber(number.doubleValue());
+        }
+        return number != null ? number.toString() : "null";
+    }
+
+    @Override
+    public void appendText(String name, StringBuilder text) {
+        Number number = getValue();
+        text.append(name).append(' ').append(number != null ? toTextNumber(number.doubleValue()) : "NaN")
+                .append('\n');
+    }
+
+    /**
+     * @return The number rounded to 3 decimals, {@code null} if it is not finite
+     *         as JSON has no value for it.
+     */
+    static String toJsonNumber(double number) {
+        if (Double.isNaN(number) || Double.isInfinite(number)) {
+            return "null";
+        }
+        return String.format(Locale.ROOT, "%.3f", number);
+    }
+
+    /**
+     * @return The number in the text exposition format, which has values for the
+     *         numbers that are not finite.
+     */
+    static String toTextNumber(double number) {
+        if (Double.isNaN(number)) {
+            return "NaN";
+        } else if (Double.isInfinite(number)) {
+            return number > 0 ? "+Inf" : "-Inf";
+        }
+        return number == Math.rint(number) && Math.abs(number) < 1e15 ? Long.toString((long) number)
+                : Double.toString(number);
+    }
+}
@@ -0,0 +1,28 @@
+package edu.comp479.search.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Highest value sampled, such as the heap in use during a build.
+ */
+public final class HighWaterMark implements IMetric {
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void update(long value) {
+        max.accumulate(value);
+    }
+
+    public long get() {
+        return max.get();
+    }
+
+    @Override
+    public String toJson() {
+        return Long.toString(get());
+    }
+
+    @Override
+    public void appendText(String name, StringBuilder text) {
+        text.append(name).append(' ').append(get()).append('\n');
+    }
+}
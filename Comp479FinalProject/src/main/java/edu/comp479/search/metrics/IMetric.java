@@ -0,0 +1,20 @@
+package edu.comp479.search.metrics;
+
+/**
+ * Measure recorded in a {@link MetricsRegistry}.
+ */
+public interface IMetric {
+    /**
+     * @return The current value of the metric as a JSON value.
+     */
+    public String toJson();
+
+    /**
+     * Appends the current value of the metric as lines of the text exposition
+     * format, {@code name value}.
+     *
+     * @param name Name of the metric in the text format.
+     * @param text Text to append to.
+     */
+    public void appendText(String name, StringBuilder text);
+}
@@ -0,0 +1,174 @@
+package edu.comp479.search.metrics;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of durations, for their percentiles.
+ *
+ * <p>
+ * The durations are counted in log-linear buckets, like HdrHistogram: each
+ * power of two is split in {@value #SUB_BUCKET_COUNT} buckets, a percentile is
+ * within 1% of the recorded duration. The durations under
+ * {@code 2 * }{@value #SUB_BUCKET_COUNT} nanoseconds are exact. Recording is a
+ * few atomic increments, without allocation or lock.
+ */
+public final class LatencyHistogram implements IMetric, LatencyHistogramMXBean {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // Durations up to 2^62 ns, the bucket of the last power of two of a long
+    private static final int BUCKET_COUNT = (Long.SIZE - 1 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos Duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        checkArgument(nanos >= 0, "A duration cannot be negative. Given: %s", nanos);
+        counts.incrementAndGet(bucketIndex(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Records the duration of an operation started at {@code startNanos}.
+     *
+     * @param startNanos Start of the operation, from {@link System#nanoTime()}.
+     * @return The duration in nanoseconds.
+     */
+    public long stop(long startNanos) {
+        long nanos = Math.max(0, System.nanoTime() - startNanos);
+        record(nanos);
+        return nanos;
+    }
+
+    /**
+     * @param quantile Quantile, in [0, 1].
+     * @return The duration under which {@code quantile} of the durations are, in
+     *         nanoseconds, 0 if none is recorded.
+     */
+    public long getValueAtQuantile(double quantile) {
+        checkArgument(quantile >= 0 && quantile <= 1, "The quantile must be in [0, 1]. Given: %s", quantile);
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                // The bucket bound may exceed the largest duration recorded in it
+                return Math.min(highestValueInBucket(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    @Override
+    public double getMeanMs() {
+        long count = getCount();
+        return count > 0 ? toMillis(getTotalNanos()) / count : 0;
+    }
+
+    @Override
+    public double getP50Ms() {
+        return toMillis(getValueAtQuantile(0.5));
+    }
+
+    @Override
+    public double getP99Ms() {
+        return toMillis(getValueAtQuantile(0.99));
+    }
+
+    @Override
+    public double getP999Ms() {
+        return toMillis(getValueAtQuantile(0.999));
+    }
+
+    @Override
+    public double getMaxMs() {
+        return toMillis(getMaxNanos());
+    }
+
+    @Override
+    public String toJson() {
+        return String.format(Locale.ROOT,
+                "{\"count\": %d, \"meanMs\": %s, \"p50Ms\": %s, \"p99Ms\": %s, \"p999Ms\": %s, \"maxMs\": %s}",
+                getCount(), Gauge.toJsonNumber(getMeanMs()), Gauge.toJsonNumber(getP50Ms()),
+                Gauge.toJsonNumber(getP99Ms()), Gauge.toJsonNumber(getP999Ms()), Gauge.toJsonNumber(getMaxMs()));
+    }
+
+    @Override
+    public void appendText(String name, StringBuilder text) {
+        String seconds = name + "_seconds";
+        appendQuantile(text, seconds, "0.5", getValueAtQuantile(0.5));
+        appendQuantile(text, seconds, "0.99", getValueAtQuantile(0.99));
+        appendQuantile(text, seconds, "0.999", getValueAtQuantile(0.999));
+        text.append(seconds).append("_max ").append(Gauge.toTextNumber(toSeconds(getMaxNanos()))).append('\n');
+        text.append(seconds).append("_sum ").append(Gauge.toTextNumber(toSeconds(getTotalNanos()))).append('\n');
+        text.append(seconds).append("_count ").append(getCount()).append('\n');
+    }
+
+    static int bucketIndex(long nanos) {
+        if (nanos < 2 * SUB_BUCKET_COUNT) {
+            return (int) nanos;
+        }
+        // Keep the SUB_BUCKET_BITS bits following the highest one bit
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos)) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) ((nanos >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    static long highestValueInBucket(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private static void appendQuantile(StringBuilder text, String name, String quantile, long nanos) {
+        text.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                .append(Gauge.toTextNumber(toSeconds(nanos))).append('\n');
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static double toSeconds(long nanos) {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+}
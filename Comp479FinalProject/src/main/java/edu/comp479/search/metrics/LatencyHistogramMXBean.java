@@ -0,0 +1,19 @@
+package edu.comp479.search.metrics;
+
+/**
+ * Percentiles of a {@link LatencyHistogram} exported through JMX, in
+ * milliseconds.
+ */
+public interface LatencyHistogramMXBean {
+    public long getCount();
+
+    public double getMeanMs();
+
+    public double getP50Ms();
+
+    public double getP99Ms();
+
+    public double getP999Ms();
+
+    public double getMaxMs();
+}
@@ -0,0 +1,202 @@
+package edu.comp479.search.metrics;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Named metrics of a process, created on their first use and read together as a
+ * JSON report.
+ *
+ * <p>
+ * The names are dotted paths, such as {@code spimi.blocks}, the report lists
+ * them in alphabetical order. A name is bound to the type of its first metric.
+ * The metrics can be recorded by several threads.
+ */
+public class MetricsRegistry {
+    private final Map<String, IMetric> metrics = new ConcurrentSkipListMap<>();
+
+    public MetricsRegistry() {
+    }
+
+    public Counter counter(String name) {
+        return getOrCreate(name, Counter.class, Counter::new);
+    }
+
+    public Timer timer(String name) {
+        return getOrCreate(name, Timer.class, Timer::new);
+    }
+
+    public HighWaterMark highWaterMark(String name) {
+        return getOrCreate(name, HighWaterMark.class, HighWaterMark::new);
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return getOrCreate(name, LatencyHistogram.class, LatencyHistogram::new);
+    }
+
+    /**
+     * Registers a value computed when the metrics are read, replacing the previous
+     * gauge of the same name.
+     *
+     * @param name  Name of the gauge.
+     * @param value Computes the value of the gauge.
+     */
+    public void gauge(String name, Supplier<? extends Number> value) {
+        checkNotNull(name);
+        IMetric previous = metrics.put(name, new Gauge(value));
+        checkArgument(previous == null || previous instanceof Gauge, "The metric %s is not a gauge: %s", name,
+                previous);
+    }
+
+    /**
+     * Registers the peak heap usage of the JVM, as {@code jvm.heap.peakUsedBytes},
+     * and the maximum heap size, as {@code jvm.heap.maxBytes}.
+     *
+     * <p>
+     * The peak is the sum of the peaks of the heap memory pools since their last
+     * reset, an upper bound of the heap used at once as the pools peak at
+     * different times.
+     *
+     * @param resetPeaks {@code true} to reset the peaks of the pools, measuring
+     *                   the peak from now on.
+     */
+    public void registerHeapGauges(boolean resetPeaks) {
+        if (resetPeaks) {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                    pool.resetPeakUsage();
+                }
+            }
+        }
+        gauge("jvm.heap.peakUsedBytes", () -> ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter((pool) -> pool.getType() == MemoryType.HEAP && pool.isValid())
+                .mapToLong((pool) -> pool.getPeakUsage().getUsed()).sum());
+        gauge("jvm.heap.maxBytes", () -> Runtime.getRuntime().maxMemory());
+    }
+
+    /**
+     * @return The heap in use now, in bytes.
+     */
+    public static long usedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * @return The metrics by name, in alphabetical order.
+     */
+    public Map<String, IMetric> getMetrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    /**
+     * @return The metrics as a JSON object, one metric per line.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        String separator = "\n";
+        for (Map.Entry<String, IMetric> entry : metrics.entrySet()) {
+            json.append(separator).append("  \"").append(escape(entry.getKey())).append("\": ")
+                    .append(entry.getValue().toJson());
+            separator = ",\n";
+        }
+        return json.append("\n}\n").toString();
+    }
+
+    /**
+     * @return The metrics in the text exposition format read by the monitoring
+     *         scrapers, the dots of the names replaced by underscores.
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, IMetric> entry : metrics.entrySet()) {
+            entry.getValue().appendText(toTextName(entry.getKey()), text);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Registers the latency histograms of the registry in the platform MBean
+     * server, as {@code <domain>:type=Latency,name=<name>}. The histograms already
+     * registered are skipped, the ones created afterward are not registered.
+     *
+     * @param domain Domain of the MBeans.
+     * @throws JMException If an MBean cannot be registered.
+     */
+    public void registerLatencyMBeans(String domain) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Map.Entry<String, IMetric> entry : metrics.entrySet()) {
+            if (entry.getValue() instanceof LatencyHistogram) {
+                ObjectName name = new ObjectName(domain, new Hashtable<>(
+                        ImmutableMap.of("type", "Latency", "name", ObjectName.quote(entry.getKey()))));
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(entry.getValue(), name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the metrics to a JSON file, replacing it.
+     *
+     * @param path Path of the file.
+     * @throws IOException
+     */
+    public void writeJson(Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        }
+    }
+
+    private <T extends IMetric> T getOrCreate(String name, Class<T> type, Supplier<T> factory) {
+        checkNotNull(name);
+        IMetric metric = metrics.computeIfAbsent(name, (key) -> factory.get());
+        checkArgument(type.isInstance(metric), "The metric %s is not a %s: %s", name, type.getSimpleName(), metric);
+        return type.cast(metric);
+    }
+
+    private static String toTextName(String name) {
+        StringBuilder textName = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':'
+                    || (c >= '0' && c <= '9' && i > 0);
+            textName.append(valid ? c : '_');
+        }
+        return textName.toString();
+    }
+
+    private static String escape(String name) {
+        StringBuilder escaped = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package edu.comp479.search.metrics;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+
+/**
+ * Latency of the stages of the queries served by the process.
+ *
+ * <p>
+ * The stages are timed where they run. The stages do not overlap: the scoring
+ * excludes the postings read while scoring, timed by the dictionary lookup and
+ * postings decode stages. The histograms are exported through JMX once
+ * {@link #registerMBeans()} is called, and as text by the
+ * {@link MetricsHttpServer} of a shard server.
+ */
+public final class QueryMetrics {
+    private static final Logger LOGGER = Logger.getLogger(QueryMetrics.class.getName());
+
+    /**
+     * Domain of the MBeans of the histograms.
+     */
+    public static final String JMX_DOMAIN = "edu.comp479.search";
+
+    private static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    public static final LatencyHistogram TOKENIZE = REGISTRY.histogram("query.tokenize");
+    public static final LatencyHistogram DICTIONARY_LOOKUP = REGISTRY.histogram("query.dictionaryLookup");
+    public static final LatencyHistogram POSTINGS_DECODE = REGISTRY.histogram("query.postingsDecode");
+    public static final LatencyHistogram SCORE = REGISTRY.histogram("query.score");
+    public static final LatencyHistogram SORT = REGISTRY.histogram("query.sort");
+    public static final LatencyHistogram URL_RESOLUTION = REGISTRY.histogram("query.urlResolution");
+    public static final LatencyHistogram TOTAL = REGISTRY.histogram("query.total");
+
+    private QueryMetrics() {
+        throw new UnsupportedOperationException("Static class.");
+    }
+
+    /**
+     * @return The registry of the histograms of the stages.
+     */
+    public static MetricsRegistry getRegistry() {
+        return REGISTRY;
+    }
+
+    /**
+     * Registers the histograms of the stages in the platform MBean server, once
+     * per process. A failure is logged, the queries are still timed.
+     */
+    public static void registerMBeans() {
+        try {
+            REGISTRY.registerLatencyMBeans(JMX_DOMAIN);
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Unable to export the query latencies through JMX.", e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package edu.comp479.search.metrics;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Durations of an operation: the number of operations timed, their total and
+ * their maximum.
+ *
+ * <p>
+ * <b>Usage:</b> {@code long start = System.nanoTime(); ...; timer.stop(start);}
+ */
+public final class Timer implements IMetric {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records the duration of an operation.
+     *
+     * @param nanos Duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        checkArgument(nanos >= 0, "A duration cannot be negative. Given: %s", nanos);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Records the duration of an operation started at {@code startNanos}.
+     *
+     * @param startNanos Start of the operation, from {@link System#nanoTime()}.
+     * @return The duration in nanoseconds.
+     */
+    public long stop(long startNanos) {
+        long nanos = Math.max(0, System.nanoTime() - startNanos);
+        record(nanos);
+        return nanos;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @return The total duration in seconds.
+     */
+    public double getTotalSeconds() {
+        return toSeconds(getTotalNanos());
+    }
+
+    @Override
+    public String toJson() {
+        long count = getCount();
+        long totalNanos = getTotalNanos();
+        return String.format(Locale.ROOT, "{\"count\": %d, \"totalMs\": %s, \"meanMs\": %s, \"maxMs\": %s}", count,
+                Gauge.toJsonNumber(toMillis(totalNanos)),
+                Gauge.toJsonNumber(count > 0 ? toMillis(totalNanos) / count : 0),
+                Gauge.toJsonNumber(toMillis(getMaxNanos())));
+    }
+
+    @Override
+    public void appendText(String name, StringBuilder text) {
+        String seconds = name + "_seconds";
+        text.append(seconds).append("_max ").append(Gauge.toTextNumber(toSeconds(getMaxNanos()))).append('\n');
+        text.append(seconds).append("_sum ").append(Gauge.toTextNumber(getTotalSeconds())).append('\n');
+        text.append(seconds).append("_count ").append(getCount()).append('\n');
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static double toSeconds(long nanos) {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,112 @@
+package edu.comp479.search.program;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.comp479.crawler.DocumentMetadataReader;
+import edu.comp479.search.indexer.SegmentedIndexWriter;
+import edu.comp479.search.indexer.TieredMergePolicy;
+import edu.comp479.search.indexer.file.DeletedDocuments;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+public class AppDelete implements IApp {
+    private static final Logger LOGGER = Logger.getLogger(AppDelete.class.getName());
+
+    public AppDelete() {
+    }
+
+    @Override
+    public void execute(Namespace args) {
+        String indexName = args.getString("indexName");
+        String indexDir = args.getString("indexDir");
+        String cacheDir = args.getString("cacheDir");
+        List<Long> docIds = args.getList("docIds");
+        List<String> urls = args.getList("urls");
+        boolean expunge = args.getBoolean("expunge");
+        int inputBufferCount = args.getInt("inputBufferCount");
+        int bufferSize = args.getInt("bufferSize");
+
+        Set<Long> deletedDocIds = new HashSet<>();
+        if (docIds != null) {
+            deletedDocIds.addAll(docIds);
+        }
+        if (urls != null && !urls.isEmpty()) {
+            deletedDocIds.addAll(resolveUrls(Paths.get(cacheDir), urls));
+        }
+
+        delete(indexName, Paths.get(indexDir), deletedDocIds);
+        if (expunge) {
+            expunge(indexName, Paths.get(indexDir), inputBufferCount, bufferSize);
+        }
+    }
+
+    /**
+     * Deletes documents from the index, they are no longer returned by the
+     * searches opened or refreshed afterward.
+     *
+     * @param indexName Name of the index.
+     * @param indexPath Directory of the index.
+     * @param docIds    Documents to delete.
+     */
+    public void delete(String indexName, Path indexPath, Set<Long> docIds) {
+        try {
+            long previousCount = DeletedDocuments.open(indexName, indexPath).getDeletedCount();
+            DeletedDocuments deletedDocuments = DeletedDocuments.delete(indexName, indexPath, docIds);
+            LOGGER.info(String.format("Documents deleted: %d, Deleted documents in the index: %d",
+                    deletedDocuments.getDeletedCount() - previousCount, deletedDocuments.getDeletedCount()));
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Unable to delete the documents from the index.", e);
+        }
+    }
+
+    /**
+     * Rewrites the segments of the index holding deleted documents without them.
+     * An index built in full becomes a segmented index.
+     *
+     * @param indexName        Name of the index.
+     * @param indexPath        Directory of the index.
+     * @param inputBufferCount Number of input buffers of the rewrites.
+     * @param bufferSize       Size of the buffers of the rewrites.
+     */
+    public void expunge(String indexName, Path indexPath, int inputBufferCount, int bufferSize) {
+        try (SegmentedIndexWriter segmentWriter = new SegmentedIndexWriter(indexName, indexPath,
+                new TieredMergePolicy(), inputBufferCount, bufferSize)) {
+            int rewriteCount = segmentWriter.expungeDeletes();
+            LOGGER.info(String.format("Rewriting %d segments without their deleted documents...", rewriteCount));
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Unable to rewrite the index without the deleted documents.", e);
+        }
+    }
+
+    private List<Long> resolveUrls(Path cachePath, List<String> urls) {
+        List<Long> docIds = new ArrayList<>();
+        try {
+            if (!DocumentMetadataReader.exists(cachePath)) {
+                LOGGER.warning("No document metadata file, the urls cannot be resolved: " + urls);
+                return docIds;
+            }
+            DocumentMetadataReader metadata = new DocumentMetadataReader(cachePath);
+            metadata.open();
+
+            Set<String> remainingUrls = new HashSet<>(urls);
+            for (long docId = 0; docId < metadata.getDocumentCount() && !remainingUrls.isEmpty(); docId++) {
+                if (remainingUrls.remove(metadata.getUrl(docId))) {
+                    docIds.add(docId);
+                }
+            }
+            if (!remainingUrls.isEmpty()) {
+                LOGGER.warning("Urls not found in the document cache: " + remainingUrls);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Unable to read the document metadata.", e);
+        }
+        return docIds;
+    }
+}
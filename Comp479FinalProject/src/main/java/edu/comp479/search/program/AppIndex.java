@@ -1,26 +1,60 @@
 package edu.comp479.search.program;
 
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+import java.util.function.ToLongFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.google.common.collect.ImmutableMap;
+
 import edu.comp479.crawler.CrawlerMain;
-import edu.comp479.crawler.DocDiskManager;
 import edu.comp479.crawler.Document;
-import edu.comp479.crawler.DocumentLight;
+import edu.comp479.crawler.DocumentMetadataReader;
+import edu.comp479.crawler.DocumentMetadataWriter;
+import edu.comp479.crawler.DocumentPipe;
+import edu.comp479.crawler.DocumentStoreFactory;
+import edu.comp479.crawler.IDocumentStore;
+import edu.comp479.search.index.IInvertedIndex;
+import edu.comp479.search.index.IndexFactory;
 import edu.comp479.search.indexer.Indexer;
-import edu.comp479.search.tokenizer.TokenStream;
+import edu.comp479.search.indexer.SegmentedIndexWriter;
+import edu.comp479.search.indexer.TieredMergePolicy;
+import edu.comp479.search.indexer.file.DeletedDocuments;
+import edu.comp479.search.indexer.file.IndexFileUtility;
+import edu.comp479.search.indexer.file.IndexReaderMemoryMapped;
+import edu.comp479.search.indexer.file.LengthNorms;
+import edu.comp479.search.indexer.file.SegmentManifest;
+import edu.comp479.search.tokenizer.PrefetchingDocumentTermStream;
+import edu.comp479.search.tokenizer.IDocumentTermStream;
+import edu.comp479.search.tokenizer.StreamingTokenStream;
 import net.sourceforge.argparse4j.inf.Namespace;
 
 public class AppIndex implements IApp {
     private static final Logger LOGGER = Logger.getLogger(AppIndex.class.getName());
 
+    public static final String METRICS_REPORT_EXTENSION = ".metrics.json";
+
+    // The indexes built hold the positions of their terms, for phrase queries
+    private boolean positions;
+
     public AppIndex() {
     }
 
+
     @Override
     public void execute(Namespace args) {
         String indexName = args.getString("indexName");
@@ -31,77 +65,426 @@ public class AppIndex implements IApp {
         int inputBufferCount = args.getInt("inputBufferCount");
         int bufferSize = args.getInt("bufferSize");
         int maxDocCount = args.getInt("docMaxCount");
+        int crawlerThreads = args.getInt("crawlerThreads");
+        long crawlerDelay = args.getLong("crawlerDelay");
+        boolean fromCache = args.getBoolean("fromCache");
+        boolean incremental = args.getBoolean("incremental");
+        int shardCount = args.getInt("shardCount");
+        Integer shard = args.getInt("shard");
+        positions = args.getBoolean("positions");
 
-        index(indexDir, cacheDir, constructDir, indexName, maxMemUseMb, inputBufferCount, bufferSize, maxDocCount);
+        if (shardCount > 1 || shard != null) {
+            if (!fromCache) {
+                LOGGER.severe("A sharded index is built from the document cache, use --from-cache.");
+                return;
+            }
+            indexShardsFromCache(indexDir, cacheDir, constructDir, indexName, maxMemUseMb, inputBufferCount,
+                    bufferSize, shardCount, shard);
+        } else if (fromCache) {
+            indexFromCache(indexDir, cacheDir, constructDir, indexName, maxMemUseMb, inputBufferCount, bufferSize);
+        } else if (incremental) {
+            indexIncremental(indexDir, cacheDir, constructDir, indexName, maxMemUseMb, inputBufferCount, bufferSize,
+                    maxDocCount, crawlerThreads, crawlerDelay);
+        } else {
+            index(indexDir, cacheDir, constructDir, indexName, maxMemUseMb, inputBufferCount, bufferSize,
+                    maxDocCount, crawlerThreads, crawlerDelay);
+        }
     }
 
-    public void index(String indexDir, String cacheDir, String constructDir, String indexName, int maxMemoryUsageMb,
-            int inputBufferCount, int bufferSize, int maxDocCount) {
-        CrawlerMain crawler = new CrawlerMain();
-
-        LOGGER.info("Executing the Crawler sub-module...");
+    /**
+     * Builds the shards of an index from the documents of an existing cache. The
+     * documents are partitioned in consecutive ranges of docIds, the shard
+     * {@code i} indexes the documents from {@link #shardFirstDocId(int, int, long)}
+     * as the index {@code <indexName>_shard<i>}, so that its norm file only
+     * covers its own range. Once all the shards are built, their length norms
+     * are computed again with the idf of the whole index.
+     * 
+     * @param shard Shard to build, or {@code null} to build all the shards one
+     *              after the other.
+     */
+    public void indexShardsFromCache(String indexDir, String cacheDir, String constructDir, String indexName,
+            int maxMemoryUsageMb, int inputBufferCount, int bufferSize, int shardCount, Integer shard) {
+        if (shardCount < 1 || (shard != null && (shard < 0 || shard >= shardCount))) {
+            LOGGER.severe(String.format("Invalid shard %s of %d shards.", shard, shardCount));
+            return;
+        }
+        Path cachePath = Paths.get(cacheDir);
+        if (!DocumentMetadataReader.exists(cachePath)) {
+            LOGGER.severe("No document metadata in the cache, unable to list the cached documents: " + cacheDir);
+            return;
+        }
+        long documentCount;
         try {
-            crawler.execute(maxDocCount);
+            DocumentMetadataReader metadata = new DocumentMetadataReader(cachePath);
+            metadata.open();
+            documentCount = metadata.getDocumentCount();
         } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Unable to run the crawler to completion, aborting.", e);
+            LOGGER.log(Level.SEVERE, "Unable to read the document metadata of the cache: " + cacheDir, e);
+            return;
+        }
+
+        int firstShard = shard != null ? shard : 0;
+        int endShard = shard != null ? shard + 1 : shardCount;
+        for (int i = firstShard; i < endShard; i++) {
+            long firstDocId = shardFirstDocId(i, shardCount, documentCount);
+            long endDocId = shardFirstDocId(i + 1, shardCount, documentCount);
+            LOGGER.info(String.format("Building the shard %d of %d, docIds [%d, %d)...", i + 1, shardCount,
+                    firstDocId, endDocId));
+            indexFromCache(indexDir, cacheDir, constructDir, shardIndexName(indexName, i), maxMemoryUsageMb,
+                    inputBufferCount, bufferSize, (docId) -> docId >= firstDocId && docId < endDocId);
+        }
+
+        Path indexPath = Paths.get(indexDir);
+        for (int i = 0; i < shardCount; i++) {
+            if (!IndexFileUtility.exists(shardIndexName(indexName, i), indexPath)) {
+                LOGGER.info("The length norms of the shards are computed once all the shards are built.");
+                return;
+            }
+        }
+        try {
+            writeShardNorms(indexPath, indexName, shardCount);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Unable to compute the length norms of the shards with the idf of the index.", e);
+        }
+    }
+
+    /**
+     * Computes the length norms of the shards of an index with the idf of the
+     * whole index. Each shard is built with the idf of its own documents.
+     *
+     * @param indexDir   Directory of the shards.
+     * @param indexName  Name of the sharded index.
+     * @param shardCount Number of shards.
+     * @throws IOException
+     */
+    public static void writeShardNorms(Path indexDir, String indexName, int shardCount) throws IOException {
+        List<IndexReaderMemoryMapped> readers = new ArrayList<>();
+        try {
+            List<IInvertedIndex> shards = new ArrayList<>();
+            long documentCount = 0;
+            for (int i = 0; i < shardCount; i++) {
+                IndexReaderMemoryMapped reader = new IndexReaderMemoryMapped(shardIndexName(indexName, i), indexDir);
+                readers.add(reader);
+                reader.open();
+                shards.add(new IndexFactory().getIndex(reader, ImmutableMap.of()));
+                documentCount += reader.getDocCount();
+            }
+            ToLongFunction<String> documentFrequency = (term) -> shards.stream()
+                    .mapToLong((shard) -> shard.getDocumentFrequency(term)).sum();
+
+            for (int i = 0; i < shardCount; i++) {
+                LOGGER.info(String.format("Computing the length norms of the shard %d of %d...", i + 1, shardCount));
+                LengthNorms.rewrite(shardIndexName(indexName, i), indexDir, documentCount, documentFrequency);
+            }
+        } finally {
+            for (IndexReaderMemoryMapped reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * @param shardIndex    Index of the shard, {@code shardCount} for the end of
+     *                      the last shard.
+     * @param shardCount    Number of shards.
+     * @param documentCount Number of documents of the whole index.
+     * @return The first docId of the range of documents of the shard.
+     */
+    public static long shardFirstDocId(int shardIndex, int shardCount, long documentCount) {
+        checkArgument(shardIndex >= 0 && shardIndex <= shardCount, "Invalid shard %s of %s shards.", shardIndex,
+                shardCount);
+        return documentCount * shardIndex / shardCount;
+    }
+
+    /**
+     * @param indexName  Name of the sharded index.
+     * @param shardIndex Index of the shard.
+     * @return The name of the index of the shard.
+     */
+    public static String shardIndexName(String indexName, int shardIndex) {
+        return String.format("%s_shard%d", indexName, shardIndex);
+    }
+
+    /**
+     * Rebuilds the index from the documents of an existing cache, without
+     * crawling.
+     */
+    public void indexFromCache(String indexDir, String cacheDir, String constructDir, String indexName,
+            int maxMemoryUsageMb, int inputBufferCount, int bufferSize) {
+        indexFromCache(indexDir, cacheDir, constructDir, indexName, maxMemoryUsageMb, inputBufferCount, bufferSize,
+                (docId) -> true);
+    }
+
+    /**
+     * Rebuilds the index from the documents of an existing cache selected by
+     * {@code documentFilter}, without crawling.
+     */
+    private void indexFromCache(String indexDir, String cacheDir, String constructDir, String indexName,
+            int maxMemoryUsageMb, int inputBufferCount, int bufferSize, LongPredicate documentFilter) {
+        Path cachePath = Paths.get(cacheDir);
+        Path indexPath = Paths.get(indexDir);
+        Path constructPath = Paths.get(constructDir);
+
+        if (!DocumentMetadataReader.exists(cachePath)) {
+            LOGGER.severe("No document metadata in the cache, unable to list the cached documents: " + cacheDir);
+            return;
+        }
+
+        List<Long> docIds = new ArrayList<>();
+        LOGGER.info("Indexing from the document cache...");
+        try (IDocumentStore documentStore = new DocumentStoreFactory().openStore(cachePath)) {
+            SegmentManifest.delete(indexName, indexPath);
+            DocumentMetadataReader metadata = new DocumentMetadataReader(cachePath);
+            metadata.open();
+            for (long docId = 0; docId < metadata.getDocumentCount(); docId++) {
+                if (metadata.getUrl(docId) != null && documentFilter.test(docId)) {
+                    docIds.add(docId);
+                }
+            }
+
+            try (PrefetchingDocumentTermStream documentStream = new PrefetchingDocumentTermStream(documentStore,
+                    docIds)) {
+                Indexer indexer = new Indexer(indexName, documentStream, constructPath, indexPath, maxMemoryUsageMb,
+                        inputBufferCount, bufferSize, bufferSize, positions);
+                indexer.execute();
+                writeMetricsReport(indexer, indexName, indexPath);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Unable to run the indexer to completion, aborting.", e);
             return;
         }
 
+        LOGGER.info(String.format("Index completed succesfully! IndexName: %s, Index Directory: %s, Documents: %d",
+                indexName, indexPath.toString(), docIds.size()));
+    }
+
+    public void index(String indexDir, String cacheDir, String constructDir, String indexName, int maxMemoryUsageMb,
+            int inputBufferCount, int bufferSize, int maxDocCount, int crawlerThreads, long crawlerDelayMs) {
         Path cachePath = Paths.get(cacheDir);
         Path indexPath = Paths.get(indexDir);
         Path constructPath = Paths.get(constructDir);
 
-        LOGGER.info("Dumping to document cache...");
-        DocDiskManager docDiskManager = null;
+        IDocumentStore documentStore = null;
+        DocumentMetadataWriter metadataWriter = null;
         try {
-            docDiskManager = new DocDiskManager(cachePath);
+            // The index is rebuilt in full with new docIds, the segments of previous incremental builds and the
+            // deleted documents are dropped
+            SegmentManifest.delete(indexName, indexPath);
+            DeletedDocuments.clear(indexName, indexPath);
+            documentStore = new DocumentStoreFactory().createStore(cachePath);
+            metadataWriter = new DocumentMetadataWriter(cachePath);
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Unable to initialize the document disk cache", e);
+            close(documentStore, "document cache");
+            return;
         }
-        List<Long> docIds = crawler.dumpToDisk(docDiskManager);
-
-        // Null the crawler to help GC
-        LOGGER.info("Trying to clear memory..");
-        crawler.clearDocuments();
-        crawler = null;
-        System.gc();
-
-        LOGGER.info("Preparing cache for indexing...");
-        // For partial restart
-//        List<String> files = null;
-//        try {
-//            files = Files.readAllLines(Paths.get("./indexLarge/docIds.txt"));
-//        } catch (IOException e1) {
-//            e1.printStackTrace();
-//            return;
-//        }
-//        List<Long> docIds = files.stream().map(Long::parseLong).sorted().collect(Collectors.toList());
-        TokenStream tokenStream = new TokenStream(docDiskManager, docIds);
-
-        Indexer indexer = new Indexer(indexName, tokenStream, constructPath, indexPath, maxMemoryUsageMb,
-                inputBufferCount, bufferSize, bufferSize);
+
+        // The crawler feeds the pipe while the indexer caches and inverts the documents
+        DocumentPipe pipe = new DocumentPipe();
+        Thread crawlerThread = new Thread(() -> crawl(pipe, maxDocCount, crawlerThreads, crawlerDelayMs),
+                "crawler");
+
+        LOGGER.info("Executing the Crawler sub-module...");
+        crawlerThread.start();
+
+        StreamingTokenStream tokenStream = new StreamingTokenStream(pipe, documentStore, metadataWriter);
+        Indexer indexer = new Indexer(indexName, (IDocumentTermStream) tokenStream, constructPath, indexPath,
+                maxMemoryUsageMb, inputBufferCount, bufferSize, bufferSize, positions);
 
         LOGGER.info("Indexing...");
         try {
             indexer.execute();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Unable to run the indexer to completion, aborting.", e);
+            pipe.abort();
+            return;
+        } finally {
+            joinCrawler(crawlerThread);
+            close(documentStore, "document cache");
+            close(metadataWriter, "document metadata");
+        }
+
+        writeMetricsReport(indexer, indexName, indexPath);
+        LOGGER.info(String.format("Index completed succesfully! IndexName: %s, Index Directory: %s, Documents: %d",
+                indexName, indexPath.toString(), tokenStream.getDocumentCount()));
+    }
+
+    /**
+     * Crawls the documents not in the cache yet or changed since and adds them to
+     * the index as a new segment, searchable as soon as it is written. The segments are then
+     * merged in the background.
+     * 
+     * <p>
+     * The crawl starts again from the first page. The pages already in the cache
+     * are fetched for their links and only indexed again if their content
+     * changed, their previous document is then deleted. The unchanged pages get
+     * no docId and do not count toward {@code maxDocCount}.
+     */
+    public void indexIncremental(String indexDir, String cacheDir, String constructDir, String indexName,
+            int maxMemoryUsageMb, int inputBufferCount, int bufferSize, int maxDocCount, int crawlerThreads,
+            long crawlerDelayMs) {
+        Path cachePath = Paths.get(cacheDir);
+        Path indexPath = Paths.get(indexDir);
+        Path constructPath = Paths.get(constructDir);
+
+        IDocumentStore documentStore = null;
+        DocumentMetadataWriter metadataWriter = null;
+        SegmentedIndexWriter segmentWriter = null;
+        Map<String, Long> knownDocIds = new HashMap<>();
+        long[] knownContentHashes = new long[0];
+        try {
+            // The new documents follow the ones already in the cache
+            if (DocumentMetadataReader.exists(cachePath)) {
+                DocumentMetadataReader metadata = new DocumentMetadataReader(cachePath);
+                metadata.open();
+                knownContentHashes = new long[(int) metadata.getDocumentCount()];
+                for (long docId = 0; docId < metadata.getDocumentCount(); docId++) {
+                    String url = metadata.getUrl(docId);
+                    if (url != null) {
+                        // A page indexed again is known by its last docId
+                        knownDocIds.put(url, docId);
+                        knownContentHashes[(int) docId] = metadata.getContentHash(docId);
+                    }
+                }
+                Document.setNextDocumentId(metadata.getDocumentCount());
+            }
+            documentStore = new DocumentStoreFactory().appendStore(cachePath);
+            metadataWriter = new DocumentMetadataWriter(cachePath, true);
+            segmentWriter = new SegmentedIndexWriter(indexName, indexPath, new TieredMergePolicy(),
+                    inputBufferCount, bufferSize);
         } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Unable to open the document cache and the index", e);
+            close(documentStore, "document cache");
+            close(metadataWriter, "document metadata");
+            return;
+        }
+
+        long[] contentHashes = knownContentHashes;
+        Function<String, Long> knownContentHash = (url) -> {
+            Long docId = knownDocIds.get(url);
+            return docId != null ? contentHashes[docId.intValue()] : null;
+        };
+        DocumentPipe pipe = new DocumentPipe();
+        Set<String> crawledUrls = ConcurrentHashMap.newKeySet();
+        Set<Long> replacedDocIds = ConcurrentHashMap.newKeySet();
+        Consumer<Document> newDocuments = (document) -> {
+            // Redirects can lead several urls to a same page
+            if (crawledUrls.add(document.getUrl())) {
+                Long replacedDocId = knownDocIds.get(document.getUrl());
+                if (replacedDocId != null) {
+                    replacedDocIds.add(replacedDocId);
+                }
+                pipe.accept(document);
+            }
+        };
+        Thread crawlerThread = new Thread(() -> crawl(pipe, newDocuments, knownContentHash, maxDocCount,
+                crawlerThreads, crawlerDelayMs), "crawler");
+
+        LOGGER.info("Executing the Crawler sub-module for the new documents...");
+        crawlerThread.start();
+
+        String segmentName = segmentWriter.newSegmentName();
+        StreamingTokenStream tokenStream = new StreamingTokenStream(pipe, documentStore, metadataWriter);
+        Indexer indexer = new Indexer(segmentName, (IDocumentTermStream) tokenStream, constructPath, indexPath,
+                maxMemoryUsageMb, inputBufferCount, bufferSize, bufferSize, positions);
+
+        LOGGER.info("Indexing the new documents...");
+        try {
+            indexer.execute();
+        } catch (IOException | RuntimeException e) {
             LOGGER.log(Level.SEVERE, "Unable to run the indexer to completion, aborting.", e);
+            pipe.abort();
+            close(segmentWriter, "segmented index");
             return;
+        } finally {
+            joinCrawler(crawlerThread);
+            close(documentStore, "document cache");
+            close(metadataWriter, "document metadata");
+        }
+
+        writeMetricsReport(indexer, indexName, indexPath);
+        try {
+            if (IndexFileUtility.exists(segmentName, indexPath)) {
+                segmentWriter.addSegment(segmentName);
+                LOGGER.info(String.format("New documents searchable! Segment: %s, Documents: %d", segmentName,
+                        tokenStream.getDocumentCount()));
+            } else {
+                LOGGER.info("No new documents found, the index is unchanged.");
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Unable to add the new segment to the index.", e);
+            replacedDocIds.clear();
+        }
+        // Deleted once their new version is searchable
+        if (!replacedDocIds.isEmpty()) {
+            try {
+                DeletedDocuments.delete(indexName, indexPath, replacedDocIds);
+                LOGGER.info("Changed documents indexed again: " + replacedDocIds.size());
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Unable to delete the previous version of the changed documents: "
+                        + replacedDocIds, e);
+            }
+        }
+
+        LOGGER.info("Waiting for the segment merges...");
+        close(segmentWriter, "segmented index");
+        LOGGER.info("Incremental index completed! IndexName: " + indexName + ", Segments: "
+                + segmentWriter.getManifest().getSegments().size());
+    }
+
+    private void crawl(DocumentPipe pipe, int maxDocCount, int crawlerThreads, long crawlerDelayMs) {
+        crawl(pipe, pipe, (url) -> null, maxDocCount, crawlerThreads, crawlerDelayMs);
+    }
+
+    /**
+     * Crawls the new and changed pages into the {@code sink}, then closes the
+     * pipe it feeds.
+     */
+    private void crawl(DocumentPipe pipe, Consumer<Document> sink, Function<String, Long> knownContentHash,
+            int maxDocCount, int crawlerThreads, long crawlerDelayMs) {
+        CrawlerMain crawler = new CrawlerMain();
+        try {
+            int documentCount = crawler.crawl(maxDocCount, crawlerThreads, crawlerDelayMs, knownContentHash, sink);
+            LOGGER.info("Crawler completed. Documents retrieved: " + documentCount);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Unable to run the crawler to completion, indexing the documents retrieved.", e);
+        } finally {
+            pipe.close();
         }
+    }
 
-        LOGGER.info(String.format("Index completed succesfully! IndexName: %s, Index Directory: %s", indexName,
-                indexPath.toString()));
+    /**
+     * Writes the metrics of a build next to the index, as
+     * {@code <indexName>}{@value #METRICS_REPORT_EXTENSION}, replacing the report
+     * of the previous build.
+     */
+    private void writeMetricsReport(Indexer indexer, String indexName, Path indexPath) {
+        Path reportPath = indexPath.resolve(indexName + METRICS_REPORT_EXTENSION);
+        try {
+            indexer.getMetrics().writeJson(reportPath);
+            LOGGER.info("Build metrics written to: " + reportPath);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to write the build metrics.", e);
+        }
+    }
 
-        LOGGER.info("Creating light cache...");
-        createLightCacheForRetrieval(docDiskManager, docIds);
-        LOGGER.info("Light URL cache created.");
+    private void close(Closeable closeable, String description) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error when closing the " + description + ".", e);
+        }
     }
 
-    private void createLightCacheForRetrieval(DocDiskManager docDiskManager, List<Long> docIds) {
-        for (long docId : docIds) {
-            Document docOriginal = docDiskManager.readFromDisk(docId);
-            DocumentLight light = new DocumentLight(docOriginal);
-            docDiskManager.writeToDisk(light);
+    private void joinCrawler(Thread crawlerThread) {
+        try {
+            crawlerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warning("Interrupted while waiting for the crawler to stop.");
         }
     }
 
@@ -1,6 +1,7 @@
 package edu.comp479.search.program;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
@@ -9,15 +10,27 @@ import java.util.Scanner;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import edu.comp479.crawler.DocDiskManager;
 import edu.comp479.crawler.Document;
 import edu.comp479.crawler.DocumentLight;
+import edu.comp479.crawler.DocumentMetadataReader;
+import edu.comp479.crawler.DocumentStoreFactory;
+import edu.comp479.crawler.IDocumentStore;
 import edu.comp479.ranking.RankEngine;
+import edu.comp479.search.index.FilteredInvertedIndex;
 import edu.comp479.search.index.IInvertedIndex;
 import edu.comp479.search.index.IndexFactory;
+import edu.comp479.search.index.IndexWarmer;
+import edu.comp479.search.index.MultiSegmentInvertedIndex;
+import edu.comp479.search.index.RestrictedInvertedIndex;
 import edu.comp479.search.indexer.file.IndexReaderMemoryMapped;
+import edu.comp479.search.indexer.file.SegmentManifest;
+import edu.comp479.search.metrics.QueryMetrics;
+import edu.comp479.search.query.ConjunctiveQueryEngine;
+import edu.comp479.search.query.Query;
+import edu.comp479.search.query.QueryParser;
+import edu.comp479.search.shard.ScoredDocument;
+import edu.comp479.search.shard.ShardCoordinator;
 import edu.comp479.search.tokenizer.TokenizerNormalize;
-import edu.comp479.search.util.SentimentDictionaryBuilder;
 import net.sourceforge.argparse4j.inf.Namespace;
 
 import static java.lang.System.out;
@@ -25,15 +38,25 @@ import static java.lang.System.out;
 public class AppSearch implements IApp {
     private static final Logger LOGGER = Logger.getLogger(AppSearch.class.getName());
 
+    /**
+     * Number of results gathered from the shards without a result limit.
+     */
+    public static final int DEFAULT_SHARD_RESULT_COUNT = 100;
+
     private IndexReaderMemoryMapped indexReader;
+    private MultiSegmentInvertedIndex segmentedIndex;
+    private FilteredInvertedIndex filteredIndex;
     private IInvertedIndex index;
-    private DocDiskManager cache;
-    private TokenizerNormalize tokenizer;
-    private Map<String, Integer> sentimentDict;
+    private IDocumentStore cache;
+    private DocumentMetadataReader metadata;
+    private String cacheDir;
+    private QueryParser queryParser;
 
     private Integer resultLimit;
     private boolean limitResult;
 
+    private ShardCoordinator shardCoordinator;
+
     public AppSearch() {
     }
 
@@ -43,41 +66,115 @@ public class AppSearch implements IApp {
         String indexDir = args.getString("indexDir");
         String cacheDir = args.getString("cacheDir");
         Integer resultLimit = args.getInt("resultLimit");
+        String shards = args.getString("shards");
+        Integer warmUpTermCount = args.getInt("warmUpTermCount");
+        String warmUpQueries = args.getString("warmUpQueries");
 
         limitResult = resultLimit != null;
         this.resultLimit = resultLimit;
 
-        init(indexName, indexDir, cacheDir);
+        if (shards != null) {
+            initShards(shards, cacheDir);
+        } else {
+            init(indexName, indexDir, cacheDir);
+            if (warmUpTermCount != null || warmUpQueries != null) {
+                warmUp(warmUpTermCount != null ? warmUpTermCount : 0,
+                        warmUpQueries != null ? Paths.get(warmUpQueries) : null);
+            }
+        }
         runLoop();
         closeIndex();
     }
 
     public void init(String indexName, String indexDir, String cacheDir) {
         LOGGER.info("Initializing the index for retrieval.");
+        this.cacheDir = cacheDir;
         try {
-            indexReader = new IndexReaderMemoryMapped(indexName, Paths.get(indexDir));
-            indexReader.open();
             IndexFactory indexFactory = new IndexFactory();
-            index = indexFactory.getIndex(indexReader);
-            cache = new DocDiskManager(Paths.get(cacheDir));
-            tokenizer = new TokenizerNormalize();
-            sentimentDict = new SentimentDictionaryBuilder().loadSentimentDictionary();
+            if (SegmentManifest.exists(indexName, Paths.get(indexDir))) {
+                LOGGER.info("Opening the segments of the index, new segments are searched as they are added.");
+                segmentedIndex = indexFactory.getSegmentedIndex(indexName, Paths.get(indexDir));
+                index = segmentedIndex;
+            } else {
+                indexReader = new IndexReaderMemoryMapped(indexName, Paths.get(indexDir));
+                indexReader.open();
+                index = indexFactory.getIndex(indexReader);
+            }
+            filteredIndex = new FilteredInvertedIndex(index, indexName, Paths.get(indexDir));
+            index = filteredIndex;
+            cache = new DocumentStoreFactory().openStore(Paths.get(cacheDir));
+            openMetadata();
+            queryParser = new QueryParser(new TokenizerNormalize());
+            QueryMetrics.registerMBeans();
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "IO error when accessing the index", e);
             try {
-                indexReader.close();
+                if (indexReader != null) {
+                    indexReader.close();
+                }
             } catch (IOException e2) {
                 LOGGER.log(Level.WARNING, "Error when closing the index reader.", e2);
             }
         }
     }
 
+    /**
+     * Starts warming up the index opened in the background, the queries are
+     * searched meanwhile.
+     *
+     * @param topTermCount Number of most frequent terms to read the postings of.
+     * @param queryLog     File of past queries to read the postings of, one per
+     *                     line, {@code null} for none.
+     * @see IndexWarmer
+     */
+    public void warmUp(int topTermCount, Path queryLog) {
+        if (index != null) {
+            new IndexWarmer(index, topTermCount, queryLog).start();
+        }
+    }
+
+    /**
+     * Connects to the shard servers of a sharded index.
+     * 
+     * @param shards   Addresses of the shard servers, as
+     *                 {@code host:port,host:port}.
+     * @param cacheDir Directory of the document cache of all the shards.
+     */
+    public void initShards(String shards, String cacheDir) {
+        LOGGER.info("Connecting to the shards of the index: " + shards);
+        this.cacheDir = cacheDir;
+        try {
+            shardCoordinator = new ShardCoordinator(ShardCoordinator.parseAddresses(shards));
+            cache = new DocumentStoreFactory().openStore(Paths.get(cacheDir));
+            openMetadata();
+            queryParser = new QueryParser(new TokenizerNormalize());
+            QueryMetrics.registerMBeans();
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Unable to connect to the shards", e);
+        }
+    }
+
     public void closeIndex() {
+        if (shardCoordinator != null) {
+            shardCoordinator.close();
+            shardCoordinator = null;
+        }
         try {
-            indexReader.close();
+            if (indexReader != null) {
+                indexReader.close();
+            }
+            if (segmentedIndex != null) {
+                segmentedIndex.close();
+            }
+            if (cache != null) {
+                cache.close();
+            }
             index = null;
             indexReader = null;
+            segmentedIndex = null;
+            filteredIndex = null;
             cache = null;
+            metadata = null;
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Error when closing the index memory map", e);
         }
@@ -126,11 +223,12 @@ public class AppSearch implements IApp {
                 continue;
             }
             Document doc = cache.readFromDisk(docId);
-            if (doc == null) {
-                DocumentLight lightDoc = cache.readLightFromDisk(docId);
-                out.println("URL: " + lightDoc.getUrl());
+            if (doc != null) {
+                out.println("URL: " + doc.getUrl());
+                continue;
             }
-            out.println("URL: " + doc.getUrl());
+            DocumentLight lightDoc = cache.readLightFromDisk(docId);
+            out.println("URL: " + (lightDoc != null ? lightDoc.getUrl() : "not found"));
         }
     }
 
@@ -141,15 +239,47 @@ public class AppSearch implements IApp {
      * @throws IOException
      */
     public void search(String rawQuery) throws IOException {
-        List<String> queryTokens = tokenizer.analyze(rawQuery);
+        long start = System.nanoTime();
+        try {
+            if (shardCoordinator != null) {
+                searchShards(rawQuery);
+            } else {
+                searchIndex(rawQuery);
+            }
+        } finally {
+            QueryMetrics.TOTAL.stop(start);
+        }
+    }
+
+    /**
+     * Executes the search for a given query on the local index.
+     * 
+     * <p>
+     * A query with a phrase in double quotes or the {@code AND} operator only
+     * ranks the documents matching all its clauses.
+     * 
+     * @param rawQuery The user query.
+     * @throws IOException
+     */
+    private void searchIndex(String rawQuery) throws IOException {
+        refreshIndex();
+        Query query = parse(rawQuery);
+        List<String> queryTokens = query.getTerms();
 
         LOGGER.info("Retrieving for tokens: " + queryTokens);
+        // Read from the dictionary of the index, which holds the sentiment values
         HashMap<String, Integer> sentimentMap = new HashMap<>();
         for (String term : queryTokens) {
-            sentimentMap.put(term, sentimentDict.getOrDefault(term, 0));
+            sentimentMap.put(term, index.getSentiment(term));
         }
 
-        RankEngine ren = new RankEngine(index);
+        IInvertedIndex rankedIndex = index;
+        if (query.isConjunctive()) {
+            long[] matches = new ConjunctiveQueryEngine(index).match(query);
+            LOGGER.info("Documents matching all the clauses of " + query + ": " + matches.length);
+            rankedIndex = new RestrictedInvertedIndex(index, matches);
+        }
+        RankEngine ren = new RankEngine(rankedIndex);
 
         Map<Integer, HashMap<Integer, Double>> sortedMap = ren.rankDocuments(queryTokens, sentimentMap);
 
@@ -165,7 +295,7 @@ public class AppSearch implements IApp {
                 Integer docId = entry1.getKey();
                 Double score = entry1.getValue();
 
-                String url = cache.readLightFromDisk(docId).getUrl();
+                String url = resolveUrl(docId);
                 if (url == null) {
                     LOGGER.info("Unable to read URL from cache.");
                     url = "no-url-err";
@@ -178,4 +308,90 @@ public class AppSearch implements IApp {
         }
         out.println(String.format("\nDisplayed %d results out of %d", resultDisplayed, sortedMap.size()));
     }
+
+    /**
+     * Executes the search for a given query on the shards of the index.
+     * 
+     * @param rawQuery The user query.
+     * @throws IOException If a shard fails to answer.
+     */
+    private void searchShards(String rawQuery) throws IOException {
+        Query query = parse(rawQuery);
+        if (query.isConjunctive()) {
+            LOGGER.info("The shards rank a bag of words, the phrases and AND of the query are ignored.");
+        }
+        List<String> queryTokens = query.getTerms();
+        LOGGER.info("Retrieving from " + shardCoordinator.getShardCount() + " shards for tokens: " + queryTokens);
+
+        int k = limitResult ? resultLimit : DEFAULT_SHARD_RESULT_COUNT;
+        List<ScoredDocument> results = shardCoordinator.search(queryTokens, k);
+        for (int rank = 0; rank < results.size(); rank++) {
+            ScoredDocument result = results.get(rank);
+            String url = resolveUrl(result.getDocId());
+            if (url == null) {
+                LOGGER.info("Unable to read URL from cache.");
+                url = "no-url-err";
+            }
+            out.printf("Rank (%d) : docId [%d] : score [%f] : url [%s])\n", rank + 1, result.getDocId(),
+                    result.getScore(), url);
+        }
+        out.println(String.format("\nDisplayed the %d best results", results.size()));
+    }
+
+    private Query parse(String rawQuery) {
+        long start = System.nanoTime();
+        Query query = queryParser.parse(rawQuery);
+        QueryMetrics.TOKENIZE.stop(start);
+        return query;
+    }
+
+    /**
+     * Opens the segments added to the index since the last query, and the
+     * metadata of their documents, and the documents deleted since.
+     */
+    private void refreshIndex() {
+        try {
+            if (segmentedIndex != null && segmentedIndex.refresh()) {
+                openMetadata();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to open the new index segments, searching the current ones.", e);
+        }
+        try {
+            if (filteredIndex != null) {
+                filteredIndex.refresh();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to read the deleted documents, filtering the previous ones.", e);
+        }
+    }
+
+    private void openMetadata() throws IOException {
+        if (DocumentMetadataReader.exists(Paths.get(cacheDir))) {
+            DocumentMetadataReader newMetadata = new DocumentMetadataReader(Paths.get(cacheDir));
+            newMetadata.open();
+            metadata = newMetadata;
+        } else {
+            LOGGER.info("No document metadata file, the urls are read from the document cache.");
+        }
+    }
+
+    /**
+     * Resolves the url of a result, from the mapped metadata file if available.
+     *
+     * @param docId DocId of the result.
+     * @return The url or {@code null} if not found.
+     */
+    private String resolveUrl(long docId) {
+        long start = System.nanoTime();
+        try {
+            if (metadata != null) {
+                return metadata.getUrl(docId);
+            }
+            DocumentLight lightDoc = cache.readLightFromDisk(docId);
+            return lightDoc != null ? lightDoc.getUrl() : null;
+        } finally {
+            QueryMetrics.URL_RESOLUTION.stop(start);
+        }
+    }
 }
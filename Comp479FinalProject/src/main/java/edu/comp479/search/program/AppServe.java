@@ -0,0 +1,128 @@
+package edu.comp479.search.program;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.comp479.search.index.FilteredInvertedIndex;
+import edu.comp479.search.index.IInvertedIndex;
+import edu.comp479.search.index.IndexFactory;
+import edu.comp479.search.index.IndexWarmer;
+import edu.comp479.search.index.MultiSegmentInvertedIndex;
+import edu.comp479.search.indexer.file.IndexReaderMemoryMapped;
+import edu.comp479.search.indexer.file.SegmentManifest;
+import edu.comp479.search.metrics.MetricsHttpServer;
+import edu.comp479.search.metrics.QueryMetrics;
+import edu.comp479.search.shard.ShardSearcher;
+import edu.comp479.search.shard.ShardServer;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import static java.lang.System.out;
+
+public class AppServe implements IApp {
+    private static final Logger LOGGER = Logger.getLogger(AppServe.class.getName());
+
+    public AppServe() {
+    }
+
+    @Override
+    public void execute(Namespace args) {
+        String indexName = args.getString("indexName");
+        String indexDir = args.getString("indexDir");
+        int port = args.getInt("port");
+        Integer metricsPort = args.getInt("metricsPort");
+        Integer warmUpTermCount = args.getInt("warmUpTermCount");
+        String warmUpQueries = args.getString("warmUpQueries");
+
+        serve(indexName, Paths.get(indexDir), port, metricsPort, warmUpTermCount,
+                warmUpQueries != null ? Paths.get(warmUpQueries) : null);
+    }
+
+    /**
+     * Serves the searches of the coordinator on a shard of the index until the
+     * process is stopped.
+     *
+     * @param indexName Name of the index of the shard.
+     * @param indexPath Directory of the index.
+     * @param port      Port to listen on, 0 for any free port.
+     * @see #serve(String, Path, int, Integer, Integer, Path)
+     */
+    public void serve(String indexName, Path indexPath, int port) {
+        serve(indexName, indexPath, port, null, null, null);
+    }
+
+    /**
+     * Serves the searches of the coordinator on a shard of the index until the
+     * process is stopped, and the latencies of the searches on
+     * {@code GET /metrics}.
+     *
+     * @param indexName       Name of the index of the shard.
+     * @param indexPath       Directory of the index.
+     * @param port            Port to listen on, 0 for any free port.
+     * @param metricsPort     Port to serve the metrics on, 0 for any free port,
+     *                        {@code null} to not serve them.
+     * @param warmUpTermCount Number of most frequent terms warmed up in the
+     *                        background once the shard listens, {@code null}
+     *                        for none.
+     * @param warmUpQueries   File of past queries warmed up in the background,
+     *                        one per line, {@code null} for none.
+     * @see IndexWarmer
+     */
+    public void serve(String indexName, Path indexPath, int port, Integer metricsPort, Integer warmUpTermCount,
+            Path warmUpQueries) {
+        Closeable indexResource = null;
+        MetricsHttpServer metricsServer = null;
+        try {
+            IndexFactory indexFactory = new IndexFactory();
+            IInvertedIndex index;
+            if (SegmentManifest.exists(indexName, indexPath)) {
+                MultiSegmentInvertedIndex segmentedIndex = indexFactory.getSegmentedIndex(indexName, indexPath);
+                indexResource = segmentedIndex;
+                index = segmentedIndex;
+            } else {
+                IndexReaderMemoryMapped indexReader = new IndexReaderMemoryMapped(indexName, indexPath);
+                indexResource = indexReader;
+                indexReader.open();
+                index = indexFactory.getIndex(indexReader);
+            }
+            FilteredInvertedIndex filteredIndex = new FilteredInvertedIndex(index, indexName, indexPath);
+
+            QueryMetrics.registerMBeans();
+            if (metricsPort != null) {
+                metricsServer = new MetricsHttpServer(QueryMetrics.getRegistry(), metricsPort);
+                metricsServer.start();
+                out.println(String.format("Metrics of shard %s served on port %d", indexName, metricsServer.getPort()));
+            }
+
+            try (ShardServer server = new ShardServer(new ShardSearcher(filteredIndex), port)) {
+                server.start();
+                // Read by the scripts and tests starting the shards on any free port
+                out.println(String.format("Shard %s listening on port %d", indexName, server.getPort()));
+                out.flush();
+                if (warmUpTermCount != null || warmUpQueries != null) {
+                    new IndexWarmer(filteredIndex, warmUpTermCount != null ? warmUpTermCount : 0, warmUpQueries).start();
+                }
+                server.join();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Unable to serve the shard " + indexName, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.info("Shard server interrupted, stopping.");
+        } finally {
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+            if (indexResource != null) {
+                try {
+                    indexResource.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Error when closing the index.", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package edu.comp479.search.program;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.comp479.search.indexer.file.IndexStatistics;
+import edu.comp479.search.indexer.file.SegmentInfo;
+import edu.comp479.search.indexer.file.SegmentManifest;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import static java.lang.System.out;
+
+public class AppStats implements IApp {
+    private static final Logger LOGGER = Logger.getLogger(AppStats.class.getName());
+
+    public AppStats() {
+    }
+
+    @Override
+    public void execute(Namespace args) {
+        String indexName = args.getString("indexName");
+        String indexDir = args.getString("indexDir");
+        int topCount = args.getInt("topCount");
+        int bufferSize = args.getInt("bufferSize");
+
+        printStatistics(indexName, Paths.get(indexDir), topCount, bufferSize);
+    }
+
+    /**
+     * Prints the statistics of an index, of each of its segments for a segmented
+     * index.
+     *
+     * @param indexName  Name of the index.
+     * @param indexPath  Directory of the index.
+     * @param topCount   Number of longest postings lists to print.
+     * @param bufferSize Size of the buffers reading the index, in bytes.
+     */
+    public void printStatistics(String indexName, Path indexPath, int topCount, int bufferSize) {
+        try {
+            if (SegmentManifest.exists(indexName, indexPath)) {
+                SegmentManifest manifest = SegmentManifest.read(indexName, indexPath);
+                out.println(String.format("Segmented index %s: %d segments", indexName,
+                        manifest.getSegments().size()));
+                for (SegmentInfo segment : manifest.getSegments()) {
+                    out.println();
+                    out.print(IndexStatistics.collect(segment.getName(), indexPath, topCount, bufferSize).toReport());
+                }
+            } else {
+                out.print(IndexStatistics.collect(indexName, indexPath, topCount, bufferSize).toReport());
+            }
+            out.flush();
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.SEVERE, "Unable to read the statistics of the index " + indexName, e);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package edu.comp479.search.program;
 
+import edu.comp479.crawler.CrawlerMain;
+import edu.comp479.search.index.IndexWarmer;
+import edu.comp479.search.indexer.file.IndexStatistics;
 import net.sourceforge.argparse4j.ArgumentParsers;
 import net.sourceforge.argparse4j.impl.Arguments;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
@@ -23,7 +26,9 @@ public final class Program {
                 .epilog("Use \"" + PROGRAM_NAME + " [command] --help\" for more information about a command.");
         Subparsers subparsers = parser.addSubparsers()
                 .description("Select the mode of operation of the IR System.")
-                .help("build constructs the inverted index.\nsearch executes the search query module.");
+                .help("build constructs the inverted index.\nsearch executes the search query module.\n"
+                        + "delete removes documents from the index.\nserve serves a shard of a sharded index.\n"
+                        + "stats prints the statistics of an index.");
 
         Subparser buildParser = subparsers.addParser("build").description("Builds the inverted index.");
         
@@ -41,6 +46,52 @@ public final class Program {
             .dest("docMaxCount")
             .setDefault(250);
         
+        buildParser.addArgument("--crawler-threads", "-t")
+            .help("Selects the number of concurrent fetchers used by the spider.")
+            .action(Arguments.store())
+            .metavar("FETCHERS")
+            .type(Integer.class)
+            .dest("crawlerThreads")
+            .setDefault(CrawlerMain.DEFAULT_FETCHER_COUNT);
+        
+        buildParser.addArgument("--crawler-delay")
+            .help("Selects the minimum delay (in milliseconds) between two requests of the spider to a same host.")
+            .action(Arguments.store())
+            .metavar("DELAY_MS")
+            .type(Long.class)
+            .dest("crawlerDelay")
+            .setDefault(CrawlerMain.DEFAULT_POLITENESS_DELAY_MS);
+        
+        buildParser.addArgument("--from-cache")
+            .help("Builds the index from the documents of the existing document cache instead of crawling.")
+            .action(Arguments.storeTrue())
+            .dest("fromCache");
+        
+        buildParser.addArgument("--incremental")
+            .help("Adds the documents not in the document cache yet to the index as a new segment, searchable right away, instead of rebuilding the index.")
+            .action(Arguments.storeTrue())
+            .dest("incremental");
+        
+        buildParser.addArgument("--positions")
+            .help("Writes the positions of the terms in a separate file of the index, for phrase queries. The other queries do not read them.")
+            .action(Arguments.storeTrue())
+            .dest("positions");
+        
+        buildParser.addArgument("--shard-count")
+            .help("Partitions the documents in consecutive docId ranges into SHARD_COUNT indexes named INDEX_NAME_shard<i>, each served by a shard server. Requires --from-cache.")
+            .action(Arguments.store())
+            .metavar("SHARD_COUNT")
+            .type(Integer.class)
+            .dest("shardCount")
+            .setDefault(1);
+        
+        buildParser.addArgument("--shard")
+            .help("Builds only the shard SHARD (from 0) of the sharded index, to build the shards in independent processes.")
+            .action(Arguments.store())
+            .metavar("SHARD")
+            .type(Integer.class)
+            .dest("shard");
+        
         buildParser.addArgument("--dest-dir", "-d")
                 .help("Selects the destination directory for the inverted index.")
                 .action(Arguments.store())
@@ -89,6 +140,67 @@ public final class Program {
         buildParser.setDefault("appObj", new AppIndex());
         
         
+        Subparser deleteParser = subparsers.addParser("delete")
+                .description("Deletes documents from a previously built index.");
+        
+        deleteParser.addArgument("indexName")
+                .help("Name of the index found in the directory.")
+                .action(Arguments.store())
+                .metavar("INDEX_NAME")
+                .dest("indexName");
+        
+        deleteParser.addArgument("docIds")
+                .help("Ids of the documents to delete.")
+                .action(Arguments.store())
+                .metavar("DOC_ID")
+                .type(Long.class)
+                .nargs("*")
+                .dest("docIds");
+        
+        deleteParser.addArgument("--url", "-u")
+                .help("Deletes the document of the given url, found in the document cache.")
+                .action(Arguments.append())
+                .metavar("URL")
+                .dest("urls");
+        
+        deleteParser.addArgument("--expunge")
+                .help("Rewrites the index files without the deleted documents.")
+                .action(Arguments.storeTrue())
+                .dest("expunge");
+        
+        deleteParser.addArgument("--src-dir", "-d")
+                .help("Selects the directory of the inverted index files")
+                .action(Arguments.store())
+                .metavar("DIR")
+                .dest("indexDir")
+                .setDefault("./index/");
+        
+        deleteParser.addArgument("--doc-cache-dir", "-c")
+                .help("Selects the directory of the document cache.")
+                .action(Arguments.store())
+                .metavar("DIR_CACHE")
+                .dest("cacheDir")
+                .setDefault("./cache/");
+        
+        deleteParser.addArgument("--construct-buff-count", "-b")
+                .help("Selects the number of input buffer to use when rewriting the index.")
+                .action(Arguments.store())
+                .metavar("INPUT_BUFF_COUNT")
+                .type(Integer.class)
+                .dest("inputBufferCount")
+                .setDefault(8);
+        
+        deleteParser.addArgument("--construct-buff-size", "-s")
+                .help("Selects the size of the buffers (in bytes) to use when rewriting the index.")
+                .action(Arguments.store())
+                .metavar("BUFF_SIZE")
+                .type(Integer.class)
+                .dest("bufferSize")
+                .setDefault(4096);
+        
+        deleteParser.setDefault("appObj", new AppDelete());
+        
+        
         Subparser searchParser = subparsers.addParser("search").description("Search in a previously built index.");
         searchParser.addArgument("--src-dir", "-d")
                 .help("Selects the directory of the inverted index files")
@@ -111,6 +223,28 @@ public final class Program {
                 .type(Integer.class)
                 .dest("resultLimit");
         
+        searchParser.addArgument("--shards")
+                .help("Searches a sharded index through its shard servers, given as host:port,host:port.")
+                .action(Arguments.store())
+                .metavar("SHARDS")
+                .dest("shards");
+        
+        searchParser.addArgument("--warm-up")
+                .help("Reads ahead in the background the norms and the postings of the TERM_COUNT most frequent terms, "
+                        + IndexWarmer.DEFAULT_TOP_TERM_COUNT + " if not given, so that the first queries do not wait for the disk.")
+                .action(Arguments.store())
+                .nargs("?")
+                .setConst(IndexWarmer.DEFAULT_TOP_TERM_COUNT)
+                .metavar("TERM_COUNT")
+                .type(Integer.class)
+                .dest("warmUpTermCount");
+        
+        searchParser.addArgument("--warm-up-queries")
+                .help("Reads ahead in the background the postings of the terms of the queries of the file, one per line.")
+                .action(Arguments.store())
+                .metavar("QUERY_FILE")
+                .dest("warmUpQueries");
+        
         searchParser.addArgument("indexName")
                 .help("Name of the index found in the directory to open.")
                 .action(Arguments.store())
@@ -120,6 +254,91 @@ public final class Program {
         
        searchParser.setDefault("appObj", new AppSearch()); 
         
+        
+        Subparser serveParser = subparsers.addParser("serve")
+                .description("Serves a shard of a sharded index to the search coordinator.");
+        
+        serveParser.addArgument("indexName")
+                .help("Name of the index of the shard found in the directory.")
+                .action(Arguments.store())
+                .metavar("INDEX_NAME")
+                .dest("indexName");
+        
+        serveParser.addArgument("--port", "-p")
+                .help("Selects the port to listen on, 0 for any free port.")
+                .action(Arguments.store())
+                .metavar("PORT")
+                .type(Integer.class)
+                .dest("port")
+                .setDefault(0);
+        
+        serveParser.addArgument("--metrics-port")
+                .help("Serves the query latencies of the shard on GET /metrics at this port, 0 for any free port. Disabled by default.")
+                .action(Arguments.store())
+                .metavar("PORT")
+                .type(Integer.class)
+                .dest("metricsPort");
+        
+        serveParser.addArgument("--warm-up")
+                .help("Reads ahead in the background the norms and the postings of the TERM_COUNT most frequent terms, "
+                        + IndexWarmer.DEFAULT_TOP_TERM_COUNT + " if not given, so that the first queries do not wait for the disk.")
+                .action(Arguments.store())
+                .nargs("?")
+                .setConst(IndexWarmer.DEFAULT_TOP_TERM_COUNT)
+                .metavar("TERM_COUNT")
+                .type(Integer.class)
+                .dest("warmUpTermCount");
+        
+        serveParser.addArgument("--warm-up-queries")
+                .help("Reads ahead in the background the postings of the terms of the queries of the file, one per line.")
+                .action(Arguments.store())
+                .metavar("QUERY_FILE")
+                .dest("warmUpQueries");
+        
+        serveParser.addArgument("--src-dir", "-d")
+                .help("Selects the directory of the inverted index files")
+                .action(Arguments.store())
+                .metavar("DIR")
+                .dest("indexDir")
+                .setDefault("./index/");
+        
+        serveParser.setDefault("appObj", new AppServe());
+        
+        
+        Subparser statsParser = subparsers.addParser("stats")
+                .description("Prints the statistics of an index: term and document counts, postings list lengths and bytes per posting.");
+        
+        statsParser.addArgument("indexName")
+                .help("Name of the index found in the directory.")
+                .action(Arguments.store())
+                .metavar("INDEX_NAME")
+                .dest("indexName");
+        
+        statsParser.addArgument("--src-dir", "-d")
+                .help("Selects the directory of the inverted index files")
+                .action(Arguments.store())
+                .metavar("DIR")
+                .dest("indexDir")
+                .setDefault("./index/");
+        
+        statsParser.addArgument("--top", "-n")
+                .help("Selects the number of longest postings lists to print.")
+                .action(Arguments.store())
+                .metavar("TOP_COUNT")
+                .type(Integer.class)
+                .dest("topCount")
+                .setDefault(IndexStatistics.DEFAULT_TOP_COUNT);
+        
+        statsParser.addArgument("--buff-size", "-s")
+                .help("Selects the size of the buffers (in bytes) streaming the index files.")
+                .action(Arguments.store())
+                .metavar("BUFF_SIZE")
+                .type(Integer.class)
+                .dest("bufferSize")
+                .setDefault(IndexStatistics.DEFAULT_BUFFER_SIZE);
+        
+        statsParser.setDefault("appObj", new AppStats());
+        
        
         try {
             Namespace namespace = parser.parseArgs(args);
@@ -0,0 +1,210 @@
+package edu.comp479.search.query;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+import edu.comp479.search.index.IInvertedIndex;
+import edu.comp479.search.index.structure.IIndexEntry;
+import edu.comp479.search.index.structure.Posting;
+
+/**
+ * Finds the documents matching all the clauses of a conjunctive {@link Query}.
+ *
+ * <p>
+ * The docIds of the clauses are intersected from the shortest list to the
+ * longest: each docId of the shorter list is searched in the longer one by
+ * galloping, doubling the step from the last docId found before a binary
+ * search, so that a short list skips most of a long one. A phrase reads the
+ * positions of its terms from the positional postings, only for its own terms;
+ * the other clauses never read positions. On an index without positions, a
+ * phrase matches the documents holding all its terms.
+ */
+public class ConjunctiveQueryEngine {
+    private static final Logger LOGGER = Logger.getLogger(ConjunctiveQueryEngine.class.getName());
+
+    private final IInvertedIndex index;
+
+    public ConjunctiveQueryEngine(IInvertedIndex index) {
+        this.index = checkNotNull(index);
+    }
+
+    /**
+     * @param query Query to match, all its clauses are required.
+     * @return The docIds matching all the clauses, ascending.
+     */
+    public long[] match(Query query) {
+        checkNotNull(query);
+        if (query.getClauses().isEmpty()) {
+            return new long[0];
+        }
+
+        List<long[]> clauseMatches = new ArrayList<>();
+        for (List<String> clause : query.getClauses()) {
+            long[] matches = clause.size() == 1 ? docIds(index.getPostings(clause.get(0)).getPostingsList())
+                    : matchPhrase(clause);
+            if (matches.length == 0) {
+                return matches;
+            }
+            clauseMatches.add(matches);
+        }
+        return intersect(clauseMatches);
+    }
+
+    /**
+     * @return The docIds of the documents holding the terms of the phrase at
+     *         consecutive positions, ascending.
+     */
+    private long[] matchPhrase(List<String> phrase) {
+        if (!index.hasPositions()) {
+            LOGGER.warning("The index has no positions, the phrase " + phrase + " matches all its terms.");
+            List<long[]> termMatches = new ArrayList<>();
+            for (String term : phrase) {
+                termMatches.add(docIds(index.getPostings(term).getPostingsList()));
+            }
+            return intersect(termMatches);
+        }
+
+        List<List<Posting>> postingsLists = new ArrayList<>();
+        List<long[]> termMatches = new ArrayList<>();
+        for (String term : phrase) {
+            IIndexEntry entry = index.getPositionalPostings(term);
+            if (entry.getDocumentFrequency() == 0) {
+                return new long[0];
+            }
+            postingsLists.add(entry.getPostingsList());
+            termMatches.add(docIds(entry.getPostingsList()));
+        }
+
+        long[] candidates = intersect(termMatches);
+        long[] matches = new long[candidates.length];
+        int matchCount = 0;
+        int[] cursors = new int[phrase.size()];
+        int[][] positions = new int[phrase.size()][];
+        for (long docId : candidates) {
+            for (int i = 0; i < phrase.size(); i++) {
+                List<Posting> postings = postingsLists.get(i);
+                cursors[i] = gallop(postings, cursors[i], docId);
+                positions[i] = postings.get(cursors[i]).getPositions();
+            }
+            if (containsPhrase(positions)) {
+                matches[matchCount++] = docId;
+            }
+        }
+        return Arrays.copyOf(matches, matchCount);
+    }
+
+    /**
+     * @param positions Positions of each term of the phrase in a document.
+     * @return {@code true} if the terms follow each other at some position.
+     */
+    static boolean containsPhrase(int[][] positions) {
+        for (int start : positions[0]) {
+            boolean found = true;
+            for (int i = 1; i < positions.length && found; i++) {
+                found = Arrays.binarySearch(positions[i], start + i) >= 0;
+            }
+            if (found) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Intersects sorted lists of docIds, from the shortest to the longest.
+     *
+     * @param docIdLists Lists of docIds, each ascending.
+     * @return The docIds in all the lists, ascending.
+     */
+    static long[] intersect(List<long[]> docIdLists) {
+        checkArgument(!docIdLists.isEmpty(), "There must be a list to intersect.");
+        List<long[]> sorted = new ArrayList<>(docIdLists);
+        sorted.sort(Comparator.comparingInt(docIds -> docIds.length));
+
+        long[] result = sorted.get(0);
+        for (int i = 1; i < sorted.size() && result.length > 0; i++) {
+            result = intersect(result, sorted.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * @param shorter Ascending docIds, searched in {@code longer}.
+     * @param longer  Ascending docIds.
+     * @return The docIds in both lists, ascending.
+     */
+    static long[] intersect(long[] shorter, long[] longer) {
+        long[] result = new long[Math.min(shorter.length, longer.length)];
+        int resultCount = 0;
+        int from = 0;
+        for (long docId : shorter) {
+            if (from >= longer.length) {
+                break;
+            }
+            int index = gallop(longer, from, docId);
+            if (index >= 0) {
+                result[resultCount++] = docId;
+                from = index + 1;
+            } else {
+                from = -index - 1;
+            }
+        }
+        return Arrays.copyOf(result, resultCount);
+    }
+
+    /**
+     * Searches a docId from a position of a sorted list, doubling the step until
+     * the docId is passed and then searching the last step by binary search.
+     *
+     * @param docIds Ascending docIds.
+     * @param from   First index to search.
+     * @param docId  DocId to find.
+     * @return The index of the docId, or {@code -(insertion point) - 1} as
+     *         {@link Arrays#binarySearch(long[], int, int, long)}.
+     */
+    static int gallop(long[] docIds, int from, long docId) {
+        int low = from;
+        int step = 1;
+        while (low + step < docIds.length && docIds[low + step] < docId) {
+            low += step;
+            step <<= 1;
+        }
+        return Arrays.binarySearch(docIds, low, Math.min(low + step + 1, docIds.length), docId);
+    }
+
+    /**
+     * @return The index of the posting of a docId known to be in the list, from
+     *         the given index.
+     */
+    private static int gallop(List<Posting> postings, int from, long docId) {
+        int low = from;
+        int step = 1;
+        while (low + step < postings.size() && postings.get(low + step).getDocId() < docId) {
+            low += step;
+            step <<= 1;
+        }
+        int high = Math.min(low + step, postings.size() - 1);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (postings.get(middle).getDocId() < docId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long[] docIds(List<Posting> postings) {
+        long[] docIds = new long[postings.size()];
+        for (int i = 0; i < docIds.length; i++) {
+            docIds[i] = postings.get(i).getDocId();
+        }
+        return docIds;
+    }
+}
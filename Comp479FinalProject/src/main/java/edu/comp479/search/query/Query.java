@@ -0,0 +1,64 @@
+package edu.comp479.search.query;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Analyzed query: its clauses, each a single term or a phrase of consecutive
+ * terms.
+ *
+ * <p>
+ * A conjunctive query only matches the documents matching all its clauses, a
+ * phrase matching the documents holding its terms at consecutive positions.
+ * Other queries are a bag of words, ranked over all their terms.
+ */
+public final class Query {
+    private final ImmutableList<ImmutableList<String>> clauses;
+    private final boolean conjunctive;
+
+    /**
+     * @param clauses     Clauses of the query, each a non empty list of terms.
+     * @param conjunctive If {@code true}, the documents must match every clause.
+     */
+    public Query(List<? extends List<String>> clauses, boolean conjunctive) {
+        checkNotNull(clauses);
+        ImmutableList.Builder<ImmutableList<String>> builder = ImmutableList.builder();
+        for (List<String> clause : clauses) {
+            checkArgument(!clause.isEmpty(), "A clause of the query cannot be empty.");
+            builder.add(ImmutableList.copyOf(clause));
+        }
+        this.clauses = builder.build();
+        this.conjunctive = conjunctive;
+    }
+
+    /**
+     * @return The clauses of the query, a phrase being a clause of several terms.
+     */
+    public ImmutableList<ImmutableList<String>> getClauses() {
+        return clauses;
+    }
+
+    /**
+     * @return {@code true} if the documents must match every clause.
+     */
+    public boolean isConjunctive() {
+        return conjunctive;
+    }
+
+    /**
+     * @return The terms of all the clauses, in order, as ranked.
+     */
+    public ImmutableList<String> getTerms() {
+        ImmutableList.Builder<String> terms = ImmutableList.builder();
+        clauses.forEach(terms::addAll);
+        return terms.build();
+    }
+
+    @Override
+    public String toString() {
+        return (conjunctive ? "AND" : "OR") + clauses;
+    }
+}
@@ -0,0 +1,63 @@
+package edu.comp479.search.query;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.comp479.search.tokenizer.TokenizerNormalize;
+
+/**
+ * Parses the raw queries of the users.
+ *
+ * <p>
+ * Text between double quotes is a phrase, the word {@code AND} in capitals
+ * between two clauses asks for the documents matching all of them. A query with
+ * a phrase or an {@code AND} is conjunctive, any other query is a bag of words.
+ * The clauses are analyzed as the documents were: a word split in several terms
+ * by the analyzer is a phrase, a stop word is dropped.
+ */
+public class QueryParser {
+    public static final String AND_OPERATOR = "AND";
+
+    private final TokenizerNormalize tokenizer;
+
+    public QueryParser(TokenizerNormalize tokenizer) {
+        this.tokenizer = checkNotNull(tokenizer);
+    }
+
+    /**
+     * @param rawQuery Query of the user.
+     * @return The analyzed query.
+     */
+    public Query parse(String rawQuery) {
+        checkNotNull(rawQuery);
+
+        List<List<String>> clauses = new ArrayList<>();
+        boolean conjunctive = false;
+        boolean inPhrase = false;
+        for (String part : rawQuery.split("\"", -1)) {
+            if (inPhrase) {
+                conjunctive = true;
+                addClause(clauses, part);
+            } else {
+                for (String word : part.trim().split("\\s+")) {
+                    if (word.equals(AND_OPERATOR)) {
+                        conjunctive = true;
+                    } else if (!word.isEmpty()) {
+                        addClause(clauses, word);
+                    }
+                }
+            }
+            inPhrase = !inPhrase;
+        }
+        return new Query(clauses, conjunctive);
+    }
+
+    private void addClause(List<List<String>> clauses, String text) {
+        List<String> terms = tokenizer.analyze(text);
+        if (!terms.isEmpty()) {
+            clauses.add(terms);
+        }
+    }
+}
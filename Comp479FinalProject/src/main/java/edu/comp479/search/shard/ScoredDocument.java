@@ -0,0 +1,47 @@
+package edu.comp479.search.shard;
+
+import java.util.Comparator;
+
+import edu.comp479.ranking.SortScores;
+
+/**
+ * Document of a search result with its score.
+ */
+public final class ScoredDocument {
+    /**
+     * Orders the documents by increasing score, then by docId.
+     */
+    public static final Comparator<ScoredDocument> BY_INCREASING_SCORE = Comparator
+            .comparingDouble(ScoredDocument::getScore).thenComparingLong(ScoredDocument::getDocId);
+
+    private final long docId;
+    private final double score;
+
+    public ScoredDocument(long docId, double score) {
+        this.docId = docId;
+        this.score = score;
+    }
+
+    /**
+     * @param querySentiment Average sentiment value of the query terms.
+     * @return The order of the ranked documents, the partial order of
+     *         {@link SortScores}: decreasing for a query of positive or neutral
+     *         sentiment, increasing for a negative one.
+     */
+    public static Comparator<ScoredDocument> rankOrder(double querySentiment) {
+        return querySentiment >= 0 ? BY_INCREASING_SCORE.reversed() : BY_INCREASING_SCORE;
+    }
+
+    public long getDocId() {
+        return docId;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ScoredDocument [docId=%s, score=%s]", docId, score);
+    }
+}
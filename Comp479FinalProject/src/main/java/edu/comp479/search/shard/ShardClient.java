@@ -0,0 +1,156 @@
+package edu.comp479.search.shard;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Connection of a {@link ShardCoordinator} to a {@link ShardServer}.
+ *
+ * <p>
+ * A request that fails or is aborted can leave a partial request or response
+ * on the connection: the client is then broken and closed, a new connection
+ * must be opened for the next requests.
+ *
+ * @see ShardServer for the protocol.
+ */
+public class ShardClient implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(ShardClient.class.getName());
+
+    public static final int TIMEOUT_MS = 30000;
+
+    private final InetSocketAddress address;
+    private final Socket socket;
+    private final DataInputStream input;
+    private final DataOutputStream output;
+    private volatile boolean broken;
+
+    /**
+     * Connects to a shard server.
+     *
+     * @param address Address of the server.
+     * @throws IOException If the server cannot be reached.
+     */
+    public ShardClient(InetSocketAddress address) throws IOException {
+        this.address = checkNotNull(address);
+        this.socket = new Socket();
+        try {
+            socket.connect(address.isUnresolved() ? new InetSocketAddress(address.getHostString(), address.getPort())
+                    : address, TIMEOUT_MS);
+            socket.setSoTimeout(TIMEOUT_MS);
+            socket.setTcpNoDelay(true);
+            this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param terms Terms of the query.
+     * @return The statistics of the shard for the terms.
+     * @throws IOException
+     */
+    public synchronized ShardStatistics getStatistics(List<String> terms) throws IOException {
+        checkUsable();
+        try {
+            output.writeInt(ShardServer.OP_STATISTICS);
+            output.writeInt(terms.size());
+            for (String term : terms) {
+                output.writeUTF(term);
+            }
+            output.flush();
+
+            long documentCount = input.readLong();
+            List<TermStatistics> termStatistics = new ArrayList<>(terms.size());
+            for (int i = 0; i < terms.size(); i++) {
+                termStatistics.add(new TermStatistics(input.readLong(), input.readLong(), input.readLong(),
+                        input.readInt(), input.readInt()));
+            }
+            return new ShardStatistics(documentCount, termStatistics);
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * @see ShardSearcher#search(Map, Map, double, int)
+     */
+    public synchronized List<ScoredDocument> search(Map<String, Double> termWeights,
+            Map<String, Integer> sentiments, double querySentiment, int k) throws IOException {
+        checkUsable();
+        try {
+            output.writeInt(ShardServer.OP_SEARCH);
+            output.writeDouble(querySentiment);
+            output.writeInt(k);
+            output.writeInt(termWeights.size());
+            for (Map.Entry<String, Double> termWeight : termWeights.entrySet()) {
+                output.writeUTF(termWeight.getKey());
+                output.writeDouble(termWeight.getValue());
+                output.writeInt(sentiments.getOrDefault(termWeight.getKey(), 0));
+            }
+            output.flush();
+
+            int resultCount = input.readInt();
+            List<ScoredDocument> results = new ArrayList<>(resultCount);
+            for (int i = 0; i < resultCount; i++) {
+                results.add(new ScoredDocument(input.readLong(), input.readDouble()));
+            }
+            return results;
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * @return {@code true} if a request failed or was aborted, or the client is
+     *         closed.
+     */
+    public boolean isBroken() {
+        return broken;
+    }
+
+    /**
+     * Closes the connection, failing the request in progress if any. Can be
+     * called while a request waits for its response.
+     */
+    public void abort() {
+        broken = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Error when closing the connection to the shard " + address, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        broken = true;
+        socket.close();
+    }
+
+    private void checkUsable() throws IOException {
+        if (broken) {
+            throw new IOException("The connection to the shard " + address + " is closed.");
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package edu.comp479.search.shard;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import edu.comp479.ranking.SortScores;
+
+/**
+ * Searches an index partitioned by docId into shards, each served by a
+ * {@link ShardServer}.
+ *
+ * <p>
+ * A query is sent to the shards in two rounds. The first gathers the number of
+ * documents of each shard and the statistics of the postings of the query
+ * terms, merged into the weights of the terms in the whole collection. The
+ * second sends these weights with the sentiment of the query so every shard
+ * scores its documents like {@link edu.comp479.ranking.RankEngine} over the
+ * whole collection, and returns its first {@code k} documents. The coordinator
+ * merges them into the first {@code k} of the collection, ranked like the same
+ * index unsharded.
+ *
+ * <p>
+ * A request failing on a shard fails the query, and the requests still in
+ * progress on the other shards are aborted. The connections of the failed and
+ * aborted requests are replaced by new connections on the next query.
+ */
+public class ShardCoordinator implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(ShardCoordinator.class.getName());
+
+    private final ImmutableList<InetSocketAddress> addresses;
+    // Guarded by this, a broken connection is replaced before the next request
+    private final ShardClient[] shards;
+    private final ExecutorService requestExecutor;
+
+    /**
+     * Connects to the shard servers.
+     *
+     * @param addresses Addresses of the shard servers.
+     * @throws IOException If a shard cannot be reached.
+     */
+    public ShardCoordinator(List<InetSocketAddress> addresses) throws IOException {
+        checkNotNull(addresses);
+        checkArgument(!addresses.isEmpty(), "At least one shard is required.");
+
+        List<ShardClient> shards = new ArrayList<>();
+        try {
+            for (InetSocketAddress address : addresses) {
+                shards.add(new ShardClient(address));
+            }
+        } catch (IOException e) {
+            for (ShardClient shard : shards) {
+                closeShard(shard);
+            }
+            throw e;
+        }
+        this.addresses = ImmutableList.copyOf(addresses);
+        this.shards = shards.toArray(new ShardClient[0]);
+        this.requestExecutor = Executors.newFixedThreadPool(shards.size(),
+                new ThreadFactoryBuilder().setNameFormat("shard-request-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Parses a list of shard addresses.
+     *
+     * @param addresses Addresses separated by commas, as {@code host:port}.
+     * @return The addresses, unresolved.
+     */
+    public static List<InetSocketAddress> parseAddresses(String addresses) {
+        List<InetSocketAddress> shardAddresses = new ArrayList<>();
+        for (String address : Splitter.on(',').trimResults().omitEmptyStrings().split(addresses)) {
+            HostAndPort hostAndPort = HostAndPort.fromString(address);
+            checkArgument(hostAndPort.hasPort(), "The shard address needs a port: %s", address);
+            shardAddresses.add(InetSocketAddress.createUnresolved(hostAndPort.getHost(), hostAndPort.getPort()));
+        }
+        return shardAddresses;
+    }
+
+    /**
+     * Searches the shards.
+     *
+     * @param queryTerms Terms of the query, a term can be repeated.
+     * @param k          Maximum number of documents to return.
+     * @return The {@code k} documents ranked first, ordered by
+     *         {@link ScoredDocument#rankOrder(double)} with their score rounded
+     *         like {@link SortScores}.
+     * @throws IOException If a shard fails to answer.
+     */
+    public List<ScoredDocument> search(List<String> queryTerms, int k) throws IOException {
+        checkNotNull(queryTerms);
+        checkArgument(k > 0, "At least one document must be returned. Given: %s", k);
+
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(queryTerms));
+        if (terms.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        long documentCount = 0;
+        TermStatistics[] termStatistics = new TermStatistics[terms.size()];
+        for (ShardStatistics statistics : scatter((shard) -> shard.getStatistics(terms))) {
+            documentCount += statistics.getDocumentCount();
+            for (int i = 0; i < terms.size(); i++) {
+                TermStatistics shardTermStatistics = statistics.getTermStatistics(i);
+                termStatistics[i] = termStatistics[i] == null ? shardTermStatistics
+                        : termStatistics[i].merge(shardTermStatistics);
+            }
+        }
+
+        // Built like the maps of CosineScore, the terms are sent in the order it scores them
+        Map<String, TermStatistics> collectionStatistics = new HashMap<>();
+        for (int i = 0; i < terms.size(); i++) {
+            collectionStatistics.put(terms.get(i), termStatistics[i]);
+        }
+        Map<String, Double> termWeights = new HashMap<>();
+        Map<String, Integer> sentiments = new HashMap<>();
+        for (Map.Entry<String, TermStatistics> entry : collectionStatistics.entrySet()) {
+            if (entry.getValue().getDocumentFrequency() > 0) {
+                termWeights.put(entry.getKey(), entry.getValue().getWeight(documentCount));
+            }
+            sentiments.put(entry.getKey(), entry.getValue().getSentiment());
+        }
+        double sentimentSum = 0;
+        for (String term : queryTerms) {
+            sentimentSum += sentiments.get(term);
+        }
+        double querySentiment = sentimentSum / queryTerms.size();
+
+        Comparator<ScoredDocument> order = ScoredDocument.rankOrder(querySentiment);
+        List<ScoredDocument> results = new ArrayList<>();
+        for (List<ScoredDocument> shardResults : scatter(
+                (shard) -> shard.search(termWeights, sentiments, querySentiment, k))) {
+            results.addAll(shardResults);
+        }
+        results.sort(order);
+
+        ImmutableList.Builder<ScoredDocument> rankedResults = ImmutableList.builder();
+        for (ScoredDocument result : results.subList(0, Math.min(k, results.size()))) {
+            rankedResults.add(new ScoredDocument(result.getDocId(),
+                    SortScores.round(result.getScore(), SortScores.ROUND_PLACES)));
+        }
+        return rankedResults.build();
+    }
+
+    /**
+     * @return The number of shards.
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public synchronized void close() {
+        requestExecutor.shutdownNow();
+        for (ShardClient shard : shards) {
+            closeShard(shard);
+        }
+    }
+
+    /**
+     * Sends a request to every shard in parallel and waits for their responses.
+     */
+    private <T> List<T> scatter(ShardRequest<T> request) throws IOException {
+        List<ShardClient> clients = connect();
+        List<Future<T>> futures = new ArrayList<>();
+        for (ShardClient shard : clients) {
+            Callable<T> call = () -> request.send(shard);
+            futures.add(requestExecutor.submit(call));
+        }
+
+        List<T> responses = new ArrayList<>();
+        try {
+            for (Future<T> future : futures) {
+                responses.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the shards.", e);
+        } catch (ExecutionException e) {
+            Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IOException(e.getCause());
+        } finally {
+            // A request still in progress would leave its response on its connection
+            for (int i = 0; i < futures.size(); i++) {
+                if (!futures.get(i).isDone()) {
+                    futures.get(i).cancel(true);
+                    clients.get(i).abort();
+                }
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Replaces the broken connections by new ones.
+     *
+     * @return The connections to the shards, in the order of their addresses.
+     * @throws IOException If a shard cannot be reached.
+     */
+    private synchronized List<ShardClient> connect() throws IOException {
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[i].isBroken()) {
+                LOGGER.info("Reconnecting to the shard " + addresses.get(i));
+                shards[i] = new ShardClient(addresses.get(i));
+            }
+        }
+        return ImmutableList.copyOf(shards);
+    }
+
+    private static void closeShard(ShardClient shard) {
+        try {
+            shard.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error when closing the connection to the shard " + shard.getAddress(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ShardRequest<T> {
+        T send(ShardClient shard) throws IOException;
+    }
+}
@@ -0,0 +1,156 @@
+package edu.comp479.search.shard;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.comp479.ranking.CosineScore;
+import edu.comp479.ranking.RankEngine;
+import edu.comp479.search.index.FilteredInvertedIndex;
+import edu.comp479.search.index.IInvertedIndex;
+import edu.comp479.search.index.structure.IIndexEntry;
+import edu.comp479.search.index.structure.Posting;
+import edu.comp479.search.metrics.QueryMetrics;
+
+/**
+ * Scores the documents of a shard for a query, with the statistics of the
+ * whole collection given by the coordinator.
+ *
+ * <p>
+ * The documents are scored by {@link CosineScore} with the weights of the query
+ * terms in the whole collection, and ordered like {@link RankEngine} orders
+ * them: a sharded index ranks its documents like the same index unsharded. The
+ * length norms of the shard are computed with the idf of the whole collection
+ * once all the shards are built.
+ *
+ * <p>
+ * The index is read by a single thread at a time. The documents deleted from a
+ * {@link FilteredInvertedIndex} are refreshed before the statistics of each
+ * query. The postings read for the statistics are scored by the search that
+ * follows, with the same deleted documents.
+ */
+public class ShardSearcher {
+    private static final Logger LOGGER = Logger.getLogger(ShardSearcher.class.getName());
+
+    private final IInvertedIndex index;
+    private final FilteredInvertedIndex filteredIndex;
+    // The postings read by the last statistics request
+    private Map<String, IIndexEntry> postings = new HashMap<>();
+
+    /**
+     * @param index Index of the shard.
+     */
+    public ShardSearcher(IInvertedIndex index) {
+        this(index, null);
+    }
+
+    /**
+     * @param index Index of the shard, hiding its deleted documents.
+     * @see #ShardSearcher(IInvertedIndex)
+     */
+    public ShardSearcher(FilteredInvertedIndex index) {
+        this(index, index);
+    }
+
+    private ShardSearcher(IInvertedIndex index, FilteredInvertedIndex filteredIndex) {
+        this.index = checkNotNull(index);
+        this.filteredIndex = filteredIndex;
+    }
+
+    /**
+     * @param terms Terms of the query.
+     * @return The statistics of the shard for the terms.
+     */
+    public synchronized ShardStatistics getStatistics(List<String> terms) {
+        checkNotNull(terms);
+        refreshDeletedDocuments();
+        postings = new HashMap<>();
+        List<TermStatistics> termStatistics = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            IIndexEntry entry = index.getPostings(term);
+            postings.put(term, entry);
+            termStatistics.add(TermStatistics.of(entry, index.getSentiment(term)));
+        }
+        return new ShardStatistics(index.getDocumentCount(), termStatistics);
+    }
+
+    /**
+     * Finds the {@code k} documents of the shard ranked first.
+     *
+     * @param termWeights    Weight of each query term in the whole collection, in
+     *                       the order the terms are scored.
+     * @param sentiments     Sentiment value of each query term.
+     * @param querySentiment Average sentiment value of the query terms.
+     * @param k              Maximum number of documents to return.
+     * @return The documents ordered by
+     *         {@link ScoredDocument#rankOrder(double)}.
+     */
+    public synchronized List<ScoredDocument> search(Map<String, Double> termWeights,
+            Map<String, Integer> sentiments, double querySentiment, int k) {
+        checkNotNull(termWeights);
+        checkNotNull(sentiments);
+        checkArgument(k > 0, "At least one document must be returned. Given: %s", k);
+
+        long searchStart = System.nanoTime();
+        long readNanos = 0;
+        Map<String, List<Integer>> dictionary = new HashMap<>();
+        for (String term : termWeights.keySet()) {
+            IIndexEntry entry = postings.get(term);
+            if (entry == null) {
+                long readStart = System.nanoTime();
+                entry = index.getPostings(term);
+                readNanos += System.nanoTime() - readStart;
+            }
+            List<Integer> docIds = new ArrayList<>(entry.getPostingsList().size());
+            for (Posting posting : entry.getPostingsList()) {
+                docIds.add((int) posting.getDocId());
+            }
+            dictionary.put(term, docIds);
+        }
+        postings = new HashMap<>();
+
+        // The postings read while scoring are timed by their own stages
+        Map<Integer, Double> scores = new CosineScore(index).calculateCosineScore(dictionary, termWeights,
+                sentiments);
+        QueryMetrics.SCORE.record(Math.max(0, System.nanoTime() - searchStart - readNanos));
+
+        long start = System.nanoTime();
+        Comparator<ScoredDocument> order = ScoredDocument.rankOrder(querySentiment);
+        PriorityQueue<ScoredDocument> topDocuments = new PriorityQueue<>(k + 1, order.reversed());
+        for (Map.Entry<Integer, Double> score : scores.entrySet()) {
+            topDocuments.add(new ScoredDocument(score.getKey(), score.getValue()));
+            if (topDocuments.size() > k) {
+                topDocuments.poll();
+            }
+        }
+
+        List<ScoredDocument> results = new ArrayList<>(topDocuments);
+        results.sort(order);
+        QueryMetrics.SORT.stop(start);
+        QueryMetrics.TOTAL.stop(searchStart);
+        return results;
+    }
+
+    /**
+     * Opens the documents deleted since the last query, the search goes on with
+     * the previous deletions if they cannot be read.
+     */
+    private void refreshDeletedDocuments() {
+        if (filteredIndex == null) {
+            return;
+        }
+        try {
+            filteredIndex.refresh();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to read the deleted documents, filtering the previous ones.", e);
+        }
+    }
+}
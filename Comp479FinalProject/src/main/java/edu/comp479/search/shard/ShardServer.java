@@ -0,0 +1,184 @@
+package edu.comp479.search.shard;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Serves the searches of a {@link ShardCoordinator} on a shard.
+ *
+ * <p>
+ * The server listens on the loopback interface. Each coordinator keeps a
+ * connection open, its requests are answered in order.
+ *
+ * <p>
+ * Request → StatisticsRequest | SearchRequest <br>
+ * StatisticsRequest → OP_STATISTICS, TermCount, Term<sup>TermCount</sup> <br>
+ * StatisticsResponse → DocCount, (DocFreq, TermFreqSum, LastDocId, LastTermFreq,
+ * Sentiment)<sup>TermCount</sup> <br>
+ * SearchRequest → OP_SEARCH, QuerySentiment, K, TermCount, (Term, TermWeight,
+ * Sentiment)<sup>TermCount</sup> <br>
+ * SearchResponse → ResultCount, (DocId, Score)<sup>ResultCount</sup> <br>
+ * OP_STATISTICS, OP_SEARCH, TermCount, K, LastTermFreq, Sentiment, ResultCount
+ * → Int <br>
+ * DocCount, DocFreq, TermFreqSum, LastDocId, DocId → Long <br>
+ * QuerySentiment, TermWeight, Score → Double <br>
+ * Term → UTF
+ */
+public class ShardServer implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(ShardServer.class.getName());
+
+    static final int OP_STATISTICS = 1;
+    static final int OP_SEARCH = 2;
+
+    private final ShardSearcher searcher;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connectionExecutor;
+    private final Thread acceptThread;
+
+    /**
+     * Binds the server, the requests are served once started.
+     *
+     * @param searcher Searcher of the shard.
+     * @param port     Port to listen on, 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public ShardServer(ShardSearcher searcher, int port) throws IOException {
+        this.searcher = checkNotNull(searcher);
+        checkArgument(port >= 0 && port <= 0xFFFF, "Invalid port: %s", port);
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.connectionExecutor = Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setNameFormat("shard-connection-%d").setDaemon(true).build());
+        this.acceptThread = new Thread(this::acceptConnections, "shard-server");
+    }
+
+    public void start() {
+        acceptThread.start();
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Waits until the server is closed.
+     *
+     * @throws InterruptedException
+     */
+    public void join() throws InterruptedException {
+        acceptThread.join();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connectionExecutor.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connectionExecutor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    LOGGER.log(Level.WARNING, "Unable to accept a connection.", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket connection = socket;
+                DataInputStream input = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+                DataOutputStream output = new DataOutputStream(
+                        new BufferedOutputStream(connection.getOutputStream()))) {
+            while (true) {
+                int operation;
+                try {
+                    operation = input.readInt();
+                } catch (EOFException e) {
+                    // The coordinator closed the connection
+                    return;
+                }
+                switch (operation) {
+                case OP_STATISTICS:
+                    serveStatistics(input, output);
+                    break;
+                case OP_SEARCH:
+                    serveSearch(input, output);
+                    break;
+                default:
+                    LOGGER.warning("Unknown operation, closing the connection: " + operation);
+                    return;
+                }
+                output.flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Error when serving a connection, closing it.", e);
+        }
+    }
+
+    private void serveStatistics(DataInputStream input, DataOutputStream output) throws IOException {
+        int termCount = input.readInt();
+        List<String> terms = new ArrayList<>(termCount);
+        for (int i = 0; i < termCount; i++) {
+            terms.add(input.readUTF());
+        }
+
+        ShardStatistics statistics = searcher.getStatistics(terms);
+        output.writeLong(statistics.getDocumentCount());
+        for (int i = 0; i < termCount; i++) {
+            TermStatistics termStatistics = statistics.getTermStatistics(i);
+            output.writeLong(termStatistics.getDocumentFrequency());
+            output.writeLong(termStatistics.getTermFreqSum());
+            output.writeLong(termStatistics.getLastDocId());
+            output.writeInt(termStatistics.getLastTermFreq());
+            output.writeInt(termStatistics.getSentiment());
+        }
+    }
+
+    private void serveSearch(DataInputStream input, DataOutputStream output) throws IOException {
+        double querySentiment = input.readDouble();
+        int k = input.readInt();
+        int termCount = input.readInt();
+        // The terms are scored in the order they are sent
+        Map<String, Double> termWeights = new LinkedHashMap<>();
+        Map<String, Integer> sentiments = new HashMap<>();
+        for (int i = 0; i < termCount; i++) {
+            String term = input.readUTF();
+            termWeights.put(term, input.readDouble());
+            sentiments.put(term, input.readInt());
+        }
+
+        List<ScoredDocument> results = searcher.search(termWeights, sentiments, querySentiment, k);
+        output.writeInt(results.size());
+        for (ScoredDocument result : results) {
+            output.writeLong(result.getDocId());
+            output.writeDouble(result.getScore());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package edu.comp479.search.shard;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Statistics of a shard for the terms of a query, merged over the shards to
+ * score every shard with the statistics of the whole collection.
+ */
+public final class ShardStatistics {
+    private final long documentCount;
+    private final ImmutableList<TermStatistics> termStatistics;
+
+    /**
+     * @param documentCount  Number of documents in the shard.
+     * @param termStatistics Statistics of each query term in the shard, in the
+     *                       order of the query terms.
+     */
+    public ShardStatistics(long documentCount, List<TermStatistics> termStatistics) {
+        checkArgument(documentCount >= 0, "The document count must be positive. Given: %s", documentCount);
+        this.documentCount = documentCount;
+        this.termStatistics = ImmutableList.copyOf(termStatistics);
+    }
+
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * @param termIndex Index of the term in the query terms.
+     * @return The statistics of the term in the shard.
+     */
+    public TermStatistics getTermStatistics(int termIndex) {
+        return termStatistics.get(termIndex);
+    }
+
+    public int getTermCount() {
+        return termStatistics.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ShardStatistics [documentCount=%s, termStatistics=%s]", documentCount,
+                termStatistics);
+    }
+}
@@ -0,0 +1,101 @@
+package edu.comp479.search.shard;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.List;
+
+import edu.comp479.ranking.CosineScore;
+import edu.comp479.search.index.structure.IIndexEntry;
+import edu.comp479.search.index.structure.Posting;
+
+/**
+ * Statistics of the postings of a query term in a shard, merged over the
+ * shards to weight the term like {@link CosineScore} over the whole collection.
+ */
+public final class TermStatistics {
+    private final long documentFrequency;
+    private final long termFreqSum;
+    private final long lastDocId;
+    private final int lastTermFreq;
+    private final int sentiment;
+
+    /**
+     * @param documentFrequency Number of documents containing the term.
+     * @param termFreqSum       Frequency of the term summed over its documents.
+     * @param lastDocId         Last document containing the term, -1 if none.
+     * @param lastTermFreq      Frequency of the term in its last document.
+     * @param sentiment         Sentiment value of the term.
+     */
+    public TermStatistics(long documentFrequency, long termFreqSum, long lastDocId, int lastTermFreq,
+            int sentiment) {
+        checkArgument(documentFrequency >= 0, "The document frequency must be positive. Given: %s",
+                documentFrequency);
+        this.documentFrequency = documentFrequency;
+        this.termFreqSum = termFreqSum;
+        this.lastDocId = lastDocId;
+        this.lastTermFreq = lastTermFreq;
+        this.sentiment = sentiment;
+    }
+
+    /**
+     * @param entry     Postings of the term, ordered by docId.
+     * @param sentiment Sentiment value of the term.
+     * @return The statistics of the postings.
+     */
+    public static TermStatistics of(IIndexEntry entry, int sentiment) {
+        List<Posting> postings = entry.getPostingsList();
+        long termFreqSum = 0;
+        for (Posting posting : postings) {
+            termFreqSum += posting.getTermFreq();
+        }
+        Posting last = postings.isEmpty() ? null : postings.get(postings.size() - 1);
+        return new TermStatistics(entry.getDocumentFrequency(), termFreqSum, last != null ? last.getDocId() : -1,
+                last != null ? last.getTermFreq() : 0, sentiment);
+    }
+
+    /**
+     * @param other Statistics of the term in another shard.
+     * @return The statistics of the term in both shards.
+     */
+    public TermStatistics merge(TermStatistics other) {
+        TermStatistics last = other.lastDocId > lastDocId ? other : this;
+        return new TermStatistics(documentFrequency + other.documentFrequency, termFreqSum + other.termFreqSum,
+                last.lastDocId, last.lastTermFreq, sentiment);
+    }
+
+    /**
+     * @param documentCount Number of documents of the collection.
+     * @return The weight of the term in the collection.
+     * @see CosineScore#getTermWeight(long, long, int, long)
+     */
+    public double getWeight(long documentCount) {
+        return CosineScore.getTermWeight(documentCount, documentFrequency, lastTermFreq, termFreqSum);
+    }
+
+    public long getDocumentFrequency() {
+        return documentFrequency;
+    }
+
+    public long getTermFreqSum() {
+        return termFreqSum;
+    }
+
+    public long getLastDocId() {
+        return lastDocId;
+    }
+
+    public int getLastTermFreq() {
+        return lastTermFreq;
+    }
+
+    public int getSentiment() {
+        return sentiment;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "TermStatistics [documentFrequency=%s, termFreqSum=%s, lastDocId=%s, lastTermFreq=%s, sentiment=%s]",
+                documentFrequency, termFreqSum, lastDocId, lastTermFreq, sentiment);
+    }
+}
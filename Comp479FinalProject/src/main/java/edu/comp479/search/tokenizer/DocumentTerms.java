@@ -0,0 +1,259 @@
+package edu.comp479.search.tokenizer;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Arrays;
+
+/**
+ * Terms of a document with their frequency in the document.
+ *
+ * <p>
+ * The occurrences of a term are counted once per document, a consumer handles
+ * each distinct term of the document once instead of each of its tokens. The
+ * sequence of the terms is kept as well, giving the positions of each term:
+ * the ordinal of its occurrences among the terms of the document.
+ */
+public final class DocumentTerms {
+    private final long docId;
+    private final String[] terms;
+    private final int[] termFreqs;
+    // Term index of each token of the document, in order
+    private final int[] sequence;
+
+    // Positions grouped by term, computed on the first request
+    private int[] positionStarts;
+    private int[] positions;
+
+    private DocumentTerms(long docId, String[] terms, int[] termFreqs, int[] sequence) {
+        this.docId = docId;
+        this.terms = terms;
+        this.termFreqs = termFreqs;
+        this.sequence = sequence;
+    }
+
+    /**
+     * @param docId Document Id of the document.
+     * @return A builder counting the terms of the document.
+     */
+    public static Builder builder(long docId) {
+        return new Builder(docId);
+    }
+
+    public long getDocId() {
+        return docId;
+    }
+
+    /**
+     * @return The number of distinct terms of the document.
+     */
+    public int size() {
+        return terms.length;
+    }
+
+    /**
+     * @param index Index of the term, in [0, {@link #size()}[.
+     * @return The term.
+     */
+    public String getTerm(int index) {
+        return terms[index];
+    }
+
+    /**
+     * @param index Index of the term, in [0, {@link #size()}[.
+     * @return The number of occurrences of the term in the document.
+     */
+    public int getTermFreq(int index) {
+        return termFreqs[index];
+    }
+
+    /**
+     * @param index Index of the term, in [0, {@link #size()}[.
+     * @return The positions of the occurrences of the term in the document,
+     *         ascending, from 0.
+     */
+    public int[] getPositions(int index) {
+        checkElementIndex(index, terms.length);
+        if (positions == null) {
+            groupPositions();
+        }
+        return Arrays.copyOfRange(positions, positionStarts[index], positionStarts[index + 1]);
+    }
+
+    private void groupPositions() {
+        int[] starts = new int[terms.length + 1];
+        for (int i = 0; i < terms.length; i++) {
+            starts[i + 1] = starts[i] + termFreqs[i];
+        }
+        int[] next = Arrays.copyOf(starts, terms.length);
+        int[] grouped = new int[sequence.length];
+        for (int position = 0; position < sequence.length; position++) {
+            grouped[next[sequence[position]]++] = position;
+        }
+        this.positionStarts = starts;
+        this.positions = grouped;
+    }
+
+    /**
+     * Counts the terms of a document.
+     * 
+     * <p>
+     * The terms are hashed on their characters, copied once per distinct term
+     * into a shared buffer. A {@link String} is only created per distinct term,
+     * when the {@link DocumentTerms} is built.
+     */
+    public static final class Builder implements ITermConsumer {
+        private static final int INITIAL_TERM_CAPACITY = 64;
+
+        private final long docId;
+
+        private char[] termChars = new char[INITIAL_TERM_CAPACITY * 8];
+        private int termCharsUsed;
+        private int[] termStarts = new int[INITIAL_TERM_CAPACITY];
+        private int[] termLengths = new int[INITIAL_TERM_CAPACITY];
+        private int[] termHashes = new int[INITIAL_TERM_CAPACITY];
+        private int[] termFreqs = new int[INITIAL_TERM_CAPACITY];
+        private int termCount;
+        private int[] sequence = new int[INITIAL_TERM_CAPACITY * 4];
+        private int tokenCount;
+
+        // Open addressing, term index + 1 per slot, 0 for an empty slot
+        private int[] slots = new int[INITIAL_TERM_CAPACITY * 2];
+        private char[] scratch = new char[32];
+
+        private Builder(long docId) {
+            checkArgument(docId >= 0, "DocId should not be less than 0. Given: %s", docId);
+            this.docId = docId;
+        }
+
+        /**
+         * Counts an occurrence of a term.
+         *
+         * @param term Term found in the document.
+         * @return This builder.
+         */
+        public Builder add(String term) {
+            checkNotNull(term);
+            int length = term.length();
+            if (scratch.length < length) {
+                scratch = new char[Math.max(length, scratch.length * 2)];
+            }
+            term.getChars(0, length, scratch, 0);
+            add(scratch, length);
+            return this;
+        }
+
+        /**
+         * Counts an occurrence of a term given as characters, copied only if it is
+         * the first occurrence of the term.
+         *
+         * @param buffer Characters of the term, from index 0.
+         * @param length Number of characters of the term.
+         */
+        @Override
+        public void accept(char[] buffer, int length) {
+            add(buffer, length);
+        }
+
+        /**
+         * @see Builder#accept(char[], int)
+         * @return This builder.
+         */
+        public Builder add(char[] buffer, int length) {
+            checkNotNull(buffer);
+            checkPositionIndex(length, buffer.length);
+
+            int hash = hash(buffer, length);
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            while (slots[slot] != 0) {
+                int termIndex = slots[slot] - 1;
+                if (termHashes[termIndex] == hash && termEquals(termIndex, buffer, length)) {
+                    termFreqs[termIndex]++;
+                    addToSequence(termIndex);
+                    return this;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            int termIndex = insertTerm(buffer, length, hash);
+            addToSequence(termIndex);
+            slots[slot] = termIndex + 1;
+            if (termCount * 2 > slots.length) {
+                rehash();
+            }
+            return this;
+        }
+
+        public DocumentTerms build() {
+            String[] terms = new String[termCount];
+            for (int i = 0; i < termCount; i++) {
+                terms[i] = new String(termChars, termStarts[i], termLengths[i]);
+            }
+            return new DocumentTerms(docId, terms, Arrays.copyOf(termFreqs, termCount),
+                    Arrays.copyOf(sequence, tokenCount));
+        }
+
+        private void addToSequence(int termIndex) {
+            if (tokenCount == sequence.length) {
+                sequence = Arrays.copyOf(sequence, tokenCount * 2);
+            }
+            sequence[tokenCount++] = termIndex;
+        }
+
+        private int insertTerm(char[] buffer, int length, int hash) {
+            if (termCount == termStarts.length) {
+                int capacity = termCount * 2;
+                termStarts = Arrays.copyOf(termStarts, capacity);
+                termLengths = Arrays.copyOf(termLengths, capacity);
+                termHashes = Arrays.copyOf(termHashes, capacity);
+                termFreqs = Arrays.copyOf(termFreqs, capacity);
+            }
+            if (termChars.length - termCharsUsed < length) {
+                termChars = Arrays.copyOf(termChars, Math.max(termChars.length * 2, termCharsUsed + length));
+            }
+
+            System.arraycopy(buffer, 0, termChars, termCharsUsed, length);
+            int termIndex = termCount++;
+            termStarts[termIndex] = termCharsUsed;
+            termLengths[termIndex] = length;
+            termHashes[termIndex] = hash;
+            termFreqs[termIndex] = 1;
+            termCharsUsed += length;
+            return termIndex;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int termIndex = 0; termIndex < termCount; termIndex++) {
+                int slot = termHashes[termIndex] & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = termIndex + 1;
+            }
+        }
+
+        private boolean termEquals(int termIndex, char[] buffer, int length) {
+            if (termLengths[termIndex] != length) {
+                return false;
+            }
+            int start = termStarts[termIndex];
+            for (int i = 0; i < length; i++) {
+                if (termChars[start + i] != buffer[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int hash(char[] buffer, int length) {
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + buffer[i];
+            }
+            // Spread the high bits, the slot is taken from the low bits
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
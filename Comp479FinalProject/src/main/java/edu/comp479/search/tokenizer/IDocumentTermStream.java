@@ -0,0 +1,10 @@
+package edu.comp479.search.tokenizer;
+
+/**
+ * Stream of documents, each given as the frequencies of its terms.
+ */
+public interface IDocumentTermStream {
+    public DocumentTerms nextDocument();
+
+    public boolean hasNextDocument();
+}
@@ -0,0 +1,20 @@
+package edu.comp479.search.tokenizer;
+
+/**
+ * Receives the terms of an analyzed text as they are produced, without a
+ * {@link String} per token.
+ */
+@FunctionalInterface
+public interface ITermConsumer {
+    /**
+     * Accepts the next term of the text.
+     * 
+     * <p>
+     * The buffer belongs to the analyzer and is overwritten by the next term, it
+     * must be copied if kept after this call.
+     * 
+     * @param buffer Characters of the term, from index 0.
+     * @param length Number of characters of the term.
+     */
+    public void accept(char[] buffer, int length);
+}
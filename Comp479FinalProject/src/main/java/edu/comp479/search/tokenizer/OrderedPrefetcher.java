@@ -0,0 +1,92 @@
+package edu.comp479.search.tokenizer;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Loads the documents of a docId list ahead of the consumer on a pool of
+ * workers, and hands them in list order.
+ *
+ * @param <T> Type of a loaded document.
+ */
+final class OrderedPrefetcher<T> implements Closeable {
+    private final LongFunction<T> loader;
+    private final ExecutorService workers;
+    private final int prefetchCount;
+
+    private final Iterator<Long> docIdsIter;
+    private final Deque<Future<T>> prefetched;
+
+    /**
+     * @param docIdList     DocIds of the documents to load, in hand-off order.
+     * @param loader        Loads a document, called concurrently by the workers.
+     * @param workerCount   Number of workers.
+     * @param prefetchCount Maximum number of documents loaded ahead.
+     */
+    OrderedPrefetcher(List<Long> docIdList, LongFunction<T> loader, int workerCount, int prefetchCount) {
+        checkNotNull(docIdList);
+        this.loader = checkNotNull(loader);
+        checkArgument(workerCount > 0, "The worker count must be greater than 0. Given: %s", workerCount);
+        checkArgument(prefetchCount > 0, "The prefetch count must be greater than 0. Given: %s", prefetchCount);
+
+        this.workers = Executors.newFixedThreadPool(workerCount,
+                new ThreadFactoryBuilder().setNameFormat("token-prefetch-%d").setDaemon(true).build());
+        this.prefetchCount = prefetchCount;
+        this.docIdsIter = docIdList.iterator();
+        this.prefetched = new ArrayDeque<>(prefetchCount);
+        refill();
+    }
+
+    /**
+     * Takes the next document, waiting for a worker if it is not loaded yet.
+     *
+     * @return The next document or {@code null} if no documents are left.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    T take() throws InterruptedException {
+        Future<T> next = prefetched.poll();
+        if (next == null) {
+            return null;
+        }
+
+        T document;
+        try {
+            document = next.get();
+        } catch (ExecutionException e) {
+            close();
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException("Unable to load the next document", e.getCause());
+        }
+        refill();
+        return document;
+    }
+
+    /**
+     * Stops the workers and drops the documents loaded ahead.
+     */
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        prefetched.clear();
+    }
+
+    private void refill() {
+        while (prefetched.size() < prefetchCount && docIdsIter.hasNext()) {
+            long docId = docIdsIter.next();
+            prefetched.add(workers.submit(() -> loader.apply(docId)));
+        }
+    }
+}
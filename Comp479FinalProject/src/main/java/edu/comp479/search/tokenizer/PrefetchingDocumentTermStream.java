@@ -0,0 +1,130 @@
+package edu.comp479.search.tokenizer;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+
+import edu.comp479.crawler.Document;
+import edu.comp479.crawler.IDocumentStore;
+
+/**
+ * Stream of the term frequencies of cached documents, read, analyzed and
+ * counted ahead of the consumer by a pool of workers.
+ *
+ * <p>
+ * Same as {@link PrefetchingTokenStream} but each document is handed as its
+ * {@link DocumentTerms}, the occurrences are counted by the workers. Documents
+ * without terms are skipped.
+ *
+ * <p>
+ * The store must be safe to use from several threads. The stream must be
+ * closed if it is not consumed to the end.
+ */
+public class PrefetchingDocumentTermStream implements IDocumentTermStream, Closeable {
+    private static final Logger LOGGER = Logger.getLogger(PrefetchingDocumentTermStream.class.getName());
+
+    private final IDocumentStore documentStore;
+    private final TokenizerNormalize tokenizer;
+    private final OrderedPrefetcher<DocumentTerms> prefetcher;
+
+    private DocumentTerms nextDocument;
+
+    /**
+     * Creates a new {@link PrefetchingDocumentTermStream} with a worker per
+     * available processor.
+     *
+     * @see PrefetchingDocumentTermStream#PrefetchingDocumentTermStream(IDocumentStore,
+     *      List, int, int)
+     */
+    public PrefetchingDocumentTermStream(IDocumentStore documentStore, List<Long> docIdList) {
+        this(documentStore, docIdList, Runtime.getRuntime().availableProcessors(),
+                PrefetchingTokenStream.DEFAULT_PREFETCH_COUNT);
+    }
+
+    /**
+     * Creates a new {@link PrefetchingDocumentTermStream}.
+     *
+     * @param documentStore Store to read the documents from.
+     * @param docIdList     DocIds of the documents to stream, in stream order.
+     * @param workerCount   Number of workers reading and tokenizing documents.
+     * @param prefetchCount Maximum number of documents read ahead.
+     */
+    public PrefetchingDocumentTermStream(IDocumentStore documentStore, List<Long> docIdList, int workerCount,
+            int prefetchCount) {
+        this.documentStore = checkNotNull(documentStore);
+        this.tokenizer = new TokenizerNormalize();
+        this.prefetcher = new OrderedPrefetcher<>(docIdList, this::readTerms, workerCount, prefetchCount);
+    }
+
+    @Override
+    /**
+     * Return the next document in this stream.
+     *
+     * @return The terms of the next document.
+     * @throws NoSuchElementException If no documents are left.
+     */
+    public DocumentTerms nextDocument() {
+        if (!hasNextDocument()) {
+            throw new NoSuchElementException("No Document left");
+        }
+        DocumentTerms document = nextDocument;
+        nextDocument = null;
+        return document;
+    }
+
+    @Override
+    /**
+     * Returns {@code true} if there is a new document in the stream, waits for
+     * the workers if the next document is not ready.
+     *
+     * @return {@code true} if a new document is available.
+     */
+    public boolean hasNextDocument() {
+        while (nextDocument == null) {
+            DocumentTerms document;
+            try {
+                document = prefetcher.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                LOGGER.warning("Interrupted while waiting for the next document, ending the stream.");
+                return false;
+            }
+            if (document == null) {
+                LOGGER.info("No more documents!");
+                close();
+                return false;
+            }
+            if (document.size() == 0) {
+                LOGGER.info("Empty Document Found - Skipping...  DocId: " + document.getDocId());
+                continue;
+            }
+            nextDocument = document;
+        }
+        return true;
+    }
+
+    /**
+     * Stops the workers and drops the documents read ahead.
+     */
+    @Override
+    public void close() {
+        prefetcher.close();
+    }
+
+    private DocumentTerms readTerms(long docId) {
+        DocumentTerms.Builder builder = DocumentTerms.builder(docId);
+        Document doc = documentStore.readFromDisk(docId);
+        if (doc == null) {
+            LOGGER.warning("Document missing from the cache - Skipping... DocId: " + docId);
+            return builder.build();
+        }
+
+        tokenizer.analyze(doc.getTitle(), builder);
+        tokenizer.analyze(doc.getBody(), builder);
+        return builder.build();
+    }
+}
@@ -0,0 +1,160 @@
+package edu.comp479.search.tokenizer;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+
+import edu.comp479.crawler.Document;
+import edu.comp479.crawler.IDocumentStore;
+
+/**
+ * Token stream over cached documents, read and analyzed ahead of the consumer
+ * by a pool of workers.
+ *
+ * <p>
+ * Up to {@code prefetchCount} documents following the current one are read
+ * from the store and tokenized concurrently. Their tokens are handed to the
+ * consumer in the order of the docId list, so the stream yields the same tokens
+ * as {@link TokenStream} while the reading and the analysis stay off the
+ * consumer's thread.
+ *
+ * <p>
+ * The store must be safe to use from several threads. The stream must be
+ * closed if it is not consumed to the end.
+ */
+public class PrefetchingTokenStream implements ITokenStream, Closeable {
+    private static final Logger LOGGER = Logger.getLogger(PrefetchingTokenStream.class.getName());
+
+    public static final int DEFAULT_PREFETCH_COUNT = 64;
+
+    private final IDocumentStore documentStore;
+    private final TokenizerNormalize tokenizer;
+    private final OrderedPrefetcher<DocumentTokens> prefetcher;
+
+    private long currentDocId;
+    private Iterator<String> tokenIter;
+
+    /**
+     * Creates a new {@link PrefetchingTokenStream} with a worker per available
+     * processor.
+     *
+     * @see PrefetchingTokenStream#PrefetchingTokenStream(IDocumentStore, List,
+     *      int, int)
+     */
+    public PrefetchingTokenStream(IDocumentStore documentStore, List<Long> docIdList) {
+        this(documentStore, docIdList, Runtime.getRuntime().availableProcessors(), DEFAULT_PREFETCH_COUNT);
+    }
+
+    /**
+     * Creates a new {@link PrefetchingTokenStream}.
+     *
+     * @param documentStore Store to read the documents from.
+     * @param docIdList     DocIds of the documents to stream, in stream order.
+     * @param workerCount   Number of workers reading and tokenizing documents.
+     * @param prefetchCount Maximum number of documents read ahead.
+     */
+    public PrefetchingTokenStream(IDocumentStore documentStore, List<Long> docIdList, int workerCount,
+            int prefetchCount) {
+        this.documentStore = checkNotNull(documentStore);
+        // The analyzer keeps its token streams per thread, a single one is shared
+        this.tokenizer = new TokenizerNormalize();
+        this.prefetcher = new OrderedPrefetcher<>(docIdList, this::readTokens, workerCount, prefetchCount);
+    }
+
+    @Override
+    /**
+     * Return the next token in this stream.
+     *
+     * @return The next token.
+     * @throws NoSuchElementException If no tokens are left.
+     */
+    public IToken next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No Token left");
+        }
+
+        return new Token(tokenIter.next(), currentDocId);
+    }
+
+    @Override
+    /**
+     * Returns {@code true} if there is a new token in the stream, waits for the
+     * workers if the next document is not ready.
+     *
+     * @return {@code true} if a new token is available.
+     */
+    public boolean hasNext() {
+        while (tokenIter == null || !tokenIter.hasNext()) {
+            if (!fetchNewTokens()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Stops the workers and drops the documents read ahead.
+     */
+    @Override
+    public void close() {
+        prefetcher.close();
+    }
+
+    /**
+     * Takes the tokens of the next document, in docId list order.
+     *
+     * @return {@code false} if no documents are left.
+     */
+    private boolean fetchNewTokens() {
+        DocumentTokens documentTokens;
+        try {
+            documentTokens = prefetcher.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            LOGGER.warning("Interrupted while waiting for the next document, ending the stream.");
+            return false;
+        }
+        if (documentTokens == null) {
+            LOGGER.info("No more documents! Current DocId: " + currentDocId);
+            close();
+            return false;
+        }
+
+        this.currentDocId = documentTokens.docId;
+        if (documentTokens.tokens.isEmpty()) {
+            LOGGER.info("Empty Document Found - Skipping...  DocId: " + currentDocId);
+        }
+        this.tokenIter = documentTokens.tokens.iterator();
+        return true;
+    }
+
+    private DocumentTokens readTokens(long docId) {
+        List<String> tokens = new ArrayList<>();
+        Document doc = documentStore.readFromDisk(docId);
+        if (doc == null) {
+            LOGGER.warning("Document missing from the cache - Skipping... DocId: " + docId);
+            return new DocumentTokens(docId, tokens);
+        }
+
+        tokenizer.analyzeAppendToList(doc.getTitle(), tokens);
+        tokenizer.analyzeAppendToList(doc.getBody(), tokens);
+        return new DocumentTokens(docId, tokens);
+    }
+
+    private static final class DocumentTokens {
+        private final long docId;
+        private final List<String> tokens;
+
+        DocumentTokens(long docId, List<String> tokens) {
+            this.docId = docId;
+            this.tokens = tokens;
+        }
+    }
+}
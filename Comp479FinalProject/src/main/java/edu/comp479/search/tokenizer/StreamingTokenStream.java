@@ -0,0 +1,212 @@
+package edu.comp479.search.tokenizer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.comp479.crawler.Document;
+import edu.comp479.crawler.DocumentLight;
+import edu.comp479.crawler.DocumentMetadataWriter;
+import edu.comp479.crawler.DocumentPipe;
+import edu.comp479.crawler.IDocumentStore;
+
+import static com.google.common.base.Preconditions.*;
+
+/**
+ * Token stream over the documents handed by the crawler through a
+ * {@link DocumentPipe}.
+ *
+ * <p>
+ * Each document taken from the pipe is written to the document cache (with its
+ * light descriptor and its columnar metadata) and tokenized, then released.
+ * The crawl, the cache and the inversion run concurrently and only the
+ * documents waiting in the pipe are held in memory.
+ *
+ * <p>
+ * The stream is consumed either token by token ({@link ITokenStream}) or
+ * document by document ({@link IDocumentTermStream}), not both.
+ */
+public class StreamingTokenStream implements ITokenStream, IDocumentTermStream {
+    private static final Logger LOGGER = Logger.getLogger(StreamingTokenStream.class.getName());
+
+    private final DocumentPipe pipe;
+    private final IDocumentStore documentStore;
+    private final DocumentMetadataWriter metadataWriter;
+    private final TokenizerNormalize tokenizer;
+
+    private long currentDocId;
+    private long documentCount;
+
+    private List<String> tokens;
+    private Iterator<String> tokenIter;
+    private DocumentTerms nextDocument;
+
+    /**
+     * @see StreamingTokenStream#StreamingTokenStream(DocumentPipe, IDocumentStore,
+     *      DocumentMetadataWriter)
+     */
+    public StreamingTokenStream(DocumentPipe pipe, IDocumentStore documentStore) {
+        this(pipe, documentStore, null);
+    }
+
+    /**
+     * Creates a new {@link StreamingTokenStream}.
+     *
+     * @param pipe           Pipe of the crawled documents.
+     * @param documentStore  Store caching the documents.
+     * @param metadataWriter Writer of the url and title of the documents,
+     *                       {@code null} to only use the store.
+     */
+    public StreamingTokenStream(DocumentPipe pipe, IDocumentStore documentStore,
+            DocumentMetadataWriter metadataWriter) {
+        this.pipe = checkNotNull(pipe);
+        this.documentStore = checkNotNull(documentStore);
+        this.metadataWriter = metadataWriter;
+        this.tokenizer = new TokenizerNormalize();
+    }
+
+    @Override
+    /**
+     * Return the next token in this stream.
+     *
+     * @return The next token.
+     * @throws NoSuchElementException If no tokens are left.
+     */
+    public IToken next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No Token left");
+        }
+
+        return new Token(tokenIter.next(), currentDocId);
+    }
+
+    @Override
+    /**
+     * Returns {@code true} if there is a new token in the stream, waits for the
+     * crawler if no document is ready.
+     *
+     * @return {@code true} if a new token is available.
+     */
+    public boolean hasNext() {
+        while (tokens == null || !tokenIter.hasNext()) {
+            if (!fetchNewTokens()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    /**
+     * Return the next document in this stream.
+     *
+     * @return The terms of the next document.
+     * @throws NoSuchElementException If no documents are left.
+     */
+    public DocumentTerms nextDocument() {
+        if (!hasNextDocument()) {
+            throw new NoSuchElementException("No Document left");
+        }
+        DocumentTerms document = nextDocument;
+        nextDocument = null;
+        return document;
+    }
+
+    @Override
+    /**
+     * Returns {@code true} if there is a new document in the stream, waits for
+     * the crawler if no document is ready.
+     *
+     * @return {@code true} if a new document is available.
+     */
+    public boolean hasNextDocument() {
+        while (nextDocument == null) {
+            Document nextDoc = takeDocument();
+            if (nextDoc == null) {
+                return false;
+            }
+
+            DocumentTerms.Builder builder = DocumentTerms.builder(currentDocId);
+            tokenizer.analyze(nextDoc.getTitle(), builder);
+            tokenizer.analyze(nextDoc.getBody(), builder);
+            DocumentTerms document = builder.build();
+            if (document.size() == 0) {
+                LOGGER.info("Empty Document Found - Skipping...  DocId: " + currentDocId);
+                continue;
+            }
+            nextDocument = document;
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of documents consumed from the pipe so far.
+     */
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Takes the next document from the pipe and prepares its tokens.
+     *
+     * @return {@code false} if the pipe is closed.
+     */
+    private boolean fetchNewTokens() {
+        Document nextDoc = takeDocument();
+        if (nextDoc == null) {
+            return false;
+        }
+
+        List<String> tokens = new ArrayList<>();
+        tokenizer.analyzeAppendToList(nextDoc.getTitle(), tokens);
+        tokenizer.analyzeAppendToList(nextDoc.getBody(), tokens);
+
+        if (tokens.isEmpty()) {
+            LOGGER.info("Empty Document Found - Skipping...  DocId: " + currentDocId);
+        }
+        this.tokens = tokens;
+        this.tokenIter = tokens.iterator();
+        return true;
+    }
+
+    /**
+     * Takes the next document from the pipe and caches it.
+     *
+     * @return The document or {@code null} if the pipe is closed.
+     */
+    private Document takeDocument() {
+        Document nextDoc;
+        try {
+            nextDoc = pipe.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pipe.abort();
+            LOGGER.warning("Interrupted while waiting for the crawler, ending the stream.");
+            return null;
+        }
+        if (nextDoc == null) {
+            LOGGER.info("No more documents! Documents streamed: " + documentCount);
+            return null;
+        }
+
+        this.currentDocId = nextDoc.getDocumentId();
+        documentCount++;
+        DocumentLight lightDoc = new DocumentLight(nextDoc);
+        documentStore.writeToDisk(nextDoc);
+        documentStore.writeToDisk(lightDoc);
+        if (metadataWriter != null) {
+            try {
+                metadataWriter.add(lightDoc, nextDoc.getContentHash());
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Unable to write the metadata of DocId: " + currentDocId, e);
+            }
+        }
+        return nextDoc;
+    }
+
+}
@@ -6,13 +6,13 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.logging.Logger;
 
-import edu.comp479.crawler.DocDiskManager;
 import edu.comp479.crawler.Document;
+import edu.comp479.crawler.IDocumentStore;
 
 public class TokenStream implements ITokenStream {
     private static final Logger LOGGER = Logger.getLogger(TokenStream.class.getName());
     
-    private DocDiskManager docDiskManager;
+    private IDocumentStore documentStore;
     private TokenizerNormalize tokenizer;
 
     private List<Long> docIds;
@@ -22,10 +22,10 @@ public class TokenStream implements ITokenStream {
     private List<String> tokens;
     private Iterator<String> tokenIter;
 
-    public TokenStream(DocDiskManager docDiskManager, List<Long> docIdList) {
+    public TokenStream(IDocumentStore documentStore, List<Long> docIdList) {
         this.docIds = docIdList;
         this.docIdsIter = docIdList.iterator();
-        this.docDiskManager = docDiskManager;
+        this.documentStore = documentStore;
         this.tokenizer = new TokenizerNormalize();
     }
 
@@ -71,7 +71,7 @@ public class TokenStream implements ITokenStream {
             return false;
         }
         this.currentDocId = docIdsIter.next();
-        Document nextDoc = docDiskManager.readFromDisk(currentDocId);
+        Document nextDoc = documentStore.readFromDisk(currentDocId);
 
         List<String> tokens = new ArrayList<>();
         tokenizer.analyzeAppendToList(nextDoc.getTitle(), tokens);
@@ -9,7 +9,7 @@ import java.util.logging.Logger;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.standard.ClassicAnalyzer;
-import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 
 import static com.google.common.base.Preconditions.*;
 
@@ -58,17 +58,40 @@ public class TokenizerNormalize {
         checkNotNull(text);
         checkNotNull(list);
 
+        analyze(text, (buffer, length) -> list.add(new String(buffer, 0, length)));
+        return list;
+    }
+
+    /**
+     * Tokenizes and normalizes the given text, handing each term to the
+     * {@code consumer} straight from the analyzer's term buffer.
+     * 
+     * <p>
+     * No {@link String} is created per token. The analyzer keeps one
+     * {@link TokenStream} per thread and resets it for each text, so a single
+     * {@link TokenizerNormalize} can be shared by several threads.
+     * 
+     * @param text     Text to normalize and tokenize
+     * @param consumer Receives the terms in text order.
+     * @return The number of terms handed to the {@code consumer}.
+     */
+    public int analyze(String text, ITermConsumer consumer) {
+        checkNotNull(text);
+        checkNotNull(consumer);
+
+        int termCount = 0;
         try (TokenStream ts = analyzer.tokenStream("doc", text)) {
-            OffsetAttribute offsetAtt = ts.addAttribute(OffsetAttribute.class);
+            CharTermAttribute termAtt = ts.addAttribute(CharTermAttribute.class);
             ts.reset();
             while (ts.incrementToken()) {
-                list.add(offsetAtt.toString());
+                consumer.accept(termAtt.buffer(), termAtt.length());
+                termCount++;
             }
             ts.end();
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Problem when reading the analyzed stream of tokens", e);
         }
 
-        return list;
+        return termCount;
     }
 }
@@ -2,12 +2,11 @@ package edu.comp479.search.util;
 
 import static java.util.stream.Collectors.toMap;
 
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -21,17 +20,17 @@ public final class SentimentDictionaryBuilder {
     }
 
     public Map<String, Integer> loadSentimentDictionary() throws IOException {
-        URI uri = null;
-        try {
-            uri = ClassLoader.getSystemResource(SENTIMENT_DICTIONARY_RESOURCE).toURI();
-        } catch (URISyntaxException e) {
-            LOGGER.log(Level.WARNING, "Problem loading the AFINN dictionary", e);
+        // Read as a stream, the dictionary has no file path once packed in a jar
+        InputStream input = ClassLoader.getSystemResourceAsStream(SENTIMENT_DICTIONARY_RESOURCE);
+        if (input == null) {
+            LOGGER.log(Level.WARNING, "Problem loading the AFINN dictionary, resource not found: {0}",
+                    SENTIMENT_DICTIONARY_RESOURCE);
             return null;
         }
-        Path path = Paths.get(uri);
-
-        return Files.lines(path).map((line) -> line.split("\\t"))
-                .collect(toMap(entry -> entry[0], entry -> Integer.parseInt(entry[1])));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            return reader.lines().map((line) -> line.split("\\t"))
+                    .collect(toMap(entry -> entry[0], entry -> Integer.parseInt(entry[1])));
+        }
     }
 
     public static void main(String[] args) throws IOException {
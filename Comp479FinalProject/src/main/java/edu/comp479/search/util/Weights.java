@@ -9,6 +9,15 @@ public final class Weights {
     private Weights() {
     }
 
+    /**
+     * @param docCount Number of documents in the collection.
+     * @param docFreq  Number of documents containing the term, at least 1.
+     * @return The idf of the term.
+     */
+    public static float idf(long docCount, long docFreq) {
+        return (float) Math.log10((float) docCount / (float) docFreq);
+    }
+
     public static Function<Posting, Float> tfIdf(float termIdf) {
         return new Function<Posting, Float>() {
             @Override
@@ -0,0 +1,170 @@
+package edu.comp479.crawler;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.stream.Collectors.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class CrawlerEngineTest {
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String baseUrl;
+
+    private Map<String, AtomicInteger> requestCounts;
+    private AtomicInteger inFlight;
+    private AtomicInteger maxInFlight;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        requestCounts = new ConcurrentHashMap<>();
+        inFlight = new AtomicInteger();
+        maxInFlight = new AtomicInteger();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::serveFixture);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void testEveryReachablePageIsCrawledOnce() throws InterruptedException {
+        List<Document> documents = crawl(4, 0, 100);
+
+        assertThat(documents.stream().map(Document::getTitle).collect(toList()),
+                containsInAnyOrder("Fixture Index", "Fixture A", "Fixture B", "Fixture C"));
+        assertAll(() -> assertEquals(1, requestCounts.get("/index.html").get()),
+                () -> assertEquals(1, requestCounts.get("/a.html").get()),
+                () -> assertEquals(1, requestCounts.get("/b.html").get()),
+                () -> assertEquals(1, requestCounts.get("/c.html").get()),
+                () -> assertEquals(1, requestCounts.get("/missing.html").get()));
+    }
+
+    @Test
+    void testPageIsParsedForTitleAndText() throws InterruptedException {
+        List<Document> documents = crawl(1, 0, 1);
+
+        assertEquals(1, documents.size());
+        Document index = documents.get(0);
+        assertAll(() -> assertEquals("Fixture Index", index.getTitle()),
+                () -> assertThat(index.getBody(), containsString("The index page of the crawler fixtures.")),
+                () -> assertEquals(baseUrl + "/index.html", index.getUrl()));
+    }
+
+    @Test
+    void testMaxPagesIsRespected() throws InterruptedException {
+        List<Document> documents = crawl(4, 0, 2);
+
+        assertEquals(2, documents.size());
+    }
+
+    @Test
+    void testConcurrentFetchesAreBounded() throws InterruptedException {
+        crawl(2, 0, 100);
+
+        assertThat(maxInFlight.get(), lessThanOrEqualTo(2));
+    }
+
+    @Test
+    void testRequestsToSameHostAreSpaced() throws InterruptedException {
+        long start = System.nanoTime();
+        crawl(4, 50, 100);
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+        // 5 requests to the same host, 4 delays in between
+        assertThat(elapsedMs, greaterThanOrEqualTo(200l));
+    }
+
+    @Test
+    void testFilteredUrlsAreNotFetched() throws InterruptedException {
+        CrawlerEngine engine = new CrawlerEngine(new PageFetcher(), 2, 0, (url) -> !url.endsWith("/b.html"));
+        List<Document> documents = Collections.synchronizedList(new ArrayList<>());
+        engine.crawl(ImmutableList.of(baseUrl + "/index.html"), 100, documents::add);
+
+        assertFalse(requestCounts.containsKey("/b.html"));
+        assertEquals(3, documents.size());
+    }
+
+    @Test
+    void testOnlyChangedKnownPagesAreProduced() throws InterruptedException {
+        Map<String, Long> knownContentHashes = new ConcurrentHashMap<>();
+        crawl(2, 0, 100).forEach((document) -> knownContentHashes.put(document.getUrl(), document.getContentHash()));
+        knownContentHashes.put(baseUrl + "/c.html", 42l);
+        requestCounts.clear();
+
+        CrawlerEngine engine = new CrawlerEngine(new PageFetcher(), 2, 0, (url) -> true);
+        List<Document> documents = Collections.synchronizedList(new ArrayList<>());
+        int count = engine.crawl(ImmutableList.of(baseUrl + "/index.html"), 1, knownContentHashes::get,
+                documents::add);
+
+        // The unchanged pages are fetched for their links without counting toward the maximum
+        assertAll(() -> assertEquals(1, count),
+                () -> assertThat(documents.stream().map(Document::getTitle).collect(toList()),
+                        contains("Fixture C")),
+                () -> assertEquals(1, requestCounts.get("/index.html").get()),
+                () -> assertEquals(1, requestCounts.get("/c.html").get()));
+    }
+
+    private List<Document> crawl(int fetcherCount, long delayMs, int maxPages) throws InterruptedException {
+        CrawlerEngine engine = new CrawlerEngine(new PageFetcher(), fetcherCount, delayMs, (url) -> true);
+        List<Document> documents = Collections.synchronizedList(new ArrayList<>());
+        int count = engine.crawl(ImmutableList.of(baseUrl + "/index.html"), maxPages, documents::add);
+        assertEquals(documents.size(), count);
+        return documents;
+    }
+
+    private void serveFixture(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        requestCounts.computeIfAbsent(path, (key) -> new AtomicInteger()).incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(10);
+            URL fixture = getClass().getClassLoader().getResource("crawler" + path);
+            if (fixture == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] page = Resources.toByteArray(fixture);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, page.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(page);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+}
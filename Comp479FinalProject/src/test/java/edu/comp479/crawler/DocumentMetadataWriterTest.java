@@ -0,0 +1,100 @@
+package edu.comp479.crawler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.comp479.search.util.TestDirectories;
+
+class DocumentMetadataWriterTest {
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = Paths.get("./testDump/metadata/");
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(DocumentMetadataWriter.FILE_NAME));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        TestDirectories.deleteDirectory(directory);
+    }
+
+    @Test
+    void testDocumentsAddedOutOfOrderAreReadByDocId() throws IOException {
+        try (DocumentMetadataWriter writer = new DocumentMetadataWriter(directory)) {
+            writer.add(new DocumentLight(2, "Third", "http://example.com/3"));
+            writer.add(new DocumentLight(0, "First", "http://example.com/1"));
+            writer.add(new DocumentLight(1, "Deuxi\u00e8me \u00e9t\u00e9", "http://example.com/\u00e9t\u00e9"));
+        }
+
+        DocumentMetadataReader reader = new DocumentMetadataReader(directory);
+        assertTrue(reader.open());
+
+        assertAll(() -> assertEquals(3, reader.getDocumentCount()),
+                () -> assertEquals("http://example.com/1", reader.getUrl(0)),
+                () -> assertEquals("First", reader.getTitle(0)),
+                () -> assertEquals("http://example.com/\u00e9t\u00e9", reader.getUrl(1)),
+                () -> assertEquals("Deuxi\u00e8me \u00e9t\u00e9", reader.getTitle(1)),
+                () -> assertEquals("http://example.com/3", reader.getUrl(2)),
+                () -> assertEquals("Third", reader.getTitle(2)));
+    }
+
+    @Test
+    void testMissingDocumentsReturnNull() throws IOException {
+        try (DocumentMetadataWriter writer = new DocumentMetadataWriter(directory)) {
+            writer.add(new DocumentLight(3, null, "http://example.com/3"));
+        }
+
+        DocumentMetadataReader reader = new DocumentMetadataReader(directory);
+        reader.open();
+
+        assertAll(() -> assertNull(reader.getUrl(0)),
+                () -> assertNull(reader.getDocumentLight(2)),
+                () -> assertNull(reader.getUrl(4)),
+                () -> assertEquals("", reader.getTitle(3)),
+                () -> assertEquals("http://example.com/3", reader.getDocumentLight(3).getUrl()));
+    }
+
+    @Test
+    void testEmptyFileHasNoDocument() throws IOException {
+        new DocumentMetadataWriter(directory).close();
+
+        assertTrue(DocumentMetadataReader.exists(directory));
+        DocumentMetadataReader reader = new DocumentMetadataReader(directory);
+        reader.open();
+
+        assertEquals(0, reader.getDocumentCount());
+        assertNull(reader.getUrl(0));
+    }
+
+    @Test
+    void testContentHashesAreKeptOnAppend() throws IOException {
+        try (DocumentMetadataWriter writer = new DocumentMetadataWriter(directory)) {
+            writer.add(new DocumentLight(0, "First", "http://example.com/1"), 11);
+            writer.add(new DocumentLight(1, "Second", "http://example.com/2"));
+        }
+        try (DocumentMetadataWriter writer = new DocumentMetadataWriter(directory, true)) {
+            writer.add(new DocumentLight(2, "Third", "http://example.com/3"), -7);
+        }
+
+        DocumentMetadataReader reader = new DocumentMetadataReader(directory);
+        reader.open();
+
+        assertAll(() -> assertEquals(3, reader.getDocumentCount()),
+                () -> assertEquals(11, reader.getContentHash(0)),
+                () -> assertEquals(0, reader.getContentHash(1)),
+                () -> assertEquals(-7, reader.getContentHash(2)),
+                () -> assertEquals(0, reader.getContentHash(3)),
+                () -> assertEquals("Second", reader.getTitle(1)),
+                () -> assertEquals("http://example.com/3", reader.getUrl(2)));
+    }
+}
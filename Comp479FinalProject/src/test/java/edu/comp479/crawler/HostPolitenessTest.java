@@ -0,0 +1,38 @@
+package edu.comp479.crawler;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class HostPolitenessTest {
+
+    @Test
+    void testRequestsToSameHostAreSpaced() throws InterruptedException {
+        HostPoliteness politeness = new HostPoliteness(50);
+
+        long start = System.nanoTime();
+        politeness.acquire("example.com");
+        politeness.acquire("other.example.com");
+        politeness.acquire("example.com");
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), is(greaterThanOrEqualTo(45l)));
+    }
+
+    @Test
+    void testPastHostsAreDropped() throws InterruptedException {
+        HostPoliteness politeness = new HostPoliteness(1);
+        for (int i = 0; i < 1000; i++) {
+            politeness.acquire("host" + i + ".example.com");
+        }
+        Thread.sleep(10);
+        for (int i = 1000; i < 3000; i++) {
+            politeness.acquire("host" + i + ".example.com");
+        }
+
+        assertThat(politeness.getHostCount(), is(lessThanOrEqualTo(2048)));
+    }
+}
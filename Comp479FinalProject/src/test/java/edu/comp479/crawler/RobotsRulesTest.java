@@ -0,0 +1,69 @@
+package edu.comp479.crawler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class RobotsRulesTest {
+    private static final String AGENT = "EmoSearch";
+
+    @Test
+    void testDisallowedPrefixIsBlocked() {
+        RobotsRules rules = RobotsRules.parse("User-agent: *\nDisallow: /private/\n");
+
+        assertAll(() -> assertFalse(rules.isAllowed(AGENT, "/private/page.html")),
+                () -> assertTrue(rules.isAllowed(AGENT, "/public/page.html")),
+                () -> assertTrue(rules.isAllowed(AGENT, "/private")));
+    }
+
+    @Test
+    void testUserAgentLineAloneDoesNotBlock() {
+        RobotsRules rules = RobotsRules.parse("User-agent: *\nDisallow:\n");
+
+        assertTrue(rules.isAllowed(AGENT, "/anything.html"));
+    }
+
+    @Test
+    void testLongestMatchWins() {
+        RobotsRules rules = RobotsRules.parse("User-agent: *\nDisallow: /docs/\nAllow: /docs/public/\n");
+
+        assertAll(() -> assertFalse(rules.isAllowed(AGENT, "/docs/secret.html")),
+                () -> assertTrue(rules.isAllowed(AGENT, "/docs/public/index.html")));
+    }
+
+    @Test
+    void testAllowWinsOnSameLength() {
+        RobotsRules rules = RobotsRules.parse("User-agent: *\nDisallow: /page\nAllow: /page\n");
+
+        assertTrue(rules.isAllowed(AGENT, "/page.html"));
+    }
+
+    @Test
+    void testSpecificAgentGroupIsSelected() {
+        RobotsRules rules = RobotsRules.parse("User-agent: *\nDisallow: /\n\n"
+                + "User-agent: otherbot\nUser-agent: emosearch\nDisallow: /tmp/\n");
+
+        assertAll(() -> assertTrue(rules.isAllowed(AGENT, "/index.html")),
+                () -> assertFalse(rules.isAllowed(AGENT, "/tmp/file")),
+                () -> assertFalse(rules.isAllowed("SomeBot", "/index.html")));
+    }
+
+    @Test
+    void testWildcardAndEndAnchor() {
+        RobotsRules rules = RobotsRules.parse("User-agent: *\nDisallow: /*.pdf$\nDisallow: /search*q=\n");
+
+        assertAll(() -> assertFalse(rules.isAllowed(AGENT, "/files/report.pdf")),
+                () -> assertTrue(rules.isAllowed(AGENT, "/files/report.pdf.html")),
+                () -> assertFalse(rules.isAllowed(AGENT, "/search?page=2&q=term")),
+                () -> assertTrue(rules.isAllowed(AGENT, "/search?page=2")));
+    }
+
+    @Test
+    void testCommentsAndUnknownDirectivesAreIgnored() {
+        RobotsRules rules = RobotsRules.parse("# comment\nUser-agent: * # all\nCrawl-delay: 10\n"
+                + "Sitemap: http://example.com/sitemap.xml\nDisallow: /admin # no admin\n");
+
+        assertAll(() -> assertFalse(rules.isAllowed(AGENT, "/admin/login")),
+                () -> assertTrue(rules.isAllowed(AGENT, "/")));
+    }
+}
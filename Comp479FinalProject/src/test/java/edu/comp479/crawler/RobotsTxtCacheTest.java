@@ -0,0 +1,109 @@
+package edu.comp479.crawler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.base.Ticker;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class RobotsTxtCacheTest {
+    private HttpServer server;
+    private String baseUrl;
+    private AtomicInteger robotsRequests;
+    private AtomicLong nanos;
+    private Ticker ticker;
+
+    private volatile int robotsStatus;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        robotsRequests = new AtomicInteger();
+        robotsStatus = 200;
+        nanos = new AtomicLong();
+        ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/robots.txt", this::serveRobots);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.stop(0);
+    }
+
+    @Test
+    void testRobotsIsFetchedOncePerHost() {
+        RobotsTxtCache cache = new RobotsTxtCache("EmoSearch", 60000, 10, ticker);
+
+        assertAll(() -> assertTrue(cache.isAllowed(baseUrl + "/index.html")),
+                () -> assertFalse(cache.isAllowed(baseUrl + "/private/a.html")),
+                () -> assertFalse(cache.isAllowed(baseUrl + "/private/b.html")),
+                () -> assertTrue(cache.isAllowed(baseUrl + "/public.html?q=1")));
+        assertEquals(1, robotsRequests.get());
+    }
+
+    @Test
+    void testRobotsIsFetchedAgainAfterTtl() {
+        RobotsTxtCache cache = new RobotsTxtCache("EmoSearch", 60000, 10, ticker);
+
+        cache.isAllowed(baseUrl + "/index.html");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        cache.isAllowed(baseUrl + "/index.html");
+        assertEquals(1, robotsRequests.get());
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        cache.isAllowed(baseUrl + "/index.html");
+        assertEquals(2, robotsRequests.get());
+    }
+
+    @Test
+    void testMissingRobotsAllowsEverything() {
+        robotsStatus = 404;
+        RobotsTxtCache cache = new RobotsTxtCache("EmoSearch", 60000, 10, ticker);
+
+        assertTrue(cache.isAllowed(baseUrl + "/private/a.html"));
+    }
+
+    @Test
+    void testUnavailableRobotsDisallowsEverything() {
+        robotsStatus = 503;
+        RobotsTxtCache cache = new RobotsTxtCache("EmoSearch", 60000, 10, ticker);
+
+        assertFalse(cache.isAllowed(baseUrl + "/index.html"));
+    }
+
+    private void serveRobots(HttpExchange exchange) throws IOException {
+        robotsRequests.incrementAndGet();
+        byte[] robots = "User-agent: *\nDisallow: /private/\n".getBytes(StandardCharsets.UTF_8);
+        if (robotsStatus != 200) {
+            exchange.sendResponseHeaders(robotsStatus, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(200, robots.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(robots);
+        }
+        exchange.close();
+    }
+}
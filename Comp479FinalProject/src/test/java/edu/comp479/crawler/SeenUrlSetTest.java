@@ -0,0 +1,31 @@
+package edu.comp479.crawler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class SeenUrlSetTest {
+
+    @Test
+    void testUrlIsAddedOnlyOnce() {
+        SeenUrlSet seen = new SeenUrlSet();
+
+        assertTrue(seen.add("http://example.com/a.html"));
+        assertFalse(seen.add("http://example.com/a.html"));
+        assertTrue(seen.contains("http://example.com/a.html"));
+        assertFalse(seen.contains("http://example.com/b.html"));
+        assertEquals(1, seen.size());
+    }
+
+    @Test
+    void testManyUrlsAreAllRemembered() {
+        SeenUrlSet seen = new SeenUrlSet();
+        for (int i = 0; i < 100000; i++) {
+            assertTrue(seen.add("http://example.com/page" + i + ".html"));
+        }
+        for (int i = 0; i < 100000; i++) {
+            assertFalse(seen.add("http://example.com/page" + i + ".html"));
+        }
+        assertEquals(100000, seen.size());
+    }
+}
@@ -0,0 +1,198 @@
+package edu.comp479.crawler;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.comp479.search.util.TestDirectories;
+
+class SegmentedDocumentStoreTest {
+    // Small segments and blocks so that a few documents span several files
+    private static final long SEGMENT_BYTES = 256;
+    private static final int BLOCK_BYTES = 128;
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = Paths.get("./testDump/segmented/");
+        Files.createDirectories(directory);
+        SegmentedDocumentStore.delete(directory);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        TestDirectories.deleteDirectory(directory);
+    }
+
+    @Test
+    void testDocumentsAreReadBackWhileWritingAndAfterReopen() throws IOException {
+        List<Document> documents = new ArrayList<>();
+        try (SegmentedDocumentStore store = new SegmentedDocumentStore(directory, true, SEGMENT_BYTES,
+                BLOCK_BYTES)) {
+            for (int i = 0; i < 20; i++) {
+                Document doc = new Document("Title " + i, "Some body text for document " + i,
+                        "http://example.com/" + i);
+                documents.add(doc);
+                assertNotNull(store.writeToDisk(doc));
+                assertNotNull(store.writeToDisk(new DocumentLight(doc)));
+            }
+
+            for (Document doc : documents) {
+                assertDocumentEquals(doc, store.readFromDisk(doc.getDocumentId()));
+            }
+        }
+
+        assertThat(segmentFileCount(), greaterThan(2L));
+
+        try (SegmentedDocumentStore store = new SegmentedDocumentStore(directory, false)) {
+            for (Document doc : documents) {
+                assertDocumentEquals(doc, store.readFromDisk(doc.getDocumentId()));
+                DocumentLight light = store.readLightFromDisk(doc.getDocumentId());
+                assertAll(() -> assertEquals(doc.getDocumentId(), light.getDocumentId()),
+                        () -> assertEquals(doc.getTitle(), light.getTitle()),
+                        () -> assertEquals(doc.getUrl(), light.getUrl()));
+            }
+        }
+    }
+
+    @Test
+    void testMissingDocumentsReturnNull() throws IOException {
+        try (SegmentedDocumentStore store = new SegmentedDocumentStore(directory, true, SEGMENT_BYTES)) {
+            store.writeToDisk(new DocumentLight(5, "title", "http://example.com/5"));
+
+            assertNull(store.readLightFromDisk(2));
+            assertNull(store.readLightFromDisk(100));
+            assertNull(store.readFromDisk(5));
+        }
+
+        try (SegmentedDocumentStore store = new SegmentedDocumentStore(directory, false)) {
+            assertNull(store.readLightFromDisk(2));
+            assertNull(store.readLightFromDisk(100));
+            assertEquals("http://example.com/5", store.readLightFromDisk(5).getUrl());
+        }
+    }
+
+    @Test
+    void testReopenedStoreAppendsAfterExistingDocuments() throws IOException {
+        try (SegmentedDocumentStore store = new SegmentedDocumentStore(directory, true, SEGMENT_BYTES)) {
+            store.writeToDisk(new DocumentLight(0, "first", "http://example.com/0"));
+        }
+        try (SegmentedDocumentStore store = new SegmentedDocumentStore(directory, true, SEGMENT_BYTES)) {
+            store.writeToDisk(new DocumentLight(1, "second", "http://example.com/1"));
+            // A rewritten document replaces the previous record
+            store.writeToDisk(new DocumentLight(0, "first again", "http://example.com/0"));
+        }
+
+        try (SegmentedDocumentStore store = new SegmentedDocumentStore(directory, false)) {
+            assertEquals("first again", store.readLightFromDisk(0).getTitle());
+            assertEquals("second", store.readLightFromDisk(1).getTitle());
+        }
+    }
+
+    @Test
+    void testReopenedStoreAppendsDocumentsInNewBlocks() throws IOException {
+        Document first = new Document("first", "first body", "http://example.com/first");
+        Document second = new Document("second", "second body", "http://example.com/second");
+        try (SegmentedDocumentStore store = new SegmentedDocumentStore(directory, true, SEGMENT_BYTES,
+                BLOCK_BYTES)) {
+            store.writeToDisk(first);
+        }
+        try (SegmentedDocumentStore store = new SegmentedDocumentStore(directory, true, SEGMENT_BYTES,
+                BLOCK_BYTES)) {
+            store.writeToDisk(second);
+            assertDocumentEquals(first, store.readFromDisk(first.getDocumentId()));
+            assertDocumentEquals(second, store.readFromDisk(second.getDocumentId()));
+        }
+
+        try (SegmentedDocumentStore store = new SegmentedDocumentStore(directory, false)) {
+            assertDocumentEquals(first, store.readFromDisk(first.getDocumentId()));
+            assertDocumentEquals(second, store.readFromDisk(second.getDocumentId()));
+        }
+    }
+
+    @Test
+    void testDocumentBodiesAreCompressed() throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            body.append("the same happy sentence repeated in every crawled page ");
+        }
+        long rawBytes = 0;
+        try (SegmentedDocumentStore store = new SegmentedDocumentStore(directory, true)) {
+            for (int i = 0; i < 50; i++) {
+                Document doc = new Document("Title " + i, body.toString(), "http://example.com/" + i);
+                rawBytes += doc.getBody().length();
+                store.writeToDisk(doc);
+            }
+        }
+
+        assertThat(segmentFileBytes(), lessThan(rawBytes / 10));
+    }
+
+    @Test
+    void testReadOnlyStoreRejectsWrites() throws IOException {
+        new SegmentedDocumentStore(directory, true).close();
+
+        try (SegmentedDocumentStore store = new SegmentedDocumentStore(directory, false)) {
+            assertThrows(IllegalStateException.class,
+                    () -> store.writeToDisk(new DocumentLight(0, "title", "http://example.com/0")));
+        }
+    }
+
+    @Test
+    void testFactoryOpensTheFormatOfTheCache() throws IOException {
+        DocumentStoreFactory factory = new DocumentStoreFactory();
+        Path legacyDirectory = directory.resolve("legacy");
+        Files.createDirectories(legacyDirectory);
+        SegmentedDocumentStore.delete(legacyDirectory);
+
+        try (IDocumentStore store = factory.openStore(legacyDirectory)) {
+            assertThat(store, instanceOf(DocDiskManager.class));
+        }
+
+        factory.createStore(directory).close();
+        try (IDocumentStore store = factory.openStore(directory)) {
+            assertThat(store, instanceOf(SegmentedDocumentStore.class));
+        }
+    }
+
+    private long segmentFileBytes() throws IOException {
+        long size = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                if (path.toString().endsWith(SegmentLog.SEGMENT_EXTENSION)) {
+                    size += Files.size(path);
+                }
+            }
+        }
+        return size;
+    }
+
+    private long segmentFileCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(SegmentLog.SEGMENT_EXTENSION))
+                    .collect(Collectors.counting());
+        }
+    }
+
+    private static void assertDocumentEquals(Document expected, Document actual) {
+        assertNotNull(actual);
+        assertAll(() -> assertEquals(expected.getDocumentId(), actual.getDocumentId()),
+                () -> assertEquals(expected.getTitle(), actual.getTitle()),
+                () -> assertEquals(expected.getBody(), actual.getBody()),
+                () -> assertEquals(expected.getUrl(), actual.getUrl()));
+    }
+}
@@ -0,0 +1,44 @@
+package edu.comp479.crawler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class UrlNormalizerTest {
+
+    @Test
+    void testSchemeAndHostAreLowerCased() {
+        assertEquals("https://www.concordia.ca/About.html",
+                UrlNormalizer.normalize("HTTPS://WWW.Concordia.CA/About.html"));
+    }
+
+    @Test
+    void testDefaultPortIsRemoved() {
+        assertAll(() -> assertEquals("http://example.com/", UrlNormalizer.normalize("http://example.com:80/")),
+                () -> assertEquals("https://example.com/", UrlNormalizer.normalize("https://example.com:443/")),
+                () -> assertEquals("http://example.com:8080/",
+                        UrlNormalizer.normalize("http://example.com:8080/")));
+    }
+
+    @Test
+    void testFragmentIsRemoved() {
+        assertEquals("http://example.com/page.html?q=1",
+                UrlNormalizer.normalize("http://example.com/page.html?q=1#top"));
+    }
+
+    @Test
+    void testDotSegmentsAndEmptyPathAreNormalized() {
+        assertAll(
+                () -> assertEquals("http://example.com/b/c.html",
+                        UrlNormalizer.normalize("http://example.com/a/../b/./c.html")),
+                () -> assertEquals("http://example.com/", UrlNormalizer.normalize("http://example.com")));
+    }
+
+    @Test
+    void testInvalidOrNonHttpUrlsAreRejected() {
+        assertAll(() -> assertNull(UrlNormalizer.normalize("mailto:someone@example.com")),
+                () -> assertNull(UrlNormalizer.normalize("ftp://example.com/file")),
+                () -> assertNull(UrlNormalizer.normalize("http://exa mple.com/")),
+                () -> assertNull(UrlNormalizer.normalize("/relative/path.html")));
+    }
+}
@@ -0,0 +1,85 @@
+package edu.comp479.search.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.comp479.search.index.structure.DictionaryEntry;
+import edu.comp479.search.index.structure.IIndexEntry;
+import edu.comp479.search.index.structure.IndexEntry;
+import edu.comp479.search.index.structure.Posting;
+import edu.comp479.search.indexer.file.DeletedDocuments;
+
+@ExtendWith(MockitoExtension.class)
+class FilteredInvertedIndexTest {
+    private static final String INDEX_NAME = "testFiltered";
+
+    @Mock
+    private IInvertedIndex index;
+
+    private Path dir;
+    private IIndexEntry happy;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dir = Paths.get("./testIndex/");
+        Files.createDirectories(dir);
+        DeletedDocuments.clear(INDEX_NAME, dir);
+        happy = new IndexEntry(new DictionaryEntry("happy", 3, 2),
+                ImmutableList.of(new Posting(1, 1, 0.5f), new Posting(4, 2, 0.7f), new Posting(9, 1, 0.5f)));
+        when(index.getPostings("happy")).thenReturn(happy);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        DeletedDocuments.clear(INDEX_NAME, dir);
+        Files.deleteIfExists(dir.resolve(INDEX_NAME + DeletedDocuments.LOCK_EXTENSION));
+    }
+
+    @Test
+    void testPostingsUnchangedWithoutDeletions() throws IOException {
+        FilteredInvertedIndex filteredIndex = new FilteredInvertedIndex(index, INDEX_NAME, dir);
+
+        assertSame(happy, filteredIndex.getPostings("happy"));
+    }
+
+    @Test
+    void testDeletedDocumentsHiddenAfterRefresh() throws IOException {
+        FilteredInvertedIndex filteredIndex = new FilteredInvertedIndex(index, INDEX_NAME, dir);
+        DeletedDocuments.delete(INDEX_NAME, dir, Arrays.asList(4l));
+
+        IIndexEntry beforeRefresh = filteredIndex.getPostings("happy");
+        boolean refreshed = filteredIndex.refresh();
+        IIndexEntry afterRefresh = filteredIndex.getPostings("happy");
+
+        assertAll(() -> assertSame(happy, beforeRefresh),
+                () -> assertTrue(refreshed),
+                () -> assertFalse(filteredIndex.refresh()),
+                () -> assertEquals(2, afterRefresh.getDocumentFrequency()),
+                () -> assertEquals(2, afterRefresh.getSentimentValue()),
+                () -> assertThat(docIds(afterRefresh), contains(1l, 9l)));
+    }
+
+    private static List<Long> docIds(IIndexEntry entry) {
+        return entry.getPostingsList().stream().map(Posting::getDocId).collect(toList());
+    }
+}
@@ -0,0 +1,97 @@
+package edu.comp479.search.index;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static java.util.stream.Collectors.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.comp479.search.index.structure.DictionaryEntry;
+import edu.comp479.search.index.structure.Posting;
+import edu.comp479.search.indexer.file.IndexFileUtility;
+import edu.comp479.search.indexer.file.IndexReaderMemoryMapped;
+import edu.comp479.search.indexer.file.IndexWriter;
+import edu.comp479.search.indexer.file.NormFileEntry;
+
+class IndexWarmerTest {
+    private static final String INDEX_NAME = "warmUpIndex";
+
+    private Path dir;
+    private IndexReaderMemoryMapped reader;
+    private IInvertedIndex index;
+    private long normsBytes;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Paths.get("./testIndex/");
+        Files.createDirectories(dir);
+
+        // Each posting takes 4 bytes, the tf-idf of 1 is encoded on 2
+        try (IndexWriter writer = new IndexWriter(INDEX_NAME, dir)) {
+            writer.write(new DictionaryEntry("a", 1, 0), Arrays.asList(new Posting(1, 1, 1)));
+            writer.write(new DictionaryEntry("b", 3, 0),
+                    Arrays.asList(new Posting(1, 1, 1), new Posting(2, 1, 1), new Posting(3, 1, 1)));
+            writer.write(new DictionaryEntry("c", 2, 0), Arrays.asList(new Posting(2, 1, 1), new Posting(3, 1, 1)));
+            writer.writeFinalizeIndexWithNorm(3l, Arrays.asList(new NormFileEntry(1, 1, 0), new NormFileEntry(2, 1, 0),
+                    new NormFileEntry(3, 1, 0)));
+        }
+        normsBytes = Files.size(dir.resolve(INDEX_NAME + IndexFileUtility.NORMS_EXTENSION));
+
+        reader = new IndexReaderMemoryMapped(INDEX_NAME, dir);
+        reader.open();
+        index = new IndexFactory().getIndex(reader, Collections.emptyMap());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        reader.close();
+        IndexFileUtility.delete(INDEX_NAME, dir);
+        Files.deleteIfExists(dir.resolve("warmUpQueries.txt"));
+    }
+
+    @Test
+    void mostFrequentTermsAndGivenTermsAreRead() {
+        assertThat(normsBytes, greaterThan(0l));
+        assertEquals(normsBytes, index.warmUp(0, Collections.emptySet()));
+        assertEquals(normsBytes + 12, index.warmUp(1, Collections.emptySet()));
+        assertEquals(normsBytes + 12 + 8, index.warmUp(1, Arrays.asList("c", "unknown")));
+        assertEquals(normsBytes + 12 + 8 + 4, index.warmUp(5, Arrays.asList("b")));
+    }
+
+    @Test
+    void searchesAreUnchangedByTheWarmUp() {
+        index.getPostings("a");
+
+        index.warmUp(3, Collections.emptySet());
+
+        assertEquals(Arrays.asList(1l, 2l, 3l),
+                index.getPostings("b").getPostingsList().stream().map(Posting::getDocId).collect(toList()));
+        assertEquals(1f, index.getDocumentLengthNorm(2));
+    }
+
+    @Test
+    void queryLogIsAnalyzedAsTheSearches() throws IOException {
+        Path queryLog = dir.resolve("warmUpQueries.txt");
+        Files.write(queryLog, Arrays.asList("Happy Students", "", "students"), StandardCharsets.UTF_8);
+
+        assertThat(IndexWarmer.readQueryTerms(queryLog), hasSize(2));
+        assertEquals(normsBytes, new IndexWarmer(index, 0, queryLog).run());
+    }
+
+    @Test
+    void warmUpFailureIsLogged() {
+        assertEquals(0, new IndexWarmer(index, 1, dir.resolve("missing.txt")).run());
+    }
+}
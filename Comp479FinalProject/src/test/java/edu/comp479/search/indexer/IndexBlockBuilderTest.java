@@ -31,6 +31,7 @@ import static com.google.common.collect.Comparators.*;
 import edu.comp479.search.index.structure.DictionaryEntry;
 import edu.comp479.search.index.structure.Posting;
 import edu.comp479.search.indexer.file.IndexWriter;
+import edu.comp479.search.tokenizer.DocumentTerms;
 import edu.comp479.search.util.SentimentDictionaryBuilder;
 
 @ExtendWith(MockitoExtension.class)
@@ -96,6 +97,28 @@ class IndexBlockBuilderTest {
                 () -> assertEquals(2, block.get("wordinbothdouble").count(2l)));
     }
 
+    @Test
+    void testAddDocumentSameAsAddPosting() throws IOException {
+        IndexBlockBuilder tokenBuilder = new IndexBlockBuilder(
+                new SentimentDictionaryBuilder().loadSentimentDictionary());
+        DocumentTerms.Builder doc1Terms = DocumentTerms.builder(1);
+        for (String s : doc1) {
+            tokenBuilder.addPosting(s, 1);
+            doc1Terms.add(s);
+        }
+        DocumentTerms.Builder doc2Terms = DocumentTerms.builder(2);
+        for (String s : doc2) {
+            tokenBuilder.addPosting(s, 2);
+            doc2Terms.add(s);
+        }
+
+        builder.addDocument(doc1Terms.build());
+        builder.addDocument(doc2Terms.build());
+
+        assertEquals(tokenBuilder.getBlock(), builder.getBlock());
+        assertEquals(tokenBuilder.getSize(), builder.getSize());
+    }
+
     @Test
     void testFailOnEmptyString() {
         assertThrows(IllegalArgumentException.class, () -> builder.addPosting("", 42));
@@ -0,0 +1,207 @@
+package edu.comp479.search.indexer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import edu.comp479.search.index.IInvertedIndex;
+import edu.comp479.search.index.IndexFactory;
+import edu.comp479.search.index.structure.IIndexEntry;
+import edu.comp479.search.index.structure.IndexEntry;
+import edu.comp479.search.index.structure.Posting;
+import edu.comp479.search.indexer.file.IndexDataMapperFactory;
+import edu.comp479.search.indexer.file.IndexFileUtility;
+import edu.comp479.search.indexer.file.IndexReaderMemoryMapped;
+import edu.comp479.search.indexer.file.IndexReaderStreamed;
+import edu.comp479.search.indexer.file.IndexWriter;
+import edu.comp479.search.query.ConjunctiveQueryEngine;
+import edu.comp479.search.query.Query;
+import edu.comp479.search.tokenizer.DocumentTerms;
+import edu.comp479.search.util.TestDirectories;
+
+class PositionalIndexTest {
+    private static final String INDEX_NAME = "positional";
+
+    // "zzzz" is the last term, its postings are not read
+    private static final String[][] DOCS = { { "new", "york", "pizza", "best", "pizza" }, { "york", "new", "pizza" },
+            { "pizza", "new", "york", "new", "york" }, { "new", "jersey", "pizza" },
+            { "new", "york", "bagel", "zzzz" }, { "bagel", "york" } };
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dir = Paths.get("./testIndex/positional/");
+        TestDirectories.deleteDirectory(dir);
+        Files.createDirectories(dir);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        TestDirectories.deleteDirectory(dir);
+    }
+
+    @Test
+    void testPositionsWrittenInTheirOwnFile() throws IOException {
+        buildIndex(true, true);
+
+        try (IndexReaderMemoryMapped reader = new IndexReaderMemoryMapped(INDEX_NAME, dir)) {
+            reader.open();
+            IInvertedIndex index = new IndexFactory().getIndex(reader);
+            IIndexEntry york = index.getPositionalPostings("york");
+
+            assertAll(() -> assertTrue(Files.exists(dir.resolve(INDEX_NAME + IndexFileUtility.POSITIONS_EXTENSION))),
+                    () -> assertTrue(index.hasPositions()),
+                    () -> assertThat(docIds(york), contains(0l, 1l, 2l, 4l, 5l)),
+                    () -> assertArrayEquals(new int[] { 2, 4 }, york.getPostingsList().get(2).getPositions()),
+                    () -> assertArrayEquals(new int[] { 1 }, york.getPostingsList().get(4).getPositions()),
+                    () -> assertEquals(2, york.getPostingsList().get(2).getTermFreq()),
+                    () -> assertFalse(index.getPostings("york").getPostingsList().get(0).hasPositions()),
+                    () -> assertEquals(weights(index.getPostings("york")), weights(york)));
+        }
+    }
+
+    @Test
+    void testStreamedReaderReadsThePositions() throws IOException {
+        buildIndex(true, true);
+
+        try (IndexReaderStreamed reader = new IndexReaderStreamed(INDEX_NAME, dir)) {
+            reader.open();
+            IndexEntry bagel = reader.readNextEntry();
+            reader.readNextEntry();
+            IndexEntry jersey = reader.readNextEntry();
+
+            assertAll(() -> assertTrue(reader.hasPositions()),
+                    () -> assertEquals("bagel", bagel.getTerm()),
+                    () -> assertArrayEquals(new int[] { 2 }, bagel.getPostingsList().get(0).getPositions()),
+                    () -> assertArrayEquals(new int[] { 0 }, bagel.getPostingsList().get(1).getPositions()),
+                    () -> assertEquals("jersey", jersey.getTerm()),
+                    () -> assertArrayEquals(new int[] { 1 }, jersey.getPostingsList().get(0).getPositions()));
+        }
+    }
+
+    @Test
+    void testPhraseAndConjunctiveQueries() throws IOException {
+        buildIndex(true, true);
+
+        try (IndexReaderMemoryMapped reader = new IndexReaderMemoryMapped(INDEX_NAME, dir)) {
+            reader.open();
+            ConjunctiveQueryEngine engine = new ConjunctiveQueryEngine(new IndexFactory().getIndex(reader));
+
+            assertAll(() -> assertArrayEquals(new long[] { 0, 2, 4 }, engine.match(query(phrase("new", "york")))),
+                    () -> assertArrayEquals(new long[] { 1, 2 }, engine.match(query(phrase("york", "new")))),
+                    () -> assertArrayEquals(new long[] { 0, 1, 2, 3 },
+                            engine.match(query(phrase("new"), phrase("pizza")))),
+                    () -> assertArrayEquals(new long[] { 0, 2 },
+                            engine.match(query(phrase("new", "york"), phrase("pizza")))),
+                    () -> assertArrayEquals(new long[0], engine.match(query(phrase("york", "pizza", "new")))),
+                    () -> assertArrayEquals(new long[0], engine.match(query(phrase("new", "missing")))));
+        }
+    }
+
+    @Test
+    void testIndexWithoutPositionsMatchesAllTheTermsOfAPhrase() throws IOException {
+        buildIndex(false, false);
+
+        try (IndexReaderMemoryMapped reader = new IndexReaderMemoryMapped(INDEX_NAME, dir)) {
+            reader.open();
+            IInvertedIndex index = new IndexFactory().getIndex(reader);
+
+            assertAll(() -> assertFalse(index.hasPositions()),
+                    () -> assertFalse(Files.exists(dir.resolve(INDEX_NAME + IndexFileUtility.POSITIONS_EXTENSION))),
+                    () -> assertThrows(UnsupportedOperationException.class,
+                            () -> index.getPositionalPostings("york")),
+                    () -> assertArrayEquals(new long[] { 0, 1, 2, 4 },
+                            new ConjunctiveQueryEngine(index).match(query(phrase("new", "york")))));
+        }
+    }
+
+    @Test
+    void testMergeOfBlocksWithAndWithoutPositionsDropsThem() throws IOException {
+        buildIndex(true, false);
+
+        try (IndexReaderMemoryMapped reader = new IndexReaderMemoryMapped(INDEX_NAME, dir)) {
+            reader.open();
+            IInvertedIndex index = new IndexFactory().getIndex(reader);
+
+            assertAll(() -> assertFalse(index.hasPositions()),
+                    () -> assertThat(docIds(index.getPostings("york")), contains(0l, 1l, 2l, 4l, 5l)));
+        }
+    }
+
+    @Test
+    void testPositionalBlockOnlyTakesWholeDocuments() {
+        IndexBlockBuilder builder = new IndexBlockBuilder(ImmutableMap.of(), new TermDictionary(), true);
+        builder.addDocument(document(0));
+
+        assertAll(() -> assertThrows(IllegalStateException.class, () -> builder.addPosting("new", 1)),
+                () -> assertThrows(IllegalArgumentException.class, () -> builder.addDocument(document(0))));
+    }
+
+    /**
+     * Builds the index from two blocks, the first documents and the last ones.
+     */
+    private void buildIndex(boolean firstBlockPositions, boolean lastBlockPositions) throws IOException {
+        TermDictionary termDictionary = new TermDictionary();
+        List<String> blockNames = Arrays.asList(writeBlock("first.blk", termDictionary, firstBlockPositions, 0, 3),
+                writeBlock("last.blk", termDictionary, lastBlockPositions, 3, DOCS.length));
+        IndexBlockMerger merger = new IndexBlockMerger(INDEX_NAME, blockNames, dir, dir,
+                new IndexDataMapperFactory(), 2, 1024, 1024);
+        Indexer.computeWeightsAndCreateFinalIndex(merger.externalMultiwayMerge(), INDEX_NAME, dir, dir,
+                ImmutableMap.of());
+    }
+
+    private String writeBlock(String blockName, TermDictionary termDictionary, boolean positions, int firstDoc,
+            int endDoc) throws IOException {
+        IndexBlockBuilder builder = new IndexBlockBuilder(ImmutableMap.of(), termDictionary, positions);
+        for (int docId = firstDoc; docId < endDoc; docId++) {
+            builder.addDocument(document(docId));
+        }
+        try (IndexWriter indexWriter = new IndexWriter(blockName, dir, IndexWriter.DEFAULT_BUFFER_SIZE, positions)) {
+            builder.writeToDisk(indexWriter);
+        }
+        return blockName;
+    }
+
+    private static DocumentTerms document(int docId) {
+        DocumentTerms.Builder builder = DocumentTerms.builder(docId);
+        for (String term : DOCS[docId]) {
+            builder.add(term);
+        }
+        return builder.build();
+    }
+
+    private static Query query(List<String>... clauses) {
+        return new Query(Arrays.asList(clauses), true);
+    }
+
+    private static List<String> phrase(String... terms) {
+        return ImmutableList.copyOf(terms);
+    }
+
+    private static List<Long> docIds(IIndexEntry entry) {
+        return entry.getPostingsList().stream().map(Posting::getDocId).collect(toList());
+    }
+
+    private static List<String> weights(IIndexEntry entry) {
+        return entry.getPostingsList().stream()
+                .map((posting) -> posting.getDocId() + ":" + posting.getTermFreq() + ":" + posting.getTfIdf())
+                .collect(toList());
+    }
+}
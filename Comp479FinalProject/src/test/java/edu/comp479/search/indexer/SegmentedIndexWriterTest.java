@@ -0,0 +1,276 @@
+package edu.comp479.search.indexer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import edu.comp479.search.index.IInvertedIndex;
+import edu.comp479.search.index.IndexFactory;
+import edu.comp479.search.index.MultiSegmentInvertedIndex;
+import edu.comp479.search.index.structure.IIndexEntry;
+import edu.comp479.search.index.structure.Posting;
+import edu.comp479.search.indexer.file.DeletedDocuments;
+import edu.comp479.search.indexer.file.IndexReaderMemoryMapped;
+import edu.comp479.search.indexer.file.IndexWriter;
+import edu.comp479.search.indexer.file.SegmentManifest;
+import edu.comp479.search.util.TestDirectories;
+
+class SegmentedIndexWriterTest {
+    private static final String INDEX_NAME = "segmented";
+
+    private static final String[][] DOCS = { { "happy", "shared", "shared" }, { "sad", "shared" },
+            { "happy", "happy" }, { "shared", "other" }, { "sad", "other", "other" }, { "happy", "shared" } };
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dir = Paths.get("./testIndex/segmented/");
+        TestDirectories.deleteDirectory(dir);
+        Files.createDirectories(dir);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        TestDirectories.deleteDirectory(dir);
+    }
+
+    @Test
+    void testSegmentsSearchedAsOneIndex() throws IOException {
+        try (SegmentedIndexWriter writer = new SegmentedIndexWriter(INDEX_NAME, dir, new TieredMergePolicy(10, 1000),
+                2, 1024)) {
+            for (int first = 0; first < DOCS.length; first += 2) {
+                String segmentName = writer.newSegmentName();
+                buildIndex(segmentName, first, first + 2);
+                writer.addSegment(segmentName);
+            }
+        }
+
+        MultiSegmentInvertedIndex index = new MultiSegmentInvertedIndex(INDEX_NAME, dir, ImmutableMap.of());
+        try {
+            index.refresh();
+            IIndexEntry shared = index.getPostings("shared");
+
+            assertAll(() -> assertEquals(3, index.getSegmentCount()),
+                    () -> assertEquals(DOCS.length, index.getDocumentCount()),
+                    () -> assertEquals(4, shared.getDocumentFrequency()),
+                    () -> assertThat(docIds(shared), contains(0l, 1l, 3l, 5l)),
+                    () -> assertThat(index.getDocumentLengthNorm(4), is(greaterThan(0f))),
+                    () -> assertEquals(0, index.getPostings("missing").getDocumentFrequency()));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    void testMergedSegmentsSameAsFullIndex() throws IOException {
+        buildIndex("full", 0, DOCS.length);
+        try (SegmentedIndexWriter writer = new SegmentedIndexWriter(INDEX_NAME, dir, new TieredMergePolicy(3, 1000),
+                2, 1024)) {
+            for (int first = 0; first < DOCS.length; first += 2) {
+                String segmentName = writer.newSegmentName();
+                buildIndex(segmentName, first, first + 2);
+                writer.addSegment(segmentName);
+            }
+        }
+
+        SegmentManifest manifest = SegmentManifest.read(INDEX_NAME, dir);
+        MultiSegmentInvertedIndex index = new MultiSegmentInvertedIndex(INDEX_NAME, dir, ImmutableMap.of());
+        try (IndexReaderMemoryMapped fullReader = new IndexReaderMemoryMapped("full", dir)) {
+            fullReader.open();
+            IInvertedIndex fullIndex = new IndexFactory().getIndex(fullReader, ImmutableMap.of());
+            index.refresh();
+
+            assertAll(() -> assertThat(manifest.getSegments(), hasSize(1)),
+                    () -> assertEquals(0, manifest.getSegments().get(0).getFirstDocId()),
+                    () -> assertEquals(DOCS.length, index.getDocumentCount()),
+                    () -> assertFalse(Files.exists(dir.resolve(INDEX_NAME + "_s0.desc"))));
+            for (String term : new String[] { "happy", "sad", "shared", "other" }) {
+                assertEquals(weights(fullIndex.getPostings(term)), weights(index.getPostings(term)), term);
+            }
+            for (long docId = 0; docId < DOCS.length; docId++) {
+                assertEquals(fullIndex.getDocumentLengthNorm(docId), index.getDocumentLengthNorm(docId), 1e-6);
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    void testSegmentsWeightedWithGlobalIdf() throws IOException, InterruptedException {
+        buildIndex("full", 0, DOCS.length);
+        try (SegmentedIndexWriter writer = new SegmentedIndexWriter(INDEX_NAME, dir, new TieredMergePolicy(10, 1000),
+                2, 1024)) {
+            for (int first = 0; first < DOCS.length; first += 3) {
+                String segmentName = writer.newSegmentName();
+                buildIndex(segmentName, first, first + 3);
+                writer.addSegment(segmentName);
+            }
+        }
+
+        MultiSegmentInvertedIndex index = new MultiSegmentInvertedIndex(INDEX_NAME, dir, ImmutableMap.of());
+        try (IndexReaderMemoryMapped fullReader = new IndexReaderMemoryMapped("full", dir)) {
+            fullReader.open();
+            IInvertedIndex fullIndex = new IndexFactory().getIndex(fullReader, ImmutableMap.of());
+            index.refresh();
+
+            assertEquals(2, index.getSegmentCount());
+            for (String term : new String[] { "happy", "sad", "shared", "other" }) {
+                IIndexEntry expected = fullIndex.getPostings(term);
+                IIndexEntry actual = index.getPostings(term);
+                assertAll(() -> assertEquals(expected.getDocumentFrequency(), actual.getDocumentFrequency(), term),
+                        () -> assertEquals(docIds(expected), docIds(actual), term));
+                // The weights of the index files are stored with a precision of 1/1000
+                for (int i = 0; i < expected.getPostingsList().size(); i++) {
+                    assertEquals(expected.getPostingsList().get(i).getTfIdf(),
+                            actual.getPostingsList().get(i).getTfIdf(), 1e-3, term);
+                }
+            }
+            assertTrue(index.awaitLengthNorms(10, TimeUnit.SECONDS));
+            for (long docId = 0; docId < DOCS.length; docId++) {
+                assertEquals(fullIndex.getDocumentLengthNorm(docId), index.getDocumentLengthNorm(docId), 1e-3);
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    void testLongPostingsListsReadInParallel() throws IOException {
+        int segmentDocs = (int) (MultiSegmentInvertedIndex.PARALLEL_READ_MIN_POSTINGS / 2);
+        String[][] docs = new String[segmentDocs * 3][];
+        for (int docId = 0; docId < docs.length; docId++) {
+            docs[docId] = docId % 2 == 0 ? new String[] { "common", "even" } : new String[] { "common" };
+        }
+        try (SegmentedIndexWriter writer = new SegmentedIndexWriter(INDEX_NAME, dir, new TieredMergePolicy(10,
+                docs.length), 2, 1 << 16)) {
+            for (int first = 0; first < docs.length; first += segmentDocs) {
+                String segmentName = writer.newSegmentName();
+                buildIndex(segmentName, docs, first, first + segmentDocs);
+                writer.addSegment(segmentName);
+            }
+        }
+
+        MultiSegmentInvertedIndex index = new MultiSegmentInvertedIndex(INDEX_NAME, dir, ImmutableMap.of());
+        try {
+            index.refresh();
+            IIndexEntry common = index.getPostings("common");
+            List<Long> docIds = docIds(common);
+
+            assertAll(() -> assertEquals(3, index.getSegmentCount()),
+                    () -> assertEquals(docs.length, common.getDocumentFrequency()),
+                    () -> assertEquals(docs.length, docIds.size()),
+                    () -> assertEquals(docs.length - 1, (long) docIds.get(docs.length - 1)),
+                    () -> assertEquals(0f, common.getPostingsList().get(0).getTfIdf()),
+                    () -> assertEquals(docs.length / 2, index.getPostings("even").getDocumentFrequency()));
+            for (int i = 1; i < docIds.size(); i++) {
+                assertTrue(docIds.get(i - 1) < docIds.get(i));
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    void testExpungeDropsDeletedDocuments() throws IOException {
+        String[][] liveDocs = DOCS.clone();
+        liveDocs[1] = null;
+        liveDocs[3] = null;
+        buildIndex("live", liveDocs, 0, DOCS.length);
+        buildIndex(INDEX_NAME, 0, DOCS.length);
+        DeletedDocuments.delete(INDEX_NAME, dir, Arrays.asList(1l, 3l));
+
+        try (SegmentedIndexWriter writer = new SegmentedIndexWriter(INDEX_NAME, dir, new TieredMergePolicy(), 2,
+                1024)) {
+            assertEquals(1, writer.expungeDeletes());
+        }
+
+        SegmentManifest manifest = SegmentManifest.read(INDEX_NAME, dir);
+        MultiSegmentInvertedIndex index = new MultiSegmentInvertedIndex(INDEX_NAME, dir, ImmutableMap.of());
+        try (IndexReaderMemoryMapped liveReader = new IndexReaderMemoryMapped("live", dir)) {
+            liveReader.open();
+            IInvertedIndex liveIndex = new IndexFactory().getIndex(liveReader, ImmutableMap.of());
+            index.refresh();
+
+            assertAll(() -> assertThat(manifest.getSegments(), hasSize(1)),
+                    () -> assertEquals(DOCS.length - 2, manifest.getSegments().get(0).getDocCount()),
+                    () -> assertFalse(Files.exists(dir.resolve(INDEX_NAME + ".desc"))),
+                    () -> assertThat(docIds(index.getPostings("shared")), contains(0l, 5l)));
+            for (String term : new String[] { "happy", "sad", "shared", "other" }) {
+                assertEquals(weights(liveIndex.getPostings(term)), weights(index.getPostings(term)), term);
+            }
+            for (long docId : new long[] { 0, 2, 4, 5 }) {
+                assertEquals(liveIndex.getDocumentLengthNorm(docId), index.getDocumentLengthNorm(docId), 1e-6);
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    void testSegmentWithAllDocumentsDeletedIsRemoved() throws IOException {
+        try (SegmentedIndexWriter writer = new SegmentedIndexWriter(INDEX_NAME, dir, new TieredMergePolicy(10, 1000),
+                2, 1024)) {
+            for (int first = 0; first < DOCS.length; first += 2) {
+                String segmentName = writer.newSegmentName();
+                buildIndex(segmentName, first, first + 2);
+                writer.addSegment(segmentName);
+            }
+            DeletedDocuments.delete(INDEX_NAME, dir, Arrays.asList(2l, 3l));
+            assertEquals(1, writer.expungeDeletes());
+        }
+
+        SegmentManifest manifest = SegmentManifest.read(INDEX_NAME, dir);
+        assertAll(() -> assertThat(manifest.getSegments(), hasSize(2)),
+                () -> assertEquals(INDEX_NAME + "_s0", manifest.getSegments().get(0).getName()),
+                () -> assertEquals(INDEX_NAME + "_s2", manifest.getSegments().get(1).getName()),
+                () -> assertFalse(Files.exists(dir.resolve(INDEX_NAME + "_s1.desc"))));
+    }
+
+    private void buildIndex(String name, int firstDoc, int endDoc) throws IOException {
+        buildIndex(name, DOCS, firstDoc, endDoc);
+    }
+
+    private void buildIndex(String name, String[][] docs, int firstDoc, int endDoc) throws IOException {
+        IndexBlockBuilder builder = new IndexBlockBuilder(ImmutableMap.of());
+        for (int docId = firstDoc; docId < endDoc; docId++) {
+            if (docs[docId] == null) {
+                continue;
+            }
+            for (String term : docs[docId]) {
+                builder.addPosting(term, docId);
+            }
+        }
+        String blockName = name + ".blk";
+        try (IndexWriter indexWriter = new IndexWriter(blockName, dir)) {
+            builder.writeToDisk(indexWriter);
+        }
+        Indexer.computeWeightsAndCreateFinalIndex(blockName, name, dir, dir, ImmutableMap.of());
+    }
+
+    private static List<Long> docIds(IIndexEntry entry) {
+        return entry.getPostingsList().stream().map(Posting::getDocId).collect(toList());
+    }
+
+    private static List<String> weights(IIndexEntry entry) {
+        return entry.getPostingsList().stream()
+                .map((posting) -> posting.getDocId() + ":" + posting.getTermFreq() + ":" + posting.getTfIdf())
+                .collect(toList());
+    }
+}
@@ -0,0 +1,77 @@
+package edu.comp479.search.indexer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TermDictionaryTest {
+    private TermDictionary dictionary;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dictionary = new TermDictionary();
+    }
+
+    @Test
+    void testSameTermHasSameId() {
+        int happyId = dictionary.getTermId("happy");
+        int sadId = dictionary.getTermId("sad");
+
+        assertAll(() -> assertNotEquals(happyId, sadId),
+                () -> assertEquals(happyId, dictionary.getTermId("happy")),
+                () -> assertEquals(happyId, dictionary.findTermId("happy")),
+                () -> assertEquals(-1, dictionary.findTermId("missing")),
+                () -> assertEquals("sad", dictionary.getTerm(sadId)),
+                () -> assertEquals(2, dictionary.size()));
+    }
+
+    @Test
+    void testRanksFollowTermOrderAcrossCalls() {
+        List<String> terms = new ArrayList<>(Arrays.asList("pear", "apple", "zebra", "mango"));
+        terms.forEach(dictionary::getTermId);
+        dictionary.getRanks();
+
+        // Terms added after a first ranking are merged with the ranked ones
+        List<String> moreTerms = Arrays.asList("banana", "zoo", "aardvark", "orange");
+        moreTerms.forEach(dictionary::getTermId);
+        terms.addAll(moreTerms);
+        int[] ranks = dictionary.getRanks();
+
+        terms.sort(null);
+        for (int rank = 0; rank < terms.size(); rank++) {
+            assertEquals(rank, ranks[dictionary.findTermId(terms.get(rank))]);
+        }
+    }
+
+    @Test
+    void testConcurrentTermsGetDistinctIds() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        String term = "term" + i;
+                        assertEquals(term, dictionary.getTerm(dictionary.getTermId(term)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(5000, dictionary.size());
+        assertEquals(5000, Arrays.stream(dictionary.getRanks()).distinct().count());
+    }
+}
@@ -0,0 +1,59 @@
+package edu.comp479.search.indexer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import edu.comp479.search.indexer.file.SegmentInfo;
+
+class TieredMergePolicyTest {
+    private TieredMergePolicy policy;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        policy = new TieredMergePolicy(3, 10);
+    }
+
+    @Test
+    void testTierGrowsWithSegmentSize() {
+        assertAll(() -> assertEquals(0, policy.tier(new SegmentInfo("s", 0, 9))),
+                () -> assertEquals(1, policy.tier(new SegmentInfo("s", 0, 10))),
+                () -> assertEquals(1, policy.tier(new SegmentInfo("s", 0, 29))),
+                () -> assertEquals(2, policy.tier(new SegmentInfo("s", 0, 30))));
+    }
+
+    @Test
+    void testNoMergeUnderSegmentsPerTier() {
+        List<SegmentInfo> segments = ImmutableList.of(new SegmentInfo("s0", 0, 5), new SegmentInfo("s1", 5, 5));
+
+        assertThat(policy.findMerge(segments, ImmutableSet.of()), is(empty()));
+    }
+
+    @Test
+    void testMergesConsecutiveSegmentsOfSameTier() {
+        SegmentInfo big = new SegmentInfo("s0", 0, 100);
+        SegmentInfo small1 = new SegmentInfo("s1", 100, 2);
+        SegmentInfo small2 = new SegmentInfo("s2", 102, 2);
+        SegmentInfo small3 = new SegmentInfo("s3", 104, 2);
+        List<SegmentInfo> segments = ImmutableList.of(big, small1, small2, small3);
+
+        assertThat(policy.findMerge(segments, ImmutableSet.of()), contains(small1, small2, small3));
+    }
+
+    @Test
+    void testSkipsSegmentsAlreadyMerging() {
+        List<SegmentInfo> segments = ImmutableList.of(new SegmentInfo("s0", 0, 2), new SegmentInfo("s1", 2, 2),
+                new SegmentInfo("s2", 4, 2), new SegmentInfo("s3", 6, 2));
+
+        assertAll(() -> assertThat(policy.findMerge(segments, ImmutableSet.of("s0")), hasSize(3)),
+                () -> assertThat(policy.findMerge(segments, ImmutableSet.of("s1")), is(empty())));
+    }
+}
@@ -0,0 +1,106 @@
+package edu.comp479.search.indexer.file;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DeletedDocumentsTest {
+    private static final String INDEX_NAME = "testDeleted";
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dir = Paths.get("./testIndex/");
+        Files.createDirectories(dir);
+        DeletedDocuments.clear(INDEX_NAME, dir);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        DeletedDocuments.clear(INDEX_NAME, dir);
+        Files.deleteIfExists(dir.resolve(INDEX_NAME + DeletedDocuments.LOCK_EXTENSION));
+    }
+
+    @Test
+    void testNoFileHasNoDeletedDocuments() throws IOException {
+        DeletedDocuments deleted = DeletedDocuments.open(INDEX_NAME, dir);
+
+        assertAll(() -> assertEquals(0, deleted.getDeletedCount()),
+                () -> assertEquals(0, DeletedDocuments.readGeneration(INDEX_NAME, dir)),
+                () -> assertFalse(deleted.isDeleted(0)),
+                () -> assertEquals(-1, deleted.nextDeletedDocId(0)));
+    }
+
+    @Test
+    void testDeletedDocumentsAreRead() throws IOException {
+        DeletedDocuments.delete(INDEX_NAME, dir, Arrays.asList(3l, 64l, 200l, 3l));
+        DeletedDocuments deleted = DeletedDocuments.open(INDEX_NAME, dir);
+
+        assertAll(() -> assertEquals(3, deleted.getDeletedCount()),
+                () -> assertEquals(1, deleted.getGeneration()),
+                () -> assertTrue(deleted.isDeleted(3)),
+                () -> assertTrue(deleted.isDeleted(64)),
+                () -> assertTrue(deleted.isDeleted(200)),
+                () -> assertFalse(deleted.isDeleted(4)),
+                () -> assertFalse(deleted.isDeleted(67)),
+                () -> assertFalse(deleted.isDeleted(100000)),
+                () -> assertEquals(3, deleted.nextDeletedDocId(0)),
+                () -> assertEquals(64, deleted.nextDeletedDocId(4)),
+                () -> assertEquals(200, deleted.nextDeletedDocId(65)),
+                () -> assertEquals(-1, deleted.nextDeletedDocId(201)));
+    }
+
+    @Test
+    void testDeleteCopiesTheBitset() throws IOException {
+        DeletedDocuments first = DeletedDocuments.delete(INDEX_NAME, dir, Arrays.asList(1l));
+        DeletedDocuments second = DeletedDocuments.delete(INDEX_NAME, dir, Arrays.asList(2l, 500l));
+        DeletedDocuments unchanged = DeletedDocuments.delete(INDEX_NAME, dir, Arrays.asList(2l));
+
+        assertAll(() -> assertFalse(first.isDeleted(2)),
+                () -> assertEquals(1, first.getDeletedCount()),
+                () -> assertTrue(second.isDeleted(1)),
+                () -> assertTrue(second.isDeleted(500)),
+                () -> assertEquals(3, second.getDeletedCount()),
+                () -> assertEquals(2, unchanged.getGeneration()),
+                () -> assertEquals(2, DeletedDocuments.readGeneration(INDEX_NAME, dir)));
+    }
+
+    @Test
+    void testConcurrentDeletionsAreAllKept() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<DeletedDocuments>> deletions = new ArrayList<>();
+            for (long docId = 0; docId < 32; docId++) {
+                List<Long> docIds = Arrays.asList(docId, docId + 100);
+                deletions.add(executor.submit(() -> DeletedDocuments.delete(INDEX_NAME, dir, docIds)));
+            }
+            for (Future<DeletedDocuments> deletion : deletions) {
+                deletion.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        DeletedDocuments deleted = DeletedDocuments.open(INDEX_NAME, dir);
+
+        assertAll(() -> assertEquals(64, deleted.getDeletedCount()),
+                () -> assertEquals(32, deleted.getGeneration()),
+                () -> assertTrue(deleted.isDeleted(0)),
+                () -> assertTrue(deleted.isDeleted(131)));
+    }
+}
@@ -0,0 +1,147 @@
+package edu.comp479.search.indexer.file;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import edu.comp479.search.index.InvertedIndex;
+import edu.comp479.search.index.structure.DictionaryEntry;
+import edu.comp479.search.index.structure.IIndexEntry;
+import edu.comp479.search.index.structure.Posting;
+
+class DictionaryImageTest {
+    private static final String INDEX_NAME = "testImage";
+    private static final Map<String, Integer> SENTIMENTS = ImmutableMap.of("happy", 3, "sad", -2, "joy", 3);
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Paths.get("./testIndex/");
+        Files.createDirectories(dir);
+        writeIndex("happy", "students", "university");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        IndexFileUtility.delete(INDEX_NAME, dir);
+    }
+
+    private void writeIndex(String... terms) throws IOException {
+        try (IndexWriter writer = new IndexWriter(INDEX_NAME, dir)) {
+            for (int i = 0; i < terms.length; i++) {
+                writer.write(new DictionaryEntry(terms[i], i + 1, SENTIMENTS.getOrDefault(terms[i], 0)),
+                        Arrays.asList(new Posting(i + 1, 1, 1)));
+            }
+            writer.writeFinalizeIndexWithNorm((long) terms.length,
+                    Arrays.asList(new NormFileEntry(1, 1, 0), new NormFileEntry(2, 1, 0), new NormFileEntry(3, 1, 0)));
+        }
+    }
+
+    @Test
+    void testIndexedTermsAreFound() throws IOException {
+        DictionaryImage.write(INDEX_NAME, dir, SENTIMENTS);
+        DictionaryImage image = DictionaryImage.open(INDEX_NAME, dir);
+
+        DictionaryEntry students = image.get("students");
+        assertAll(() -> assertTrue(DictionaryImage.exists(INDEX_NAME, dir)),
+                () -> assertEquals(3, image.getTermCount()),
+                () -> assertEquals("students", students.getTerm()),
+                () -> assertEquals(2, students.getDocFreq()),
+                () -> assertEquals(3, image.get("happy").getSentiment()),
+                () -> assertEquals(3, image.getSentiment("happy")),
+                () -> assertNull(image.get("student")));
+    }
+
+    @Test
+    void testSentimentTermsWithoutPostingsAreNotEntries() throws IOException {
+        DictionaryImage.write(INDEX_NAME, dir, SENTIMENTS);
+        DictionaryImage image = DictionaryImage.open(INDEX_NAME, dir);
+
+        List<String> terms = new ArrayList<>();
+        image.entries().forEach(entry -> terms.add(entry.getTerm()));
+        assertAll(() -> assertNull(image.get("sad")),
+                () -> assertEquals(-2, image.getSentiment("sad")),
+                () -> assertEquals(0, image.getSentiment("unknown")),
+                () -> assertThat(terms, containsInAnyOrder("happy", "students", "university")));
+    }
+
+    @Test
+    void testEveryTermOfALargeDictionaryIsFound() throws IOException {
+        String[] terms = new String[5000];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = String.format("term%05d", i);
+        }
+        writeIndex(terms);
+        DictionaryImage.write(INDEX_NAME, dir, SENTIMENTS);
+        DictionaryImage image = DictionaryImage.open(INDEX_NAME, dir);
+
+        for (int i = 0; i < terms.length; i++) {
+            assertEquals(i + 1, image.get(terms[i]).getDocFreq());
+        }
+        assertAll(() -> assertEquals(terms.length, image.getTermCount()),
+                () -> assertEquals(3, image.getSentiment("happy")),
+                () -> assertNull(image.get("term05000")),
+                () -> assertNull(image.get("happy")));
+    }
+
+    @Test
+    void testImageIsOutdatedOnceTheDictionaryChanges() throws IOException {
+        DictionaryImage.write(INDEX_NAME, dir, SENTIMENTS);
+        DictionaryImage image = DictionaryImage.open(INDEX_NAME, dir);
+        assertTrue(image.isCurrent(INDEX_NAME, dir, 3));
+
+        writeIndex("happy", "students", "universities");
+
+        assertFalse(image.isCurrent(INDEX_NAME, dir, 3));
+    }
+
+    @Test
+    void testIndexOverTheImageReadsThePostings() throws IOException {
+        DictionaryImage.write(INDEX_NAME, dir, SENTIMENTS);
+
+        try (IndexReaderMemoryMapped reader = new IndexReaderMemoryMapped(INDEX_NAME, dir)) {
+            reader.open();
+            InvertedIndex decoded = new InvertedIndex(reader.readCompleteDictionary(), reader, SENTIMENTS);
+            InvertedIndex mapped = new InvertedIndex(DictionaryImage.open(INDEX_NAME, dir), reader);
+
+            for (String term : Arrays.asList("happy", "students", "sad", "unknown")) {
+                IIndexEntry expected = decoded.getPostings(term);
+                IIndexEntry actual = mapped.getPostings(term);
+                assertEquals(expected.getDocumentFrequency(), actual.getDocumentFrequency());
+                assertEquals(expected.getSentimentValue(), actual.getSentimentValue());
+                assertEquals(expected.getPostingsList().toString(), actual.getPostingsList().toString());
+            }
+        }
+    }
+
+    @Test
+    void testIndexOverTheImageReadsTheSentiments() throws IOException {
+        DictionaryImage.write(INDEX_NAME, dir, SENTIMENTS);
+
+        try (IndexReaderMemoryMapped reader = new IndexReaderMemoryMapped(INDEX_NAME, dir)) {
+            reader.open();
+            InvertedIndex mapped = new InvertedIndex(DictionaryImage.open(INDEX_NAME, dir), reader);
+
+            assertAll(() -> assertEquals(3, mapped.getSentiment("happy")),
+                    () -> assertEquals(-2, mapped.getSentiment("sad")),
+                    () -> assertEquals(0, mapped.getSentiment("students")),
+                    () -> assertEquals(0, mapped.getSentiment("unknown")));
+        }
+    }
+}
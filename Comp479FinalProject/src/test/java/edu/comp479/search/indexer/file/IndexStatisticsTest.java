@@ -0,0 +1,103 @@
+package edu.comp479.search.indexer.file;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.comp479.search.index.structure.DictionaryEntry;
+import edu.comp479.search.index.structure.Posting;
+
+class IndexStatisticsTest {
+    private static final String INDEX_NAME = "statsIndex";
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Paths.get("./testIndex/");
+        Files.createDirectories(dir);
+
+        try (IndexWriter writer = new IndexWriter(INDEX_NAME, dir)) {
+            // The tf-idf of 1 is encoded as 1000 on 2 bytes, the other fields on 1
+            writer.write(new DictionaryEntry("a", 1, 0), Arrays.asList(new Posting(4, 1, 1)));
+            // The gap of 298 takes 2 bytes
+            writer.write(new DictionaryEntry("b", 3, 0),
+                    Arrays.asList(new Posting(1, 2, 1), new Posting(2, 1, 1), new Posting(300, 1, 1)));
+            writer.write(new DictionaryEntry("c", 2, 0), Arrays.asList(new Posting(1, 1, 1), new Posting(3, 1, 1)));
+            writer.writeFinalizeIndex(300);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        IndexFileUtility.delete(INDEX_NAME, dir);
+    }
+
+    @Test
+    void postingsAreMeasuredByComponent() throws IOException {
+        IndexStatistics statistics = IndexStatistics.collect(INDEX_NAME, dir);
+
+        assertEquals(3, statistics.getTermCount());
+        assertEquals(300, statistics.getDocCount());
+        PostingsSize size = statistics.getPostingsSize();
+        assertEquals(6, size.getPostingCount());
+        assertEquals(7, size.getDocDeltaBytes());
+        assertEquals(6, size.getTermFreqBytes());
+        assertEquals(12, size.getTfIdfBytes());
+        assertEquals(statistics.getPostingsFileBytes(), size.getTotalBytes());
+        assertEquals(Files.size(dir.resolve(INDEX_NAME + IndexFileUtility.DICTIONARY_EXTENSION)),
+                statistics.getDictionaryFileBytes());
+    }
+
+    @Test
+    void listsAreCountedByLength() throws IOException {
+        IndexStatistics statistics = IndexStatistics.collect(INDEX_NAME, dir);
+
+        assertEquals(1, statistics.getTermCountByLength(0));
+        assertEquals(2, statistics.getTermCountByLength(1));
+        assertEquals(0, statistics.getTermCountByLength(2));
+        assertEquals(0, IndexStatistics.lengthClass(1));
+        assertEquals(1, IndexStatistics.lengthClass(3));
+        assertEquals(2, IndexStatistics.lengthClass(4));
+    }
+
+    @Test
+    void longestListsAreKept() throws IOException {
+        IndexStatistics statistics = IndexStatistics.collect(INDEX_NAME, dir, 2, 64);
+
+        List<IndexStatistics.TermLength> lists = statistics.getLongestLists();
+        assertEquals(Arrays.asList("b", "c"), lists.stream().map(IndexStatistics.TermLength::getTerm).collect(toList()));
+        assertEquals(3, lists.get(0).getDocFreq());
+        assertEquals(13, lists.get(0).getBytes());
+        assertEquals(8, lists.get(1).getBytes());
+    }
+
+    @Test
+    void reportListsTheStatistics() throws IOException {
+        String report = IndexStatistics.collect(INDEX_NAME, dir).toReport();
+
+        assertThat(report, startsWith("Index: statsIndex\nTerms: 3\nDocuments: 300\nPostings: 6, 2.00 per term\n"));
+        assertThat(report, containsString("  docDelta     1.167  (7 bytes, 28.0%)\n"));
+        assertThat(report, containsString("  total        4.167  (25 bytes, 100.0%)\n"));
+        assertThat(report, containsString("[2, 3]"));
+        assertThat(report, containsString("Longest postings lists:"));
+    }
+
+    @Test
+    void topCountCannotBeNegative() {
+        assertThrows(IllegalArgumentException.class, () -> IndexStatistics.collect(INDEX_NAME, dir, -1, 64));
+    }
+}
@@ -0,0 +1,46 @@
+package edu.comp479.search.indexer.file;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class MinimalPerfectHashTest {
+
+    private static BitSet placeAll(long[] fingerprints) {
+        int[] seeds = MinimalPerfectHash.build(fingerprints);
+        assertEquals(MinimalPerfectHash.bucketCount(fingerprints.length), seeds.length);
+
+        BitSet used = new BitSet(fingerprints.length);
+        for (long fingerprint : fingerprints) {
+            int seed = seeds[MinimalPerfectHash.bucket(fingerprint, seeds.length)];
+            int slot = MinimalPerfectHash.slot(fingerprint, seed, fingerprints.length);
+            assertTrue(slot >= 0 && slot < fingerprints.length, "Slot out of range: " + slot);
+            assertFalse(used.get(slot), "Slot used twice: " + slot);
+            used.set(slot);
+        }
+        return used;
+    }
+
+    @Test
+    void testEveryFingerprintHasItsOwnSlot() {
+        Random random = new Random(479);
+        long[] fingerprints = random.longs(100_000).distinct().toArray();
+
+        assertEquals(fingerprints.length, placeAll(fingerprints).cardinality());
+    }
+
+    @Test
+    void testSmallSetsArePlaced() {
+        assertEquals(0, placeAll(new long[0]).cardinality());
+        assertEquals(1, placeAll(new long[] { 42 }).cardinality());
+        assertEquals(3, placeAll(new long[] { 1, 2, 3 }).cardinality());
+    }
+
+    @Test
+    void testRepeatedFingerprintIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> MinimalPerfectHash.build(new long[] { 7, 3, 7 }));
+    }
+}
@@ -0,0 +1,163 @@
+package edu.comp479.search.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallDurationsAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100; nanos++) {
+            histogram.record(nanos);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getTotalNanos());
+        assertEquals(100, histogram.getMaxNanos());
+        assertEquals(50, histogram.getValueAtQuantile(0.5));
+        assertEquals(99, histogram.getValueAtQuantile(0.99));
+        assertEquals(100, histogram.getValueAtQuantile(0.999));
+        assertEquals(1, histogram.getValueAtQuantile(0));
+        assertEquals(100, histogram.getValueAtQuantile(1));
+    }
+
+    @Test
+    void quantilesAreWithinOnePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long count = 100_000;
+        for (long i = 1; i <= count; i++) {
+            histogram.record(i * 1_000);
+        }
+
+        for (double quantile : new double[] { 0.1, 0.5, 0.9, 0.99, 0.999 }) {
+            double expected = quantile * count * 1_000;
+            assertThat(quantile + "", (double) histogram.getValueAtQuantile(quantile),
+                    closeTo(expected, expected * 0.01));
+        }
+        assertEquals(count * 1_000, histogram.getMaxNanos());
+        assertEquals(count * 1_000, histogram.getValueAtQuantile(1));
+    }
+
+    @Test
+    void bucketsCoverTheDurations() {
+        Random random = new Random(479);
+        for (int i = 0; i < 10_000; i++) {
+            long nanos = random.nextLong() >>> (1 + random.nextInt(63));
+            int index = LatencyHistogram.bucketIndex(nanos);
+            long highest = LatencyHistogram.highestValueInBucket(index);
+            assertThat(highest, greaterThanOrEqualTo(nanos));
+            assertThat((double) highest, lessThanOrEqualTo(nanos * 1.01 + 1));
+            if (index > 0) {
+                assertThat(LatencyHistogram.highestValueInBucket(index - 1), lessThan(nanos));
+            }
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueInBucket(LatencyHistogram.bucketIndex(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void emptyHistogramIsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getValueAtQuantile(0.99));
+        assertEquals(0, histogram.getMeanMs());
+        assertEquals("{\"count\": 0, \"meanMs\": 0.000, \"p50Ms\": 0.000, \"p99Ms\": 0.000, \"p999Ms\": 0.000, "
+                + "\"maxMs\": 0.000}", histogram.toJson());
+    }
+
+    @Test
+    void negativeDurationIsRejected() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtQuantile(1.5));
+    }
+
+    @Test
+    void registryIsWrittenAsText() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("query.count").add(3);
+        // The quantiles are capped by the maximum, exact here
+        metrics.histogram("query.total").record(4_000_000);
+        metrics.histogram("query.total").record(4_000_000);
+        metrics.gauge("index.size", () -> 1.5);
+
+        assertEquals("index_size 1.5\n"
+                + "query_count_total 3\n"
+                + "query_total_seconds{quantile=\"0.5\"} 0.004\n"
+                + "query_total_seconds{quantile=\"0.99\"} 0.004\n"
+                + "query_total_seconds{quantile=\"0.999\"} 0.004\n"
+                + "query_total_seconds_max 0.004\n"
+                + "query_total_seconds_sum 0.008\n"
+                + "query_total_seconds_count 2\n", metrics.toText());
+    }
+
+    @Test
+    void histogramsAreExportedThroughJmx() throws JMException {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.histogram("test.stage").record(1_000_000);
+        metrics.counter("test.count").increment();
+        String domain = "edu.comp479.search.test";
+
+        metrics.registerLatencyMBeans(domain);
+        metrics.registerLatencyMBeans(domain);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(domain + ":type=Latency,name=\"test.stage\"");
+        try {
+            assertEquals(1L, server.getAttribute(name, "Count"));
+            assertEquals(1.0, (double) server.getAttribute(name, "MaxMs"), 0.01);
+            assertEquals(1, server.queryNames(new ObjectName(domain + ":*"), null).size());
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    void metricsAreServedOverHttp() throws IOException {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("query.count").add(3);
+
+        try (MetricsHttpServer server = new MetricsHttpServer(metrics, 0)) {
+            server.start();
+            URL url = new URL("http://127.0.0.1:" + server.getPort() + MetricsHttpServer.PATH);
+
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertEquals(MetricsHttpServer.CONTENT_TYPE, connection.getContentType());
+            assertEquals("query_count_total 3\n", read(connection.getInputStream()));
+
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("DELETE");
+            assertEquals(405, connection.getResponseCode());
+        }
+    }
+
+    private static String read(InputStream input) throws IOException {
+        try (InputStream in = input) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package edu.comp479.search.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import edu.comp479.search.indexer.IndexBlockBuilder;
+import edu.comp479.search.indexer.IndexBlockMerger;
+import edu.comp479.search.indexer.Indexer;
+import edu.comp479.search.indexer.TermDictionary;
+import edu.comp479.search.indexer.file.IndexDataMapperFactory;
+import edu.comp479.search.indexer.file.IndexWriter;
+import edu.comp479.search.tokenizer.DocumentTerms;
+import edu.comp479.search.tokenizer.IDocumentTermStream;
+import edu.comp479.search.util.TestDirectories;
+
+class MetricsRegistryTest {
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Paths.get("./testIndex/metrics/");
+        TestDirectories.deleteDirectory(dir);
+        Files.createDirectories(dir);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        TestDirectories.deleteDirectory(dir);
+    }
+
+    @Test
+    void metricsAreCreatedOnFirstUse() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("a.count").increment();
+        metrics.counter("a.count").add(2);
+        metrics.timer("a.time").record(3_000_000);
+        metrics.timer("a.time").record(1_000_000);
+        metrics.highWaterMark("a.max").update(5);
+        metrics.highWaterMark("a.max").update(2);
+
+        assertEquals(3, metrics.counter("a.count").getCount());
+        assertEquals(2, metrics.timer("a.time").getCount());
+        assertEquals(4_000_000, metrics.timer("a.time").getTotalNanos());
+        assertEquals(3_000_000, metrics.timer("a.time").getMaxNanos());
+        assertEquals(5, metrics.highWaterMark("a.max").get());
+        assertThat(metrics.getMetrics().keySet(), contains("a.count", "a.max", "a.time"));
+    }
+
+    @Test
+    void nameIsBoundToItsType() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("name");
+
+        assertThrows(IllegalArgumentException.class, () -> metrics.timer("name"));
+        assertThrows(IllegalArgumentException.class, () -> metrics.gauge("name", () -> 1));
+    }
+
+    @Test
+    void toJsonListsTheMetricsByName() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.timer("b.time").record(2_500_000);
+        metrics.counter("a.count").add(7);
+        metrics.gauge("c.rate", () -> 1.0 / 3);
+        metrics.gauge("d.undefined", () -> 1.0 / 0);
+
+        assertEquals("{\n" //
+                + "  \"a.count\": 7,\n" //
+                + "  \"b.time\": {\"count\": 1, \"totalMs\": 2.500, \"meanMs\": 2.500, \"maxMs\": 2.500},\n" //
+                + "  \"c.rate\": 0.333,\n" //
+                + "  \"d.undefined\": null\n" //
+                + "}\n", metrics.toJson());
+    }
+
+    @Test
+    void writeJsonReplacesTheReport() throws IOException {
+        MetricsRegistry metrics = new MetricsRegistry();
+        Path report = dir.resolve("report.json");
+        Files.write(report, "previous report, longer than the new one".getBytes(StandardCharsets.UTF_8));
+        metrics.counter("count").increment();
+
+        metrics.writeJson(report);
+
+        assertEquals(metrics.toJson(), new String(Files.readAllBytes(report), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void indexerRecordsTheBuild() throws IOException {
+        String[][] docs = { { "happy", "happy", "sad" }, { "sad" }, { "other", "happy" } };
+        List<DocumentTerms> documents = new ArrayList<>();
+        for (int docId = 0; docId < docs.length; docId++) {
+            DocumentTerms.Builder builder = DocumentTerms.builder(docId);
+            for (String term : docs[docId]) {
+                builder.add(term);
+            }
+            documents.add(builder.build());
+        }
+        Iterator<DocumentTerms> iterator = documents.iterator();
+        IDocumentTermStream documentStream = new IDocumentTermStream() {
+            @Override
+            public DocumentTerms nextDocument() {
+                return iterator.next();
+            }
+
+            @Override
+            public boolean hasNextDocument() {
+                return iterator.hasNext();
+            }
+        };
+
+        Indexer indexer = new Indexer("built", documentStream, dir, dir, 16, 4, 1024, 1024);
+        indexer.execute();
+        MetricsRegistry metrics = indexer.getMetrics();
+
+        assertEquals(6, metrics.counter("tokenstream.tokens").getCount());
+        assertEquals(3, metrics.counter("tokenstream.documents").getCount());
+        assertEquals(3, metrics.counter("indexer.distinctTerms").getCount());
+        assertEquals(1, metrics.counter("spimi.blocks").getCount());
+        assertThat(metrics.counter("spimi.bytesWritten").getCount(), greaterThan(0l));
+        assertThat(metrics.counter("indexer.bytesWritten").getCount(), greaterThan(0l));
+        assertEquals(1, metrics.timer("indexer.total").getCount());
+        assertThat(metrics.highWaterMark("jvm.heap.usedHighWaterBytes").get(), greaterThan(0l));
+        assertThat(metrics.getMetrics().keySet(),
+                hasItems("tokenstream.tokensPerSecond", "jvm.heap.peakUsedBytes", "indexer.phase.merge"));
+        assertThat(metrics.toJson(), containsString("\"tokenstream.documents\": 3"));
+    }
+
+    @Test
+    void mergerRecordsEachPass() throws IOException {
+        TermDictionary termDictionary = new TermDictionary();
+        List<String> blockNames = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            IndexBlockBuilder block = new IndexBlockBuilder(ImmutableMap.of(), termDictionary);
+            block.addPosting("term" + i, i);
+            block.addPosting("shared", i);
+            String blockName = "block" + i;
+            try (IndexWriter writer = new IndexWriter(blockName, dir)) {
+                block.writeToDisk(writer);
+            }
+            blockNames.add(blockName);
+        }
+        MetricsRegistry metrics = new MetricsRegistry();
+
+        new IndexBlockMerger("merged", blockNames, dir, dir, new IndexDataMapperFactory(), termDictionary, 2, 1024,
+                1024, metrics).externalMultiwayMerge();
+
+        assertEquals(2, metrics.timer("merge.passes").getCount());
+        assertEquals(4, metrics.counter("merge.pass0.blocks").getCount());
+        assertEquals(2, metrics.counter("merge.pass1.blocks").getCount());
+        assertEquals(metrics.counter("merge.pass0.bytesWritten").getCount(),
+                metrics.counter("merge.pass1.bytesRead").getCount());
+        assertEquals(metrics.counter("merge.pass0.bytesRead").getCount()
+                + metrics.counter("merge.pass1.bytesRead").getCount(), metrics.counter("merge.bytesRead").getCount());
+        assertThat(metrics.counter("merge.pass1.bytesWritten").getCount(), greaterThan(0l));
+    }
+}
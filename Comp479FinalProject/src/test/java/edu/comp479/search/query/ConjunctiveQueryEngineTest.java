@@ -0,0 +1,101 @@
+package edu.comp479.search.query;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.comp479.search.index.IInvertedIndex;
+import edu.comp479.search.index.structure.DictionaryEntry;
+import edu.comp479.search.index.structure.IIndexEntry;
+import edu.comp479.search.index.structure.IndexEntry;
+import edu.comp479.search.index.structure.Posting;
+
+class ConjunctiveQueryEngineTest {
+
+    @Test
+    void testGallopFindsEachDocIdOrItsInsertionPoint() {
+        long[] docIds = { 2, 3, 5, 8, 13, 21, 34, 55, 89 };
+
+        for (int from = 0; from < docIds.length; from++) {
+            for (long docId = 0; docId < 100; docId++) {
+                int expected = Arrays.binarySearch(docIds, from, docIds.length, docId);
+                if (docId < docIds[from]) {
+                    continue;
+                }
+                assertEquals(expected, ConjunctiveQueryEngine.gallop(docIds, from, docId), from + ":" + docId);
+            }
+        }
+    }
+
+    @Test
+    void testIntersectionSameAsSets() {
+        Random random = new Random(479);
+        for (int i = 0; i < 50; i++) {
+            TreeSet<Long> shorter = randomDocIds(random, 1 + random.nextInt(50));
+            TreeSet<Long> longer = randomDocIds(random, 1 + random.nextInt(5000));
+            TreeSet<Long> expected = new TreeSet<>(shorter);
+            expected.retainAll(longer);
+
+            assertArrayEquals(toArray(expected), ConjunctiveQueryEngine.intersect(Arrays.asList(toArray(longer),
+                    toArray(shorter))));
+        }
+    }
+
+    @Test
+    void testPhraseNeedsConsecutivePositions() {
+        assertAll(() -> assertTrue(ConjunctiveQueryEngine.containsPhrase(new int[][] { { 0, 7 }, { 3, 8 } })),
+                () -> assertFalse(ConjunctiveQueryEngine.containsPhrase(new int[][] { { 0, 7 }, { 3, 9 } })),
+                () -> assertTrue(ConjunctiveQueryEngine.containsPhrase(new int[][] { { 4 }, { 5 }, { 6 } })),
+                () -> assertFalse(ConjunctiveQueryEngine.containsPhrase(new int[][] { { 4 }, { 5 }, { 7 } })));
+    }
+
+    @Test
+    void testTermsMatchWithoutReadingPositions() {
+        IInvertedIndex index = mock(IInvertedIndex.class);
+        when(index.getPostings("happy")).thenReturn(entry("happy", 1, 4, 9, 12));
+        when(index.getPostings("students")).thenReturn(entry("students", 4, 5, 12));
+
+        long[] matches = new ConjunctiveQueryEngine(index).match(new Query(
+                Arrays.asList(ImmutableList.of("happy"), ImmutableList.of("students")), true));
+
+        assertArrayEquals(new long[] { 4, 12 }, matches);
+        verify(index, never()).getPositionalPostings(any());
+    }
+
+    @Test
+    void testMissingTermMatchesNothing() {
+        IInvertedIndex index = mock(IInvertedIndex.class);
+        when(index.getPostings("happy")).thenReturn(entry("happy", 1, 4));
+        when(index.getPostings("missing")).thenReturn(entry("missing"));
+
+        assertArrayEquals(new long[0], new ConjunctiveQueryEngine(index).match(new Query(
+                Arrays.asList(ImmutableList.of("missing"), ImmutableList.of("happy")), true)));
+    }
+
+    private static IIndexEntry entry(String term, long... docIds) {
+        ImmutableList.Builder<Posting> postings = ImmutableList.builder();
+        for (long docId : docIds) {
+            postings.add(new Posting(docId, 1, 1));
+        }
+        return new IndexEntry(new DictionaryEntry(term, docIds.length, 0), postings.build());
+    }
+
+    private static TreeSet<Long> randomDocIds(Random random, int count) {
+        TreeSet<Long> docIds = new TreeSet<>();
+        while (docIds.size() < count) {
+            docIds.add((long) random.nextInt(10000));
+        }
+        return docIds;
+    }
+
+    private static long[] toArray(TreeSet<Long> docIds) {
+        return docIds.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,48 @@
+package edu.comp479.search.query;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import edu.comp479.search.tokenizer.TokenizerNormalize;
+
+class QueryParserTest {
+    private final QueryParser parser = new QueryParser(new TokenizerNormalize());
+
+    @Test
+    void testPlainQueryIsABagOfWords() {
+        Query query = parser.parse("Happy students and universities");
+
+        assertAll(() -> assertFalse(query.isConjunctive()),
+                () -> assertThat(query.getTerms(), contains("happy", "students", "universities")));
+    }
+
+    @Test
+    void testAndOperatorMakesTheQueryConjunctive() {
+        Query query = parser.parse("happy AND students");
+
+        assertAll(() -> assertTrue(query.isConjunctive()),
+                () -> assertThat(query.getClauses(), contains(Arrays.asList("happy"), Arrays.asList("students"))));
+    }
+
+    @Test
+    void testQuotedTextIsAPhrase() {
+        Query query = parser.parse("\"Concordia University\" montreal");
+
+        assertAll(() -> assertTrue(query.isConjunctive()),
+                () -> assertThat(query.getClauses(),
+                        contains(Arrays.asList("concordia", "university"), Arrays.asList("montreal"))),
+                () -> assertThat(query.getTerms(), contains("concordia", "university", "montreal")));
+    }
+
+    @Test
+    void testStopWordsAreDropped() {
+        Query query = parser.parse("the AND \"\"");
+
+        assertAll(() -> assertTrue(query.isConjunctive()), () -> assertThat(query.getClauses(), is(empty())));
+    }
+}
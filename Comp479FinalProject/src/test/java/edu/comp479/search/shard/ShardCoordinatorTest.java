@@ -0,0 +1,333 @@
+package edu.comp479.search.shard;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.stream.Collectors.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import edu.comp479.ranking.RankEngine;
+import edu.comp479.search.index.FilteredInvertedIndex;
+import edu.comp479.search.index.IInvertedIndex;
+import edu.comp479.search.index.IndexFactory;
+import edu.comp479.search.indexer.Indexer;
+import edu.comp479.search.indexer.file.DeletedDocuments;
+import edu.comp479.search.indexer.file.IndexFileUtility;
+import edu.comp479.search.indexer.file.IndexReaderMemoryMapped;
+import edu.comp479.search.program.AppIndex;
+import edu.comp479.search.program.Program;
+import edu.comp479.search.tokenizer.DocumentTerms;
+import edu.comp479.search.tokenizer.IDocumentTermStream;
+import edu.comp479.search.util.TestDirectories;
+
+class ShardCoordinatorTest {
+    private static final String INDEX_NAME = "sharded";
+    private static final String FULL_INDEX_NAME = "full";
+    private static final int SHARD_COUNT = 2;
+    private static final Map<String, Integer> SENTIMENTS = ImmutableMap.of("happy", 3, "sad", -2);
+
+    // The term "common" is in every document of the shard 0 only
+    private static final String[][] DOCS = { { "common", "happy", "happy" }, { "common", "sad" },
+            { "common", "other", "other" }, { "common", "happy" }, { "sad", "happy" }, { "happy", "other" },
+            { "sad", "sad", "happy" }, { "other" } };
+
+    private Path indexDir;
+    private Path constructDir;
+    private List<IndexReaderMemoryMapped> readers = new ArrayList<>();
+    private List<ShardServer> servers = new ArrayList<>();
+    private List<Process> processes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        indexDir = Paths.get("./testIndex/shards/");
+        constructDir = Paths.get("./testDump/shards/");
+        TestDirectories.deleteDirectory(indexDir);
+        TestDirectories.deleteDirectory(constructDir);
+        Files.createDirectories(indexDir);
+        Files.createDirectories(constructDir);
+
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            long firstDocId = AppIndex.shardFirstDocId(shard, SHARD_COUNT, DOCS.length);
+            long endDocId = AppIndex.shardFirstDocId(shard + 1, SHARD_COUNT, DOCS.length);
+            buildIndex(AppIndex.shardIndexName(INDEX_NAME, shard), (docId) -> docId >= firstDocId && docId < endDocId);
+        }
+        AppIndex.writeShardNorms(indexDir, INDEX_NAME, SHARD_COUNT);
+        buildIndex(FULL_INDEX_NAME, (docId) -> true);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (Process process : processes) {
+            process.destroyForcibly().waitFor();
+        }
+        for (ShardServer server : servers) {
+            server.close();
+        }
+        for (IndexReaderMemoryMapped reader : readers) {
+            reader.close();
+        }
+        TestDirectories.deleteDirectory(indexDir);
+        TestDirectories.deleteDirectory(constructDir);
+    }
+
+    @Test
+    void testShardsRankedLikeFullIndex() throws IOException {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            ShardServer server = new ShardServer(
+                    new ShardSearcher(openIndex(AppIndex.shardIndexName(INDEX_NAME, shard))), 0);
+            server.start();
+            servers.add(server);
+            addresses.add(new InetSocketAddress("localhost", server.getPort()));
+        }
+        IInvertedIndex fullIndex = openIndex(FULL_INDEX_NAME);
+
+        try (ShardCoordinator coordinator = new ShardCoordinator(addresses)) {
+            // Of positive, negative and neutral sentiment
+            for (List<String> query : Arrays.asList(Arrays.asList("common", "happy", "happy"),
+                    Arrays.asList("sad", "other", "missing"), Arrays.asList("other", "common"))) {
+                List<ScoredDocument> expected = rank(fullIndex, query);
+                List<ScoredDocument> results = coordinator.search(query, DOCS.length);
+                List<ScoredDocument> topResults = coordinator.search(query, 3);
+
+                assertAll(() -> assertThat(docIds(results), equalTo(docIds(expected))),
+                        () -> assertThat(docIds(topResults), equalTo(docIds(expected).subList(0, 3))));
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).getScore(), results.get(i).getScore(), 1e-4, query.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testShardNormsWeightedWithGlobalIdf() throws IOException {
+        IInvertedIndex fullIndex = openIndex(FULL_INDEX_NAME);
+        List<IInvertedIndex> shards = new ArrayList<>();
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            shards.add(openIndex(AppIndex.shardIndexName(INDEX_NAME, shard)));
+        }
+
+        for (long docId = 0; docId < DOCS.length; docId++) {
+            IInvertedIndex shard = shards.get((int) (docId * SHARD_COUNT / DOCS.length));
+            assertEquals(fullIndex.getDocumentLengthNorm(docId), shard.getDocumentLengthNorm(docId), 1e-5);
+        }
+    }
+
+    @Test
+    void testStatisticsOfThePostings() throws IOException {
+        IInvertedIndex index = spy(openIndex(AppIndex.shardIndexName(INDEX_NAME, 0)));
+        ShardSearcher searcher = new ShardSearcher(index);
+
+        ShardStatistics statistics = searcher.getStatistics(Arrays.asList("common", "happy", "sad", "missing"));
+        TermStatistics common = statistics.getTermStatistics(0);
+        TermStatistics happy = statistics.getTermStatistics(1);
+        TermStatistics sad = statistics.getTermStatistics(2);
+        TermStatistics missing = statistics.getTermStatistics(3);
+
+        assertAll(() -> assertEquals(4, statistics.getDocumentCount()),
+                () -> assertEquals(4, common.getDocumentFrequency()),
+                () -> assertEquals(4, common.getTermFreqSum()),
+                () -> assertEquals(2, happy.getDocumentFrequency()),
+                () -> assertEquals(3, happy.getTermFreqSum()),
+                () -> assertEquals(3, happy.getLastDocId()),
+                () -> assertEquals(1, happy.getLastTermFreq()),
+                () -> assertEquals(SENTIMENTS.get("happy").intValue(), happy.getSentiment()),
+                () -> assertEquals(SENTIMENTS.get("sad").intValue(), sad.getSentiment()),
+                () -> assertEquals(1, sad.getLastDocId()),
+                () -> assertEquals(0, missing.getDocumentFrequency()),
+                () -> assertEquals(-1, missing.getLastDocId()));
+    }
+
+    @Test
+    void testPostingsReadOncePerQuery() throws IOException {
+        IInvertedIndex index = spy(openIndex(AppIndex.shardIndexName(INDEX_NAME, 0)));
+        ShardSearcher searcher = new ShardSearcher(index);
+
+        searcher.getStatistics(Arrays.asList("common", "happy"));
+        List<ScoredDocument> results = searcher.search(ImmutableMap.of("common", 1d, "happy", 1d),
+                ImmutableMap.of(), 0, 10);
+
+        assertThat(docIds(results), containsInAnyOrder(0l, 1l, 2l, 3l));
+        verify(index, times(1)).getPostings("common");
+        verify(index, times(1)).getPostings("happy");
+    }
+
+    @Test
+    void testDeletedDocumentsRefreshedOnEachQuery() throws IOException {
+        String indexName = AppIndex.shardIndexName(INDEX_NAME, 0);
+        ShardSearcher searcher = new ShardSearcher(
+                new FilteredInvertedIndex(openIndex(indexName), indexName, indexDir));
+        Map<String, Double> termWeights = ImmutableMap.of("common", 1d);
+
+        searcher.getStatistics(Arrays.asList("common"));
+        List<ScoredDocument> results = searcher.search(termWeights, ImmutableMap.of(), 0, 10);
+        DeletedDocuments.delete(indexName, indexDir, Arrays.asList(1l, 2l));
+        TermStatistics refreshedStatistics = searcher.getStatistics(Arrays.asList("common")).getTermStatistics(0);
+        List<ScoredDocument> refreshedResults = searcher.search(termWeights, ImmutableMap.of(), 0, 10);
+
+        assertAll(() -> assertThat(docIds(results), containsInAnyOrder(0l, 1l, 2l, 3l)),
+                () -> assertEquals(2, refreshedStatistics.getDocumentFrequency()),
+                () -> assertThat(docIds(refreshedResults), containsInAnyOrder(0l, 3l)));
+    }
+
+    @Test
+    void testFailedConnectionReplacedOnNextQuery() throws IOException {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        List<ShardSearcher> searchers = new ArrayList<>();
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            ShardSearcher searcher = spy(new ShardSearcher(openIndex(AppIndex.shardIndexName(INDEX_NAME, shard))));
+            ShardServer server = new ShardServer(searcher, 0);
+            server.start();
+            servers.add(server);
+            searchers.add(searcher);
+            addresses.add(new InetSocketAddress("localhost", server.getPort()));
+        }
+        // The server closes the connection without answering the first request
+        doThrow(new IllegalStateException("Shard failure")).doCallRealMethod().when(searchers.get(1))
+                .getStatistics(anyList());
+
+        List<String> query = Arrays.asList("sad", "other");
+        try (ShardCoordinator coordinator = new ShardCoordinator(addresses)) {
+            assertThrows(IOException.class, () -> coordinator.search(query, 10));
+            List<ScoredDocument> results = coordinator.search(query, 10);
+
+            assertThat(docIds(results), containsInAnyOrder(1l, 2l, 4l, 5l, 6l, 7l));
+        }
+    }
+
+    @Test
+    void testShardsServedByLocalProcesses() throws Exception {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            addresses.add(new InetSocketAddress("localhost", startShardProcess(
+                    AppIndex.shardIndexName(INDEX_NAME, shard))));
+        }
+
+        try (ShardCoordinator coordinator = new ShardCoordinator(addresses)) {
+            List<ScoredDocument> results = coordinator.search(Arrays.asList("sad", "other"), 10);
+
+            assertThat(docIds(results), containsInAnyOrder(1l, 2l, 4l, 5l, 6l, 7l));
+        }
+    }
+
+    @Test
+    void testShardNormsCoverTheirOwnDocuments() throws IOException {
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            Path normsPath = indexDir.resolve(AppIndex.shardIndexName(INDEX_NAME, shard)
+                    + IndexFileUtility.NORMS_EXTENSION);
+
+            long shardDocCount = DOCS.length / SHARD_COUNT;
+
+            assertEquals(IndexFileUtility.NORM_HEADER_SIZE + shardDocCount * IndexFileUtility.NORM_ENTRY_SIZE,
+                    Files.size(normsPath));
+        }
+    }
+
+    @Test
+    void testParseAddresses() {
+        List<InetSocketAddress> addresses = ShardCoordinator.parseAddresses("localhost:9001, 127.0.0.1:9002");
+
+        assertAll(() -> assertThat(addresses, hasSize(2)),
+                () -> assertEquals("localhost", addresses.get(0).getHostString()),
+                () -> assertEquals(9002, addresses.get(1).getPort()),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> ShardCoordinator.parseAddresses("localhost")));
+    }
+
+    /**
+     * Ranks the documents of the full index like a search on it.
+     */
+    private static List<ScoredDocument> rank(IInvertedIndex index, List<String> query) throws IOException {
+        Map<String, Integer> sentimentMap = new HashMap<>();
+        for (String term : query) {
+            sentimentMap.put(term, index.getSentiment(term));
+        }
+
+        List<ScoredDocument> results = new ArrayList<>();
+        for (Map<Integer, Double> rankedDocument : new RankEngine(index).rankDocuments(query, sentimentMap)
+                .values()) {
+            rankedDocument.forEach((docId, score) -> results.add(new ScoredDocument(docId, score)));
+        }
+        return results;
+    }
+
+    private int startShardProcess(String indexName) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                Program.class.getName(), "serve", indexName, "--src-dir", indexDir.toString()).redirectError(
+                        ProcessBuilder.Redirect.INHERIT).start();
+        processes.add(process);
+
+        BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        Pattern portPattern = Pattern.compile("listening on port (\\d+)");
+        String line;
+        while ((line = output.readLine()) != null) {
+            Matcher matcher = portPattern.matcher(line);
+            if (matcher.find()) {
+                return Integer.parseInt(matcher.group(1));
+            }
+        }
+        throw new IOException("The shard process stopped before listening: " + indexName);
+    }
+
+    private IInvertedIndex openIndex(String indexName) throws IOException {
+        IndexReaderMemoryMapped reader = new IndexReaderMemoryMapped(indexName, indexDir);
+        reader.open();
+        readers.add(reader);
+        return new IndexFactory().getIndex(reader, SENTIMENTS);
+    }
+
+    private void buildIndex(String indexName, LongPredicate documentFilter) throws IOException {
+        List<DocumentTerms> documents = new ArrayList<>();
+        for (int docId = 0; docId < DOCS.length; docId++) {
+            if (documentFilter.test(docId)) {
+                DocumentTerms.Builder builder = DocumentTerms.builder(docId);
+                Arrays.stream(DOCS[docId]).forEach(builder::add);
+                documents.add(builder.build());
+            }
+        }
+        Iterator<DocumentTerms> iterator = documents.iterator();
+        IDocumentTermStream documentStream = new IDocumentTermStream() {
+            @Override
+            public DocumentTerms nextDocument() {
+                return iterator.next();
+            }
+
+            @Override
+            public boolean hasNextDocument() {
+                return iterator.hasNext();
+            }
+        };
+        new Indexer(indexName, documentStream, constructDir, indexDir, 16, 4, 1024, 1024).execute();
+    }
+
+    private static List<Long> docIds(List<ScoredDocument> results) {
+        return results.stream().map(ScoredDocument::getDocId).collect(toList());
+    }
+}
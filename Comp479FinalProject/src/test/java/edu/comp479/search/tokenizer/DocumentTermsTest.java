@@ -0,0 +1,82 @@
+package edu.comp479.search.tokenizer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class DocumentTermsTest {
+    private static final String TEXT = "The happy crawler crawled the happy web, happily. A HAPPY crawler!";
+
+    @Test
+    void testTermsFromAnalyzerSameAsStringTokens() {
+        TokenizerNormalize tokenizer = new TokenizerNormalize();
+        List<String> tokens = tokenizer.analyze(TEXT);
+
+        DocumentTerms.Builder builder = DocumentTerms.builder(7);
+        int termCount = tokenizer.analyze(TEXT, builder);
+        DocumentTerms document = builder.build();
+
+        assertEquals(tokens.size(), termCount);
+        assertEquals(7, document.getDocId());
+        assertEquals(countTokens(tokens), toMap(document));
+        assertEquals(3, (int) toMap(document).get("happy"));
+    }
+
+    @Test
+    void testManyDistinctTermsAreCounted() {
+        DocumentTerms.Builder builder = DocumentTerms.builder(1);
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            String term = "term" + (i % 1500);
+            builder.add(term);
+            expected.merge(term, 1, Integer::sum);
+        }
+
+        assertEquals(expected, toMap(builder.build()));
+    }
+
+    @Test
+    void testOnlyTheGivenLengthIsUsed() {
+        char[] buffer = "happyness".toCharArray();
+        DocumentTerms document = DocumentTerms.builder(1).add(buffer, 5).add("happy").build();
+
+        assertEquals(1, document.size());
+        assertEquals("happy", document.getTerm(0));
+        assertEquals(2, document.getTermFreq(0));
+    }
+
+    @Test
+    void testPositionsOfEachTerm() {
+        DocumentTerms document = DocumentTerms.builder(1).add("happy").add("crawler").add("happy").add("web")
+                .add("happy").build();
+
+        assertAll(() -> assertEquals("happy", document.getTerm(0)),
+                () -> assertArrayEquals(new int[] { 0, 2, 4 }, document.getPositions(0)),
+                () -> assertArrayEquals(new int[] { 1 }, document.getPositions(1)),
+                () -> assertArrayEquals(new int[] { 3 }, document.getPositions(2)),
+                () -> assertThrows(IndexOutOfBoundsException.class, () -> document.getPositions(3)));
+    }
+
+    @Test
+    void testFailOnNegativeDocId() {
+        assertThrows(IllegalArgumentException.class, () -> DocumentTerms.builder(-1));
+    }
+
+    private static Map<String, Integer> countTokens(List<String> tokens) {
+        Map<String, Integer> counts = new HashMap<>();
+        tokens.forEach((token) -> counts.merge(token, 1, Integer::sum));
+        return counts;
+    }
+
+    private static Map<String, Integer> toMap(DocumentTerms document) {
+        Map<String, Integer> termFreqs = new HashMap<>();
+        for (int i = 0; i < document.size(); i++) {
+            assertNull(termFreqs.put(document.getTerm(i), document.getTermFreq(i)));
+        }
+        return termFreqs;
+    }
+}
@@ -0,0 +1,81 @@
+package edu.comp479.search.tokenizer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.comp479.crawler.Document;
+import edu.comp479.crawler.IDocumentStore;
+
+class PrefetchingDocumentTermStreamTest {
+    private static final int DOC_COUNT = 20;
+
+    private IDocumentStore documentStore;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        documentStore = mock(IDocumentStore.class);
+        when(documentStore.readFromDisk(anyLong())).thenAnswer(invocation -> {
+            long docId = invocation.getArgument(0);
+            // The first documents are the slowest to read, they complete out of order
+            Thread.sleep(DOC_COUNT - docId);
+            if (docId % 5 == 4) {
+                return new Document("", "", "http://example.com/empty");
+            }
+            return new Document("happy title" + docId, "happy happy body" + docId, "http://example.com/" + docId);
+        });
+    }
+
+    @Test
+    void testTermFrequenciesSameAsTokenStream() {
+        List<Long> docIds = new ArrayList<>();
+        for (long docId = 0; docId < DOC_COUNT; docId++) {
+            docIds.add(docId);
+        }
+
+        Map<Long, Map<String, Integer>> expected = new HashMap<>();
+        TokenStream tokenStream = new TokenStream(documentStore, docIds);
+        while (tokenStream.hasNext()) {
+            IToken token = tokenStream.next();
+            expected.computeIfAbsent(token.getDocId(), (docId) -> new HashMap<>()).merge(token.getTerm(), 1,
+                    Integer::sum);
+        }
+
+        List<Long> actualOrder = new ArrayList<>();
+        Map<Long, Map<String, Integer>> actual = new HashMap<>();
+        try (PrefetchingDocumentTermStream documentStream = new PrefetchingDocumentTermStream(documentStore, docIds,
+                4, 8)) {
+            while (documentStream.hasNextDocument()) {
+                DocumentTerms document = documentStream.nextDocument();
+                actualOrder.add(document.getDocId());
+                Map<String, Integer> termFreqs = new HashMap<>();
+                for (int i = 0; i < document.size(); i++) {
+                    termFreqs.put(document.getTerm(i), document.getTermFreq(i));
+                }
+                actual.put(document.getDocId(), termFreqs);
+            }
+        }
+
+        assertEquals(expected, actual);
+        assertEquals(3, (int) actual.get(0L).get("happy"));
+        for (int i = 1; i < actualOrder.size(); i++) {
+            assertTrue(actualOrder.get(i - 1) < actualOrder.get(i));
+        }
+    }
+
+    @Test
+    void testEmptyDocIdListHasNoDocument() {
+        try (PrefetchingDocumentTermStream documentStream = new PrefetchingDocumentTermStream(documentStore,
+                new ArrayList<>())) {
+            assertFalse(documentStream.hasNextDocument());
+        }
+    }
+}
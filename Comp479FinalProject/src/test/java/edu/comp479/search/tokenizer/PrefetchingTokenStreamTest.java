@@ -0,0 +1,87 @@
+package edu.comp479.search.tokenizer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.comp479.crawler.Document;
+import edu.comp479.crawler.IDocumentStore;
+
+class PrefetchingTokenStreamTest {
+    private static final int DOC_COUNT = 20;
+
+    private IDocumentStore documentStore;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        documentStore = mock(IDocumentStore.class);
+        when(documentStore.readFromDisk(anyLong())).thenAnswer(invocation -> {
+            long docId = invocation.getArgument(0);
+            // The first documents are the slowest to read, they complete out of order
+            Thread.sleep(DOC_COUNT - docId);
+            if (docId % 5 == 4) {
+                return new Document("", "", "http://example.com/empty");
+            }
+            return new Document("title" + docId, "happy body" + docId, "http://example.com/" + docId);
+        });
+    }
+
+    @Test
+    void testTokensAreStreamedInDocIdListOrder() {
+        List<Long> docIds = new ArrayList<>();
+        for (long docId = 0; docId < DOC_COUNT; docId++) {
+            docIds.add(docId);
+        }
+
+        List<IToken> expected = drain(new TokenStream(documentStore, docIds));
+        List<IToken> actual;
+        try (PrefetchingTokenStream tokenStream = new PrefetchingTokenStream(documentStore, docIds, 4, 8)) {
+            actual = drain(tokenStream);
+        }
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getDocId(), actual.get(i).getDocId());
+            assertEquals(expected.get(i).getTerm(), actual.get(i).getTerm());
+        }
+        assertThat(actual.get(0).getTerm(), equalTo("title0"));
+    }
+
+    @Test
+    void testMissingDocumentsAreSkipped() {
+        when(documentStore.readFromDisk(1L)).thenReturn(null);
+
+        List<IToken> tokens;
+        try (PrefetchingTokenStream tokenStream = new PrefetchingTokenStream(documentStore,
+                Arrays.asList(0L, 1L, 2L), 2, 2)) {
+            tokens = drain(tokenStream);
+        }
+
+        assertThat(tokens, hasSize(6));
+        assertTrue(tokens.stream().noneMatch(token -> token.getDocId() == 1L));
+    }
+
+    @Test
+    void testEmptyDocIdListHasNoToken() {
+        try (PrefetchingTokenStream tokenStream = new PrefetchingTokenStream(documentStore, new ArrayList<>())) {
+            assertFalse(tokenStream.hasNext());
+        }
+    }
+
+    private static List<IToken> drain(ITokenStream tokenStream) {
+        List<IToken> tokens = new ArrayList<>();
+        while (tokenStream.hasNext()) {
+            tokens.add(tokenStream.next());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,92 @@
+package edu.comp479.search.tokenizer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.comp479.crawler.DocDiskManager;
+import edu.comp479.crawler.Document;
+import edu.comp479.crawler.DocumentPipe;
+import edu.comp479.search.util.TestDirectories;
+
+class StreamingTokenStreamTest {
+    private Path directory;
+    private DocDiskManager docDiskManager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory = Paths.get("./testDump/streaming/");
+        Files.createDirectories(directory);
+        docDiskManager = new DocDiskManager(directory);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        TestDirectories.deleteDirectory(directory);
+    }
+
+    @Test
+    void testTokensOfEveryDocumentAreStreamedAndCached() throws Exception {
+        DocumentPipe pipe = new DocumentPipe(1);
+        List<Document> documents = new ArrayList<>();
+        documents.add(new Document("First title", "happy apples", "http://example.com/1"));
+        documents.add(new Document("Second title", "sad bananas", "http://example.com/2"));
+        documents.add(new Document("", "", "http://example.com/empty"));
+
+        Thread producer = new Thread(() -> {
+            documents.forEach(pipe);
+            pipe.close();
+        });
+        producer.start();
+
+        StreamingTokenStream tokenStream = new StreamingTokenStream(pipe, docDiskManager);
+        List<String> terms = new ArrayList<>();
+        List<Long> docIds = new ArrayList<>();
+        while (tokenStream.hasNext()) {
+            IToken token = tokenStream.next();
+            terms.add(token.getTerm());
+            docIds.add(token.getDocId());
+        }
+        producer.join();
+
+        long firstId = documents.get(0).getDocumentId();
+        long secondId = documents.get(1).getDocumentId();
+        assertAll(
+                () -> assertThat(terms,
+                        contains("first", "title", "happy", "apples", "second", "title", "sad", "bananas")),
+                () -> assertThat(docIds, contains(firstId, firstId, firstId, firstId, secondId, secondId, secondId,
+                        secondId)),
+                () -> assertEquals(3, tokenStream.getDocumentCount()),
+                () -> assertEquals("http://example.com/2", docDiskManager.readLightFromDisk(secondId).getUrl()),
+                () -> assertEquals("sad bananas", docDiskManager.readFromDisk(secondId).getBody()));
+    }
+
+    @Test
+    void testAbortReleasesBlockedProducer() throws Exception {
+        DocumentPipe pipe = new DocumentPipe(1);
+        pipe.accept(new Document("title", "body", "http://example.com/"));
+
+        Thread producer = new Thread(() -> {
+            try {
+                pipe.accept(new Document("title", "body", "http://example.com/blocked"));
+            } catch (RuntimeException e) {
+                // Expected, the consumer aborted
+            }
+        });
+        producer.start();
+        pipe.abort();
+        producer.join(5000);
+
+        assertFalse(producer.isAlive());
+    }
+}
@@ -0,0 +1,36 @@
+package edu.comp479.search.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.*;
+
+/**
+ * Directories of the files written by the tests.
+ */
+public final class TestDirectories {
+
+    // Static Utility class
+    private TestDirectories() {
+    }
+
+    /**
+     * Deletes a directory and all its content, a missing directory is ignored.
+     *
+     * @param dir Directory to delete.
+     * @throws IOException
+     */
+    public static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+}